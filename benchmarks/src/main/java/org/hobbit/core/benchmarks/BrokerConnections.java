@@ -0,0 +1,79 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.benchmarks;
+
+import java.util.UUID;
+
+import org.hobbit.core.Constants;
+import org.hobbit.core.rabbit.inmemory.InMemoryConnectionFactory;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+/**
+ * Helper class creating the broker connections used by the benchmarks. The
+ * broker host is taken from the {@link Constants#RABBIT_MQ_HOST_NAME_KEY}
+ * environment variable (or system property) and defaults to
+ * {@link Constants#IN_MEMORY_BROKER_HOST_NAME}, i.e., the in-memory broker of
+ * the JVM. Thus, the benchmarks do not need any network access.
+ */
+public class BrokerConnections {
+
+    /**
+     * The host that is used if no other host has been defined.
+     */
+    public static final String DEFAULT_HOST = Constants.IN_MEMORY_BROKER_HOST_NAME;
+
+    /**
+     * @return the name of the broker host
+     */
+    public static String getHost() {
+        String host = System.getProperty(Constants.RABBIT_MQ_HOST_NAME_KEY);
+        if (host == null) {
+            host = System.getenv().getOrDefault(Constants.RABBIT_MQ_HOST_NAME_KEY, DEFAULT_HOST);
+        }
+        return host;
+    }
+
+    /**
+     * Creates a new connection to the broker.
+     *
+     * @return a new connection
+     * @throws Exception
+     *             if the connection can not be established
+     */
+    public static Connection createConnection() throws Exception {
+        String host = getHost();
+        if (Constants.IN_MEMORY_BROKER_HOST_NAME.equals(host)) {
+            return new InMemoryConnectionFactory().newConnection();
+        }
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost(host);
+        return factory.newConnection();
+    }
+
+    /**
+     * Generates a queue name that is unique for the current benchmark run.
+     *
+     * @param prefix
+     *            prefix of the queue name
+     * @return a unique queue name
+     */
+    public static String uniqueQueueName(String prefix) {
+        return "hobbit.bench." + prefix + "." + UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the costs of the byte array codecs of {@link RabbitMQUtils} that
+ * are used to build and parse the messages of the task and response queues,
+ * i.e., a task id followed by the task data. Run it with the
+ * <code>-prof gc</code> option to get the allocation rate. The costs per KB
+ * can be derived by dividing the results by the
+ * {@link #payloadSize}.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ByteArrayCodecBenchmark {
+
+    /**
+     * Size of the payload in bytes.
+     */
+    @Param({ "64", "1024", "65536", "1048576" })
+    public int payloadSize;
+
+    private byte[] taskId;
+    private byte[] payload;
+    private byte[] message;
+
+    @Setup
+    public void setUp() {
+        taskId = RabbitMQUtils.writeString("http://example.org/task/123456");
+        payload = new byte[payloadSize];
+        new Random(1).nextBytes(payload);
+        message = RabbitMQUtils.writeByteArrays(new byte[][] { taskId, payload });
+    }
+
+    @Benchmark
+    public byte[] writeByteArrays() {
+        return RabbitMQUtils.writeByteArrays(new byte[][] { taskId, payload });
+    }
+
+    @Benchmark
+    public byte[] writeByteArraysWithTimestamp() {
+        return RabbitMQUtils.writeByteArrays(null, new byte[][] { taskId, payload },
+                RabbitMQUtils.writeLong(System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    public byte[] readByteArray() {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        RabbitMQUtils.readString(buffer);
+        return RabbitMQUtils.readByteArray(buffer);
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiverImpl;
+import org.hobbit.core.rabbit.DataSenderImpl;
+import org.hobbit.core.rabbit.RabbitQueueFactoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput and the latency of messages sent from a
+ * {@link DataSenderImpl} to a {@link DataReceiverImpl} for different payload
+ * sizes, confirm buffer sizes and numbers of messages processed in parallel.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class DataSenderReceiverBenchmark {
+
+    /**
+     * Number of messages sent by a single invocation of the throughput
+     * benchmark.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Size of a single message in bytes.
+     */
+    @Param({ "64", "1024", "65536" })
+    public int payloadSize;
+
+    /**
+     * Size of the confirm buffer of the sender ({@code 0} = no confirms).
+     */
+    @Param({ "0", "1000" })
+    public int messageBuffer;
+
+    /**
+     * Number of messages processed in parallel by the receiver.
+     */
+    @Param({ "1", "50" })
+    public int maxParallelProcessedMsgs;
+
+    private RabbitQueueFactoryImpl senderFactory;
+    private RabbitQueueFactoryImpl receiverFactory;
+    private DataSenderImpl sender;
+    private DataReceiverImpl receiver;
+    private byte[] payload;
+    private final Semaphore receivedMessages = new Semaphore(0);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        payload = new byte[payloadSize];
+        new Random(1).nextBytes(payload);
+        senderFactory = new RabbitQueueFactoryImpl(BrokerConnections.createConnection());
+        receiverFactory = new RabbitQueueFactoryImpl(BrokerConnections.createConnection());
+        String queueName = BrokerConnections.uniqueQueueName("data");
+        receiver = DataReceiverImpl.builder().maxParallelProcessedMsgs(maxParallelProcessedMsgs)
+                .queue(receiverFactory, queueName).dataHandler(new DataHandler() {
+                    @Override
+                    public void handleData(byte[] data) {
+                        receivedMessages.release();
+                    }
+                }).build();
+        sender = DataSenderImpl.builder().messageBuffer(messageBuffer).queue(senderFactory, queueName).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (sender != null) {
+            sender.close();
+        }
+        if (receiver != null) {
+            receiver.close();
+        }
+        IOUtils.closeQuietly(senderFactory);
+        IOUtils.closeQuietly(receiverFactory);
+    }
+
+    /**
+     * Sends {@link #BATCH_SIZE} messages and waits until all of them have
+     * been handled by the receiver.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void throughput() throws Exception {
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            sender.sendData(payload);
+        }
+        receivedMessages.acquire(BATCH_SIZE);
+    }
+
+    /**
+     * Sends a single message and waits until it has been handled by the
+     * receiver.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() throws Exception {
+        sender.sendData(payload);
+        receivedMessages.acquire();
+    }
+}
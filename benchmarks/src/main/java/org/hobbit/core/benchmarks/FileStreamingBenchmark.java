@@ -0,0 +1,128 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.hobbit.core.rabbit.RabbitQueueFactoryImpl;
+import org.hobbit.core.rabbit.SimpleFileReceiver;
+import org.hobbit.core.rabbit.SimpleFileSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time needed to stream a file from a {@link SimpleFileSender}
+ * to a {@link SimpleFileReceiver} for different file and message sizes.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class FileStreamingBenchmark {
+
+    /**
+     * Size of the streamed file in bytes.
+     */
+    @Param({ "1048576", "16777216" })
+    public int fileSize;
+
+    /**
+     * Size of the single messages the file is split into.
+     */
+    @Param({ "16384", "65536" })
+    public int messageSize;
+
+    private RabbitQueueFactoryImpl senderFactory;
+    private RabbitQueueFactoryImpl receiverFactory;
+    private ExecutorService executor;
+    private File outputDir;
+    private byte[] content;
+
+    private SimpleFileSender sender;
+    private SimpleFileReceiver receiver;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        content = new byte[fileSize];
+        new Random(1).nextBytes(content);
+        senderFactory = new RabbitQueueFactoryImpl(BrokerConnections.createConnection());
+        receiverFactory = new RabbitQueueFactoryImpl(BrokerConnections.createConnection());
+        executor = Executors.newSingleThreadExecutor();
+        outputDir = Files.createTempDirectory("hobbit-bench").toFile();
+    }
+
+    @Setup(Level.Invocation)
+    public void createSenderAndReceiver() throws Exception {
+        // the receiver closes its queue after receiving the file, i.e., we need
+        // a new pair for every invocation
+        String queueName = BrokerConnections.uniqueQueueName("file");
+        receiver = SimpleFileReceiver.create(receiverFactory, queueName);
+        sender = SimpleFileSender.create(senderFactory, queueName);
+        sender.setMessageSize(messageSize);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeSender() {
+        IOUtils.closeQuietly(sender);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        IOUtils.closeQuietly(senderFactory);
+        IOUtils.closeQuietly(receiverFactory);
+        FileUtils.deleteQuietly(outputDir);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String[] streamFile() throws Exception {
+        Future<String[]> receivedFiles = executor.submit(new Callable<String[]>() {
+            @Override
+            public String[] call() throws Exception {
+                return receiver.receiveData(outputDir.getAbsolutePath());
+            }
+        });
+        sender.streamData(new ByteArrayInputStream(content), "file.dat");
+        receiver.terminate();
+        return receivedFiles.get();
+    }
+}
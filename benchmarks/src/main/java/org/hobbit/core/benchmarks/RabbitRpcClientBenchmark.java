@@ -0,0 +1,113 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hobbit.core.rabbit.RabbitRpcClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+
+/**
+ * Measures the round trip time of requests sent with the
+ * {@link RabbitRpcClient} to a simple echo server. The number of parallel
+ * requests can be increased using the JMH <code>-t</code> option since the
+ * client is shared by all benchmark threads.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class RabbitRpcClientBenchmark {
+
+    /**
+     * Size of a single request in bytes.
+     */
+    @Param({ "64", "1024", "65536" })
+    public int payloadSize;
+
+    private Connection clientConnection;
+    private Connection serverConnection;
+    private RabbitRpcClient client;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        payload = new byte[payloadSize];
+        new Random(1).nextBytes(payload);
+        String queueName = BrokerConnections.uniqueQueueName("rpc");
+        clientConnection = BrokerConnections.createConnection();
+        serverConnection = BrokerConnections.createConnection();
+        client = RabbitRpcClient.create(clientConnection, queueName);
+
+        // echo server
+        final Channel serverChannel = serverConnection.createChannel();
+        serverChannel.queueDeclare(queueName, false, false, true, null);
+        serverChannel.basicConsume(queueName, true, new DefaultConsumer(serverChannel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                    byte[] body) throws IOException {
+                serverChannel.basicPublish("", properties.getReplyTo(),
+                        new BasicProperties.Builder().correlationId(properties.getCorrelationId()).build(), body);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        if (clientConnection != null) {
+            clientConnection.close();
+        }
+        if (serverConnection != null) {
+            serverConnection.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] request() {
+        byte[] response = client.request(payload);
+        if (response == null) {
+            throw new IllegalStateException("Didn't receive a response.");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the costs of serializing and parsing RDF models with different
+ * serialization formats. The {@link #writeModel()} and {@link #readModel()}
+ * benchmarks use the same approach as
+ * {@link RabbitMQUtils#writeModel(Model)} and
+ * {@link RabbitMQUtils#readModel(byte[])} but with the given
+ * {@link #lang}. The {@link #rabbitMQUtilsWriteModel()} and
+ * {@link #rabbitMQUtilsReadModel()} benchmarks measure the current
+ * implementation (i.e., {@link RabbitMQUtils#DEFAULT_RDF_LANG}) and are
+ * therefore independent of the {@link #lang} parameter.
+ *
+ * <p>
+ * The models are either example graphs of the storage tests or generated
+ * result models (<code>generated-&lt;number of KPIs&gt;</code>). Run the
+ * benchmark with the <code>-prof gc</code> option to get the allocation rate.
+ * </p>
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RdfSerializationBenchmark {
+
+    private static final String GRAPH_RESOURCE_PATH = "org/hobbit/storage/queries/";
+    private static final String GENERATED_GRAPH_PREFIX = "generated-";
+    private static final String EXPERIMENT_URI = "http://w3id.org/hobbit/experiments#123";
+    private static final String KPI_URI_PREFIX = "http://example.org/benchmark#kpi";
+
+    /**
+     * The graph that is serialized.
+     */
+    @Param({ "getExperimentResult.ttl", "exampleChallengeConfig.ttl", "getChallengeTasksResult.ttl",
+            "generated-10", "generated-1000" })
+    public String graph;
+
+    /**
+     * The serialization format.
+     */
+    @Param({ "JSON-LD", "Turtle", "N-Triples", "RDF-THRIFT" })
+    public String lang;
+
+    private Lang rdfLang;
+    private Model model;
+    private byte[] serializedModel;
+    private byte[] defaultSerializedModel;
+
+    @Setup
+    public void setUp() throws Exception {
+        rdfLang = RDFLanguages.nameToLang(lang);
+        if (rdfLang == null) {
+            throw new IllegalArgumentException("Unknown RDF language \"" + lang + "\".");
+        }
+        model = loadModel(graph);
+        serializedModel = writeModel();
+        defaultSerializedModel = RabbitMQUtils.writeModel(model);
+    }
+
+    @Benchmark
+    public byte[] writeModel() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, model, rdfLang);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Model readModel() {
+        Model result = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(result, new ByteArrayInputStream(serializedModel), "", rdfLang);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] rabbitMQUtilsWriteModel() {
+        return RabbitMQUtils.writeModel(model);
+    }
+
+    @Benchmark
+    public Model rabbitMQUtilsReadModel() {
+        return RabbitMQUtils.readModel(defaultSerializedModel);
+    }
+
+    protected static Model loadModel(String graph) throws Exception {
+        Model model = ModelFactory.createDefaultModel();
+        if (graph.startsWith(GENERATED_GRAPH_PREFIX)) {
+            int numberOfKpis = Integer.parseInt(graph.substring(GENERATED_GRAPH_PREFIX.length()));
+            Resource experiment = model.createResource(EXPERIMENT_URI);
+            for (int i = 0; i < numberOfKpis; ++i) {
+                experiment.addLiteral(model.createProperty(KPI_URI_PREFIX + i), 0.5 * i);
+            }
+        } else {
+            InputStream in = RdfSerializationBenchmark.class.getClassLoader()
+                    .getResourceAsStream(GRAPH_RESOURCE_PATH + graph);
+            if (in == null) {
+                throw new IllegalArgumentException("Couldn't find graph \"" + graph + "\".");
+            }
+            try {
+                RDFDataMgr.read(model, in, Lang.TTL);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        return model;
+    }
+}
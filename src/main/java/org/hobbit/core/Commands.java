@@ -96,6 +96,20 @@ public final class Commands {
 
     public static final byte START_BENCHMARK_SIGNAL = 17;
 
+    /**
+     * The signal sent by the evaluation module containing a snapshot of the
+     * KPIs that have been computed so far as serialized RDF model. A snapshot
+     * replaces the previously sent snapshot.
+     */
+    public static final byte EVAL_MODULE_KPI_SNAPSHOT = 18;
+
+    /**
+     * The signal sent by the benchmark controller to the platform containing
+     * the latest KPI snapshot of the running experiment together with the
+     * benchmark parameters as serialized RDF model.
+     */
+    public static final byte BENCHMARK_KPI_SNAPSHOT = 19;
+
     private static final ImmutableMap<Byte, String> ID_TO_COMMAND_NAME_MAP = generateMap();
 
     private static ImmutableMap<Byte, String> generateMap() {
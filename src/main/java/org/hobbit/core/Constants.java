@@ -55,8 +55,75 @@ public final class Constants {
 
     public static final String ACKNOWLEDGEMENT_FLAG_KEY = "ACKNOWLEDGEMENT_FLAG";
 
+    public static final String ACKNOWLEDGEMENT_BATCH_SIZE_KEY = "ACKNOWLEDGEMENT_BATCH_SIZE";
+
+    public static final String ACKNOWLEDGEMENT_BATCH_TIMEOUT_KEY = "ACKNOWLEDGEMENT_BATCH_TIMEOUT";
+
+    public static final String HIGH_RESOLUTION_TIMESTAMPS_KEY = "HOBBIT_HIGH_RESOLUTION_TIMESTAMPS";
+
+    public static final String METRICS_JMX_KEY = "HOBBIT_METRICS_JMX";
+
+    public static final String METRICS_HTTP_PORT_KEY = "HOBBIT_METRICS_HTTP_PORT";
+
+    public static final String METRICS_HTTP_HOST_KEY = "HOBBIT_METRICS_HTTP_HOST";
+
+    /**
+     * Directory shared by the co-located components of a benchmark. If it is
+     * defined, the data queues are transferred via shared memory instead of
+     * RabbitMQ. The variable is passed on to the containers created by the
+     * component.
+     */
+    public static final String SHARED_MEMORY_DIR_KEY = "HOBBIT_SHM_DIR";
+
+    /**
+     * Capacity in bytes of the shared memory buffers (has to be a power of
+     * two).
+     */
+    public static final String SHARED_MEMORY_CAPACITY_KEY = "HOBBIT_SHM_CAPACITY";
+
+    /**
+     * Flag indicating whether the data queues from and to the system adapter
+     * use shared memory as well. It has to be set for the benchmark
+     * components and the system adapter since the system adapter does not
+     * inherit the shared memory settings.
+     */
+    public static final String SHARED_MEMORY_SYSTEM_QUEUES_KEY = "HOBBIT_SHM_SYSTEM_QUEUES";
+
+    /**
+     * Flag indicating whether the data queues should use the
+     * {@link org.hobbit.core.rabbit.QueueOptions#EPHEMERAL} options, i.e.,
+     * transient messages. It has to be set for all components of a benchmark.
+     */
+    public static final String EPHEMERAL_DATA_QUEUES_KEY = "HOBBIT_EPHEMERAL_DATA_QUEUES";
+
+    /**
+     * Number of messages that can be in flight between the data generators and
+     * every single task generator. If it is defined, the data generators only
+     * send data to the task generators for which the task generators granted
+     * credits. It has to be set for the data and task generators of a
+     * benchmark. The data sent to the system is not flow controlled since the
+     * system adapter is configured independently of the benchmark.
+     */
+    public static final String DATA_FLOW_CONTROL_WINDOW_KEY = "HOBBIT_DATA_FLOW_CONTROL_WINDOW";
+
+    /**
+     * Flag set by the benchmark controller for the evaluation module if the
+     * result model should be streamed in chunks via the
+     * {@link #EVAL_MODULE_2_BENCHMARK_CONTROLLER_QUEUE_NAME} queue instead of
+     * being sent as a single command message.
+     */
+    public static final String RESULT_MODEL_STREAMING_KEY = "HOBBIT_RESULT_MODEL_STREAMING";
+
     // =============== RABBIT CONSTANTS ===============
 
+    /**
+     * Value of the {@link #RABBIT_MQ_HOST_NAME_KEY} environment variable that
+     * lets the components connect to the
+     * {@link org.hobbit.core.rabbit.inmemory.InMemoryBroker} of their JVM
+     * instead of a RabbitMQ broker.
+     */
+    public static final String IN_MEMORY_BROKER_HOST_NAME = "hobbit.in-memory";
+
     /**
      * Name of the hobbit command exchange.
      */
@@ -67,6 +134,12 @@ public final class Constants {
      */
     public static final String HOBBIT_ACK_EXCHANGE_NAME = "hobbit.ack";
 
+    /**
+     * Type of the messages on the acknowledgement exchange that contain a
+     * batch of task ids instead of a single id.
+     */
+    public static final String HOBBIT_ACK_BATCH_MESSAGE_TYPE = "hobbit.ack.batch";
+
     /**
      * Name of the hobbit docker service queue.
      */
@@ -79,6 +152,20 @@ public final class Constants {
 
     public static final String TASK_GEN_2_SYSTEM_QUEUE_NAME = "hobbit.taskgen-system";
 
+    /**
+     * Queue from which the data generators pull the
+     * {@link org.hobbit.core.data.WorkRange}s published by the benchmark
+     * controller.
+     */
+    public static final String DATA_GEN_WORK_RANGES_QUEUE_NAME = "hobbit.datagen-workranges";
+
+    /**
+     * Queue from which the task generators pull the
+     * {@link org.hobbit.core.data.WorkRange}s published by the benchmark
+     * controller.
+     */
+    public static final String TASK_GEN_WORK_RANGES_QUEUE_NAME = "hobbit.taskgen-workranges";
+
     public static final String TASK_GEN_2_EVAL_STORAGE_QUEUE_NAME = "hobbit.taskgen-evalstore";
 
     public static final String SYSTEM_2_EVAL_STORAGE_QUEUE_NAME = "hobbit.system-evalstore";
@@ -87,6 +174,8 @@ public final class Constants {
 
     public static final String EVAL_STORAGE_2_EVAL_MODULE_QUEUE_NAME = "hobbit.evalstore-evalmod";
 
+    public static final String EVAL_MODULE_2_BENCHMARK_CONTROLLER_QUEUE_NAME = "hobbit.evalmod-controller";
+
     public static final String FRONT_END_2_CONTROLLER_QUEUE_NAME = "hobbit.frontend-controller";
 
     public static final String CONTROLLER_2_FRONT_END_QUEUE_NAME = "hobbit.controller-frontend";
@@ -18,13 +18,22 @@ package org.hobbit.core.components;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
@@ -35,12 +44,22 @@ import org.apache.jena.rdf.model.StmtIterator;
 import org.apache.jena.vocabulary.RDF;
 import org.hobbit.core.Commands;
 import org.hobbit.core.Constants;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiver;
+import org.hobbit.core.rabbit.FlowControlledDataSender;
 import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.hobbit.core.rabbit.WorkRangeQueue;
 import org.hobbit.vocab.HOBBIT;
 import org.hobbit.vocab.HobbitErrors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.rabbitmq.client.Channel;
+
 /**
  * This abstract class implements basic methods for a benchmark controller.
  *
@@ -53,6 +72,15 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
 
     protected static final String DEFAULT_EVAL_STORAGE_IMAGE = "git.project-hobbit.eu:4567/defaulthobbituser/defaultevaluationstorage:1.0.4";
     protected static final String[] DEFAULT_EVAL_STORAGE_PARAMETERS = new String[] { "HOBBIT_RIAK_NODES=1" };
+    /**
+     * Maximum number of result model chunks that are parsed in parallel.
+     */
+    private static final int MAX_PARALLEL_RESULT_MODEL_CHUNKS = 4;
+    /**
+     * Default maximum time (in milliseconds) the controller waits for the
+     * remaining chunks of a streamed result model.
+     */
+    private static final long DEFAULT_RESULT_MODEL_TIMEOUT = 60000;
 
     /**
      * The benchmark result as RDF model received from the evaluation module.
@@ -102,6 +130,79 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      * Mutex used to wait for the evaluation module to terminate.
      */
     protected Semaphore evalModuleTerminatedMutex = new Semaphore(0);
+    /**
+     * Lifecycle of the data generators.
+     */
+    protected final LifecycleBarrier dataGenLifecycle = new LifecycleBarrier("data generators");
+    /**
+     * Lifecycle of the task generators.
+     */
+    protected final LifecycleBarrier taskGenLifecycle = new LifecycleBarrier("task generators");
+    /**
+     * Lifecycle of the evaluation storage.
+     */
+    protected final LifecycleBarrier evalStoreLifecycle = new LifecycleBarrier("evaluation storage");
+    /**
+     * Lifecycle of the evaluation module.
+     */
+    protected final LifecycleBarrier evalModuleLifecycle = new LifecycleBarrier("evaluation module");
+    /**
+     * Receiver of the result model chunks streamed by the evaluation module or
+     * {@code null} if the result model is expected as a single command
+     * message.
+     */
+    protected DataReceiver resultModelReceiver = null;
+    /**
+     * Maximum time (in milliseconds) the controller waits for the remaining
+     * chunks of a streamed result model after the evaluation module sent its
+     * finished signal. After that, the error result model is generated.
+     */
+    protected long resultModelTimeout = DEFAULT_RESULT_MODEL_TIMEOUT;
+    /**
+     * Queues of the work ranges published for the data and task generators.
+     * They are deleted when the controller is closed.
+     */
+    private List<WorkRangeQueue> workRangeQueues = new ArrayList<WorkRangeQueue>();
+    /**
+     * The latest KPI snapshot received from the evaluation module or
+     * {@code null} if no snapshot has been received.
+     */
+    protected Model latestKpiSnapshot = null;
+    /**
+     * Flag indicating whether a result model has been sent to the platform.
+     * It is guarded by the {@link #resultModelMutex}.
+     */
+    private boolean resultModelSent = false;
+    /**
+     * The reason why the benchmark has been aborted or {@code null} if it
+     * hasn't been aborted.
+     */
+    private volatile String abortReason = null;
+    /**
+     * The thread executing the {@link #run()} method. It is guarded by the
+     * {@link #abortLock}.
+     */
+    private Thread benchmarkThread = null;
+    /**
+     * Lock used to interrupt the {@link #benchmarkThread} only while it is
+     * executing the benchmark.
+     */
+    private final Object abortLock = new Object();
+    /**
+     * Executor with a single thread handling the commands that might take some
+     * time, i.e., the result model, the KPI snapshots and the termination of
+     * containers. Since the same thread is used for all of them, a result
+     * model is always processed before the termination of the evaluation
+     * module.
+     */
+    private final ExecutorService cmdExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "benchmark-controller-commands");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     /**
      * The set of data generator container ids.
      */
@@ -137,6 +238,80 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
 
     public AbstractBenchmarkController() {
         defaultContainerType = Constants.CONTAINER_TYPE_BENCHMARK;
+        registerCommandHandlers();
+    }
+
+    /**
+     * Registers the handlers of the commands the benchmark controller reacts
+     * to.
+     */
+    private void registerCommandHandlers() {
+        registerCommandHandler(Commands.START_BENCHMARK_SIGNAL, new CommandHandler() {
+            @Override
+            public void handleCommand(byte command, byte[] data) {
+                startBenchmarkMutex.release();
+                systemContainerId = RabbitMQUtils.readString(data);
+            }
+        });
+        registerCommandHandler(Commands.DATA_GENERATOR_READY_SIGNAL, new CommandHandler() {
+            @Override
+            public void handleCommand(byte command, byte[] data) {
+                LOGGER.debug("Received DATA_GENERATOR_READY_SIGNAL");
+                dataGenReadyMutex.release();
+                dataGenLifecycle.componentReady();
+            }
+        });
+        registerCommandHandler(Commands.TASK_GENERATOR_READY_SIGNAL, new CommandHandler() {
+            @Override
+            public void handleCommand(byte command, byte[] data) {
+                LOGGER.debug("Received TASK_GENERATOR_READY_SIGNAL");
+                taskGenReadyMutex.release();
+                taskGenLifecycle.componentReady();
+            }
+        });
+        registerCommandHandler(Commands.EVAL_STORAGE_READY_SIGNAL, new CommandHandler() {
+            @Override
+            public void handleCommand(byte command, byte[] data) {
+                LOGGER.debug("Received EVAL_STORAGE_READY_SIGNAL");
+                evalStoreReadyMutex.release();
+                evalStoreLifecycle.componentReady();
+            }
+        });
+        registerCommandHandler(Commands.DOCKER_CONTAINER_TERMINATED, new CommandHandler() {
+            @Override
+            public void handleCommand(byte command, byte[] data) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                String containerName = RabbitMQUtils.readString(buffer);
+                int exitCode = buffer.get();
+                containerTerminated(containerName, exitCode);
+            }
+        }, cmdExecutor);
+        registerCommandHandler(Commands.EVAL_MODULE_KPI_SNAPSHOT, new CommandHandler() {
+            @Override
+            public void handleCommand(byte command, byte[] data) {
+                handleKpiSnapshot(RabbitMQUtils.readModel(data));
+            }
+        }, cmdExecutor);
+        registerCommandHandler(Commands.EVAL_MODULE_FINISHED_SIGNAL, new CommandHandler() {
+            @Override
+            public void handleCommand(byte command, byte[] data) {
+                if ((data.length == 0) && (resultModelReceiver != null)) {
+                    // the model has been streamed, wait for the remaining
+                    // chunks
+                    DataReceiver receiver = resultModelReceiver;
+                    resultModelReceiver = null;
+                    if (closeWhenFinished(receiver, resultModelTimeout)) {
+                        setResultModel(ModelFactory.createDefaultModel());
+                    } else {
+                        LOGGER.error("Didn't receive the complete result model within {}ms.", resultModelTimeout);
+                        generateErrorResultModel();
+                    }
+                } else {
+                    setResultModel(RabbitMQUtils.readModel(data));
+                }
+                LOGGER.info("model size = " + resultModel.size());
+            }
+        }, cmdExecutor);
     }
 
     @Override
@@ -170,12 +345,44 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
     }
 
+    /**
+     * Signals the platform that the controller is ready, waits for the start
+     * signal and executes the benchmark. If the benchmark is aborted (see
+     * {@link #abortBenchmark(String)}), the thread executing the benchmark is
+     * interrupted and this method throws an exception to let the component
+     * terminate with an error code.
+     *
+     * @throws IllegalStateException
+     *             if the benchmark has been aborted
+     */
     @Override
     public void run() throws Exception {
-        sendToCmdQueue(Commands.BENCHMARK_READY_SIGNAL);
-        // wait for the start signal
-        startBenchmarkMutex.acquire();
-        executeBenchmark();
+        synchronized (abortLock) {
+            benchmarkThread = Thread.currentThread();
+        }
+        try {
+            if (abortReason == null) {
+                sendToCmdQueue(Commands.BENCHMARK_READY_SIGNAL);
+                // wait for the start signal
+                startBenchmarkMutex.acquire();
+                executeBenchmark();
+            }
+        } catch (Exception e) {
+            if (abortReason != null) {
+                throw new IllegalStateException("The benchmark has been aborted. " + abortReason, e);
+            }
+            throw e;
+        } finally {
+            synchronized (abortLock) {
+                benchmarkThread = null;
+                // clear a pending interrupt to let the component close its
+                // resources
+                Thread.interrupted();
+            }
+        }
+        if (abortReason != null) {
+            throw new IllegalStateException("The benchmark has been aborted. " + abortReason);
+        }
     }
 
     protected abstract void executeBenchmark() throws Exception;
@@ -193,7 +400,28 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      */
     protected void createDataGenerators(String dataGeneratorImageName, int numberOfDataGenerators,
             String[] envVariables) {
-        createGenerator(dataGeneratorImageName, numberOfDataGenerators, envVariables, dataGenContainerIds);
+        waitForContainerCreation(
+                createDataGeneratorsAsync(dataGeneratorImageName, numberOfDataGenerators, envVariables));
+    }
+
+    /**
+     * Requests the given number of data generators using the given image name
+     * and environment variables without waiting for their creation. The
+     * returned future fails if one of the generators couldn't be created.
+     *
+     * @param dataGeneratorImageName
+     *            name of the data generator Docker image
+     * @param numberOfDataGenerators
+     *            number of generators that should be created
+     * @param envVariables
+     *            environment variables for the data generators
+     * @return a future of the names of the created containers
+     * @see #waitForContainerCreation(ListenableFuture...)
+     */
+    protected ListenableFuture<List<String>> createDataGeneratorsAsync(String dataGeneratorImageName,
+            int numberOfDataGenerators, String[] envVariables) {
+        return createGenerator(dataGeneratorImageName, numberOfDataGenerators, envVariables, dataGenContainerIds,
+                dataGenLifecycle);
     }
 
     /**
@@ -209,11 +437,33 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      */
     protected void createTaskGenerators(String taskGeneratorImageName, int numberOfTaskGenerators,
             String[] envVariables) {
-        createGenerator(taskGeneratorImageName, numberOfTaskGenerators, envVariables, taskGenContainerIds);
+        waitForContainerCreation(
+                createTaskGeneratorsAsync(taskGeneratorImageName, numberOfTaskGenerators, envVariables));
     }
 
     /**
-     * Internal method for creating generator components.
+     * Requests the given number of task generators using the given image name
+     * and environment variables without waiting for their creation. The
+     * returned future fails if one of the generators couldn't be created.
+     *
+     * @param taskGeneratorImageName
+     *            name of the task generator Docker image
+     * @param numberOfTaskGenerators
+     *            number of generators that should be created
+     * @param envVariables
+     *            environment variables for the task generators
+     * @return a future of the names of the created containers
+     * @see #waitForContainerCreation(ListenableFuture...)
+     */
+    protected ListenableFuture<List<String>> createTaskGeneratorsAsync(String taskGeneratorImageName,
+            int numberOfTaskGenerators, String[] envVariables) {
+        return createGenerator(taskGeneratorImageName, numberOfTaskGenerators, envVariables, taskGenContainerIds,
+                taskGenLifecycle);
+    }
+
+    /**
+     * Internal method for creating generator components. All creation requests
+     * are sent at once.
      *
      * @param generatorImageName
      *            name of the generator Docker image
@@ -223,24 +473,65 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      *            environment variables for the task generators
      * @param generatorIds
      *            set of generator container names
+     * @param lifecycle
+     *            the lifecycle barrier of the generators
+     * @return a future of the names of the created containers
      */
-    private void createGenerator(String generatorImageName, int numberOfGenerators, String[] envVariables,
-            Set<String> generatorIds) {
-        String containerId;
+    private ListenableFuture<List<String>> createGenerator(String generatorImageName, int numberOfGenerators,
+            String[] envVariables, final Set<String> generatorIds, final LifecycleBarrier lifecycle) {
         String variables[] = envVariables != null ? Arrays.copyOf(envVariables, envVariables.length + 2)
                 : new String[2];
         variables[variables.length - 2] = Constants.GENERATOR_COUNT_KEY + "=" + numberOfGenerators;
+        List<ListenableFuture<String>> containerNames = new ArrayList<ListenableFuture<String>>(numberOfGenerators);
+        // the generators might send their ready signals or crash before all
+        // their names are known
+        lifecycle.expectContainers(numberOfGenerators);
         for (int i = 0; i < numberOfGenerators; ++i) {
             variables[variables.length - 1] = Constants.GENERATOR_ID_KEY + "=" + i;
-            containerId = createContainer(generatorImageName, variables);
-            if (containerId != null) {
-                generatorIds.add(containerId);
-            } else {
-                String errorMsg = "Couldn't create generator component. Aborting.";
-                LOGGER.error(errorMsg);
-                throw new IllegalStateException(errorMsg);
-            }
+            // the variables are serialized before this method returns, so the
+            // array can be reused
+            containerNames.add(createContainerAsync(generatorImageName, variables));
         }
+        return failLifecycleOnError(Futures.transform(Futures.allAsList(containerNames),
+                new Function<List<String>, List<String>>() {
+                    @Override
+                    public List<String> apply(List<String> names) {
+                        if (names.contains(null)) {
+                            throw new IllegalStateException("Couldn't create generator component. Aborting.");
+                        }
+                        synchronized (generatorIds) {
+                            generatorIds.addAll(names);
+                        }
+                        lifecycle.expect(names);
+                        return names;
+                    }
+                }), lifecycle);
+    }
+
+    /**
+     * Lets the given lifecycle barrier fail if the given container creation
+     * fails. Otherwise, threads waiting for the barrier would wait for
+     * containers that will never be created.
+     *
+     * @param future
+     *            the future of the container creation
+     * @param lifecycle
+     *            the lifecycle barrier of the created containers
+     * @return the given future
+     */
+    private <T> ListenableFuture<T> failLifecycleOnError(ListenableFuture<T> future,
+            final LifecycleBarrier lifecycle) {
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                lifecycle.creationFailed(t);
+            }
+        });
+        return future;
     }
 
     /**
@@ -253,13 +544,103 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      *            environment variables that should be given to the module
      */
     protected void createEvaluationModule(String evalModuleImageName, String[] envVariables) {
+        waitForContainerCreation(createEvaluationModuleAsync(evalModuleImageName, envVariables));
+    }
+
+    /**
+     * Requests the evaluation module using the given image name and
+     * environment variables without waiting for its creation.
+     *
+     * @param evalModuleImageName
+     *            name of the evaluation module image
+     * @param envVariables
+     *            environment variables that should be given to the module
+     * @return a future of the name of the created container
+     * @see #waitForContainerCreation(ListenableFuture...)
+     */
+    protected ListenableFuture<String> createEvaluationModuleAsync(String evalModuleImageName,
+            String[] envVariables) {
         envVariables = ArrayUtils.add(envVariables, Constants.HOBBIT_EXPERIMENT_URI_KEY + "=" + experimentUri);
-        evalModuleContainerId = createContainer(evalModuleImageName, envVariables);
-        if (evalModuleContainerId == null) {
-            String errorMsg = "Couldn't create evaluation module. Aborting.";
-            LOGGER.error(errorMsg);
-            throw new IllegalStateException(errorMsg);
+        if (initResultModelReceiver()) {
+            envVariables = ArrayUtils.add(envVariables, Constants.RESULT_MODEL_STREAMING_KEY + "=true");
+        }
+        evalModuleLifecycle.expectContainers(1);
+        return failLifecycleOnError(Futures.transform(createContainerAsync(evalModuleImageName, envVariables),
+                new Function<String, String>() {
+                    @Override
+                    public String apply(String containerName) {
+                        if (containerName == null) {
+                            throw new IllegalStateException("Couldn't create evaluation module. Aborting.");
+                        }
+                        evalModuleContainerId = containerName;
+                        evalModuleLifecycle.expect(containerName);
+                        return containerName;
+                    }
+                }), evalModuleLifecycle);
+    }
+
+    /**
+     * Waits at most the given time for the given receiver to finish its work.
+     * If it does not finish in time, it is closed directly. This prevents the
+     * {@link #cmdExecutor} from getting stuck, e.g., if the evaluation module
+     * crashed while streaming the result model.
+     *
+     * @param receiver
+     *            the receiver that should be closed
+     * @param maxWaitingTime
+     *            the maximum waiting time in milliseconds
+     * @return {@code true} if the receiver finished its work in time, else
+     *         {@code false}
+     */
+    private boolean closeWhenFinished(final DataReceiver receiver, long maxWaitingTime) {
+        Thread closingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receiver.closeWhenFinished();
+            }
+        }, "result-model-receiver-closing");
+        closingThread.setDaemon(true);
+        closingThread.start();
+        try {
+            closingThread.join(maxWaitingTime);
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for the result model receiver.", e);
         }
+        if (closingThread.isAlive()) {
+            closingThread.interrupt();
+            IOUtils.closeQuietly(receiver);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates the {@link #resultModelReceiver} if it does not exist. The
+     * received chunks of the result model are added to the
+     * {@link #resultModel} directly, i.e., the complete serialized model is
+     * never held in memory.
+     *
+     * @return {@code true} if the receiver is available, {@code false} if it
+     *         couldn't be created and the evaluation module has to send the
+     *         result model as a single command message
+     */
+    protected boolean initResultModelReceiver() {
+        if (resultModelReceiver == null) {
+            try {
+                resultModelReceiver = dataTransport.createReceiver(
+                        generateSessionQueueName(Constants.EVAL_MODULE_2_BENCHMARK_CONTROLLER_QUEUE_NAME),
+                        new DataHandler() {
+                            @Override
+                            public void handleData(byte[] data) {
+                                mergeIntoResultModel(RabbitMQUtils.readModelChunk(data));
+                            }
+                        }, MAX_PARALLEL_RESULT_MODEL_CHUNKS);
+            } catch (IOException e) {
+                LOGGER.warn("Couldn't create the receiver for the result model. It will be received as command message.",
+                        e);
+            }
+        }
+        return resultModelReceiver != null;
     }
 
     /**
@@ -267,9 +648,20 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      * environment variables.
      */
     protected void createEvaluationStorage() {
+        waitForContainerCreation(createEvaluationStorageAsync());
+    }
+
+    /**
+     * Requests the default evaluation storage without waiting for its
+     * creation.
+     *
+     * @return a future of the name of the created container
+     * @see #waitForContainerCreation(ListenableFuture...)
+     */
+    protected ListenableFuture<String> createEvaluationStorageAsync() {
         String[] envVariables = ArrayUtils.add(DEFAULT_EVAL_STORAGE_PARAMETERS,
                 Constants.RABBIT_MQ_HOST_NAME_KEY + "=" + this.rabbitMQHostName);
-        createEvaluationStorage(DEFAULT_EVAL_STORAGE_IMAGE, envVariables);
+        return createEvaluationStorageAsync(DEFAULT_EVAL_STORAGE_IMAGE, envVariables);
     }
 
     /**
@@ -282,11 +674,67 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      *            environment variables that should be given to the component
      */
     protected void createEvaluationStorage(String evalStorageImageName, String[] envVariables) {
-        evalStoreContainerId = createContainer(evalStorageImageName, Constants.CONTAINER_TYPE_DATABASE, envVariables);
-        if (evalStoreContainerId == null) {
-            String errorMsg = "Couldn't create evaluation storage. Aborting.";
-            LOGGER.error(errorMsg);
-            throw new IllegalStateException(errorMsg);
+        waitForContainerCreation(createEvaluationStorageAsync(evalStorageImageName, envVariables));
+    }
+
+    /**
+     * Requests the evaluation storage using the given image name and
+     * environment variables without waiting for its creation.
+     *
+     * @param evalStorageImageName
+     *            name of the evaluation storage image
+     * @param envVariables
+     *            environment variables that should be given to the component
+     * @return a future of the name of the created container
+     * @see #waitForContainerCreation(ListenableFuture...)
+     */
+    protected ListenableFuture<String> createEvaluationStorageAsync(String evalStorageImageName,
+            String[] envVariables) {
+        evalStoreLifecycle.expectContainers(1);
+        return failLifecycleOnError(Futures.transform(
+                createContainerAsync(evalStorageImageName, Constants.CONTAINER_TYPE_DATABASE, envVariables),
+                new Function<String, String>() {
+                    @Override
+                    public String apply(String containerName) {
+                        if (containerName == null) {
+                            throw new IllegalStateException("Couldn't create evaluation storage. Aborting.");
+                        }
+                        evalStoreContainerId = containerName;
+                        evalStoreLifecycle.expect(containerName);
+                        return containerName;
+                    }
+                }), evalStoreLifecycle);
+    }
+
+    /**
+     * Waits until all given container creations have been completed. This
+     * makes it possible to request all components of a benchmark at once,
+     * e.g.,
+     *
+     * <pre>
+     * waitForContainerCreation(createDataGeneratorsAsync(...),
+     *         createTaskGeneratorsAsync(...), createEvaluationStorageAsync());
+     * </pre>
+     *
+     * @param futures
+     *            the futures returned by the asynchronous creation methods
+     * @throws IllegalStateException
+     *             if one of the containers couldn't be created or the
+     *             platform did not respond in time
+     */
+    protected void waitForContainerCreation(ListenableFuture<?>... futures) {
+        try {
+            Futures.allAsList(futures).get(getCmdResponseTimeout(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            LOGGER.error("Couldn't create container.", e.getCause());
+            if (e.getCause() instanceof IllegalStateException) {
+                throw (IllegalStateException) e.getCause();
+            }
+            throw new IllegalStateException("Couldn't create container. Aborting.", e.getCause());
+        } catch (TimeoutException | InterruptedException e) {
+            String errorMsg = "Didn't got responses for all container creation requests. Aborting.";
+            LOGGER.error(errorMsg, e);
+            throw new IllegalStateException(errorMsg, e);
         }
     }
 
@@ -321,6 +769,76 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
     }
 
+    /**
+     * This method waits for the data generators, task generators and evaluation
+     * storage to send their ready signals. In contrast to
+     * {@link #waitForComponentsToInitialize()}, it fails if one of the
+     * components crashes or if the components are not ready within the given
+     * time.
+     *
+     * @param maxWaitingTime
+     *            maximum waiting time in milliseconds
+     * @throws IllegalStateException
+     *             if a component crashed, the time is over or the thread has
+     *             been interrupted
+     */
+    protected void waitForComponentsToInitialize(long maxWaitingTime) {
+        LOGGER.debug("Waiting for {} Data Generators, {} Task Generators and the Evaluation Storage to be ready.",
+                dataGenLifecycle.getNumberOfContainers(), taskGenLifecycle.getNumberOfContainers());
+        waitForLifecycle(LifecycleBarrier.State.READY, maxWaitingTime, dataGenLifecycle, taskGenLifecycle,
+                evalStoreLifecycle);
+    }
+
+    /**
+     * Splits the items from 0 to numberOfItems (exclusive) into ranges of the
+     * given size and publishes them for the data generators. The generators
+     * pull these ranges using {@link AbstractDataGenerator#getNextWorkRange()},
+     * i.e., the work is distributed dynamically instead of being partitioned
+     * based on the generator ids. The method has to be called before the
+     * {@link Commands#DATA_GENERATOR_START_SIGNAL} is sent.
+     *
+     * @param numberOfItems
+     *            the number of items that should be generated
+     * @param rangeSize
+     *            the maximum number of items of a single range. Smaller
+     *            ranges balance the load better while larger ranges lead to
+     *            less communication.
+     * @return the number of published ranges
+     * @throws IOException
+     *             if the ranges can not be published
+     */
+    protected int publishDataGeneratorWorkRanges(long numberOfItems, long rangeSize) throws IOException {
+        return publishWorkRanges(Constants.DATA_GEN_WORK_RANGES_QUEUE_NAME, numberOfItems, rangeSize);
+    }
+
+    /**
+     * Splits the items from 0 to numberOfItems (exclusive) into ranges of the
+     * given size and publishes them for the task generators (see
+     * {@link AbstractTaskGenerator#getNextWorkRange()}). The method has to be
+     * called before the {@link Commands#TASK_GENERATOR_START_SIGNAL} is sent.
+     *
+     * @param numberOfItems
+     *            the number of items for which tasks should be generated
+     * @param rangeSize
+     *            the maximum number of items of a single range
+     * @return the number of published ranges
+     * @throws IOException
+     *             if the ranges can not be published
+     */
+    protected int publishTaskGeneratorWorkRanges(long numberOfItems, long rangeSize) throws IOException {
+        return publishWorkRanges(Constants.TASK_GEN_WORK_RANGES_QUEUE_NAME, numberOfItems, rangeSize);
+    }
+
+    private int publishWorkRanges(String queueName, long numberOfItems, long rangeSize) throws IOException {
+        WorkRangeQueue queue = createWorkRangeQueue(queueName);
+        synchronized (workRangeQueues) {
+            workRangeQueues.add(queue);
+        }
+        int count = queue.publishRanges(0, numberOfItems, rangeSize);
+        LOGGER.debug("Published {} work ranges on {}.", count, queue.getQueueName());
+        return count;
+    }
+
     /**
      * Waits for the termination of all data generators.
      */
@@ -342,6 +860,29 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
     }
 
+    /**
+     * Waits for the termination of all data generators. In contrast to
+     * {@link #waitForDataGenToFinish()}, it fails if one of the data
+     * generators crashes or if they do not terminate within the given time.
+     *
+     * @param maxWaitingTime
+     *            maximum waiting time in milliseconds
+     * @throws IllegalStateException
+     *             if a data generator crashed, the time is over or the thread
+     *             has been interrupted
+     */
+    protected void waitForDataGenToFinish(long maxWaitingTime) {
+        LOGGER.debug("Waiting for {} Data Generators to finish.", dataGenLifecycle.getNumberOfContainers());
+        waitForLifecycle(LifecycleBarrier.State.TERMINATED, maxWaitingTime, dataGenLifecycle);
+        try {
+            sendToCmdQueue(Commands.DATA_GENERATION_FINISHED);
+        } catch (IOException e) {
+            String errorMsg = "Couldn't send the " + Commands.DATA_GENERATION_FINISHED + " command. Aborting.";
+            LOGGER.error(errorMsg);
+            throw new IllegalStateException(errorMsg, e);
+        }
+    }
+
     /**
      * Waits for the termination of all task generators.
      */
@@ -363,6 +904,29 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
     }
 
+    /**
+     * Waits for the termination of all task generators. In contrast to
+     * {@link #waitForTaskGenToFinish()}, it fails if one of the task
+     * generators crashes or if they do not terminate within the given time.
+     *
+     * @param maxWaitingTime
+     *            maximum waiting time in milliseconds
+     * @throws IllegalStateException
+     *             if a task generator crashed, the time is over or the thread
+     *             has been interrupted
+     */
+    protected void waitForTaskGenToFinish(long maxWaitingTime) {
+        LOGGER.debug("Waiting for {} Task Generators to finish.", taskGenLifecycle.getNumberOfContainers());
+        waitForLifecycle(LifecycleBarrier.State.TERMINATED, maxWaitingTime, taskGenLifecycle);
+        try {
+            sendToCmdQueue(Commands.TASK_GENERATION_FINISHED);
+        } catch (IOException e) {
+            String errorMsg = "Couldn't send the " + Commands.TASK_GENERATION_FINISHED + " command. Aborting.";
+            LOGGER.error(errorMsg);
+            throw new IllegalStateException(errorMsg, e);
+        }
+    }
+
     /**
      * This method waits for the benchmarked system to terminate or times out
      * after the given amount of time (in milliseconds).
@@ -427,6 +991,66 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
     }
 
+    /**
+     * Waits for the termination of the evaluation module and the evaluation
+     * storage. In contrast to {@link #waitForEvalComponentsToFinish()}, it
+     * fails if one of the components crashes or if they do not terminate
+     * within the given time.
+     *
+     * @param maxWaitingTime
+     *            maximum waiting time in milliseconds
+     * @throws IllegalStateException
+     *             if a component crashed, the time is over or the thread has
+     *             been interrupted
+     */
+    protected void waitForEvalComponentsToFinish(long maxWaitingTime) {
+        LOGGER.debug("Waiting for the evaluation module and storage to finish.");
+        waitForLifecycle(LifecycleBarrier.State.TERMINATED, maxWaitingTime, evalModuleLifecycle,
+                evalStoreLifecycle);
+    }
+
+    /**
+     * Internal method that waits until the given lifecycle barriers reach the
+     * given state. Barriers without requested containers are skipped.
+     *
+     * @param state
+     *            the awaited state, i.e., {@link LifecycleBarrier.State#READY}
+     *            or {@link LifecycleBarrier.State#TERMINATED}
+     * @param maxWaitingTime
+     *            maximum waiting time in milliseconds for all barriers
+     * @param barriers
+     *            the barriers of the components
+     */
+    private void waitForLifecycle(LifecycleBarrier.State state, long maxWaitingTime, LifecycleBarrier... barriers) {
+        long deadline = System.currentTimeMillis() + maxWaitingTime;
+        for (LifecycleBarrier barrier : barriers) {
+            if (barrier.getNumberOfExpectedContainers() == 0) {
+                continue;
+            }
+            ListenableFuture<Void> future = (state == LifecycleBarrier.State.READY) ? barrier.whenReady()
+                    : barrier.whenTerminated();
+            try {
+                future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (CancellationException e) {
+                String errorMsg = "The benchmark has been aborted while waiting for the " + barrier.getName() + ".";
+                LOGGER.error(errorMsg);
+                throw new IllegalStateException(errorMsg, e);
+            } catch (ExecutionException e) {
+                LOGGER.error(e.getCause().getMessage());
+                throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+            } catch (TimeoutException e) {
+                String errorMsg = "The " + barrier.getName() + " did not reach the state " + state + " within "
+                        + maxWaitingTime + "ms (" + barrier + ").";
+                LOGGER.error(errorMsg);
+                throw new IllegalStateException(errorMsg, e);
+            } catch (InterruptedException e) {
+                String errorMsg = "Interrupted while waiting for the " + barrier.getName() + ".";
+                LOGGER.error(errorMsg);
+                throw new IllegalStateException(errorMsg, e);
+            }
+        }
+    }
+
     /**
      * Uses the given model as result model if the result model is
      * <code>null</code>. Else, the two models are merged.
@@ -435,6 +1059,18 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      *            the new result model
      */
     protected void setResultModel(Model resultModel) {
+        mergeIntoResultModel(resultModel);
+        addParametersToResultModel();
+    }
+
+    /**
+     * Uses the given model as result model if the result model is
+     * <code>null</code>. Else, the two models are merged.
+     *
+     * @param model
+     *            the model that should be added to the result model
+     */
+    private void mergeIntoResultModel(Model model) {
         try {
             resultModelMutex.acquire();
         } catch (InterruptedException e) {
@@ -442,21 +1078,21 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
         try {
             if (this.resultModel == null) {
-                this.resultModel = resultModel;
+                this.resultModel = model;
             } else {
-                this.resultModel.add(resultModel);
+                this.resultModel.add(model);
             }
         } finally {
             resultModelMutex.release();
         }
-        addParametersToResultModel();
     }
 
     /**
      * Generates a default model containing an error code and the benchmark
      * parameters if no result model has been received from the evaluation
-     * module until now. If the model already has been received, the error is
-     * added to the existing model.
+     * module until now. This default model contains the triples of the latest
+     * KPI snapshot. If the model already has been received, the error is added
+     * to the existing model.
      */
     protected void generateErrorResultModel() {
         try {
@@ -466,7 +1102,11 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
         try {
             if (resultModel == null) {
+                // keep the partial results of the latest KPI snapshot
                 this.resultModel = ModelFactory.createDefaultModel();
+                if (latestKpiSnapshot != null) {
+                    resultModel.add(latestKpiSnapshot);
+                }
                 resultModel.add(resultModel.getResource(experimentUri), RDF.type, HOBBIT.Experiment);
             }
             resultModel.add(resultModel.getResource(experimentUri), HOBBIT.terminatedWithError,
@@ -488,21 +1128,64 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
             LOGGER.error("Interrupted while waiting for the result model mutex. Returning.", e);
         }
         try {
-            Resource experimentResource = resultModel.getResource(experimentUri);
-            StmtIterator iterator = benchmarkParamModel.listStatements(
-                    benchmarkParamModel.getResource(Constants.NEW_EXPERIMENT_URI), null, (RDFNode) null);
-            Statement statement;
-            while (iterator.hasNext()) {
-                statement = iterator.next();
-                resultModel.add(experimentResource, statement.getPredicate(), statement.getObject());
-            }
+            addParametersToModel(resultModel);
         } finally {
             resultModelMutex.release();
         }
     }
 
     /**
-     * Sends the result RDF model to the platform controller.
+     * Adds the {@link #benchmarkParamModel} triples to the given model.
+     *
+     * @param model
+     *            the model to which the parameters should be added
+     */
+    private void addParametersToModel(Model model) {
+        Resource experimentResource = model.getResource(experimentUri);
+        StmtIterator iterator = benchmarkParamModel.listStatements(
+                benchmarkParamModel.getResource(Constants.NEW_EXPERIMENT_URI), null, (RDFNode) null);
+        Statement statement;
+        while (iterator.hasNext()) {
+            statement = iterator.next();
+            model.add(experimentResource, statement.getPredicate(), statement.getObject());
+        }
+    }
+
+    /**
+     * Handles a KPI snapshot received from the evaluation module. The snapshot
+     * replaces the previous one and is forwarded to the platform together
+     * with the benchmark parameters using the
+     * {@link Commands#BENCHMARK_KPI_SNAPSHOT} command.
+     *
+     * @param snapshot
+     *            the received snapshot
+     */
+    protected void handleKpiSnapshot(Model snapshot) {
+        try {
+            resultModelMutex.acquire();
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for the result model mutex. Returning.", e);
+            return;
+        }
+        try {
+            latestKpiSnapshot = snapshot;
+        } finally {
+            resultModelMutex.release();
+        }
+        Model forwardedModel = ModelFactory.createDefaultModel();
+        forwardedModel.add(snapshot);
+        addParametersToModel(forwardedModel);
+        try {
+            sendToCmdQueue(Commands.BENCHMARK_KPI_SNAPSHOT, RabbitMQUtils.writeModel(forwardedModel));
+        } catch (IOException e) {
+            LOGGER.error("Couldn't forward the KPI snapshot to the platform.", e);
+        }
+    }
+
+    /**
+     * Sends the result RDF model to the platform controller. Only the first
+     * result model is sent, i.e., the result model of a benchmark that
+     * continues after it has been aborted is ignored.
      *
      * @param model
      *            model containing the results
@@ -514,6 +1197,11 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
             LOGGER.error("Interrupted while waiting for the result model mutex. Returning.", e);
         }
         try {
+            if (resultModelSent) {
+                LOGGER.warn("A result model has already been sent to the platform controller. It won't be sent again.");
+                return;
+            }
+            resultModelSent = true;
             if (systemExitCode != 0) {
                 model.add(model.getResource(experimentUri), HOBBIT.terminatedWithError, HobbitErrors.SystemCrashed);
             }
@@ -527,44 +1215,6 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
     }
 
-    @Override
-    public void receiveCommand(byte command, byte[] data) {
-        switch (command) {
-        case Commands.START_BENCHMARK_SIGNAL: {
-            startBenchmarkMutex.release();
-            systemContainerId = RabbitMQUtils.readString(data);
-            break;
-        }
-        case Commands.DATA_GENERATOR_READY_SIGNAL: {
-            LOGGER.debug("Received DATA_GENERATOR_READY_SIGNAL");
-            dataGenReadyMutex.release();
-            break;
-        }
-        case Commands.TASK_GENERATOR_READY_SIGNAL: {
-            LOGGER.debug("Received TASK_GENERATOR_READY_SIGNAL");
-            taskGenReadyMutex.release();
-            break;
-        }
-        case Commands.EVAL_STORAGE_READY_SIGNAL: {
-            LOGGER.debug("Received EVAL_STORAGE_READY_SIGNAL");
-            evalStoreReadyMutex.release();
-            break;
-        }
-        case Commands.DOCKER_CONTAINER_TERMINATED: {
-            ByteBuffer buffer = ByteBuffer.wrap(data);
-            String containerName = RabbitMQUtils.readString(buffer);
-            int exitCode = buffer.get();
-            containerTerminated(containerName, exitCode);
-            break;
-        }
-        case Commands.EVAL_MODULE_FINISHED_SIGNAL: {
-            setResultModel(RabbitMQUtils.readModel(data));
-            LOGGER.info("model size = " + resultModel.size());
-        }
-        }
-        super.receiveCommand(command, data);
-    }
-
     /**
      * This method handles messages from the command bus containing the
      * information that a container terminated. It checks whether the container
@@ -576,6 +1226,12 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
      *            the exit code of the terminated container
      */
     protected void containerTerminated(String containerName, int exitCode) {
+        // update the lifecycles first to let waiting threads fail fast
+        if (!dataGenLifecycle.componentTerminated(containerName, exitCode)
+                && !taskGenLifecycle.componentTerminated(containerName, exitCode)
+                && !evalStoreLifecycle.componentTerminated(containerName, exitCode)) {
+            evalModuleLifecycle.componentTerminated(containerName, exitCode);
+        }
         if (dataGenContainerIds.contains(containerName)) {
             if (exitCode == 0) {
                 dataGenTerminatedMutex.release();
@@ -613,10 +1269,97 @@ public abstract class AbstractBenchmarkController extends AbstractPlatformConnec
         }
     }
 
+    @Override
+    public void close() throws IOException {
+        IOUtils.closeQuietly(resultModelReceiver);
+        synchronized (workRangeQueues) {
+            for (WorkRangeQueue queue : workRangeQueues) {
+                try {
+                    queue.delete();
+                } catch (Exception e) {
+                    LOGGER.warn("Couldn't delete the work range queue " + queue.getQueueName() + ".", e);
+                }
+                IOUtils.closeQuietly(queue);
+            }
+            workRangeQueues.clear();
+        }
+        deleteCreditQueue(generateSessionQueueName(Constants.DATA_GEN_2_TASK_GEN_QUEUE_NAME));
+        super.close();
+        cmdExecutor.shutdown();
+    }
+
+    /**
+     * Deletes the credit queue of the flow controlled data queue with the given
+     * name (see {@link FlowControlledDataSender}). Since the credit queue
+     * outlives its consumers, it is deleted at the end of the session.
+     *
+     * @param queueName
+     *            the name of the data queue
+     */
+    private void deleteCreditQueue(String queueName) {
+        if (incomingDataQueueFactory == null) {
+            return;
+        }
+        Channel channel = null;
+        try {
+            channel = incomingDataQueueFactory.getConnection().createChannel();
+            FlowControlledDataSender.deleteCreditQueue(channel, queueName);
+        } catch (Exception e) {
+            LOGGER.warn("Couldn't delete the credit queue of " + queueName + ".", e);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (Exception e) {
+                }
+            }
+        }
+    }
+
     protected void containerCrashed(String containerName) {
-        LOGGER.error("A component crashed (\"{}\"). Terminating.", containerName);
+        LOGGER.error("A component crashed (\"{}\"). Aborting the benchmark.", containerName);
+        abortBenchmark("The component \"" + containerName + "\" crashed.");
+    }
+
+    /**
+     * Aborts the benchmark. The futures of all lifecycles are cancelled, the
+     * error result model is sent to the platform controller and the thread
+     * executing the benchmark is interrupted. After that, {@link #run()}
+     * throws an exception and the component is closed, i.e., its senders and
+     * receivers are closed before the process terminates. Subsequent calls of
+     * this method are ignored.
+     *
+     * @param reason
+     *            the reason of the abort that is used in error messages
+     */
+    protected void abortBenchmark(String reason) {
+        synchronized (abortLock) {
+            if (abortReason != null) {
+                return;
+            }
+            abortReason = reason;
+        }
+        // let threads waiting for components fail fast
+        dataGenLifecycle.abort();
+        taskGenLifecycle.abort();
+        evalStoreLifecycle.abort();
+        evalModuleLifecycle.abort();
         generateErrorResultModel();
         sendResultModel(resultModel);
-        System.exit(1);
+        synchronized (abortLock) {
+            if (benchmarkThread != null) {
+                benchmarkThread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the benchmark has been aborted.
+     *
+     * @return {@code true} if the benchmark has been aborted, else
+     *         {@code false}
+     */
+    protected boolean isAborted() {
+        return abortReason != null;
     }
 }
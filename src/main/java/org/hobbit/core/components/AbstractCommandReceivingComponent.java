@@ -18,37 +18,67 @@ package org.hobbit.core.components;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
 import org.hobbit.core.Commands;
 import org.hobbit.core.Constants;
 import org.hobbit.core.data.StartCommandData;
 import org.hobbit.core.data.StopCommandData;
+import org.hobbit.core.metrics.Counter;
+import org.hobbit.core.metrics.Gauge;
+import org.hobbit.core.metrics.LatencyRecorder;
 import org.hobbit.core.rabbit.RabbitMQUtils;
 import org.hobbit.core.rabbit.RabbitQueueFactory;
 import org.hobbit.core.rabbit.RabbitQueueFactoryImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.Gson;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.BlockedListener;
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
-import com.rabbitmq.client.QueueingConsumer;
 
 public abstract class AbstractCommandReceivingComponent extends AbstractComponent implements CommandReceivingComponent {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractCommandReceivingComponent.class);
 
-    private static final long DEFAULT_CMD_RESPONSE_TIMEOUT = 60000;
+    /**
+     * The default maximum amount of time in milliseconds a component is waiting
+     * for the response to a command = {@value #DEFAULT_CMD_RESPONSE_TIMEOUT}ms.
+     */
+    protected static final long DEFAULT_CMD_RESPONSE_TIMEOUT = 60000;
+    /**
+     * The default maximum amount of time in milliseconds the handling of a
+     * single command should take = {@value #DEFAULT_CMD_LATENCY_BUDGET}ms.
+     */
+    protected static final long DEFAULT_CMD_LATENCY_BUDGET = 100;
 
     /**
      * Name of this Docker container.
@@ -60,57 +90,206 @@ public abstract class AbstractCommandReceivingComponent extends AbstractComponen
      */
     private String responseQueueName = null;
     /**
-     * Consumer of the queue that is used to receive responses for messages that
-     * are sent via the command queue and for which an answer is expected.
+     * Requests sent via the command queue for which a response is expected,
+     * mapped by their correlation ids in the order in which they have been
+     * sent.
      */
-    private QueueingConsumer responseConsumer = null;
+    private Map<String, PendingResponse> pendingResponses = new LinkedHashMap<String, PendingResponse>();
     /**
-     * Factory for generating queues with which the commands are sent and
-     * received. It is separated from the data connections since otherwise the
-     * component can get stuck waiting for a command while the connection is
-     * busy handling incoming or outgoing data.
+     * Flag indicating that at least one request has been discarded before
+     * its response arrived, e.g., because it timed out. After that, a
+     * response without a correlation id can not be assigned to a request
+     * since it might be the late response of the discarded request. Guarded
+     * by {@link #pendingResponses}.
+     */
+    private boolean requestDiscarded = false;
+    /**
+     * The maximum amount of time in milliseconds this component is waiting for
+     * the response to a command. After this time, pending requests are
+     * discarded.
+     */
+    private long cmdResponseTimeout = DEFAULT_CMD_RESPONSE_TIMEOUT;
+    /**
+     * The maximum amount of time in milliseconds the handling of a single
+     * command should take. Commands exceeding this budget are logged and
+     * counted since they delay all following commands.
+     */
+    private long cmdLatencyBudget = DEFAULT_CMD_LATENCY_BUDGET;
+    /**
+     * Factory for generating queues with which the commands are sent. It is
+     * separated from the data connections since otherwise the component can
+     * get stuck waiting for a command while the connection is busy handling
+     * incoming or outgoing data.
      */
     protected RabbitQueueFactory cmdQueueFactory;
     /**
-     * Channel that is used for the command queue.
+     * Channel that is used to send commands.
      */
     protected Channel cmdChannel = null;
+    /**
+     * Factory of the connection on which the commands and the responses to
+     * commands are received. The connection is never used for publishing.
+     * Hence, it is not blocked by the flow control of the broker if the
+     * publishers of this component are throttled. Its consumers are
+     * dispatched by a single, dedicated thread, i.e., it should not be used to
+     * consume high-volume queues.
+     */
+    protected RabbitQueueFactory incomingCmdQueueFactory;
+    /**
+     * Channel that is used to consume commands and responses.
+     */
+    private Channel cmdConsumerChannel = null;
+    /**
+     * Executor with a single, dedicated thread that dispatches the incoming
+     * commands and responses.
+     */
+    private ExecutorService cmdConsumerExecutor = null;
+    /**
+     * Flag indicating whether the broker blocked the connection used to send
+     * commands.
+     */
+    private volatile boolean cmdConnectionBlocked = false;
     /**
      * Default type of containers created by this container
      */
     protected String defaultContainerType = "";
     /**
-     * Set of command headers that are expected by this component.
+     * The UTF-8 encoded command headers, i.e., session ids, that are expected
+     * by this component. The array is replaced if a new id is added.
+     */
+    private volatile byte acceptedCmdHeaderIds[][] = new byte[0][];
+    /**
+     * The registered command handlers indexed by the unsigned value of their
+     * command byte.
      */
-    private Set<String> acceptedCmdHeaderIds = new HashSet<String>(5);
+    private final AtomicReferenceArray<CommandHandlerRegistration> cmdHandlers = new AtomicReferenceArray<CommandHandlerRegistration>(
+            256);
     /**
      * Threadsafe JSON parser.
      */
     private Gson gson = new Gson();
+    /**
+     * Counter of the commands received by this component.
+     */
+    private Counter receivedCmdCounter;
+    /**
+     * Histogram of the time (in nanoseconds) needed to handle a command.
+     */
+    private LatencyRecorder cmdHandlingTime;
+    /**
+     * Counter of the commands the handling of which exceeded the
+     * {@link #cmdLatencyBudget}.
+     */
+    private Counter cmdBudgetExceededCounter;
+
+    /**
+     * The connection for publishing commands while it is established.
+     */
+    private Future<Connection> cmdConnection = null;
+    /**
+     * The connection for consuming commands while it is established.
+     */
+    private Future<Connection> cmdConsumerConnection = null;
+
+    @Override
+    protected void startConnectionSetup() {
+        super.startConnectionSetup();
+        // commands are consumed on a dedicated connection with an own thread
+        // to make sure that they are not delayed by data traffic or by the
+        // flow control of publishers
+        cmdConsumerExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "hobbit-command-consumer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        cmdConnection = createConnectionAsync(null);
+        cmdConsumerConnection = createConnectionAsync(cmdConsumerExecutor);
+    }
 
     @Override
     public void init() throws Exception {
-        super.init();
+        try {
+            super.init();
+        } catch (Exception e) {
+            // make sure that the command connections do not remain open
+            if (cmdConnection != null) {
+                try {
+                    for (Connection connection : awaitConnections(cmdConnection, cmdConsumerConnection)) {
+                        connection.close();
+                    }
+                } catch (Exception e2) {
+                    LOGGER.debug("Exception while closing the command connections.", e2);
+                }
+            }
+            throw e;
+        }
+        Connection connections[] = awaitConnections(cmdConnection, cmdConsumerConnection);
+        cmdConnection = null;
+        cmdConsumerConnection = null;
         addCommandHeaderId(getHobbitSessionId());
+        receivedCmdCounter = metricRegistry.counter("commands.received");
+        cmdHandlingTime = metricRegistry.histogram("commands.handlingTime");
+        cmdBudgetExceededCounter = metricRegistry.counter("commands.budgetExceeded");
+        metricRegistry.gauge("commands.pendingResponses", new Gauge() {
+            @Override
+            public long getValue() {
+                return getNumberOfPendingResponses();
+            }
+        });
+        metricRegistry.gauge("commands.connectionBlocked", new Gauge() {
+            @Override
+            public long getValue() {
+                return cmdConnectionBlocked ? 1 : 0;
+            }
+        });
 
-        cmdQueueFactory = new RabbitQueueFactoryImpl(createConnection());
+        cmdQueueFactory = new RabbitQueueFactoryImpl(connections[0]);
+        cmdQueueFactory.getConnection().addBlockedListener(new BlockedListener() {
+            @Override
+            public void handleBlocked(String reason) throws IOException {
+                cmdConnectionBlocked = true;
+                LOGGER.warn("The broker blocked the connection for sending commands (reason: \"{}\").", reason);
+            }
+
+            @Override
+            public void handleUnblocked() throws IOException {
+                cmdConnectionBlocked = false;
+                LOGGER.info("The broker unblocked the connection for sending commands.");
+            }
+        });
         cmdChannel = cmdQueueFactory.getConnection().createChannel();
-        String queueName = cmdChannel.queueDeclare().getQueue();
         cmdChannel.exchangeDeclare(Constants.HOBBIT_COMMAND_EXCHANGE_NAME, "fanout", false, true, null);
-        cmdChannel.queueBind(queueName, Constants.HOBBIT_COMMAND_EXCHANGE_NAME, "");
 
-        Consumer consumer = new DefaultConsumer(cmdChannel) {
+        incomingCmdQueueFactory = new RabbitQueueFactoryImpl(connections[1]);
+        cmdConsumerChannel = incomingCmdQueueFactory.getConnection().createChannel();
+        String queueName = cmdConsumerChannel.queueDeclare().getQueue();
+        cmdConsumerChannel.queueBind(queueName, Constants.HOBBIT_COMMAND_EXCHANGE_NAME, "");
+
+        Consumer consumer = new DefaultConsumer(cmdConsumerChannel) {
             @Override
             public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
                     byte[] body) throws IOException {
+                long start = System.nanoTime();
                 try {
-                    handleCmd(body, properties.getReplyTo());
+                    handleCmd(body, properties);
                 } catch (Exception e) {
                     LOGGER.error("Exception while trying to handle incoming command.", e);
                 }
+                long end = System.nanoTime();
+                cmdHandlingTime.recordLatency(start, end);
+                long duration = TimeUnit.NANOSECONDS.toMillis(end - start);
+                if (duration > cmdLatencyBudget) {
+                    cmdBudgetExceededCounter.increment();
+                    LOGGER.warn(
+                            "Handling a command took {}ms which exceeds the latency budget of {}ms and delays all following commands.",
+                            duration, cmdLatencyBudget);
+                }
             }
         };
-        cmdChannel.basicConsume(queueName, true, consumer);
+        cmdConsumerChannel.basicConsume(queueName, true, consumer);
 
         if (System.getenv().containsKey(Constants.CONTAINER_NAME_KEY)) {
             containerName = System.getenv().get(Constants.CONTAINER_NAME_KEY);
@@ -186,14 +365,132 @@ public abstract class AbstractCommandReceivingComponent extends AbstractComponen
      * @param sessionId
      *            session id that should be added to the set of accepted ids.
      */
-    protected void addCommandHeaderId(String sessionId) {
-        acceptedCmdHeaderIds.add(sessionId);
+    protected synchronized void addCommandHeaderId(String sessionId) {
+        byte idBytes[] = sessionId.getBytes(Charsets.UTF_8);
+        if (isAcceptedCmdHeaderId(idBytes, 0, idBytes.length)) {
+            return;
+        }
+        byte ids[][] = acceptedCmdHeaderIds;
+        byte newIds[][] = Arrays.copyOf(ids, ids.length + 1);
+        newIds[ids.length] = idBytes;
+        acceptedCmdHeaderIds = newIds;
+    }
+
+    /**
+     * Checks whether the session id that is encoded in the given part of the
+     * given array is accepted by this component. The check works on the raw
+     * bytes, i.e., the id is not decoded.
+     *
+     * @param bytes
+     *            the array containing the session id
+     * @param offset
+     *            the position of the first byte of the id
+     * @param length
+     *            the length of the id in bytes
+     * @return {@code true} if the id is accepted, else {@code false}
+     */
+    private boolean isAcceptedCmdHeaderId(byte bytes[], int offset, int length) {
+        if ((length < 0) || (length > (bytes.length - offset))) {
+            return false;
+        }
+        byte ids[][] = acceptedCmdHeaderIds;
+        for (int i = 0; i < ids.length; ++i) {
+            if (matches(ids[i], bytes, offset, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the given id with the given part of the given array. Ids of a
+     * different length are rejected without looking at their bytes.
+     */
+    private static boolean matches(byte id[], byte bytes[], int offset, int length) {
+        if (id.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (id[i] != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers the given handler for the given command. The handler is called
+     * by {@link #receiveCommand(byte, byte[])} on the thread consuming the
+     * commands. A handler that has been registered for the same command before
+     * is replaced.
+     *
+     * @param command
+     *            the command that should be handled
+     * @param handler
+     *            the handler of the command
+     */
+    protected void registerCommandHandler(byte command, CommandHandler handler) {
+        registerCommandHandler(command, handler, null);
+    }
+
+    /**
+     * Registers the given handler for the given command. If an executor is
+     * given, received commands of this type are handed over to the executor,
+     * i.e., the complete {@link #receiveCommand(byte, byte[])} call including
+     * the handler is executed by the executor and does not delay the
+     * following commands. Note that the order of commands is only kept among
+     * commands that are handled by the same single threaded executor or
+     * without an executor. A handler that has been registered for the same
+     * command before is replaced.
+     *
+     * @param command
+     *            the command that should be handled
+     * @param handler
+     *            the handler of the command
+     * @param executor
+     *            the executor that should handle the command or {@code null}
+     *            if the command should be handled by the thread consuming the
+     *            commands
+     */
+    protected void registerCommandHandler(byte command, CommandHandler handler, Executor executor) {
+        cmdHandlers.set(command & 0xFF, new CommandHandlerRegistration(handler, executor));
+    }
+
+    /**
+     * Calls the handler that has been registered for the given command (see
+     * {@link #registerCommandHandler(byte, CommandHandler, Executor)}).
+     * Subclasses that override this method have to call it to let the
+     * registered handlers work.
+     */
+    @Override
+    public void receiveCommand(byte command, byte[] data) {
+        CommandHandlerRegistration registration = cmdHandlers.get(command & 0xFF);
+        if (registration != null) {
+            registration.handler.handleCommand(command, data);
+        }
+    }
+
+    /**
+     * Handles an incoming command message. The default implementation calls
+     * {@link #handleCmd(byte[], String)}. Components that answer commands and
+     * need further properties of the message, e.g., its correlation id, can
+     * override this method.
+     *
+     * @param bytes
+     *            the body of the command message
+     * @param properties
+     *            the properties of the command message
+     */
+    protected void handleCmd(byte bytes[], AMQP.BasicProperties properties) {
+        handleCmd(bytes, properties.getReplyTo());
     }
 
     protected void handleCmd(byte bytes[], String replyTo) {
         ByteBuffer buffer = ByteBuffer.wrap(bytes);
-        String sessionId = RabbitMQUtils.readString(buffer);
-        if (acceptedCmdHeaderIds.contains(sessionId)) {
+        int idLength = buffer.getInt();
+        // the session id is compared without decoding it
+        if (isAcceptedCmdHeaderId(bytes, buffer.position(), idLength)) {
+            buffer.position(buffer.position() + idLength);
             byte command = buffer.get();
             byte remainingData[];
             if (buffer.remaining() > 0) {
@@ -202,10 +499,45 @@ public abstract class AbstractCommandReceivingComponent extends AbstractComponen
             } else {
                 remainingData = new byte[0];
             }
-            receiveCommand(command, remainingData);
+            if (receivedCmdCounter != null) {
+                receivedCmdCounter.increment();
+            }
+            dispatchCommand(command, remainingData);
         }
     }
 
+    /**
+     * Calls {@link #receiveCommand(byte, byte[])} for the given command
+     * directly or, if an executor has been registered for the command, using
+     * this executor.
+     *
+     * @param command
+     *            the received command
+     * @param data
+     *            the data of the command
+     */
+    private void dispatchCommand(final byte command, final byte data[]) {
+        CommandHandlerRegistration registration = cmdHandlers.get(command & 0xFF);
+        if ((registration != null) && (registration.executor != null)) {
+            try {
+                registration.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            receiveCommand(command, data);
+                        } catch (Exception e) {
+                            LOGGER.error("Exception while trying to handle incoming command.", e);
+                        }
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("The executor of command {} rejected it. It will be handled directly.", command);
+            }
+        }
+        receiveCommand(command, data);
+    }
+
     /**
      * This method sends a {@link Commands#DOCKER_CONTAINER_START} command to
      * create and start an instance of the given image using the given
@@ -249,25 +581,248 @@ public abstract class AbstractCommandReceivingComponent extends AbstractComponen
      * @return the name of the container instance or null if an error occurred
      */
     protected String createContainer(String imageName, String containerType, String[] envVariables) {
+        ListenableFuture<String> future = createContainerAsync(imageName, containerType, envVariables);
+        try {
+            return future.get(cmdResponseTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // discard the request, a late response will be ignored
+            future.cancel(false);
+            LOGGER.error("Didn't got a response for a create container message for the \"" + imageName + "\" image.");
+        } catch (ExecutionException e) {
+            LOGGER.error("Got exception while trying to request the creation of an instance of the \"" + imageName
+                    + "\" image.", e.getCause());
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for the creation of an instance of the \"" + imageName
+                    + "\" image.", e);
+        }
+        return null;
+    }
+
+    /**
+     * This method sends a {@link Commands#DOCKER_CONTAINER_START} command to
+     * create and start an instance of the given image using the given
+     * environment variables without waiting for the response.
+     *
+     * @param imageName
+     *            the name of the image of the docker container
+     * @param envVariables
+     *            environment variables that should be added to the created
+     *            container
+     * @return a future of the name of the container instance
+     * @see #createContainerAsync(String, String, String[])
+     */
+    protected ListenableFuture<String> createContainerAsync(String imageName, String[] envVariables) {
+        return createContainerAsync(imageName, this.defaultContainerType, envVariables);
+    }
+
+    /**
+     * This method sends a {@link Commands#DOCKER_CONTAINER_START} command to
+     * create and start an instance of the given image using the given
+     * environment variables without waiting for the response. The request
+     * carries a correlation id which is used to match the response of the
+     * platform controller. Responses without a correlation id are assigned to
+     * the oldest pending request as long as no request has been discarded
+     * before its response arrived. After that, they are dropped since they
+     * might belong to the discarded request. Hence, several containers can be
+     * requested at the same time, e.g., from different threads.
+     *
+     * <p>
+     * The value of the returned future is the name of the created container or
+     * null if the platform couldn't create it. The future fails if the request
+     * couldn't be sent or if there is no response within the response timeout
+     * (see {@link #setCmdResponseTimeout(long)}). Note that the timeout is
+     * only checked when requests are sent or responses received, i.e., the
+     * caller should use {@link ListenableFuture#get(long, TimeUnit)} to wait
+     * for it. A request is discarded as soon as its future is done, e.g., if
+     * it has been cancelled by the caller.
+     *
+     * @param imageName
+     *            the name of the image of the docker container
+     * @param containerType
+     *            the type of the container (see
+     *            {@link #createContainer(String, String, String[])})
+     * @param envVariables
+     *            environment variables that should be added to the created
+     *            container
+     * @return a future of the name of the container instance
+     */
+    protected ListenableFuture<String> createContainerAsync(String imageName, String containerType,
+            String[] envVariables) {
+        final SettableFuture<String> future = SettableFuture.create();
+        final String correlationId = UUID.randomUUID().toString();
+        expirePendingResponses();
         try {
             envVariables = envVariables != null ? Arrays.copyOf(envVariables, envVariables.length + 2) : new String[2];
             envVariables[envVariables.length - 2] = Constants.RABBIT_MQ_HOST_NAME_KEY + "=" + rabbitMQHostName;
             envVariables[envVariables.length - 1] = Constants.HOBBIT_SESSION_ID_KEY + "=" + getHobbitSessionId();
+            // make sure that all containers of an experiment use the same
+            // timestamp resolution
+            if (isUsingHighResolutionTimestamps()) {
+                envVariables = ArrayUtils.add(envVariables, Constants.HIGH_RESOLUTION_TIMESTAMPS_KEY + "=true");
+            }
+            // make sure that the created containers use the same transport for
+            // the data queues they share with this component
+            Map<String, String> env = System.getenv();
+            if (env.containsKey(Constants.SHARED_MEMORY_DIR_KEY)) {
+                envVariables = ArrayUtils.add(envVariables,
+                        Constants.SHARED_MEMORY_DIR_KEY + "=" + env.get(Constants.SHARED_MEMORY_DIR_KEY));
+                if (env.containsKey(Constants.SHARED_MEMORY_CAPACITY_KEY)) {
+                    envVariables = ArrayUtils.add(envVariables,
+                            Constants.SHARED_MEMORY_CAPACITY_KEY + "=" + env.get(Constants.SHARED_MEMORY_CAPACITY_KEY));
+                }
+                if (env.containsKey(Constants.SHARED_MEMORY_SYSTEM_QUEUES_KEY)) {
+                    envVariables = ArrayUtils.add(envVariables, Constants.SHARED_MEMORY_SYSTEM_QUEUES_KEY + "="
+                            + env.get(Constants.SHARED_MEMORY_SYSTEM_QUEUES_KEY));
+                }
+            }
             initResponseQueue();
             byte data[] = RabbitMQUtils.writeString(
                     gson.toJson(new StartCommandData(imageName, containerType, containerName, envVariables)));
-            BasicProperties props = new BasicProperties.Builder().deliveryMode(2).replyTo(responseQueueName).build();
-            sendToCmdQueue(Commands.DOCKER_CONTAINER_START, data, props);
-            QueueingConsumer.Delivery delivery = responseConsumer.nextDelivery(DEFAULT_CMD_RESPONSE_TIMEOUT);
-            Objects.requireNonNull(delivery, "Didn't got a response for a create container message.");
-            if (delivery.getBody().length > 0) {
-                return RabbitMQUtils.readString(delivery.getBody());
+            BasicProperties props = new BasicProperties.Builder().deliveryMode(2).replyTo(responseQueueName)
+                    .correlationId(correlationId).build();
+            synchronized (pendingResponses) {
+                pendingResponses.put(correlationId, new PendingResponse(future, System.currentTimeMillis()));
             }
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (pendingResponses) {
+                        if ((pendingResponses.remove(correlationId) != null) && future.isCancelled()) {
+                            requestDiscarded = true;
+                        }
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+            sendToCmdQueue(Commands.DOCKER_CONTAINER_START, data, props);
         } catch (Exception e) {
-            LOGGER.error("Got exception while trying to request the creation of an instance of the \"" + imageName
-                    + "\" image.", e);
+            future.setException(e);
         }
-        return null;
+        return future;
+    }
+
+    /**
+     * Handles a response received on the response queue by completing the
+     * request with the given correlation id or, if the response has no
+     * correlation id, the oldest pending request. Responses without a
+     * correlation id are dropped if a request has been discarded before since
+     * they might belong to this request.
+     *
+     * @param correlationId
+     *            the correlation id of the response or null if it has none
+     * @param body
+     *            the body of the response
+     */
+    private void handleResponse(String correlationId, byte[] body) {
+        expirePendingResponses();
+        PendingResponse request = null;
+        synchronized (pendingResponses) {
+            if (correlationId != null) {
+                request = pendingResponses.remove(correlationId);
+            } else if (requestDiscarded) {
+                LOGGER.warn(
+                        "Got a response without a correlation id after a request has been discarded. It can not be assigned reliably. Dropping it.");
+                return;
+            } else {
+                Iterator<PendingResponse> iterator = pendingResponses.values().iterator();
+                if (iterator.hasNext()) {
+                    request = iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+        if (request != null) {
+            request.future.set(body.length > 0 ? RabbitMQUtils.readString(body) : null);
+        } else {
+            LOGGER.warn("Got a response (correlation id: {}) that does not match any pending request. Ignoring it.",
+                    correlationId);
+        }
+    }
+
+    /**
+     * Fails all pending requests that have been sent more than
+     * {@link #cmdResponseTimeout} milliseconds ago. Since the requests are
+     * ordered by their sending time, the search stops at the first request
+     * that has not expired.
+     */
+    private void expirePendingResponses() {
+        long expirationTime = System.currentTimeMillis() - cmdResponseTimeout;
+        List<PendingResponse> expired = new ArrayList<PendingResponse>();
+        synchronized (pendingResponses) {
+            Iterator<PendingResponse> iterator = pendingResponses.values().iterator();
+            PendingResponse request;
+            while (iterator.hasNext()) {
+                request = iterator.next();
+                if (request.sendTime >= expirationTime) {
+                    break;
+                }
+                expired.add(request);
+                iterator.remove();
+            }
+            if (!expired.isEmpty()) {
+                requestDiscarded = true;
+            }
+        }
+        // the futures are failed outside of the synchronized block since
+        // their listeners access the map
+        for (PendingResponse request : expired) {
+            request.future.setException(
+                    new TimeoutException("Didn't got a response within " + cmdResponseTimeout + "ms."));
+        }
+    }
+
+    /**
+     * Returns the number of requests sent via the command queue that are still
+     * waiting for their response.
+     *
+     * @return the number of pending requests
+     */
+    protected int getNumberOfPendingResponses() {
+        synchronized (pendingResponses) {
+            return pendingResponses.size();
+        }
+    }
+
+    public long getCmdResponseTimeout() {
+        return cmdResponseTimeout;
+    }
+
+    /**
+     * Sets the maximum amount of time this component is waiting for the
+     * response to a command. The default value is
+     * {@value #DEFAULT_CMD_RESPONSE_TIMEOUT}ms.
+     *
+     * @param cmdResponseTimeout
+     *            the maximum waiting time in milliseconds
+     */
+    public void setCmdResponseTimeout(long cmdResponseTimeout) {
+        this.cmdResponseTimeout = cmdResponseTimeout;
+    }
+
+    public long getCmdLatencyBudget() {
+        return cmdLatencyBudget;
+    }
+
+    /**
+     * Sets the maximum amount of time the handling of a single command should
+     * take. Commands exceeding this budget are logged and counted by the
+     * <code>commands.budgetExceeded</code> metric. The default value is
+     * {@value #DEFAULT_CMD_LATENCY_BUDGET}ms.
+     *
+     * @param cmdLatencyBudget
+     *            the latency budget in milliseconds
+     */
+    public void setCmdLatencyBudget(long cmdLatencyBudget) {
+        this.cmdLatencyBudget = cmdLatencyBudget;
+    }
+
+    /**
+     * Returns whether the broker currently blocks the connection used to send
+     * commands, e.g., because of a resource alarm.
+     *
+     * @return {@code true} if the connection is blocked, else {@code false}
+     */
+    public boolean isCmdConnectionBlocked() {
+        return cmdConnectionBlocked;
     }
 
     /**
@@ -288,23 +843,54 @@ public abstract class AbstractCommandReceivingComponent extends AbstractComponen
 
     /**
      * Internal method for initializing the {@link #responseQueueName} and the
-     * {@link #responseConsumer} if they haven't been initialized before.
+     * consumer of the response queue if they haven't been initialized before.
      *
      * @throws IOException
      *             if a communication problem occurs
      */
-    private void initResponseQueue() throws IOException {
+    private synchronized void initResponseQueue() throws IOException {
         if (responseQueueName == null) {
-            responseQueueName = cmdChannel.queueDeclare().getQueue();
+            String queueName = cmdConsumerChannel.queueDeclare().getQueue();
+            cmdConsumerChannel.basicConsume(queueName, true, new DefaultConsumer(cmdConsumerChannel) {
+                @Override
+                public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                        byte[] body) throws IOException {
+                    try {
+                        handleResponse(properties.getCorrelationId(), body);
+                    } catch (Exception e) {
+                        LOGGER.error("Exception while handling response.", e);
+                    }
+                }
+            });
+            responseQueueName = queueName;
         }
-        if (responseConsumer == null) {
-            responseConsumer = new QueueingConsumer(cmdChannel);
-            cmdChannel.basicConsume(responseQueueName, responseConsumer);
+    }
+
+    /**
+     * A request that is waiting for its response.
+     */
+    private static class PendingResponse {
+        private final SettableFuture<String> future;
+        private final long sendTime;
+
+        public PendingResponse(SettableFuture<String> future, long sendTime) {
+            this.future = future;
+            this.sendTime = sendTime;
         }
     }
 
     @Override
     public void close() throws IOException {
+        if (cmdConsumerChannel != null) {
+            try {
+                cmdConsumerChannel.close();
+            } catch (Exception e) {
+            }
+        }
+        IOUtils.closeQuietly(incomingCmdQueueFactory);
+        if (cmdConsumerExecutor != null) {
+            cmdConsumerExecutor.shutdown();
+        }
         if (cmdChannel != null) {
             try {
                 cmdChannel.close();
@@ -315,4 +901,18 @@ public abstract class AbstractCommandReceivingComponent extends AbstractComponen
         super.close();
     }
 
+    /**
+     * A registered command handler together with its executor.
+     */
+    private static class CommandHandlerRegistration {
+
+        private final CommandHandler handler;
+        private final Executor executor;
+
+        public CommandHandlerRegistration(CommandHandler handler, Executor executor) {
+            this.handler = handler;
+            this.executor = executor;
+        }
+    }
+
 }
@@ -16,12 +16,39 @@
  */
 package org.hobbit.core.components;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.hobbit.core.Constants;
+import org.hobbit.core.metrics.JmxMetricsExporter;
+import org.hobbit.core.metrics.MetricRegistry;
+import org.hobbit.core.metrics.PrometheusMetricsExporter;
+import org.hobbit.core.metrics.SimpleMetricRegistry;
+import org.hobbit.core.rabbit.CreditGrantingDataHandler;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataSender;
+import org.hobbit.core.rabbit.FlowControlledDataSender;
+import org.hobbit.core.rabbit.QueueOptions;
 import org.hobbit.core.rabbit.RabbitQueueFactory;
 import org.hobbit.core.rabbit.RabbitQueueFactoryImpl;
+import org.hobbit.core.rabbit.WorkRangeQueue;
+import org.hobbit.core.rabbit.inmemory.InMemoryConnectionFactory;
+import org.hobbit.core.transport.DataTransport;
+import org.hobbit.core.transport.RabbitDataTransport;
+import org.hobbit.core.transport.shm.SharedMemoryDataSender;
+import org.hobbit.core.transport.shm.SharedMemoryDataTransport;
+import org.hobbit.utils.time.HighResolutionClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,13 +67,55 @@ public abstract class AbstractComponent implements Component {
 
     /**
      * Maximum number of retries that are executed to connect to RabbitMQ.
+     *
+     * @deprecated the retries are limited by
+     *             {@link #MAX_TIME_TO_CONNECT_TO_RABBIT_MQ} instead
      */
+    @Deprecated
     public static final int NUMBER_OF_RETRIES_TO_CONNECT_TO_RABBIT_MQ = 5;
     /**
      * Time, the system waits before retrying to connect to RabbitMQ. Note that
      * this time will be multiplied with the number of already failed tries.
+     *
+     * @deprecated the waiting time starts with
+     *             {@link #FIRST_WAITING_TIME_BEFORE_RETRY} and grows
+     *             exponentially up to {@link #MAX_WAITING_TIME_BEFORE_RETRY}
      */
+    @Deprecated
     public static final long START_WAITING_TIME_BEFORE_RETRY = 5000;
+    /**
+     * Time (in milliseconds) the component waits before the first retry to
+     * connect to RabbitMQ. The waiting time is doubled with every failed try
+     * and a random jitter is applied to avoid that all containers of an
+     * experiment retry at the same moment.
+     */
+    public static final long FIRST_WAITING_TIME_BEFORE_RETRY = 100;
+    /**
+     * Maximum time (in milliseconds) the component waits between two tries to
+     * connect to RabbitMQ.
+     */
+    public static final long MAX_WAITING_TIME_BEFORE_RETRY = 5000;
+    /**
+     * Time (in milliseconds) after which the component gives up trying to
+     * connect to RabbitMQ. It is the sum of the waiting times of the former
+     * linear backoff, i.e., a broker that is slow to start is tolerated as
+     * long as before.
+     */
+    public static final long MAX_TIME_TO_CONNECT_TO_RABBIT_MQ = 75000;
+
+    /**
+     * Executor used to establish the connections of a component in parallel.
+     * Its threads are daemons and terminate if they are idle.
+     */
+    private static final ExecutorService CONNECTION_SETUP_EXECUTOR = Executors
+            .newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "hobbit-connection-setup");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
 
     private String hobbitSessionId;
     /**
@@ -68,6 +137,52 @@ public abstract class AbstractComponent implements Component {
      * {@link #outgoingDataQueuefactory} objects.
      */
     protected ConnectionFactory connectionFactory;
+    /**
+     * The transport used to create the data senders and receivers of this
+     * component.
+     */
+    protected DataTransport dataTransport = null;
+    /**
+     * The transport used for the data queues from and to the benchmarked
+     * system. It is the {@link #dataTransport} unless the system adapter might
+     * not share it (see {@link #createSystemDataTransport()}).
+     */
+    protected DataTransport systemDataTransport = null;
+    /**
+     * Flag indicating whether the timestamps of tasks and responses are
+     * nanoseconds taken from the {@link HighResolutionClock} instead of
+     * milliseconds taken from the wall clock.
+     */
+    private boolean highResolutionTimestamps = false;
+    /**
+     * Flag indicating whether the data queues use the
+     * {@link QueueOptions#EPHEMERAL} options.
+     */
+    private boolean ephemeralDataQueues = false;
+    /**
+     * Number of messages that can be in flight on a flow controlled data queue
+     * per receiver or {@code 0} if the flow control is disabled.
+     */
+    private int dataFlowControlWindow = 0;
+    /**
+     * Handlers granting credits for flow controlled data queues. They are
+     * closed together with the component.
+     */
+    private List<CreditGrantingDataHandler> creditGrantingHandlers = new ArrayList<CreditGrantingDataHandler>();
+    /**
+     * Registry containing the metrics of this component.
+     */
+    protected MetricRegistry metricRegistry = new SimpleMetricRegistry();
+    /**
+     * Exporter offering the metrics via JMX or {@code null} if JMX export is
+     * disabled.
+     */
+    private JmxMetricsExporter jmxExporter = null;
+    /**
+     * Exporter offering the metrics via HTTP or {@code null} if no port has
+     * been defined.
+     */
+    private PrometheusMetricsExporter httpExporter = null;
 
     @Override
     public void init() throws Exception {
@@ -78,16 +193,36 @@ public abstract class AbstractComponent implements Component {
         if (hobbitSessionId == null) {
             hobbitSessionId = Constants.HOBBIT_SESSION_ID_FOR_PLATFORM_COMPONENTS;
         }
+        highResolutionTimestamps = Boolean
+                .parseBoolean(System.getenv().getOrDefault(Constants.HIGH_RESOLUTION_TIMESTAMPS_KEY, "false"));
+        ephemeralDataQueues = Boolean
+                .parseBoolean(System.getenv().getOrDefault(Constants.EPHEMERAL_DATA_QUEUES_KEY, "false"));
+        if (System.getenv().containsKey(Constants.DATA_FLOW_CONTROL_WINDOW_KEY)) {
+            dataFlowControlWindow = Integer.parseInt(System.getenv().get(Constants.DATA_FLOW_CONTROL_WINDOW_KEY));
+        }
+        initMetricExporters();
 
         if (System.getenv().containsKey(Constants.RABBIT_MQ_HOST_NAME_KEY)) {
-            connectionFactory = new ConnectionFactory();
             rabbitMQHostName = System.getenv().get(Constants.RABBIT_MQ_HOST_NAME_KEY);
+            if (Constants.IN_MEMORY_BROKER_HOST_NAME.equals(rabbitMQHostName)) {
+                LOGGER.info("Using the in-memory broker of this JVM instead of RabbitMQ.");
+                connectionFactory = new InMemoryConnectionFactory();
+            } else {
+                connectionFactory = new ConnectionFactory();
+            }
             connectionFactory.setHost(rabbitMQHostName);
             connectionFactory.setAutomaticRecoveryEnabled(true);
             // attempt recovery every 10 seconds
             connectionFactory.setNetworkRecoveryInterval(10000);
-            incomingDataQueueFactory = new RabbitQueueFactoryImpl(createConnection());
-            outgoingDataQueuefactory = new RabbitQueueFactoryImpl(createConnection());
+            // all connections of the component are established in parallel
+            Future<Connection> incomingConnection = createConnectionAsync(null);
+            Future<Connection> outgoingConnection = createConnectionAsync(null);
+            startConnectionSetup();
+            Connection connections[] = awaitConnections(incomingConnection, outgoingConnection);
+            incomingDataQueueFactory = new RabbitQueueFactoryImpl(connections[0]);
+            outgoingDataQueuefactory = new RabbitQueueFactoryImpl(connections[1]);
+            dataTransport = createDataTransport();
+            systemDataTransport = createSystemDataTransport();
         } else {
             String msg = "Couldn't get " + Constants.RABBIT_MQ_HOST_NAME_KEY
                     + " from the environment. This component won't be able to connect to RabbitMQ.";
@@ -96,37 +231,301 @@ public abstract class AbstractComponent implements Component {
         }
     }
 
-    protected Connection createConnection() throws Exception {
-        Connection connection = null;
-        for (int i = 0; (connection == null) && (i <= NUMBER_OF_RETRIES_TO_CONNECT_TO_RABBIT_MQ); ++i) {
+    /**
+     * Starts the exporters of the {@link #metricRegistry}. The JMX export is
+     * enabled by default and can be disabled using
+     * {@link Constants#METRICS_JMX_KEY}. The HTTP export is only started if a
+     * port is defined using {@link Constants#METRICS_HTTP_PORT_KEY}.
+     */
+    protected void initMetricExporters() {
+        if (Boolean.parseBoolean(System.getenv().getOrDefault(Constants.METRICS_JMX_KEY, "true"))) {
+            jmxExporter = JmxMetricsExporter.register(metricRegistry, getClass().getSimpleName(),
+                    hobbitSessionId + "@" + Integer.toHexString(System.identityHashCode(this)));
+        }
+        if (System.getenv().containsKey(Constants.METRICS_HTTP_PORT_KEY)) {
             try {
-                connection = connectionFactory.newConnection();
+                httpExporter = PrometheusMetricsExporter.start(metricRegistry,
+                        System.getenv().getOrDefault(Constants.METRICS_HTTP_HOST_KEY, "localhost"),
+                        Integer.parseInt(System.getenv().get(Constants.METRICS_HTTP_PORT_KEY)));
             } catch (Exception e) {
-                if (i < NUMBER_OF_RETRIES_TO_CONNECT_TO_RABBIT_MQ) {
-                    long waitingTime = START_WAITING_TIME_BEFORE_RETRY * (i + 1);
-                    LOGGER.warn("Couldn't connect to RabbitMQ with try #" + i + ". Next try in " + waitingTime + "ms.",
-                            e);
+                LOGGER.warn("Couldn't start the HTTP metrics exporter. Metrics won't be available via HTTP.", e);
+            }
+        }
+    }
+
+    /**
+     * Creates the {@link DataTransport} used by this component. The default
+     * implementation returns a {@link RabbitDataTransport} based on the
+     * {@link #incomingDataQueueFactory} and the
+     * {@link #outgoingDataQueuefactory}. If the
+     * {@link Constants#SHARED_MEMORY_DIR_KEY} environment variable is defined,
+     * a {@link SharedMemoryDataTransport} is used for the data queues instead.
+     * Subclasses may override this method to use a different transport.
+     *
+     * @return the transport used for the data of this component
+     * @throws Exception
+     *             if the transport could not be created
+     */
+    protected DataTransport createDataTransport() throws Exception {
+        DataTransport rabbitTransport = new RabbitDataTransport(incomingDataQueueFactory, outgoingDataQueuefactory,
+                metricRegistry);
+        if (System.getenv().containsKey(Constants.SHARED_MEMORY_DIR_KEY)) {
+            File directory = new File(System.getenv().get(Constants.SHARED_MEMORY_DIR_KEY));
+            int capacity = SharedMemoryDataSender.DEFAULT_CAPACITY;
+            if (System.getenv().containsKey(Constants.SHARED_MEMORY_CAPACITY_KEY)) {
+                capacity = Integer.parseInt(System.getenv().get(Constants.SHARED_MEMORY_CAPACITY_KEY));
+            }
+            LOGGER.info("Using shared memory buffers in {} for the data queues.", directory);
+            return new SharedMemoryDataTransport(directory, capacity, rabbitTransport, metricRegistry);
+        }
+        return rabbitTransport;
+    }
+
+    /**
+     * Creates the {@link DataTransport} used for the data queues from and to
+     * the benchmarked system. Since the system adapter is not created by the
+     * benchmark, it does not inherit the shared memory settings. Hence, these
+     * queues stay on RabbitMQ unless the
+     * {@link Constants#SHARED_MEMORY_SYSTEM_QUEUES_KEY} flag is set, which has
+     * to be done for the benchmark components and the system adapter.
+     *
+     * @return the transport used for the data queues of the system
+     * @throws Exception
+     *             if the transport could not be created
+     */
+    protected DataTransport createSystemDataTransport() throws Exception {
+        if ((dataTransport instanceof SharedMemoryDataTransport) && !Boolean
+                .parseBoolean(System.getenv().getOrDefault(Constants.SHARED_MEMORY_SYSTEM_QUEUES_KEY, "false"))) {
+            return new RabbitDataTransport(incomingDataQueueFactory, outgoingDataQueuefactory, metricRegistry);
+        }
+        return dataTransport;
+    }
+
+    /**
+     * Returns the options that should be used for the data queue with the
+     * given name. By default, all data queues use {@link QueueOptions#DEFAULT}
+     * or {@link QueueOptions#EPHEMERAL} if the
+     * {@link Constants#EPHEMERAL_DATA_QUEUES_KEY} flag is set. Subclasses may
+     * override this method to select the options per queue. Note that the
+     * components on both ends of a queue have to use the same options.
+     *
+     * @param queueName
+     *            the name of the data queue
+     * @return the options of the queue
+     */
+    protected QueueOptions getDataQueueOptions(String queueName) {
+        return ephemeralDataQueues ? QueueOptions.EPHEMERAL : QueueOptions.DEFAULT;
+    }
+
+    /**
+     * Adds a credit based flow control to the given sender of the data queue
+     * with the given name if the {@link Constants#DATA_FLOW_CONTROL_WINDOW_KEY}
+     * is defined. The returned sender only sends data for which the receivers
+     * of the queue granted credits (see {@link #addFlowControl(String, DataHandler)}).
+     *
+     * @param queueName
+     *            the name of the data queue
+     * @param sender
+     *            the sender of the data queue
+     * @return a {@link FlowControlledDataSender} wrapping the given sender or
+     *         the given sender if the flow control is disabled
+     * @throws IOException
+     *             if the credit queue can not be consumed
+     */
+    protected DataSender addFlowControl(String queueName, DataSender sender) throws IOException {
+        if (dataFlowControlWindow <= 0) {
+            return sender;
+        }
+        return new FlowControlledDataSender(sender, outgoingDataQueuefactory.getConnection().createChannel(),
+                queueName);
+    }
+
+    /**
+     * Lets the given handler of the data queue with the given name grant
+     * credits to the flow controlled senders of the queue (see
+     * {@link #addFlowControl(String, DataSender)}) if the
+     * {@link Constants#DATA_FLOW_CONTROL_WINDOW_KEY} is defined.
+     *
+     * @param queueName
+     *            the name of the data queue
+     * @param handler
+     *            the handler processing the data of the queue
+     * @return a {@link CreditGrantingDataHandler} wrapping the given handler or
+     *         the given handler if the flow control is disabled
+     * @throws IOException
+     *             if the initial credits can not be granted
+     */
+    protected DataHandler addFlowControl(String queueName, DataHandler handler) throws IOException {
+        if (dataFlowControlWindow <= 0) {
+            return handler;
+        }
+        CreditGrantingDataHandler creditGrantingHandler = new CreditGrantingDataHandler(handler,
+                incomingDataQueueFactory.getConnection().createChannel(), queueName, dataFlowControlWindow);
+        creditGrantingHandlers.add(creditGrantingHandler);
+        return creditGrantingHandler;
+    }
+
+    /**
+     * Creates a {@link WorkRangeQueue} for the given queue of the current
+     * session. The returned queue owns its own channel and has to be closed by
+     * the caller.
+     *
+     * @param queueName
+     *            the name of the queue without the session id, e.g.,
+     *            {@link Constants#DATA_GEN_WORK_RANGES_QUEUE_NAME}
+     * @return the work range queue
+     * @throws IOException
+     *             if the queue can not be declared
+     */
+    protected WorkRangeQueue createWorkRangeQueue(String queueName) throws IOException {
+        return new WorkRangeQueue(incomingDataQueueFactory.getConnection().createChannel(),
+                generateSessionQueueName(queueName));
+    }
+
+    /**
+     * This method is called by {@link #init()} while the data connections are
+     * established. Subclasses that need additional connections can override it
+     * to start establishing them using {@link #createConnectionAsync(ExecutorService)}
+     * so that they are set up in parallel to the data connections. Overriding
+     * methods have to call this method of their super class.
+     */
+    protected void startConnectionSetup() {
+    }
+
+    protected Connection createConnection() throws Exception {
+        return createConnection(null);
+    }
+
+    /**
+     * Starts to establish a new connection to RabbitMQ in the background (see
+     * {@link #createConnection(ExecutorService)}).
+     *
+     * @param consumerExecutor
+     *            the executor used to dispatch the deliveries to the consumers
+     *            of the connection or {@code null} if the default executor of
+     *            the connection should be used
+     * @return a future of the connection that can be retrieved using
+     *         {@link #awaitConnections(Future...)}
+     */
+    protected Future<Connection> createConnectionAsync(final ExecutorService consumerExecutor) {
+        return CONNECTION_SETUP_EXECUTOR.submit(new Callable<Connection>() {
+            @Override
+            public Connection call() throws Exception {
+                return createConnection(consumerExecutor);
+            }
+        });
+    }
+
+    /**
+     * Waits for the given connections. If one of them couldn't be established,
+     * the other connections are closed and the exception is thrown.
+     *
+     * @param futures
+     *            the futures of the connections
+     * @return the connections in the order of the given futures
+     * @throws Exception
+     *             if one of the connections couldn't be established
+     */
+    protected Connection[] awaitConnections(Future<?>... futures) throws Exception {
+        Connection connections[] = new Connection[futures.length];
+        Exception exception = null;
+        for (int i = 0; i < futures.length; ++i) {
+            try {
+                connections[i] = (Connection) futures[i].get();
+            } catch (ExecutionException e) {
+                if (exception == null) {
+                    exception = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            for (int i = 0; i < connections.length; ++i) {
+                if (connections[i] != null) {
                     try {
-                        Thread.sleep(waitingTime);
-                    } catch (Exception e2) {
-                        LOGGER.warn("Interrupted while waiting before retrying to connect to RabbitMQ.", e2);
+                        connections[i].close();
+                    } catch (Exception e) {
+                        LOGGER.debug("Exception while closing connection.", e);
                     }
                 }
             }
+            throw exception;
         }
-        if (connection == null) {
-            String msg = "Couldn't connect to RabbitMQ after " + NUMBER_OF_RETRIES_TO_CONNECT_TO_RABBIT_MQ
-                    + " retries.";
-            LOGGER.error(msg);
-            throw new Exception(msg);
+        return connections;
+    }
+
+    /**
+     * Creates a new connection to RabbitMQ the consumers of which are
+     * dispatched by the given executor.
+     *
+     * @param consumerExecutor
+     *            the executor used to dispatch the deliveries to the consumers
+     *            of the connection or {@code null} if the default executor of
+     *            the connection should be used
+     * @return the newly created connection
+     * @throws Exception
+     *             if the connection could not be established
+     */
+    protected Connection createConnection(ExecutorService consumerExecutor) throws Exception {
+        long deadline = System.currentTimeMillis() + MAX_TIME_TO_CONNECT_TO_RABBIT_MQ;
+        for (int i = 0;; ++i) {
+            try {
+                return connectionFactory.newConnection(consumerExecutor);
+            } catch (Exception e) {
+                long waitingTime = getWaitingTimeBeforeRetry(i);
+                if ((System.currentTimeMillis() + waitingTime) > deadline) {
+                    String msg = "Couldn't connect to RabbitMQ after " + (i + 1) + " tries.";
+                    LOGGER.error(msg, e);
+                    throw new Exception(msg, e);
+                }
+                LOGGER.warn("Couldn't connect to RabbitMQ with try #" + i + ". Next try in " + waitingTime + "ms.", e);
+                try {
+                    Thread.sleep(waitingTime);
+                } catch (InterruptedException e2) {
+                    Thread.currentThread().interrupt();
+                    throw new Exception("Interrupted while waiting before retrying to connect to RabbitMQ.", e2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the time to wait before the next try to connect to RabbitMQ. The
+     * time grows exponentially, starting at
+     * {@link #FIRST_WAITING_TIME_BEFORE_RETRY}, up to
+     * {@link #MAX_WAITING_TIME_BEFORE_RETRY}. A random value between the half
+     * and the full time is returned to spread the retries of containers that
+     * have been started at the same time.
+     *
+     * @param failedTries
+     *            the number of already failed tries minus one
+     * @return the time in milliseconds
+     */
+    protected static long getWaitingTimeBeforeRetry(int failedTries) {
+        long waitingTime = MAX_WAITING_TIME_BEFORE_RETRY;
+        if (failedTries < 32) {
+            waitingTime = Math.min(FIRST_WAITING_TIME_BEFORE_RETRY << failedTries, MAX_WAITING_TIME_BEFORE_RETRY);
         }
-        return connection;
+        return (waitingTime / 2) + ThreadLocalRandom.current().nextLong((waitingTime / 2) + 1);
     }
 
     @Override
     public void close() throws IOException {
+        if (systemDataTransport != dataTransport) {
+            IOUtils.closeQuietly(systemDataTransport);
+        }
+        IOUtils.closeQuietly(dataTransport);
+        for (CreditGrantingDataHandler handler : creditGrantingHandlers) {
+            IOUtils.closeQuietly(handler);
+        }
         IOUtils.closeQuietly(incomingDataQueueFactory);
         IOUtils.closeQuietly(outgoingDataQueuefactory);
+        IOUtils.closeQuietly(jmxExporter);
+        IOUtils.closeQuietly(httpExporter);
     }
 
     public String getHobbitSessionId() {
@@ -137,4 +536,90 @@ public abstract class AbstractComponent implements Component {
         return queueName + "." + hobbitSessionId;
     }
 
+    /**
+     * @return the transport used for the data of this component
+     */
+    public DataTransport getDataTransport() {
+        return dataTransport;
+    }
+
+    /**
+     * @return the transport used for the data queues from and to the
+     *         benchmarked system
+     */
+    public DataTransport getSystemDataTransport() {
+        return systemDataTransport;
+    }
+
+    /**
+     * @return the registry containing the metrics of this component
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Sets the registry that should be used for the metrics of this component.
+     * Note that this has to be done before {@link #init()} is called.
+     *
+     * @param metricRegistry
+     *            the registry that should be used
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Returns whether this component uses nanosecond timestamps (see
+     * {@link Constants#HIGH_RESOLUTION_TIMESTAMPS_KEY}).
+     *
+     * @return {@code true} if the timestamps of tasks and responses are
+     *         nanoseconds, else {@code false}
+     */
+    public boolean isUsingHighResolutionTimestamps() {
+        return highResolutionTimestamps;
+    }
+
+    /**
+     * Returns the unit of the timestamps of tasks and responses, i.e.,
+     * {@link TimeUnit#NANOSECONDS} if high resolution timestamps are used or
+     * {@link TimeUnit#MILLISECONDS} otherwise.
+     *
+     * @return the unit of the task and response timestamps
+     */
+    public TimeUnit getTimestampUnit() {
+        return highResolutionTimestamps ? TimeUnit.NANOSECONDS : TimeUnit.MILLISECONDS;
+    }
+
+    /**
+     * Returns the current timestamp that should be used for tasks and
+     * responses. If high resolution timestamps are enabled, the timestamp is
+     * taken from {@link HighResolutionClock#currentTimeNanos()}. Otherwise,
+     * {@link System#currentTimeMillis()} is used.
+     *
+     * @return the current timestamp in the unit returned by
+     *         {@link #getTimestampUnit()}
+     */
+    protected long getCurrentTimestamp() {
+        return highResolutionTimestamps ? HighResolutionClock.currentTimeNanos() : System.currentTimeMillis();
+    }
+
+    /**
+     * Converts the given value of {@link System#nanoTime()} into a timestamp
+     * that can be used for tasks and responses, i.e., a timestamp in the unit
+     * returned by {@link #getTimestampUnit()} that is comparable to the
+     * timestamps of {@link #getCurrentTimestamp()}.
+     *
+     * @param nanoTime
+     *            a value of {@link System#nanoTime()}
+     * @return the timestamp of the given point in time
+     */
+    protected long toTimestamp(long nanoTime) {
+        if (highResolutionTimestamps) {
+            return HighResolutionClock.toTimeNanos(nanoTime);
+        } else {
+            return System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanoTime);
+        }
+    }
+
 }
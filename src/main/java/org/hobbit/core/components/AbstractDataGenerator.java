@@ -23,8 +23,11 @@ import java.util.concurrent.Semaphore;
 import org.apache.commons.io.IOUtils;
 import org.hobbit.core.Commands;
 import org.hobbit.core.Constants;
+import org.hobbit.core.data.WorkRange;
 import org.hobbit.core.rabbit.DataSender;
-import org.hobbit.core.rabbit.DataSenderImpl;
+import org.hobbit.core.rabbit.WorkRangeQueue;
+import org.hobbit.core.schedule.ArrivalSchedule;
+import org.hobbit.core.schedule.ArrivalScheduler;
 
 public abstract class AbstractDataGenerator extends AbstractPlatformConnectorComponent {
 
@@ -33,6 +36,15 @@ public abstract class AbstractDataGenerator extends AbstractPlatformConnectorCom
     private int numberOfGenerators;
     protected DataSender sender2TaskGen;
     protected DataSender sender2System;
+    /**
+     * Scheduler pacing the data or {@code null} if no schedule has been set.
+     */
+    private ArrivalScheduler arrivalScheduler = null;
+    /**
+     * Queue from which the work ranges are pulled. It is created with the
+     * first call of {@link #getNextWorkRange()}.
+     */
+    private WorkRangeQueue workRangeQueue = null;
 
     public AbstractDataGenerator() {
         defaultContainerType = Constants.CONTAINER_TYPE_BENCHMARK;
@@ -65,10 +77,13 @@ public abstract class AbstractDataGenerator extends AbstractPlatformConnectorCom
                     "Couldn't get \"" + Constants.GENERATOR_COUNT_KEY + "\" from the environment. Aborting.", e);
         }
 
-        sender2TaskGen = DataSenderImpl.builder().queue(getFactoryForOutgoingDataQueues(),
-                generateSessionQueueName(Constants.DATA_GEN_2_TASK_GEN_QUEUE_NAME)).build();
-        sender2System = DataSenderImpl.builder().queue(getFactoryForOutgoingDataQueues(),
-                generateSessionQueueName(Constants.DATA_GEN_2_SYSTEM_QUEUE_NAME)).build();
+        String queueName = generateSessionQueueName(Constants.DATA_GEN_2_TASK_GEN_QUEUE_NAME);
+        sender2TaskGen = addFlowControl(queueName,
+                dataTransport.createSender(queueName, getDataQueueOptions(queueName)));
+        // the system adapter is not part of the benchmark and might not grant
+        // credits, i.e., its queue is not flow controlled
+        queueName = generateSessionQueueName(Constants.DATA_GEN_2_SYSTEM_QUEUE_NAME);
+        sender2System = systemDataTransport.createSender(queueName, getDataQueueOptions(queueName));
     }
 
     @Override
@@ -96,6 +111,69 @@ public abstract class AbstractDataGenerator extends AbstractPlatformConnectorCom
         super.receiveCommand(command, data);
     }
 
+    /**
+     * Sets the schedule with which the data should be sent. If a schedule is
+     * set, the generator has to call {@link #awaitNextArrival()} before
+     * sending the next piece of data. The schedule starts with the first call.
+     * The lag between the intended and the actual sending is recorded as
+     * <code>data.scheduleLag</code> metric.
+     *
+     * @param schedule
+     *            the schedule of the data or {@code null} to remove the
+     *            schedule
+     */
+    protected void setArrivalSchedule(ArrivalSchedule schedule) {
+        if (schedule != null) {
+            arrivalScheduler = new ArrivalScheduler(schedule, metricRegistry.histogram("data.scheduleLag"));
+        } else {
+            arrivalScheduler = null;
+        }
+    }
+
+    /**
+     * Waits until the intended time of the next arrival of the schedule (see
+     * {@link #setArrivalSchedule(ArrivalSchedule)}).
+     *
+     * @return the intended time of the arrival in the unit of
+     *         {@link #getCurrentTimestamp()}
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     * @throws IllegalStateException
+     *             if no schedule has been set
+     */
+    protected long awaitNextArrival() throws InterruptedException {
+        ArrivalScheduler scheduler = arrivalScheduler;
+        if (scheduler == null) {
+            throw new IllegalStateException("There is no arrival schedule.");
+        }
+        return toTimestamp(scheduler.awaitNextArrival());
+    }
+
+    /**
+     * Returns the next range of work items that should be generated by this
+     * generator. Instead of deriving its share of the data from
+     * {@link #getGeneratorId()} and {@link #getNumberOfGenerators()}, a
+     * generator can pull ranges until this method returns {@code null}. The
+     * ranges have to be published by the benchmark controller before it sends
+     * the start signal (see
+     * {@link AbstractBenchmarkController#publishDataGeneratorWorkRanges(long, long)}).
+     * Since idle generators simply pull the next range, a straggler does not
+     * delay the other generators. The previous range is marked as done with
+     * every call, i.e., if a generator crashes, its current range is handed
+     * out to another generator.
+     *
+     * @return the next range or {@code null} if all ranges have been handed
+     *         out
+     * @throws IOException
+     *             if the work range queue can not be accessed
+     */
+    protected synchronized WorkRange getNextWorkRange() throws IOException {
+        if (workRangeQueue == null) {
+            workRangeQueue = createWorkRangeQueue(Constants.DATA_GEN_WORK_RANGES_QUEUE_NAME);
+        }
+        return workRangeQueue.getNextRange();
+    }
+
     protected void sendDataToTaskGenerator(byte[] data) throws IOException {
         sender2TaskGen.sendData(data);
     }
@@ -116,6 +194,7 @@ public abstract class AbstractDataGenerator extends AbstractPlatformConnectorCom
     public void close() throws IOException {
         IOUtils.closeQuietly(sender2TaskGen);
         IOUtils.closeQuietly(sender2System);
+        IOUtils.closeQuietly(workRangeQueue);
         super.close();
     }
 }
@@ -19,15 +19,19 @@ package org.hobbit.core.components;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Iterator;
 import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
 import org.apache.jena.vocabulary.RDF;
 import org.hobbit.core.Commands;
 import org.hobbit.core.Constants;
 import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.metrics.LatencyRecorder;
+import org.hobbit.core.rabbit.DataSender;
 import org.hobbit.core.rabbit.RabbitMQUtils;
 import org.hobbit.vocab.HOBBIT;
 import org.slf4j.Logger;
@@ -47,6 +51,12 @@ public abstract class AbstractEvaluationModule extends AbstractPlatformConnector
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractEvaluationModule.class);
 
+    /**
+     * Default maximum size of a single chunk of a streamed result model =
+     * {@value #DEFAULT_RESULT_MODEL_CHUNK_SIZE} bytes.
+     */
+    public static final int DEFAULT_RESULT_MODEL_CHUNK_SIZE = 1 << 20;
+
     /**
      * Consumer used to receive the responses from the evaluation storage.
      */
@@ -63,6 +73,40 @@ public abstract class AbstractEvaluationModule extends AbstractPlatformConnector
      * The URI of the experiment.
      */
     protected String experimentUri;
+    /**
+     * Recorder that can be used to record the latencies of the single
+     * responses (see {@link #recordLatency(long, long)}).
+     */
+    protected LatencyRecorder latencyRecorder = new LatencyRecorder();
+    /**
+     * Flag indicating whether the benchmark controller expects the result
+     * model as stream of N-Triples chunks (see
+     * {@link Constants#RESULT_MODEL_STREAMING_KEY}).
+     */
+    protected boolean streamResultModel = false;
+    /**
+     * Maximum size of a single chunk of a streamed result model in bytes.
+     */
+    protected int resultModelChunkSize = DEFAULT_RESULT_MODEL_CHUNK_SIZE;
+    /**
+     * Number of evaluated responses after which a KPI snapshot is published
+     * (see {@link #createKpiSnapshot()}). A value of 0 disables this trigger.
+     */
+    protected long kpiSnapshotResponseInterval = 0;
+    /**
+     * Time in milliseconds after which a KPI snapshot is published (see
+     * {@link #createKpiSnapshot()}). The time is only checked after a
+     * response has been evaluated. A value of 0 disables this trigger.
+     */
+    protected long kpiSnapshotTimeInterval = 0;
+    /**
+     * Number of responses evaluated since the last KPI snapshot.
+     */
+    private long responsesSinceLastSnapshot = 0;
+    /**
+     * Time at which the last KPI snapshot has been published.
+     */
+    private long lastSnapshotTime = System.currentTimeMillis();
 
     public AbstractEvaluationModule() {
         defaultContainerType = Constants.CONTAINER_TYPE_BENCHMARK;
@@ -82,6 +126,7 @@ public abstract class AbstractEvaluationModule extends AbstractPlatformConnector
             LOGGER.error(errorMsg);
             throw new Exception(errorMsg);
         }
+        streamResultModel = Boolean.parseBoolean(env.get(Constants.RESULT_MODEL_STREAMING_KEY));
 
         evalModule2EvalStoreQueue = getFactoryForOutgoingDataQueues()
                 .createDefaultRabbitQueue(generateSessionQueueName(Constants.EVAL_MODULE_2_EVAL_STORAGE_QUEUE_NAME));
@@ -146,11 +191,65 @@ public abstract class AbstractEvaluationModule extends AbstractPlatformConnector
             receivedData = RabbitMQUtils.readByteArray(buffer);
 
             evaluateResponse(expectedData, receivedData, taskSentTimestamp, responseReceivedTimestamp);
+            checkKpiSnapshot();
+        }
+    }
+
+    /**
+     * Publishes a KPI snapshot if one of the snapshot triggers (see
+     * {@link #kpiSnapshotResponseInterval} and
+     * {@link #kpiSnapshotTimeInterval}) fires. Errors are logged but do not
+     * stop the evaluation.
+     */
+    protected void checkKpiSnapshot() {
+        ++responsesSinceLastSnapshot;
+        long now = System.currentTimeMillis();
+        if (((kpiSnapshotResponseInterval > 0) && (responsesSinceLastSnapshot >= kpiSnapshotResponseInterval))
+                || ((kpiSnapshotTimeInterval > 0) && ((now - lastSnapshotTime) >= kpiSnapshotTimeInterval))) {
+            responsesSinceLastSnapshot = 0;
+            lastSnapshotTime = now;
+            try {
+                Model snapshot = createKpiSnapshot();
+                if (snapshot != null) {
+                    publishKpiSnapshot(snapshot);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Couldn't publish KPI snapshot. Continuing evaluation.", e);
+            }
         }
     }
 
     /**
-     * Evaluates the given response pair.
+     * Creates a snapshot of the KPIs that can be computed from the responses
+     * evaluated so far. The snapshot is sent to the benchmark controller which
+     * forwards it to the platform and uses it as result if the experiment
+     * crashes. The default implementation returns {@code null}, i.e., no
+     * snapshots are published.
+     *
+     * @return the snapshot or {@code null} if no snapshot should be published
+     * @throws Exception
+     *             if the snapshot can not be created
+     */
+    protected Model createKpiSnapshot() throws Exception {
+        return null;
+    }
+
+    /**
+     * Sends the given KPI snapshot to the benchmark controller.
+     *
+     * @param snapshot
+     *            the snapshot that should be sent
+     * @throws IOException
+     *             if an error occurs during the commmunication
+     */
+    protected void publishKpiSnapshot(Model snapshot) throws IOException {
+        sendToCmdQueue(Commands.EVAL_MODULE_KPI_SNAPSHOT, RabbitMQUtils.writeModel(snapshot));
+    }
+
+    /**
+     * Evaluates the given response pair. Note that the timestamps are
+     * nanoseconds if high resolution timestamps are enabled (see
+     * {@link #getTimestampUnit()}).
      *
      * @param expectedData
      *            the data that has been expected
@@ -178,7 +277,10 @@ public abstract class AbstractEvaluationModule extends AbstractPlatformConnector
     protected abstract Model summarizeEvaluation() throws Exception;
 
     /**
-     * Sends the model to the benchmark controller.
+     * Sends the model to the benchmark controller. If the controller supports
+     * it, the model is streamed as N-Triples chunks via a data queue and the
+     * {@link Commands#EVAL_MODULE_FINISHED_SIGNAL} is sent without data after
+     * the last chunk. Otherwise, the complete model is attached to the signal.
      *
      * @param model
      *            the model that should be sent
@@ -186,9 +288,25 @@ public abstract class AbstractEvaluationModule extends AbstractPlatformConnector
      *             if an error occurs during the commmunication
      */
     private void sendResultModel(Model model) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        model.write(outputStream, "JSONLD");
-        sendToCmdQueue(Commands.EVAL_MODULE_FINISHED_SIGNAL, outputStream.toByteArray());
+        if (streamResultModel) {
+            DataSender sender = dataTransport
+                    .createSender(generateSessionQueueName(Constants.EVAL_MODULE_2_BENCHMARK_CONTROLLER_QUEUE_NAME));
+            try {
+                Iterator<byte[]> chunks = RabbitMQUtils.writeModelChunks(model, resultModelChunkSize);
+                while (chunks.hasNext()) {
+                    sender.sendData(chunks.next());
+                }
+                sender.closeWhenFinished();
+            } catch (IOException e) {
+                IOUtils.closeQuietly(sender);
+                throw e;
+            }
+            sendToCmdQueue(Commands.EVAL_MODULE_FINISHED_SIGNAL);
+        } else {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            model.write(outputStream, "JSONLD");
+            sendToCmdQueue(Commands.EVAL_MODULE_FINISHED_SIGNAL, outputStream.toByteArray());
+        }
     }
 
     @Override
@@ -209,6 +327,51 @@ public abstract class AbstractEvaluationModule extends AbstractPlatformConnector
         super.close();
     }
 
+    /**
+     * Records the latency between the given timestamps using the
+     * {@link #latencyRecorder}. The latency is only recorded if both
+     * timestamps are available, i.e., larger than 0. This method can be
+     * called from within
+     * {@link #evaluateResponse(byte[], byte[], long, long)}.
+     *
+     * @param taskSentTimestamp
+     *            the time at which the task has been sent to the system
+     * @param responseReceivedTimestamp
+     *            the time at which the response has been received from the
+     *            system
+     */
+    protected void recordLatency(long taskSentTimestamp, long responseReceivedTimestamp) {
+        if ((taskSentTimestamp > 0) && (responseReceivedTimestamp > 0)) {
+            latencyRecorder.recordLatency(taskSentTimestamp, responseReceivedTimestamp);
+        }
+    }
+
+    /**
+     * Adds the percentiles and the maximum of the recorded latencies as KPIs
+     * of the experiment to the given model (see
+     * {@link LatencyRecorder#addToModel}).
+     * Note that the values have the unit of the timestamps (see
+     * {@link #getTimestampUnit()}).
+     *
+     * @param model
+     *            the result model
+     * @param p50Property
+     *            the KPI property of the 50th percentile or {@code null}
+     * @param p90Property
+     *            the KPI property of the 90th percentile or {@code null}
+     * @param p99Property
+     *            the KPI property of the 99th percentile or {@code null}
+     * @param p999Property
+     *            the KPI property of the 99.9th percentile or {@code null}
+     * @param maxProperty
+     *            the KPI property of the maximum or {@code null}
+     */
+    protected void addLatencyKPIs(Model model, Property p50Property, Property p90Property, Property p99Property,
+            Property p999Property, Property maxProperty) {
+        latencyRecorder.addToModel(model, model.getResource(experimentUri), p50Property, p90Property, p99Property,
+                p999Property, maxProperty);
+    }
+
     protected Model createDefaultModel() {
         Model resultModel = ModelFactory.createDefaultModel();
         resultModel.add(resultModel.createResource(experimentUri), RDF.type, HOBBIT.Experiment);
@@ -18,9 +18,13 @@ package org.hobbit.core.components;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.jena.ext.com.google.common.collect.Lists;
@@ -29,9 +33,9 @@ import org.hobbit.core.Constants;
 import org.hobbit.core.data.RabbitQueue;
 import org.hobbit.core.data.Result;
 import org.hobbit.core.data.ResultPair;
+import org.hobbit.core.metrics.LatencyRecorder;
 import org.hobbit.core.rabbit.DataHandler;
 import org.hobbit.core.rabbit.DataReceiver;
-import org.hobbit.core.rabbit.DataReceiverImpl;
 import org.hobbit.core.rabbit.RabbitMQUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,6 +70,14 @@ public abstract class AbstractEvaluationStorage extends AbstractPlatformConnecto
      * Default value of the {@link #maxParallelProcessedMsgs} attribute.
      */
     private static final int DEFAULT_MAX_PARALLEL_PROCESSED_MESSAGES = 50;
+    /**
+     * Default value of the {@link #ackBatchSize} attribute.
+     */
+    private static final int DEFAULT_ACK_BATCH_SIZE = 1;
+    /**
+     * Default value of the {@link #ackBatchTimeout} attribute.
+     */
+    private static final long DEFAULT_ACK_BATCH_TIMEOUT = 1000;
 
     /**
      * Mutex used to wait for the termination signal.
@@ -96,6 +108,33 @@ public abstract class AbstractEvaluationStorage extends AbstractPlatformConnecto
      * Channel on which the acknowledgements are send.
      */
     protected Channel ackChannel = null;
+    /**
+     * The maximum number of task ids that are sent within a single
+     * acknowledgement message. A value of 1 leads to one message per task.
+     */
+    private int ackBatchSize = DEFAULT_ACK_BATCH_SIZE;
+    /**
+     * The maximum time (in microseconds) a task id is kept in the current
+     * batch before the batch is sent.
+     */
+    private long ackBatchTimeout = DEFAULT_ACK_BATCH_TIMEOUT;
+    /**
+     * Task ids that have not been acknowledged yet.
+     */
+    private List<String> ackBatch = new ArrayList<String>();
+    /**
+     * Executor that regularly flushes the current batch of acknowledgements.
+     */
+    private ScheduledExecutorService ackFlushExecutor = null;
+    /**
+     * Name of the exchange the acknowledgements are sent to.
+     */
+    private String ackExchangeName;
+    /**
+     * Delay between the intended and the actual sending of scheduled tasks
+     * (in the unit of the task timestamps).
+     */
+    private LatencyRecorder taskSendDelay;
 
     /**
      * Constructor using the {@link #DEFAULT_MAX_PARALLEL_PROCESSED_MESSAGES}=
@@ -120,42 +159,45 @@ public abstract class AbstractEvaluationStorage extends AbstractPlatformConnecto
     @Override
     public void init() throws Exception {
         super.init();
+        taskSendDelay = metricRegistry.histogram("tasks.sendDelay");
 
-        taskResultReceiver = DataReceiverImpl.builder().maxParallelProcessedMsgs(maxParallelProcessedMsgs)
-                .queue(incomingDataQueueFactory, generateSessionQueueName(Constants.TASK_GEN_2_EVAL_STORAGE_QUEUE_NAME))
-                .dataHandler(new DataHandler() {
+        String queueName = generateSessionQueueName(Constants.TASK_GEN_2_EVAL_STORAGE_QUEUE_NAME);
+        taskResultReceiver = dataTransport.createReceiver(queueName, getDataQueueOptions(queueName),
+                new DataHandler() {
                     @Override
                     public void handleData(byte[] data) {
                         ByteBuffer buffer = ByteBuffer.wrap(data);
                         String taskId = RabbitMQUtils.readString(buffer);
                         byte[] taskData = RabbitMQUtils.readByteArray(buffer);
                         long timestamp = buffer.getLong();
-                        receiveExpectedResponseData(taskId, timestamp, taskData);
+                        if (buffer.remaining() >= Long.BYTES) {
+                            // the actual sending time of a scheduled task
+                            long actualTimestamp = buffer.getLong();
+                            taskSendDelay.recordLatency(timestamp, actualTimestamp);
+                            receiveExpectedResponseData(taskId, timestamp, actualTimestamp, taskData);
+                        } else {
+                            receiveExpectedResponseData(taskId, timestamp, taskData);
+                        }
                     }
-                }).build();
+                }, maxParallelProcessedMsgs);
 
-        final String ackExchangeName = generateSessionQueueName(Constants.HOBBIT_ACK_EXCHANGE_NAME);
-        systemResultReceiver = DataReceiverImpl.builder().maxParallelProcessedMsgs(maxParallelProcessedMsgs)
-                .queue(incomingDataQueueFactory, generateSessionQueueName(Constants.SYSTEM_2_EVAL_STORAGE_QUEUE_NAME))
-                .dataHandler(new DataHandler() {
+        ackExchangeName = generateSessionQueueName(Constants.HOBBIT_ACK_EXCHANGE_NAME);
+        queueName = generateSessionQueueName(Constants.SYSTEM_2_EVAL_STORAGE_QUEUE_NAME);
+        systemResultReceiver = systemDataTransport.createReceiver(queueName, getDataQueueOptions(queueName),
+                new DataHandler() {
                     @Override
                     public void handleData(byte[] data) {
                         ByteBuffer buffer = ByteBuffer.wrap(data);
                         String taskId = RabbitMQUtils.readString(buffer);
                         byte[] responseData = RabbitMQUtils.readByteArray(buffer);
-                        receiveResponseData(taskId, System.currentTimeMillis(), responseData);
+                        receiveResponseData(taskId, getCurrentTimestamp(), responseData);
                         // If we should send acknowledgments (and there was no
                         // error until now)
                         if (ackChannel != null) {
-                            try {
-                                ackChannel.basicPublish(ackExchangeName, "", null, RabbitMQUtils.writeString(taskId));
-                            } catch (IOException e) {
-                                LOGGER.error("Error while sending acknowledgement.", e);
-                            }
-                            LOGGER.trace("Sent ack{}.", taskId);
+                            sendAck(taskId);
                         }
                     }
-                }).build();
+                }, maxParallelProcessedMsgs);
 
         evalModule2EvalStoreQueue = getFactoryForIncomingDataQueues()
                 .createDefaultRabbitQueue(generateSessionQueueName(Constants.EVAL_MODULE_2_EVAL_STORAGE_QUEUE_NAME));
@@ -225,10 +267,126 @@ public abstract class AbstractEvaluationStorage extends AbstractPlatformConnecto
                 ackChannel = getFactoryForOutgoingCmdQueues().getConnection().createChannel();
                 ackChannel.exchangeDeclare(generateSessionQueueName(Constants.HOBBIT_ACK_EXCHANGE_NAME), "fanout",
                         false, true, null);
+                initAckBatching();
             }
         }
     }
 
+    /**
+     * Reads the configuration of the acknowledgement batches from the
+     * environment and starts the regular flushing of the batches if more than
+     * one task id should be sent with a single message.
+     */
+    private void initAckBatching() {
+        try {
+            ackBatchSize = Integer.parseInt(System.getenv().getOrDefault(Constants.ACKNOWLEDGEMENT_BATCH_SIZE_KEY,
+                    Integer.toString(DEFAULT_ACK_BATCH_SIZE)));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Couldn't parse the value of " + Constants.ACKNOWLEDGEMENT_BATCH_SIZE_KEY + ". Using "
+                    + DEFAULT_ACK_BATCH_SIZE + " instead.", e);
+            ackBatchSize = DEFAULT_ACK_BATCH_SIZE;
+        }
+        try {
+            ackBatchTimeout = Long.parseLong(System.getenv().getOrDefault(Constants.ACKNOWLEDGEMENT_BATCH_TIMEOUT_KEY,
+                    Long.toString(DEFAULT_ACK_BATCH_TIMEOUT)));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Couldn't parse the value of " + Constants.ACKNOWLEDGEMENT_BATCH_TIMEOUT_KEY + ". Using "
+                    + DEFAULT_ACK_BATCH_TIMEOUT + " instead.", e);
+            ackBatchTimeout = DEFAULT_ACK_BATCH_TIMEOUT;
+        }
+        if ((ackBatchSize > 1) && (ackBatchTimeout > 0)) {
+            LOGGER.info("Sending acknowledgements in batches of up to {} ids or every {} microseconds.", ackBatchSize,
+                    ackBatchTimeout);
+            ackFlushExecutor = Executors.newSingleThreadScheduledExecutor();
+            ackFlushExecutor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    flushAcks();
+                }
+            }, ackBatchTimeout, ackBatchTimeout, TimeUnit.MICROSECONDS);
+        } else {
+            ackBatchSize = 1;
+        }
+    }
+
+    /**
+     * Sends an acknowledgement for the task with the given id. If
+     * acknowledgements are sent in batches, the id is added to the current
+     * batch which is sent as soon as it is full or its timeout is reached.
+     *
+     * @param taskId
+     *            the id of the task that should be acknowledged
+     */
+    protected void sendAck(String taskId) {
+        if (ackBatchSize > 1) {
+            synchronized (ackBatch) {
+                ackBatch.add(taskId);
+                if (ackBatch.size() >= ackBatchSize) {
+                    flushAcks();
+                }
+            }
+        } else {
+            try {
+                ackChannel.basicPublish(ackExchangeName, "", null, RabbitMQUtils.writeString(taskId));
+            } catch (IOException e) {
+                LOGGER.error("Error while sending acknowledgement.", e);
+            }
+            LOGGER.trace("Sent ack{}.", taskId);
+        }
+    }
+
+    /**
+     * Sends all task ids of the current batch as a single acknowledgement
+     * message. The message has the type
+     * {@link Constants#HOBBIT_ACK_BATCH_MESSAGE_TYPE} and contains the ids as
+     * byte arrays preceded by their lengths.
+     */
+    protected void flushAcks() {
+        byte[][] ids;
+        synchronized (ackBatch) {
+            if (ackBatch.isEmpty()) {
+                return;
+            }
+            ids = new byte[ackBatch.size()][];
+            for (int i = 0; i < ids.length; ++i) {
+                ids[i] = RabbitMQUtils.writeString(ackBatch.get(i));
+            }
+            ackBatch.clear();
+        }
+        try {
+            ackChannel.basicPublish(ackExchangeName, "",
+                    new BasicProperties.Builder().type(Constants.HOBBIT_ACK_BATCH_MESSAGE_TYPE).build(),
+                    RabbitMQUtils.writeByteArrays(ids));
+        } catch (IOException e) {
+            LOGGER.error("Error while sending acknowledgement batch.", e);
+        }
+        LOGGER.trace("Sent ack batch with {} ids.", ids.length);
+    }
+
+    /**
+     * Receives the expected response of a task for which the task generator
+     * sent the intended and the actual sending time (see
+     * {@link AbstractTaskGenerator#sendTaskToEvalStorage(String, long, long, byte[])}).
+     * The intended time is the timestamp of the task. Hence, the default
+     * implementation hands it over to
+     * {@link #receiveExpectedResponseData(String, long, byte[])} and drops the
+     * actual sending time. Storages that want to report both times can
+     * override this method.
+     *
+     * @param taskId
+     *            the id of the task
+     * @param intendedTimestamp
+     *            the time at which the task should have been sent
+     * @param actualTimestamp
+     *            the time at which the task has been sent
+     * @param data
+     *            the expected response
+     */
+    public void receiveExpectedResponseData(String taskId, long intendedTimestamp, long actualTimestamp,
+            byte[] data) {
+        receiveExpectedResponseData(taskId, intendedTimestamp, data);
+    }
+
     /**
      * Creates a new iterator that iterates over the response pairs.
      *
@@ -242,6 +400,9 @@ public abstract class AbstractEvaluationStorage extends AbstractPlatformConnecto
         terminationMutex.acquire();
         taskResultReceiver.closeWhenFinished();
         systemResultReceiver.closeWhenFinished();
+        if (ackChannel != null) {
+            flushAcks();
+        }
     }
 
     @Override
@@ -259,6 +420,9 @@ public abstract class AbstractEvaluationStorage extends AbstractPlatformConnecto
         IOUtils.closeQuietly(taskResultReceiver);
         IOUtils.closeQuietly(systemResultReceiver);
         IOUtils.closeQuietly(evalModule2EvalStoreQueue);
+        if (ackFlushExecutor != null) {
+            ackFlushExecutor.shutdownNow();
+        }
         if (ackChannel != null) {
             try {
                 ackChannel.close();
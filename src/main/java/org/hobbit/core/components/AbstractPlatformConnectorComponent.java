@@ -65,6 +65,7 @@ public abstract class AbstractPlatformConnectorComponent extends AbstractCommand
                 containerObservers.remove(containerName);
             }
         }
+        super.receiveCommand(command, data);
     }
 
     @Override
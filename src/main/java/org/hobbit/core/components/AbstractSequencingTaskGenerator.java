@@ -17,12 +17,16 @@
 package org.hobbit.core.components;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.hobbit.core.Constants;
 import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.hobbit.core.schedule.ArrivalSchedule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +55,30 @@ import com.rabbitmq.client.Envelope;
  * configured to send acknowledgements for the single tasks.
  * </p>
  *
+ * <p>
+ * If the generator is created with a maximum number of outstanding tasks
+ * larger than 1 (see
+ * {@link #AbstractSequencingTaskGenerator(int, int)}), it works in a windowed
+ * mode. In this mode, {@link #sendTaskToSystemAdapter(String, byte[])} only
+ * blocks until one of the currently outstanding tasks has been acknowledged,
+ * i.e., up to the given number of tasks can be processed by the system at the
+ * same time. Note that in this mode the order in which the tasks are
+ * processed by the system is not guaranteed anymore.
+ * </p>
+ *
+ * <p>
+ * Both modes are closed loops, i.e., a slow system reduces the load it gets.
+ * Latencies measured this way suffer from coordinated omission since the
+ * tasks that should have been sent while the generator waited for an
+ * acknowledgement are never sent. If the generator is switched to the
+ * open-loop mode with {@link #setOpenLoopSchedule(ArrivalSchedule)},
+ * {@link #sendTaskToSystemAdapter(String, byte[])} does not wait for
+ * acknowledgements anymore. Instead, the tasks have to be sent with
+ * {@link #sendScheduledTask(String, byte[], byte[])} which dispatches them at
+ * their intended times and sends the intended as well as the actual sending
+ * time to the evaluation storage.
+ * </p>
+ *
  * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
  *
  */
@@ -61,6 +89,11 @@ public abstract class AbstractSequencingTaskGenerator extends AbstractTaskGenera
      * Default timeout for the acknowledgement.
      */
     private static final long DEFAULT_ACK_TIMEOUT = 600000;
+    /**
+     * Default maximum number of tasks that are sent to the system without
+     * having received an acknowledgement for them.
+     */
+    private static final int DEFAULT_MAX_OUTSTANDING_TASKS = 1;
     /**
      * Timeout for the acknowledgement.
      */
@@ -73,6 +106,25 @@ public abstract class AbstractSequencingTaskGenerator extends AbstractTaskGenera
      * Semaphore used to wait for the acknowledgement.
      */
     private Semaphore taskIdMutex = new Semaphore(0);
+    /**
+     * The maximum number of tasks that are sent to the system without having
+     * received an acknowledgement for them.
+     */
+    private final int maxOutstandingTasks;
+    /**
+     * Ids of the tasks that have been sent in the windowed mode and for which
+     * no acknowledgement has been received.
+     */
+    private Set<String> pendingTaskIds = ConcurrentHashMap.newKeySet();
+    /**
+     * Semaphore used to limit the number of outstanding tasks in the windowed
+     * mode.
+     */
+    private Semaphore windowMutex;
+    /**
+     * Flag indicating whether the generator works in the open-loop mode.
+     */
+    private volatile boolean openLoop = false;
     /**
      * Channel on which the acknowledgments are received.
      */
@@ -80,13 +132,36 @@ public abstract class AbstractSequencingTaskGenerator extends AbstractTaskGenera
 
     public AbstractSequencingTaskGenerator() {
         // TODO remove this 1 from the constructor
-        super(1);
+        this(1, DEFAULT_MAX_OUTSTANDING_TASKS);
     }
     // TODO reactivate this constructor
     // public AbstractSequencingTaskGenerator(int numberOfMessagesInParallel) {
     // super(numberOfMessagesInParallel);
     // }
 
+    /**
+     * Constructor setting the maximum number of parallel processed messages
+     * and the maximum number of tasks that are sent to the system without
+     * having received an acknowledgement for them. Setting
+     * <code>maxOutstandingTasks=1</code> leads to a strict sequencing of the
+     * tasks.
+     *
+     * @param numberOfMessagesInParallel
+     *            the number of messages that are processed in parallel
+     * @param maxOutstandingTasks
+     *            the maximum number of tasks the system might process at the
+     *            same time (has to be larger or equal to 1)
+     */
+    public AbstractSequencingTaskGenerator(int numberOfMessagesInParallel, int maxOutstandingTasks) {
+        super(numberOfMessagesInParallel);
+        if (maxOutstandingTasks < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of outstanding tasks has to be >= 1 (got " + maxOutstandingTasks + ").");
+        }
+        this.maxOutstandingTasks = maxOutstandingTasks;
+        windowMutex = new Semaphore(maxOutstandingTasks);
+    }
+
     @Override
     public void init() throws Exception {
         super.init();
@@ -102,7 +177,12 @@ public abstract class AbstractSequencingTaskGenerator extends AbstractTaskGenera
             public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
                     byte[] body) throws IOException {
                 try {
-                    handleAck(body);
+                    if ((properties != null)
+                            && Constants.HOBBIT_ACK_BATCH_MESSAGE_TYPE.equals(properties.getType())) {
+                        handleAckBatch(body);
+                    } else {
+                        handleAck(body);
+                    }
                 } catch (Exception e) {
                     LOGGER.error("Exception while trying to handle incoming command.", e);
                 }
@@ -119,7 +199,31 @@ public abstract class AbstractSequencingTaskGenerator extends AbstractTaskGenera
      *            the body of the acknowledgement message
      */
     protected void handleAck(byte[] body) {
-        String ackTaskId = RabbitMQUtils.readString(body);
+        handleAck(RabbitMQUtils.readString(body));
+    }
+
+    /**
+     * Handles acknowledgement messages containing a batch of task ids, i.e.,
+     * messages with the type {@link Constants#HOBBIT_ACK_BATCH_MESSAGE_TYPE}.
+     *
+     * @param body
+     *            the body of the acknowledgement message containing the task
+     *            ids preceded by their lengths
+     */
+    protected void handleAckBatch(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        while (buffer.hasRemaining()) {
+            handleAck(RabbitMQUtils.readString(buffer));
+        }
+    }
+
+    /**
+     * Handles the acknowledgement of the task with the given id.
+     *
+     * @param ackTaskId
+     *            the id of the acknowledged task
+     */
+    protected void handleAck(String ackTaskId) {
         LOGGER.trace("Received ack{}.", ackTaskId);
         // Make sure that the task id is not changed while we work with it
         synchronized (this) {
@@ -128,6 +232,33 @@ public abstract class AbstractSequencingTaskGenerator extends AbstractTaskGenera
                 taskIdMutex.release();
             }
         }
+        if (pendingTaskIds.remove(ackTaskId)) {
+            windowMutex.release();
+        }
+    }
+
+    /**
+     * Switches the generator into the open-loop mode in which the tasks are
+     * sent according to the given schedule, regardless of the
+     * acknowledgements of the tasks sent before. The tasks should be sent using
+     * {@link #sendScheduledTask(String, byte[], byte[])}. This method should
+     * be called before the first task is sent.
+     *
+     * @param schedule
+     *            the schedule of the tasks or {@code null} to switch back to
+     *            the closed loop
+     */
+    protected void setOpenLoopSchedule(ArrivalSchedule schedule) {
+        setArrivalSchedule(schedule);
+        openLoop = (schedule != null);
+    }
+
+    /**
+     * @return {@code true} if the generator works in the open-loop mode, else
+     *         {@code false}
+     */
+    public boolean isOpenLoop() {
+        return openLoop;
     }
 
     /**
@@ -136,10 +267,24 @@ public abstract class AbstractSequencingTaskGenerator extends AbstractTaskGenera
      * timeout has been reached. If an information is needed which of these two
      * cases happened {@link #sendTaskToSystemAdapterInSequence(String, byte[])}
      * should be used.
+     *
+     * <p>
+     * If this generator works in the windowed mode, the method blocks only
+     * until the number of outstanding tasks is lower than the maximum number
+     * of outstanding tasks (see
+     * {@link #sendTaskToSystemAdapterInWindow(String, byte[])}). In the
+     * open-loop mode, the method does not block at all.
+     * </p>
      */
     @Override
     protected void sendTaskToSystemAdapter(String taskIdString, byte[] data) throws IOException {
-        sendTaskToSystemAdapterInSequence(taskIdString, data);
+        if (openLoop) {
+            super.sendTaskToSystemAdapter(taskIdString, data);
+        } else if (maxOutstandingTasks > 1) {
+            sendTaskToSystemAdapterInWindow(taskIdString, data);
+        } else {
+            sendTaskToSystemAdapterInSequence(taskIdString, data);
+        }
     }
 
     /**
@@ -168,6 +313,79 @@ public abstract class AbstractSequencingTaskGenerator extends AbstractTaskGenera
         }
     }
 
+    /**
+     * Sends the given task with the given task id and data to the system as
+     * soon as the number of outstanding tasks, i.e., tasks for which no
+     * acknowledgement has been received, is lower than the maximum number of
+     * outstanding tasks. If no acknowledgement is received before the timeout
+     * is reached, the task is sent anyway without occupying a place in the
+     * window.
+     *
+     * @param taskIdString
+     * @param data
+     * @return <code>true</code> if the task could be sent within the window,
+     *         <code>false</code> if the timeout has been reached or the method
+     *         has been interrupted.
+     * @throws IOException
+     *             if there is an error during the sending
+     */
+    protected boolean sendTaskToSystemAdapterInWindow(String taskIdString, byte[] data) throws IOException {
+        boolean acquired = false;
+        try {
+            acquired = windowMutex.tryAcquire(ackTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            LOGGER.info("Interrupted while waiting for a free place in the window of outstanding tasks.", e);
+        }
+        if (acquired) {
+            // add the id before sending the task to make sure that we do not
+            // miss the acknowledgement
+            pendingTaskIds.add(taskIdString);
+        } else {
+            LOGGER.warn("Didn't got an acknowledgement for one of the {} outstanding tasks. Sending task {} anyway.",
+                    pendingTaskIds.size(), taskIdString);
+        }
+        try {
+            super.sendTaskToSystemAdapter(taskIdString, data);
+        } catch (IOException e) {
+            if (acquired && pendingTaskIds.remove(taskIdString)) {
+                windowMutex.release();
+            }
+            throw e;
+        }
+        return acquired;
+    }
+
+    /**
+     * Blocks until all tasks sent in the windowed mode have been acknowledged
+     * or the timeout has been reached.
+     *
+     * @return <code>true</code> if all acknowledgements have been received,
+     *         <code>false</code> if the timeout has been reached or the method
+     *         has been interrupted.
+     */
+    protected boolean waitForOutstandingAcks() {
+        boolean ack = false;
+        try {
+            ack = windowMutex.tryAcquire(maxOutstandingTasks, ackTimeout, TimeUnit.MILLISECONDS);
+            if (ack) {
+                windowMutex.release(maxOutstandingTasks);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.info("Interrupted while waiting for outstanding acknowledgements.", e);
+        }
+        return ack;
+    }
+
+    /**
+     * Returns the number of tasks that have been sent in the windowed mode and
+     * for which no acknowledgement has been received.
+     *
+     * @return the number of outstanding tasks
+     */
+    public int getNumberOfOutstandingTasks() {
+        return pendingTaskIds.size();
+    }
+
     /**
      * Method to set the task id for which the task generator will wait when
      * calling {@link #waitForAck()}.
@@ -29,9 +29,7 @@ import org.hobbit.core.Commands;
 import org.hobbit.core.Constants;
 import org.hobbit.core.rabbit.DataHandler;
 import org.hobbit.core.rabbit.DataReceiver;
-import org.hobbit.core.rabbit.DataReceiverImpl;
 import org.hobbit.core.rabbit.DataSender;
-import org.hobbit.core.rabbit.DataSenderImpl;
 import org.hobbit.core.rabbit.RabbitMQUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -127,18 +125,18 @@ public abstract class AbstractSystemAdapter extends AbstractPlatformConnectorCom
             systemParamModel = ModelFactory.createDefaultModel();
         }
 
-        dataGenReceiver = DataReceiverImpl.builder().maxParallelProcessedMsgs(maxParallelProcessedMsgs)
-                .queue(incomingDataQueueFactory, generateSessionQueueName(Constants.DATA_GEN_2_SYSTEM_QUEUE_NAME))
-                .dataHandler(new DataHandler() {
+        String queueName = generateSessionQueueName(Constants.DATA_GEN_2_SYSTEM_QUEUE_NAME);
+        dataGenReceiver = systemDataTransport.createReceiver(queueName, getDataQueueOptions(queueName),
+                new DataHandler() {
                     @Override
                     public void handleData(byte[] data) {
                         receiveGeneratedData(data);
                     }
-                }).build();
+                }, maxParallelProcessedMsgs);
 
-        taskGenReceiver = DataReceiverImpl.builder().maxParallelProcessedMsgs(maxParallelProcessedMsgs)
-                .queue(incomingDataQueueFactory, generateSessionQueueName(Constants.TASK_GEN_2_SYSTEM_QUEUE_NAME))
-                .dataHandler(new DataHandler() {
+        queueName = generateSessionQueueName(Constants.TASK_GEN_2_SYSTEM_QUEUE_NAME);
+        taskGenReceiver = systemDataTransport.createReceiver(queueName, getDataQueueOptions(queueName),
+                new DataHandler() {
                     @Override
                     public void handleData(byte[] data) {
                         ByteBuffer buffer = ByteBuffer.wrap(data);
@@ -146,10 +144,10 @@ public abstract class AbstractSystemAdapter extends AbstractPlatformConnectorCom
                         byte[] taskData = RabbitMQUtils.readByteArray(buffer);
                         receiveGeneratedTask(taskId, taskData);
                     }
-                }).build();
+                }, maxParallelProcessedMsgs);
 
-        sender2EvalStore = DataSenderImpl.builder().queue(getFactoryForOutgoingDataQueues(),
-                generateSessionQueueName(Constants.SYSTEM_2_EVAL_STORAGE_QUEUE_NAME)).build();
+        queueName = generateSessionQueueName(Constants.SYSTEM_2_EVAL_STORAGE_QUEUE_NAME);
+        sender2EvalStore = systemDataTransport.createSender(queueName, getDataQueueOptions(queueName));
     }
 
     @Override
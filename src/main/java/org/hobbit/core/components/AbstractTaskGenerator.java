@@ -17,18 +17,21 @@
 package org.hobbit.core.components;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.Semaphore;
 
 import org.apache.commons.io.IOUtils;
 import org.hobbit.core.Commands;
 import org.hobbit.core.Constants;
+import org.hobbit.core.data.WorkRange;
 import org.hobbit.core.rabbit.DataHandler;
 import org.hobbit.core.rabbit.DataReceiver;
-import org.hobbit.core.rabbit.DataReceiverImpl;
 import org.hobbit.core.rabbit.DataSender;
-import org.hobbit.core.rabbit.DataSenderImpl;
 import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.hobbit.core.rabbit.WorkRangeQueue;
+import org.hobbit.core.schedule.ArrivalSchedule;
+import org.hobbit.core.schedule.ArrivalScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +94,20 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
 
     protected QueueingConsumer consumer;
     protected boolean runFlag;
+    /**
+     * Scheduler pacing the tasks or {@code null} if no schedule has been set.
+     */
+    private ArrivalScheduler arrivalScheduler = null;
+    /**
+     * Queue from which the work ranges are pulled. It is created with the
+     * first call of {@link #getNextWorkRange()}.
+     */
+    private WorkRangeQueue workRangeQueue = null;
+    /**
+     * The timestamp at which the last task of the current thread has been
+     * sent to the system.
+     */
+    private final ThreadLocal<Long> taskSentTimestamp = new ThreadLocal<Long>();
 
     /**
      * Default constructor creating an {@link AbstractTaskGenerator} processing
@@ -144,19 +161,19 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
                     "Couldn't get \"" + Constants.GENERATOR_COUNT_KEY + "\" from the environment. Aborting.", e);
         }
 
-        sender2System = DataSenderImpl.builder().queue(getFactoryForOutgoingDataQueues(),
-                generateSessionQueueName(Constants.TASK_GEN_2_SYSTEM_QUEUE_NAME)).build();
-        sender2EvalStore = DataSenderImpl.builder().queue(getFactoryForOutgoingDataQueues(),
-                generateSessionQueueName(Constants.TASK_GEN_2_EVAL_STORAGE_QUEUE_NAME)).build();
-
-        dataGenReceiver = DataReceiverImpl.builder().dataHandler(new DataHandler() {
-            @Override
-            public void handleData(byte[] data) {
-                receiveGeneratedData(data);
-            }
-        }).maxParallelProcessedMsgs(maxParallelProcessedMsgs)
-                .queue(getFactoryForIncomingDataQueues(), generateSessionQueueName(Constants.DATA_GEN_2_TASK_GEN_QUEUE_NAME))
-                .build();
+        String queueName = generateSessionQueueName(Constants.TASK_GEN_2_SYSTEM_QUEUE_NAME);
+        sender2System = systemDataTransport.createSender(queueName, getDataQueueOptions(queueName));
+        queueName = generateSessionQueueName(Constants.TASK_GEN_2_EVAL_STORAGE_QUEUE_NAME);
+        sender2EvalStore = dataTransport.createSender(queueName, getDataQueueOptions(queueName));
+
+        queueName = generateSessionQueueName(Constants.DATA_GEN_2_TASK_GEN_QUEUE_NAME);
+        dataGenReceiver = dataTransport.createReceiver(queueName, getDataQueueOptions(queueName),
+                addFlowControl(queueName, new DataHandler() {
+                    @Override
+                    public void handleData(byte[] data) {
+                        receiveGeneratedData(data);
+                    }
+                }), maxParallelProcessedMsgs);
     }
 
     @Override
@@ -195,6 +212,75 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
      */
     protected abstract void generateTask(byte[] data) throws Exception;
 
+    /**
+     * Sets the schedule with which the tasks should be sent (see
+     * {@link #sendScheduledTask(String, byte[], byte[])}). The schedule starts
+     * with the first task. The lag between the intended and the actual sending
+     * of the tasks is recorded as <code>tasks.scheduleLag</code> metric.
+     *
+     * @param schedule
+     *            the schedule of the tasks or {@code null} to remove the
+     *            schedule
+     */
+    protected void setArrivalSchedule(ArrivalSchedule schedule) {
+        if (schedule != null) {
+            arrivalScheduler = new ArrivalScheduler(schedule, metricRegistry.histogram("tasks.scheduleLag"));
+        } else {
+            arrivalScheduler = null;
+        }
+    }
+
+    /**
+     * Waits until the intended time of the next task of the schedule (see
+     * {@link #setArrivalSchedule(ArrivalSchedule)}) and returns this time as
+     * timestamp. This timestamp instead of the actual sending time should be
+     * sent to the evaluation storage. Otherwise, tasks that are sent late
+     * because the generator has been held up hide the delay they experienced.
+     *
+     * @return the intended time of the next task in the unit of
+     *         {@link #getCurrentTimestamp()}
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     * @throws IllegalStateException
+     *             if no schedule has been set
+     */
+    protected long awaitNextArrival() throws InterruptedException {
+        ArrivalScheduler scheduler = arrivalScheduler;
+        if (scheduler == null) {
+            throw new IllegalStateException("There is no arrival schedule.");
+        }
+        return toTimestamp(scheduler.awaitNextArrival());
+    }
+
+    /**
+     * Waits for the intended time of the next task of the schedule, sends the
+     * given task to the system and sends the expected response together with
+     * the intended time and the actual sending time to the evaluation storage
+     * (see {@link #sendTaskToEvalStorage(String, long, long, byte[])}).
+     *
+     * @param taskIdString
+     *            the id of the task
+     * @param data
+     *            the data of the task
+     * @param expectedResponse
+     *            the expected response for the task
+     * @throws IOException
+     *             if there is an error during the sending
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     * @throws IllegalStateException
+     *             if no schedule has been set
+     */
+    protected void sendScheduledTask(String taskIdString, byte[] data, byte[] expectedResponse)
+            throws IOException, InterruptedException {
+        long intendedTimestamp = awaitNextArrival();
+        taskSentTimestamp.remove();
+        sendTaskToSystemAdapter(taskIdString, data);
+        Long actualTimestamp = taskSentTimestamp.get();
+        sendTaskToEvalStorage(taskIdString, intendedTimestamp,
+                actualTimestamp != null ? actualTimestamp : getCurrentTimestamp(), expectedResponse);
+    }
+
     /**
      * Generates the next unique ID for a task.
      *
@@ -206,6 +292,29 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
         return taskIdString;
     }
 
+    /**
+     * Returns the next range of work items, e.g., queries of a query set, for
+     * which this generator should create tasks. It can be used by task
+     * generators that do not receive their input from the data generators.
+     * The ranges have to be published by the benchmark controller before it
+     * sends the start signal (see
+     * {@link AbstractBenchmarkController#publishTaskGeneratorWorkRanges(long, long)}).
+     * Idle generators simply pull the next range until this method returns
+     * {@code null}. Note that the task ids are still generated based on the
+     * generator id (see {@link #getNextTaskId()}).
+     *
+     * @return the next range or {@code null} if all ranges have been handed
+     *         out
+     * @throws IOException
+     *             if the work range queue can not be accessed
+     */
+    protected synchronized WorkRange getNextWorkRange() throws IOException {
+        if (workRangeQueue == null) {
+            workRangeQueue = createWorkRangeQueue(Constants.TASK_GEN_WORK_RANGES_QUEUE_NAME);
+        }
+        return workRangeQueue.getNextRange();
+    }
+
     @Override
     public void receiveCommand(byte command, byte[] data) {
         // If this is the signal to start the data generation
@@ -220,6 +329,27 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
         super.receiveCommand(command, data);
     }
 
+    /**
+     * This method sends the given data of the task with the given task id to
+     * the evaluation storage. The timestamp of the task is the moment in which
+     * the last task of the current thread has been sent to the system by
+     * {@link #sendTaskToSystemAdapter(String, byte[])}. If this thread has not
+     * sent a task, the current timestamp is used. Both are taken from
+     * {@link #getCurrentTimestamp()}, i.e., they have the unit configured by
+     * {@link Constants#HIGH_RESOLUTION_TIMESTAMPS_KEY}.
+     *
+     * @param taskIdString
+     *            the id of the task
+     * @param data
+     *            the expected response for the task with the given id
+     * @throws IOException
+     *             if there is an error during the sending
+     */
+    protected void sendTaskToEvalStorage(String taskIdString, byte[] data) throws IOException {
+        Long timestamp = taskSentTimestamp.get();
+        sendTaskToEvalStorage(taskIdString, timestamp != null ? timestamp : getCurrentTimestamp(), data);
+    }
+
     /**
      * This method sends the given data and the given timestamp of the task with
      * the given task id to the evaluation storage.
@@ -228,7 +358,9 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
      *            the id of the task
      * @param timestamp
      *            the timestamp of the moment in which the task has been sent to
-     *            the system
+     *            the system (should be taken from
+     *            {@link #getCurrentTimestamp()} to make sure that it has the
+     *            same unit as the timestamps of the responses)
      * @param data
      *            the expected response for the task with the given id
      * @throws IOException
@@ -239,6 +371,38 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
                 new byte[][] { RabbitMQUtils.writeString(taskIdString), data }, RabbitMQUtils.writeLong(timestamp)));
     }
 
+    /**
+     * This method sends the given data together with the intended and the
+     * actual sending time of the task with the given task id to the
+     * evaluation storage. The intended time is used as timestamp of the task,
+     * i.e., latencies are measured from the moment the task should have been
+     * sent. The actual sending time is appended to the message and can be
+     * used by the evaluation storage to separate the delay of the generator
+     * from the latency of the system (see
+     * {@link AbstractEvaluationStorage#receiveExpectedResponseData(String, long, long, byte[])}).
+     *
+     * @param taskIdString
+     *            the id of the task
+     * @param intendedTimestamp
+     *            the timestamp of the moment in which the task should have been
+     *            sent to the system
+     * @param actualTimestamp
+     *            the timestamp of the moment in which the task has been sent to
+     *            the system
+     * @param data
+     *            the expected response for the task with the given id
+     * @throws IOException
+     *             if there is an error during the sending
+     */
+    protected void sendTaskToEvalStorage(String taskIdString, long intendedTimestamp, long actualTimestamp,
+            byte[] data) throws IOException {
+        ByteBuffer timestamps = ByteBuffer.allocate(2 * Long.BYTES);
+        timestamps.putLong(intendedTimestamp);
+        timestamps.putLong(actualTimestamp);
+        sender2EvalStore.sendData(RabbitMQUtils.writeByteArrays(null,
+                new byte[][] { RabbitMQUtils.writeString(taskIdString), data }, timestamps.array()));
+    }
+
     /**
      * Sends the given task with the given task id and data to the system.
      *
@@ -250,6 +414,7 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
      *             if there is an error during the sending
      */
     protected void sendTaskToSystemAdapter(String taskIdString, byte[] data) throws IOException {
+        taskSentTimestamp.set(getCurrentTimestamp());
         sender2System.sendData(
                 RabbitMQUtils.writeByteArrays(new byte[][] { RabbitMQUtils.writeString(taskIdString), data }));
     }
@@ -267,6 +432,7 @@ public abstract class AbstractTaskGenerator extends AbstractPlatformConnectorCom
         IOUtils.closeQuietly(dataGenReceiver);
         IOUtils.closeQuietly(sender2EvalStore);
         IOUtils.closeQuietly(sender2System);
+        IOUtils.closeQuietly(workRangeQueue);
         super.close();
     }
 }
@@ -0,0 +1,36 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.components;
+
+/**
+ * Handler of a single command that can be registered at an
+ * {@link AbstractCommandReceivingComponent} using
+ * {@link AbstractCommandReceivingComponent#registerCommandHandler(byte, CommandHandler)}.
+ */
+public interface CommandHandler {
+
+    /**
+     * Handles the given command.
+     *
+     * @param command
+     *            the byte encoding the command
+     * @param data
+     *            additional data that was sent together with the command
+     */
+    public void handleCommand(byte command, byte[] data);
+
+}
@@ -0,0 +1,353 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.components;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Tracks the lifecycle of a group of components, e.g., the data generators of
+ * a benchmark. The containers of the group are registered with
+ * {@link #expect(String)} and the barrier is updated with the ready signals
+ * and termination messages of the components. Since the ready signals do not
+ * contain the name of the sending container, the readiness of a group is
+ * based on the number of received signals.
+ *
+ * <p>
+ * The state of the group is offered as futures which can be used to wait for
+ * a certain state with a timeout or to react on it, e.g., to start the next
+ * phase of a benchmark as soon as the first component is ready. If a component
+ * crashes, i.e., terminates with an exit code other than 0, all futures of the
+ * group that are not done yet fail with an {@link IllegalStateException}. If
+ * the benchmark is aborted, {@link #abort()} cancels the futures that are not
+ * done yet.
+ * Note that the number of containers should be announced with
+ * {@link #expectContainers(int)} before they are requested since their names
+ * are only known after their creation while the components might already
+ * send their ready signals or terminate.
+ */
+public class LifecycleBarrier {
+
+    /**
+     * The states a group of components can have.
+     */
+    public static enum State {
+        /**
+         * Not all components of the group are ready.
+         */
+        STARTING,
+        /**
+         * All components of the group are ready.
+         */
+        READY,
+        /**
+         * All components of the group terminated successfully.
+         */
+        TERMINATED,
+        /**
+         * At least one of the components crashed.
+         */
+        CRASHED,
+        /**
+         * The benchmark has been aborted before the group terminated.
+         */
+        ABORTED
+    }
+
+    /**
+     * Name of the group used in error messages.
+     */
+    private final String name;
+    /**
+     * Names of the containers of the group.
+     */
+    private final Set<String> containers = new HashSet<String>();
+    /**
+     * Number of containers that have been requested for the group, i.e., the
+     * names of some of them might not be known yet.
+     */
+    private int expectedCount = 0;
+    /**
+     * Exit codes of containers with unknown names that terminated while the
+     * names of some of the requested containers were not known yet. They
+     * might belong to this group.
+     */
+    private final Map<String, Integer> unknownTerminations = new HashMap<String, Integer>();
+    /**
+     * Names of the containers that terminated.
+     */
+    private final Set<String> terminatedContainers = new HashSet<String>();
+    /**
+     * Number of received ready signals.
+     */
+    private int readyCount = 0;
+    private final SettableFuture<Void> firstReady = SettableFuture.create();
+    private final SettableFuture<Void> allReady = SettableFuture.create();
+    private final SettableFuture<Void> allTerminated = SettableFuture.create();
+    private String crashedContainer = null;
+    private boolean creationFailed = false;
+    private boolean aborted = false;
+
+    /**
+     * Constructor.
+     *
+     * @param name
+     *            name of the group used in error messages, e.g., "data
+     *            generators"
+     */
+    public LifecycleBarrier(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Announces that the given number of containers has been requested for
+     * the group. Until their names are registered with
+     * {@link #expect(Collection)}, the barrier waits for them and remembers
+     * the terminations of unknown containers since they might belong to this
+     * group.
+     *
+     * @param count
+     *            the number of requested containers
+     */
+    public void expectContainers(int count) {
+        synchronized (this) {
+            expectedCount += count;
+        }
+    }
+
+    /**
+     * Adds the container with the given name to the group.
+     *
+     * @param containerName
+     *            the name of the container
+     */
+    public void expect(String containerName) {
+        expect(Collections.singleton(containerName));
+    }
+
+    /**
+     * Adds the containers with the given names to the group. Terminations of
+     * these containers that have been received before are processed.
+     *
+     * @param containerNames
+     *            the names of the containers
+     */
+    public void expect(Collection<String> containerNames) {
+        Map<String, Integer> terminations = new HashMap<String, Integer>();
+        synchronized (this) {
+            containers.addAll(containerNames);
+            for (String containerName : containerNames) {
+                if (unknownTerminations.containsKey(containerName)) {
+                    terminations.put(containerName, unknownTerminations.remove(containerName));
+                }
+            }
+            if (containers.size() >= expectedCount) {
+                unknownTerminations.clear();
+            }
+        }
+        for (Map.Entry<String, Integer> termination : terminations.entrySet()) {
+            componentTerminated(termination.getKey(), termination.getValue());
+        }
+        update();
+    }
+
+    /**
+     * Has to be called if the containers of the group couldn't be created.
+     * All futures of the group that are not done yet fail with an
+     * {@link IllegalStateException}.
+     *
+     * @param cause
+     *            the reason why the containers couldn't be created
+     */
+    public void creationFailed(Throwable cause) {
+        synchronized (this) {
+            creationFailed = true;
+        }
+        IllegalStateException exception = new IllegalStateException("Couldn't create the " + name + ".", cause);
+        firstReady.setException(exception);
+        allReady.setException(exception);
+        allTerminated.setException(exception);
+    }
+
+    /**
+     * Has to be called if one of the components of the group sent its ready
+     * signal.
+     */
+    public void componentReady() {
+        synchronized (this) {
+            ++readyCount;
+        }
+        update();
+    }
+
+    /**
+     * Has to be called if a container terminated.
+     *
+     * @param containerName
+     *            the name of the terminated container
+     * @param exitCode
+     *            the exit code of the container
+     * @return {@code true} if the container belongs to this group, else
+     *         {@code false} (the termination is remembered if the names of
+     *         some of the containers of the group are not known yet)
+     */
+    public boolean componentTerminated(String containerName, int exitCode) {
+        synchronized (this) {
+            if (!containers.contains(containerName)) {
+                if (containers.size() < expectedCount) {
+                    unknownTerminations.put(containerName, exitCode);
+                }
+                return false;
+            }
+            if (exitCode == 0) {
+                terminatedContainers.add(containerName);
+            } else if (crashedContainer == null) {
+                crashedContainer = containerName;
+            }
+        }
+        if (exitCode != 0) {
+            IllegalStateException exception = new IllegalStateException("One of the " + name + " (\""
+                    + containerName + "\") crashed with exit code " + exitCode + ".");
+            firstReady.setException(exception);
+            allReady.setException(exception);
+            allTerminated.setException(exception);
+        } else {
+            update();
+        }
+        return true;
+    }
+
+    /**
+     * Cancels all futures of the group that are not done yet. Has to be called
+     * if the benchmark is aborted, e.g., because a component of another group
+     * crashed, to let threads waiting for this group return.
+     */
+    public void abort() {
+        synchronized (this) {
+            if (allTerminated.isDone()) {
+                return;
+            }
+            aborted = true;
+        }
+        firstReady.cancel(false);
+        allReady.cancel(false);
+        allTerminated.cancel(false);
+    }
+
+    /**
+     * Completes the futures whose conditions are fulfilled.
+     */
+    private void update() {
+        boolean first, ready, terminated;
+        synchronized (this) {
+            int count = getNumberOfExpectedContainers();
+            first = readyCount > 0;
+            ready = (count > 0) && (readyCount >= count);
+            terminated = (count > 0) && (terminatedContainers.size() >= count);
+        }
+        if (first) {
+            firstReady.set(null);
+        }
+        if (ready) {
+            allReady.set(null);
+        }
+        if (terminated) {
+            allTerminated.set(null);
+        }
+    }
+
+    /**
+     * Returns a future that is done as soon as the first component of the
+     * group is ready.
+     *
+     * @return the future of the first ready signal
+     */
+    public ListenableFuture<Void> whenFirstReady() {
+        return firstReady;
+    }
+
+    /**
+     * Returns a future that is done as soon as all components of the group
+     * are ready.
+     *
+     * @return the future of the ready signals of the group
+     */
+    public ListenableFuture<Void> whenReady() {
+        return allReady;
+    }
+
+    /**
+     * Returns a future that is done as soon as all components of the group
+     * terminated successfully.
+     *
+     * @return the future of the termination of the group
+     */
+    public ListenableFuture<Void> whenTerminated() {
+        return allTerminated;
+    }
+
+    public synchronized State getState() {
+        if ((crashedContainer != null) || creationFailed) {
+            return State.CRASHED;
+        } else if (aborted) {
+            return State.ABORTED;
+        } else if (allTerminated.isDone()) {
+            return State.TERMINATED;
+        } else if (allReady.isDone()) {
+            return State.READY;
+        } else {
+            return State.STARTING;
+        }
+    }
+
+    public synchronized int getNumberOfContainers() {
+        return containers.size();
+    }
+
+    /**
+     * Returns the number of containers the group is waiting for, i.e., the
+     * number of requested containers or, if more containers have been
+     * registered, the number of registered containers.
+     *
+     * @return the number of expected containers
+     */
+    public synchronized int getNumberOfExpectedContainers() {
+        return Math.max(expectedCount, containers.size());
+    }
+
+    public synchronized int getNumberOfReadyComponents() {
+        return readyCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LifecycleBarrier [name=" + name + ", containers=" + containers.size() + ", expected="
+                + expectedCount + ", ready=" + readyCount
+                + ", terminated=" + terminatedContainers.size() + ", crashed=" + crashedContainer + ", aborted=" + aborted + "]";
+    }
+}
@@ -17,6 +17,7 @@
 package org.hobbit.core.components;
 
 import org.hobbit.core.Commands;
+import org.hobbit.core.metrics.MetricRegistry;
 import org.hobbit.core.rabbit.RabbitQueueFactory;
 
 /**
@@ -58,4 +59,10 @@ public interface PlatformConnector {
     public RabbitQueueFactory getFactoryForIncomingDataQueues();
     public RabbitQueueFactory getFactoryForOutgoingCmdQueues();
     public RabbitQueueFactory getFactoryForIncomingCmdQueues();
+
+    /**
+     * @return the registry in which classes using this connector should
+     *         register their metrics
+     */
+    public MetricRegistry getMetricRegistry();
 }
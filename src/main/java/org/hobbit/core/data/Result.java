@@ -23,6 +23,12 @@ package org.hobbit.core.data;
  */
 public interface Result {
 
+    /**
+     * Returns the timestamp of the result. It is given in milliseconds or, if
+     * high resolution timestamps are enabled, in nanoseconds.
+     *
+     * @return the timestamp of the result
+     */
     public long getSentTimestamp();
     public byte[] getData();
 }
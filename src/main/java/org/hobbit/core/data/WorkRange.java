@@ -0,0 +1,109 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.data;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A range of work items, e.g., the ids of the documents a data generator
+ * should generate, that is handed out to a single generator. The range
+ * contains the items from {@link #getStart()} (inclusive) to
+ * {@link #getEnd()} (exclusive).
+ */
+public class WorkRange {
+
+    private final long start;
+    private final long end;
+
+    public WorkRange(long start, long end) {
+        if (end < start) {
+            throw new IllegalArgumentException(
+                    "The end of a range can not be lower than its start (got [" + start + ", " + end + ")).");
+        }
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return the first item of the range
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the item following the last item of the range
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return the number of items of the range
+     */
+    public long size() {
+        return end - start;
+    }
+
+    /**
+     * Serializes the range into a byte array containing the start and the end
+     * of the range.
+     *
+     * @return the serialized range
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+        buffer.putLong(start);
+        buffer.putLong(end);
+        return buffer.array();
+    }
+
+    /**
+     * Reads a range from the given byte array (see {@link #toBytes()}).
+     *
+     * @param data
+     *            the serialized range
+     * @return the range
+     */
+    public static WorkRange fromBytes(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        return new WorkRange(buffer.getLong(), buffer.getLong());
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * Long.hashCode(start)) + Long.hashCode(end);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof WorkRange)) {
+            return false;
+        }
+        WorkRange other = (WorkRange) obj;
+        return (start == other.start) && (end == other.end);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ")";
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A simple thread safe counter that can only be increased.
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Increases the counter by 1.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Increases the counter by the given value.
+     *
+     * @param value
+     *            the value that should be added to the counter
+     */
+    public void add(long value) {
+        count.add(value);
+    }
+
+    /**
+     * @return the current value of this counter
+     */
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports the metrics of a {@link MetricRegistry} as attributes of a single
+ * MBean. Counters and gauges are exported with their names while for every
+ * histogram the attributes <code>&lt;name&gt;.count</code>,
+ * <code>&lt;name&gt;.p50</code>, <code>&lt;name&gt;.p99</code> and
+ * <code>&lt;name&gt;.max</code> are exported.
+ */
+public class JmxMetricsExporter implements DynamicMBean, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxMetricsExporter.class);
+
+    /**
+     * Domain of the exported MBeans.
+     */
+    public static final String JMX_DOMAIN = "org.hobbit.core";
+
+    private static final String COUNT_SUFFIX = ".count";
+    private static final String P50_SUFFIX = ".p50";
+    private static final String P99_SUFFIX = ".p99";
+    private static final String MAX_SUFFIX = ".max";
+
+    /**
+     * Registers a new MBean offering the metrics of the given registry at the
+     * platform MBean server.
+     *
+     * @param registry
+     *            the registry the metrics of which should be exported
+     * @param type
+     *            the type of the component (used as part of the object name)
+     * @param name
+     *            the name of the component (used as part of the object name)
+     * @return the exporter or {@code null} if it couldn't be registered
+     */
+    public static JmxMetricsExporter register(MetricRegistry registry, String type, String name) {
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + ObjectName.quote(type) + ",name="
+                    + ObjectName.quote(name));
+            JmxMetricsExporter exporter = new JmxMetricsExporter(registry, objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(exporter, objectName);
+            return exporter;
+        } catch (JMException e) {
+            LOGGER.warn("Couldn't register the metrics MBean. Metrics won't be available via JMX.", e);
+            return null;
+        }
+    }
+
+    private final MetricRegistry registry;
+    private final ObjectName objectName;
+
+    protected JmxMetricsExporter(MetricRegistry registry, ObjectName objectName) {
+        this.registry = registry;
+        this.objectName = objectName;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Counter counter = registry.getCounters().get(attribute);
+        if (counter != null) {
+            return counter.getCount();
+        }
+        Gauge gauge = registry.getGauges().get(attribute);
+        if (gauge != null) {
+            return gauge.getValue();
+        }
+        int pos = attribute.lastIndexOf('.');
+        if (pos > 0) {
+            LatencyRecorder recorder = registry.getHistograms().get(attribute.substring(0, pos));
+            if (recorder != null) {
+                String suffix = attribute.substring(pos);
+                if (COUNT_SUFFIX.equals(suffix)) {
+                    return recorder.getCount();
+                } else if (P50_SUFFIX.equals(suffix)) {
+                    return recorder.getValueAtPercentile(50);
+                } else if (P99_SUFFIX.equals(suffix)) {
+                    return recorder.getValueAtPercentile(99);
+                } else if (MAX_SUFFIX.equals(suffix)) {
+                    return recorder.getMaxValue();
+                }
+            }
+        }
+        throw new AttributeNotFoundException("There is no metric with the name \"" + attribute + "\".");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (int i = 0; i < attributes.length; ++i) {
+            try {
+                list.add(new Attribute(attributes[i], getAttribute(attributes[i])));
+            } catch (AttributeNotFoundException e) {
+                // the metric has been removed in the meantime
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The metrics are read-only.");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("The metrics MBean does not offer any operations.");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        addAttributes(attributes, registry.getCounters(), "counter");
+        addAttributes(attributes, registry.getGauges(), "gauge");
+        for (String name : registry.getHistograms().keySet()) {
+            attributes.add(createAttributeInfo(name + COUNT_SUFFIX, "number of values of the histogram"));
+            attributes.add(createAttributeInfo(name + P50_SUFFIX, "50th percentile of the histogram"));
+            attributes.add(createAttributeInfo(name + P99_SUFFIX, "99th percentile of the histogram"));
+            attributes.add(createAttributeInfo(name + MAX_SUFFIX, "maximum of the histogram"));
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics of a HOBBIT component",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+    }
+
+    private static void addAttributes(List<MBeanAttributeInfo> attributes, Map<String, ?> metrics,
+            String description) {
+        for (String name : metrics.keySet()) {
+            attributes.add(createAttributeInfo(name, description));
+        }
+    }
+
+    private static MBeanAttributeInfo createAttributeInfo(String name, String description) {
+        return new MBeanAttributeInfo(name, Long.class.getName(), description, true, false, false);
+    }
+
+    @Override
+    public void close() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Couldn't unregister the metrics MBean.", e);
+        }
+    }
+}
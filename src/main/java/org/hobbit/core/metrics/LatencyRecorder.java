@@ -0,0 +1,280 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+
+/**
+ * A recorder for latencies based on an HdrHistogram. Recording a value is
+ * wait-free and can be done by several threads in parallel while the memory
+ * needed by the recorder does not depend on the number of recorded values.
+ * The histograms are resized with the range of the recorded values, i.e., a
+ * recorder that is never used stays small. Several recorders (e.g., one per
+ * thread) can be merged using {@link #merge(LatencyRecorder)}.
+ *
+ * <p>
+ * The recorder is independent of the unit of the recorded values. However,
+ * the highest value that can be recorded has to be given in the same unit.
+ * Larger values are recorded as the highest trackable value.
+ * </p>
+ */
+public class LatencyRecorder {
+
+    /**
+     * The default highest value that can be recorded (one hour in
+     * nanoseconds).
+     */
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toNanos(1);
+    /**
+     * The default number of significant decimal digits of the recorded values.
+     */
+    public static final int DEFAULT_NUMBER_OF_SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * The highest value that can be recorded.
+     */
+    private final long highestTrackableValue;
+    /**
+     * The recorder used for recording the values.
+     */
+    private final Recorder recorder;
+    /**
+     * Histogram containing all values that have been taken from the
+     * {@link #recorder}.
+     */
+    private final Histogram accumulatedHistogram;
+    /**
+     * The last interval histogram taken from the {@link #recorder}. It is
+     * recycled with the next call to avoid creating a new histogram every
+     * time the values are read. Guarded by {@link #accumulatedHistogram}.
+     */
+    private Histogram intervalHistogram = null;
+    /**
+     * The exact sum of all recorded values.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Constructor using the {@link #DEFAULT_HIGHEST_TRACKABLE_VALUE} and the
+     * {@link #DEFAULT_NUMBER_OF_SIGNIFICANT_DIGITS}.
+     */
+    public LatencyRecorder() {
+        this(DEFAULT_HIGHEST_TRACKABLE_VALUE, DEFAULT_NUMBER_OF_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param highestTrackableValue
+     *            the highest value that can be recorded
+     * @param numberOfSignificantDigits
+     *            the number of significant decimal digits of the recorded
+     *            values (has to be between 0 and 5)
+     */
+    public LatencyRecorder(long highestTrackableValue, int numberOfSignificantDigits) {
+        this.highestTrackableValue = highestTrackableValue;
+        recorder = new Recorder(numberOfSignificantDigits);
+        accumulatedHistogram = new Histogram(numberOfSignificantDigits);
+    }
+
+    /**
+     * Records the given latency. Negative values are recorded as 0 while
+     * values that are larger than the highest trackable value are recorded as
+     * the highest trackable value.
+     *
+     * @param latency
+     *            the latency that should be recorded
+     */
+    public void recordLatency(long latency) {
+        if (latency < 0) {
+            latency = 0;
+        } else if (latency > highestTrackableValue) {
+            latency = highestTrackableValue;
+        }
+        recorder.recordValue(latency);
+        sum.add(latency);
+    }
+
+    /**
+     * Records the latency between the two given timestamps.
+     *
+     * @param startTimestamp
+     *            the timestamp at which the measured process started
+     * @param endTimestamp
+     *            the timestamp at which the measured process ended
+     */
+    public void recordLatency(long startTimestamp, long endTimestamp) {
+        recordLatency(endTimestamp - startTimestamp);
+    }
+
+    /**
+     * Adds all values recorded by the given recorder to this recorder.
+     *
+     * @param other
+     *            the recorder that should be merged into this recorder
+     */
+    public void merge(LatencyRecorder other) {
+        Histogram otherHistogram = other.getHistogram();
+        synchronized (accumulatedHistogram) {
+            accumulatedHistogram.add(otherHistogram);
+        }
+        sum.add(other.getSum());
+    }
+
+    /**
+     * Returns a histogram containing all values that have been recorded until
+     * now.
+     *
+     * @return a copy of the histogram of this recorder
+     */
+    public Histogram getHistogram() {
+        synchronized (accumulatedHistogram) {
+            updateAccumulatedHistogram();
+            return accumulatedHistogram.copy();
+        }
+    }
+
+    /**
+     * Adds the values recorded since the last call to the
+     * {@link #accumulatedHistogram}. Has to be called while holding its lock.
+     */
+    private void updateAccumulatedHistogram() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        accumulatedHistogram.add(intervalHistogram);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        synchronized (accumulatedHistogram) {
+            updateAccumulatedHistogram();
+            return accumulatedHistogram.getTotalCount();
+        }
+    }
+
+    /**
+     * Returns the highest recorded value.
+     *
+     * @return the highest recorded value or 0 if no value has been recorded
+     */
+    public long getMaxValue() {
+        synchronized (accumulatedHistogram) {
+            updateAccumulatedHistogram();
+            return accumulatedHistogram.getMaxValue();
+        }
+    }
+
+    /**
+     * Returns the sum of all recorded values. In contrast to the values of the
+     * histogram, the sum is exact.
+     *
+     * @return the sum of the recorded values
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the recorded value at the given percentile.
+     *
+     * @param percentile
+     *            the percentile (between 0 and 100)
+     * @return the value at the given percentile or 0 if no value has been
+     *         recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        synchronized (accumulatedHistogram) {
+            updateAccumulatedHistogram();
+            return accumulatedHistogram.getValueAtPercentile(percentile);
+        }
+    }
+
+    /**
+     * Returns the recorded values at the given percentiles. In contrast to
+     * several calls of {@link #getValueAtPercentile(double)}, all values are
+     * based on the same recorded values.
+     *
+     * @param percentiles
+     *            the percentiles (between 0 and 100)
+     * @return the values at the given percentiles
+     */
+    public long[] getValuesAtPercentiles(double... percentiles) {
+        long[] values = new long[percentiles.length];
+        synchronized (accumulatedHistogram) {
+            updateAccumulatedHistogram();
+            for (int i = 0; i < percentiles.length; ++i) {
+                values[i] = accumulatedHistogram.getValueAtPercentile(percentiles[i]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Adds the 50th, 90th, 99th and 99.9th percentile as well as the maximum of
+     * the recorded values as KPIs of the given resource to the given model.
+     * The KPI properties are defined by the benchmark. A value is not added if
+     * its property is {@code null}.
+     *
+     * @param model
+     *            the model to which the KPIs should be added
+     * @param subject
+     *            the resource (typically the experiment) that gets the KPIs
+     * @param p50Property
+     *            the KPI property of the 50th percentile
+     * @param p90Property
+     *            the KPI property of the 90th percentile
+     * @param p99Property
+     *            the KPI property of the 99th percentile
+     * @param p999Property
+     *            the KPI property of the 99.9th percentile
+     * @param maxProperty
+     *            the KPI property of the maximum
+     */
+    public void addToModel(Model model, Resource subject, Property p50Property, Property p90Property,
+            Property p99Property, Property p999Property, Property maxProperty) {
+        long values[] = getValuesAtPercentiles(50, 90, 99, 99.9, 100);
+        Property properties[] = new Property[] { p50Property, p90Property, p99Property, p999Property,
+                maxProperty };
+        for (int i = 0; i < properties.length; ++i) {
+            if (properties[i] != null) {
+                model.addLiteral(subject, properties[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        synchronized (accumulatedHistogram) {
+            recorder.reset();
+            accumulatedHistogram.reset();
+            intervalHistogram = null;
+            sum.reset();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+/**
+ * Helper methods for metric names with labels. A label is appended to the
+ * name of a metric in the Prometheus notation, e.g.,
+ * <code>sender.messages{queue="hobbit.datagen-system.1"}</code>. All metrics
+ * with the same name but different labels belong to the same metric family,
+ * i.e., the name stays stable while the labels identify the observed object.
+ */
+public class MetricNames {
+
+    /**
+     * Name of the label containing the name of a queue.
+     */
+    public static final String QUEUE_LABEL = "queue";
+
+    /**
+     * Creates the labels part of a metric name containing a single label.
+     *
+     * @param labelName
+     *            the name of the label
+     * @param labelValue
+     *            the value of the label
+     * @return the labels that can be appended to a metric name
+     */
+    public static String labels(String labelName, String labelValue) {
+        StringBuilder builder = new StringBuilder();
+        builder.append('{');
+        builder.append(labelName);
+        builder.append("=\"");
+        for (int i = 0; i < labelValue.length(); ++i) {
+            char c = labelValue.charAt(i);
+            if ((c == '\\') || (c == '"')) {
+                builder.append('\\');
+                builder.append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append("\"}");
+        return builder.toString();
+    }
+
+    /**
+     * Returns the name of the metric family, i.e., the given name without its
+     * labels.
+     *
+     * @param name
+     *            the name of a metric
+     * @return the name without labels
+     */
+    public static String getFamilyName(String name) {
+        int pos = name.indexOf('{');
+        return (pos < 0) ? name : name.substring(0, pos);
+    }
+
+    /**
+     * Returns the labels of the given metric name without the surrounding
+     * braces, e.g., <code>queue="q"</code>.
+     *
+     * @param name
+     *            the name of a metric
+     * @return the labels of the name or an empty String if the name has no
+     *         labels
+     */
+    public static String getLabels(String name) {
+        int pos = name.indexOf('{');
+        return (pos < 0) ? "" : name.substring(pos + 1, name.length() - 1);
+    }
+}
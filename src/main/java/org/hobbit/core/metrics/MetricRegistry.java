@@ -0,0 +1,98 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+import java.util.Map;
+
+/**
+ * Interface of a registry managing the metrics of a component. The metrics are
+ * identified by their names. The names should comprise dot separated parts,
+ * e.g., <code>sender.messages</code>. Metrics observing one of several objects
+ * of the same kind carry labels identifying the object (see
+ * {@link MetricNames}), e.g., <code>sender.messages{queue="q"}</code>.
+ */
+public interface MetricRegistry {
+
+    /**
+     * Returns the counter with the given name. If there is no such counter, a
+     * new counter is created.
+     *
+     * @param name
+     *            the name of the counter
+     * @return the counter with the given name
+     */
+    public Counter counter(String name);
+
+    /**
+     * Registers the given gauge with the given name. A gauge that has been
+     * registered with the same name before is replaced.
+     *
+     * @param name
+     *            the name of the gauge
+     * @param gauge
+     *            the gauge that should be registered
+     */
+    public void gauge(String name, Gauge gauge);
+
+    /**
+     * Returns the histogram with the given name. If there is no such
+     * histogram, a new one is created.
+     *
+     * @param name
+     *            the name of the histogram
+     * @return the histogram with the given name
+     */
+    public LatencyRecorder histogram(String name);
+
+    /**
+     * Removes all metrics the name of which start with the given prefix. This
+     * is typically done if the object that has been observed by these metrics
+     * is closed.
+     *
+     * @param prefix
+     *            the prefix of the names of the metrics that should be removed
+     */
+    public void removeAll(String prefix);
+
+    /**
+     * Removes all metrics the name of which start with the given prefix and
+     * end with the given labels. This is typically done if the object that
+     * has been observed by these metrics is closed.
+     *
+     * @param prefix
+     *            the prefix of the names of the metrics that should be removed
+     * @param labels
+     *            the labels of the metrics that should be removed (see
+     *            {@link MetricNames#labels(String, String)})
+     */
+    public void removeAll(String prefix, String labels);
+
+    /**
+     * @return a mapping of names to all counters of this registry
+     */
+    public Map<String, Counter> getCounters();
+
+    /**
+     * @return a mapping of names to all gauges of this registry
+     */
+    public Map<String, Gauge> getGauges();
+
+    /**
+     * @return a mapping of names to all histograms of this registry
+     */
+    public Map<String, LatencyRecorder> getHistograms();
+}
@@ -0,0 +1,228 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.io.Charsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exports the metrics of a {@link MetricRegistry} in the Prometheus text
+ * format via a lightweight HTTP server. The metrics can be retrieved from the
+ * {@value #METRICS_PATH} path.
+ */
+public class PrometheusMetricsExporter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrometheusMetricsExporter.class);
+
+    /**
+     * The path under which the metrics are offered.
+     */
+    public static final String METRICS_PATH = "/metrics";
+    /**
+     * Prefix of all exported metric names.
+     */
+    private static final String NAME_PREFIX = "hobbit_";
+    /**
+     * Quantiles that are exported for the histograms.
+     */
+    private static final double QUANTILES[] = new double[] { 0.5, 0.9, 0.99, 0.999 };
+    /**
+     * The {@link #QUANTILES} as percentiles used by the {@link LatencyRecorder}.
+     */
+    private static final double PERCENTILES[] = new double[] { 50, 90, 99, 99.9 };
+
+    /**
+     * Starts a new HTTP server offering the metrics of the given registry.
+     *
+     * @param registry
+     *            the registry the metrics of which should be exported
+     * @param host
+     *            the host name or address the server should be bound to
+     * @param port
+     *            the port the server should listen to
+     * @return the exporter that has been started
+     * @throws IOException
+     *             if the server can not be started
+     */
+    public static PrometheusMetricsExporter start(MetricRegistry registry, String host, int port)
+            throws IOException {
+        PrometheusMetricsExporter exporter = new PrometheusMetricsExporter(registry,
+                HttpServer.create(new InetSocketAddress(host, port), 0));
+        exporter.server.start();
+        LOGGER.info("Exporting metrics at http://{}:{}{}", host, port, METRICS_PATH);
+        return exporter;
+    }
+
+    private final MetricRegistry registry;
+    private final HttpServer server;
+
+    protected PrometheusMetricsExporter(MetricRegistry registry, HttpServer server) {
+        this.registry = registry;
+        this.server = server;
+        server.createContext(METRICS_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte response[] = format(PrometheusMetricsExporter.this.registry).getBytes(Charsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream out = exchange.getResponseBody();
+                try {
+                    out.write(response);
+                } finally {
+                    out.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the address the server is bound to
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Creates a String containing the metrics of the given registry in the
+     * Prometheus text format. Metrics with the same name but different labels
+     * (see {@link MetricNames}) are exported as a single metric family.
+     *
+     * @param registry
+     *            the registry the metrics of which should be exported
+     * @return the metrics in the Prometheus text format
+     */
+    public static String format(MetricRegistry registry) {
+        StringBuilder builder = new StringBuilder();
+        String name;
+        for (Entry<String, Map<String, Counter>> family : groupByFamily(registry.getCounters()).entrySet()) {
+            name = toMetricName(family.getKey());
+            appendType(builder, name, "counter");
+            for (Entry<String, Counter> counter : family.getValue().entrySet()) {
+                appendValue(builder, name, toLabels(counter.getKey(), null), counter.getValue().getCount());
+            }
+        }
+        for (Entry<String, Map<String, Gauge>> family : groupByFamily(registry.getGauges()).entrySet()) {
+            name = toMetricName(family.getKey());
+            appendType(builder, name, "gauge");
+            for (Entry<String, Gauge> gauge : family.getValue().entrySet()) {
+                appendValue(builder, name, toLabels(gauge.getKey(), null), gauge.getValue().getValue());
+            }
+        }
+        long values[];
+        String labels;
+        for (Entry<String, Map<String, LatencyRecorder>> family : groupByFamily(registry.getHistograms())
+                .entrySet()) {
+            name = toMetricName(family.getKey());
+            appendType(builder, name, "summary");
+            for (Entry<String, LatencyRecorder> recorder : family.getValue().entrySet()) {
+                values = recorder.getValue().getValuesAtPercentiles(PERCENTILES);
+                for (int i = 0; i < QUANTILES.length; ++i) {
+                    appendValue(builder, name,
+                            toLabels(recorder.getKey(), "quantile=\"" + QUANTILES[i] + "\""), values[i]);
+                }
+                labels = toLabels(recorder.getKey(), null);
+                appendValue(builder, name + "_sum", labels, recorder.getValue().getSum());
+                appendValue(builder, name + "_count", labels, recorder.getValue().getCount());
+            }
+            // the maximum is not part of a summary and gets its own family
+            appendType(builder, name + "_max", "gauge");
+            for (Entry<String, LatencyRecorder> recorder : family.getValue().entrySet()) {
+                appendValue(builder, name + "_max", toLabels(recorder.getKey(), null),
+                        recorder.getValue().getMaxValue());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Groups the given metrics by the names of their families. Both, the
+     * families and the metrics of a family, are sorted by their names.
+     */
+    private static <T> Map<String, Map<String, T>> groupByFamily(Map<String, T> metrics) {
+        Map<String, Map<String, T>> families = new TreeMap<String, Map<String, T>>();
+        String familyName;
+        for (Entry<String, T> metric : metrics.entrySet()) {
+            familyName = MetricNames.getFamilyName(metric.getKey());
+            if (!families.containsKey(familyName)) {
+                families.put(familyName, new TreeMap<String, T>());
+            }
+            families.get(familyName).put(metric.getKey(), metric.getValue());
+        }
+        return families;
+    }
+
+    /**
+     * Creates the labels of a sample comprising the labels of the given metric
+     * name and the given additional label.
+     *
+     * @return the labels or {@code null} if there are no labels
+     */
+    private static String toLabels(String metricName, String additionalLabel) {
+        String labels = MetricNames.getLabels(metricName);
+        if (additionalLabel != null) {
+            labels = labels.isEmpty() ? additionalLabel : (labels + "," + additionalLabel);
+        }
+        return labels.isEmpty() ? null : ("{" + labels + "}");
+    }
+
+    private static void appendType(StringBuilder builder, String name, String type) {
+        builder.append("# TYPE ");
+        builder.append(name);
+        builder.append(' ');
+        builder.append(type);
+        builder.append('\n');
+    }
+
+    private static void appendValue(StringBuilder builder, String name, String labels, long value) {
+        builder.append(name);
+        if (labels != null) {
+            builder.append(labels);
+        }
+        builder.append(' ');
+        builder.append(value);
+        builder.append('\n');
+    }
+
+    /**
+     * Transforms the given metric name into a valid Prometheus metric name.
+     *
+     * @param name
+     *            the name of a metric
+     * @return a valid Prometheus metric name
+     */
+    public static String toMetricName(String name) {
+        return NAME_PREFIX + name.replaceAll("[^a-zA-Z0-9_:]", "_");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Simple thread safe implementation of the {@link MetricRegistry} interface
+ * keeping all metrics in memory.
+ */
+public class SimpleMetricRegistry implements MetricRegistry {
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+    private final ConcurrentMap<String, LatencyRecorder> histograms = new ConcurrentHashMap<String, LatencyRecorder>();
+
+    @Override
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter();
+            Counter existing = counters.putIfAbsent(name, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    @Override
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    @Override
+    public LatencyRecorder histogram(String name) {
+        LatencyRecorder histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new LatencyRecorder();
+            LatencyRecorder existing = histograms.putIfAbsent(name, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    @Override
+    public void removeAll(String prefix) {
+        removeAll(prefix, "");
+    }
+
+    @Override
+    public void removeAll(String prefix, String labels) {
+        removeAll(counters, prefix, labels);
+        removeAll(gauges, prefix, labels);
+        removeAll(histograms, prefix, labels);
+    }
+
+    private static void removeAll(Map<String, ?> map, String prefix, String labels) {
+        for (String name : map.keySet()) {
+            if (name.startsWith(prefix) && name.endsWith(labels)) {
+                map.remove(name);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Counter> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    @Override
+    public Map<String, Gauge> getGauges() {
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    @Override
+    public Map<String, LatencyRecorder> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+}
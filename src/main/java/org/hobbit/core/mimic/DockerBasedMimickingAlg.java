@@ -72,6 +72,7 @@ public class DockerBasedMimickingAlg implements MimickingAlgorithmManager, Conta
                     .createDefaultRabbitQueue(UUID.randomUUID().toString().replace("-", ""));
             // create a receiver that writes incoming data to the files
             receiver = SimpleFileReceiver.create(queue);
+            receiver.setMetricRegistry(connector.getMetricRegistry());
 
             // Add the queue name to the environment variables of the container
             envVariables = Arrays.copyOf(envVariables, envVariables.length + 1);
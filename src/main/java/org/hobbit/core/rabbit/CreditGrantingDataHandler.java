@@ -0,0 +1,139 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * A {@link DataHandler} that grants credits to the
+ * {@link FlowControlledDataSender}s of a queue for the data it processed.
+ * Initially, it grants a window of credits, i.e., the number of messages that
+ * can be in flight between the senders and this receiver. After that, a
+ * credit is granted for every message that has been processed by the
+ * decorated handler. The credits are sent in batches of a quarter of the
+ * window to keep the number of credit messages low.
+ *
+ * <p>
+ * <b>Note</b> that if several receivers consume the same queue, every
+ * receiver grants its own window, i.e., the window of the queue grows with the
+ * number of receivers.
+ * </p>
+ */
+public class CreditGrantingDataHandler implements DataHandler, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CreditGrantingDataHandler.class);
+
+    /**
+     * The handler that processes the data.
+     */
+    private final DataHandler handler;
+    /**
+     * Channel on which the credits are published.
+     */
+    private final Channel creditChannel;
+    private final String creditQueueName;
+    /**
+     * Number of credits that are sent with a single credit message.
+     */
+    private final int batchSize;
+    /**
+     * Number of processed messages for which no credits have been granted,
+     * yet.
+     */
+    private int processedMessages = 0;
+
+    /**
+     * Constructor. Grants the initial window of credits.
+     *
+     * @param handler
+     *            the handler that processes the data
+     * @param creditChannel
+     *            the channel that is used to publish the credits. It is owned by
+     *            the created handler, i.e., it will be closed if the handler is
+     *            closed.
+     * @param queueName
+     *            the name of the data queue
+     * @param window
+     *            the number of messages that can be in flight between the
+     *            senders and this receiver
+     * @throws IOException
+     *             if the credit queue can not be declared or the initial
+     *             credits can not be granted
+     */
+    public CreditGrantingDataHandler(DataHandler handler, Channel creditChannel, String queueName, int window)
+            throws IOException {
+        if (window <= 0) {
+            throw new IllegalArgumentException("The window has to be positive.");
+        }
+        this.handler = handler;
+        this.creditChannel = creditChannel;
+        this.creditQueueName = FlowControlledDataSender.getCreditQueueName(queueName);
+        this.batchSize = Math.max(1, window / 4);
+        FlowControlledDataSender.declareCreditQueue(creditChannel, creditQueueName);
+        // split the window into batches to let several senders share it
+        int remainingWindow = window;
+        while (remainingWindow > 0) {
+            int credits = Math.min(batchSize, remainingWindow);
+            grantCredits(credits);
+            remainingWindow -= credits;
+        }
+    }
+
+    @Override
+    public void handleData(byte[] data) {
+        try {
+            handler.handleData(data);
+        } finally {
+            // the message has left the queue, even if its handling failed
+            int credits = 0;
+            synchronized (this) {
+                ++processedMessages;
+                if (processedMessages >= batchSize) {
+                    credits = processedMessages;
+                    processedMessages = 0;
+                }
+            }
+            if (credits > 0) {
+                try {
+                    grantCredits(credits);
+                } catch (Exception e) {
+                    LOGGER.error("Couldn't grant " + credits + " credits. The senders might be slowed down.", e);
+                }
+            }
+        }
+    }
+
+    private void grantCredits(long credits) throws IOException {
+        creditChannel.basicPublish("", creditQueueName, null, RabbitMQUtils.writeLong(credits));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            creditChannel.close();
+        } catch (Exception e) {
+            LOGGER.debug("Exception while closing the credit channel.", e);
+        }
+    }
+
+}
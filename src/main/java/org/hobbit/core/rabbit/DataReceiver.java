@@ -35,6 +35,14 @@ public interface DataReceiver extends Closeable {
     public void increaseErrorCount();
     
     public DataHandler getDataHandler();
-    
+
+    /**
+     * Returns the RabbitMQ queue from which this receiver consumes its data.
+     * Note that receivers that have been created by a
+     * {@link org.hobbit.core.transport.DataTransport} that is not based on
+     * RabbitMQ return {@code null}.
+     *
+     * @return the queue of this receiver or {@code null}
+     */
     public RabbitQueue getQueue();
 }
\ No newline at end of file
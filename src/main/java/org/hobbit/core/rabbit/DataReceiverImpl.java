@@ -3,11 +3,17 @@ package org.hobbit.core.rabbit;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.metrics.Counter;
+import org.hobbit.core.metrics.Gauge;
+import org.hobbit.core.metrics.LatencyRecorder;
+import org.hobbit.core.metrics.MetricNames;
+import org.hobbit.core.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +46,13 @@ import com.rabbitmq.client.QueueingConsumer.Delivery;
  * that using the {@link #close()} method leads to a direct shutdown of the
  * queue which could lead to data loss and threads getting stuck.
  * </p>
+ * <p>
+ * If a {@link MetricRegistry} is given, the receiver registers the metrics
+ * <code>receiver.messages</code>, <code>receiver.bytes</code>,
+ * <code>receiver.queued</code>, <code>receiver.errors</code> and
+ * <code>receiver.processingTime</code> (in nanoseconds). The metrics are
+ * labelled with the name of the queue (see {@link MetricNames#QUEUE_LABEL}).
+ * </p>
  * 
  * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
  *
@@ -53,21 +66,55 @@ public class DataReceiverImpl implements DataReceiver {
     protected RabbitQueue queue;
     private int errorCount = 0;
     private DataHandler dataHandler;
-    private ExecutorService executor = null;
+    private ThreadPoolExecutor executor = null;
     private MsgReceivingTask receiverTask;
+    private MetricRegistry metricRegistry;
+    private String metricLabels;
+    private Counter messageCounter;
+    private Counter byteCounter;
+    private LatencyRecorder processingTime;
 
     protected DataReceiverImpl(RabbitQueue queue, DataHandler handler, int maxParallelProcessedMsgs)
             throws IOException {
+        this(queue, handler, maxParallelProcessedMsgs, null);
+    }
+
+    protected DataReceiverImpl(RabbitQueue queue, DataHandler handler, int maxParallelProcessedMsgs,
+            MetricRegistry metricRegistry) throws IOException {
         this.queue = queue;
         this.dataHandler = handler;
         QueueingConsumer consumer = new QueueingConsumer(queue.channel);
         queue.channel.basicConsume(queue.name, true, consumer);
         queue.channel.basicQos(maxParallelProcessedMsgs);
-        executor = Executors.newFixedThreadPool(maxParallelProcessedMsgs + 1);
+        executor = new ThreadPoolExecutor(maxParallelProcessedMsgs + 1, maxParallelProcessedMsgs + 1, 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        if (metricRegistry != null) {
+            initMetrics(metricRegistry);
+        }
         receiverTask = new MsgReceivingTask(consumer);
         executor.submit(receiverTask);
     }
 
+    private void initMetrics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        metricLabels = MetricNames.labels(MetricNames.QUEUE_LABEL, queue.name);
+        messageCounter = metricRegistry.counter("receiver.messages" + metricLabels);
+        byteCounter = metricRegistry.counter("receiver.bytes" + metricLabels);
+        processingTime = metricRegistry.histogram("receiver.processingTime" + metricLabels);
+        metricRegistry.gauge("receiver.queued" + metricLabels, new Gauge() {
+            @Override
+            public long getValue() {
+                return executor.getQueue().size();
+            }
+        });
+        metricRegistry.gauge("receiver.errors" + metricLabels, new Gauge() {
+            @Override
+            public long getValue() {
+                return getErrorCount();
+            }
+        });
+    }
+
     public DataHandler getDataHandler() {
         return dataHandler;
     }
@@ -109,6 +156,9 @@ public class DataReceiverImpl implements DataReceiver {
         if ((executor != null) && (!executor.isShutdown())) {
             executor.shutdownNow();
         }
+        if (metricRegistry != null) {
+            metricRegistry.removeAll("receiver.", metricLabels);
+        }
     }
 
     /**
@@ -164,7 +214,15 @@ public class DataReceiverImpl implements DataReceiver {
 
         @Override
         public void run() {
-            dataHandler.handleData(delivery.getBody());
+            if (processingTime != null) {
+                long start = System.nanoTime();
+                dataHandler.handleData(delivery.getBody());
+                processingTime.recordLatency(start, System.nanoTime());
+                messageCounter.increment();
+                byteCounter.add(delivery.getBody().length);
+            } else {
+                dataHandler.handleData(delivery.getBody());
+            }
         }
 
     }
@@ -179,6 +237,8 @@ public class DataReceiverImpl implements DataReceiver {
         private String queueName;
         private int maxParallelProcessedMsgs = DEFAULT_MAX_PARALLEL_PROCESSED_MESSAGES;
         private RabbitQueueFactory factory;
+        private MetricRegistry metricRegistry = null;
+        private QueueOptions queueOptions = QueueOptions.DEFAULT;
 
         public Builder() {
         };
@@ -238,6 +298,33 @@ public class DataReceiverImpl implements DataReceiver {
             return this;
         }
 
+        /**
+         * Sets the options used to declare the queue if it is created by this
+         * builder. They have to match the options used by the sender. By
+         * default, {@link QueueOptions#DEFAULT} is used.
+         * 
+         * @param queueOptions
+         *            the options of the queue
+         * @return this builder instance
+         */
+        public Builder queueOptions(QueueOptions queueOptions) {
+            this.queueOptions = queueOptions;
+            return this;
+        }
+
+        /**
+         * Sets the registry in which the metrics of the receiver will be
+         * registered. By default, no metrics are recorded.
+         * 
+         * @param metricRegistry
+         *            the registry for the metrics of the receiver
+         * @return this builder instance
+         */
+        public Builder metricRegistry(MetricRegistry metricRegistry) {
+            this.metricRegistry = metricRegistry;
+            return this;
+        }
+
         /**
          * Builds the {@link DataReceiverImpl} instance with the previously
          * given information.
@@ -262,11 +349,11 @@ public class DataReceiverImpl implements DataReceiver {
                     throw new IllegalStateException(QUEUE_INFO_MISSING_ERROR);
                 } else {
                     // create a new queue
-                    queue = factory.createDefaultRabbitQueue(queueName);
+                    queue = factory.createRabbitQueue(queueName, queueOptions);
                 }
             }
             try {
-                return new DataReceiverImpl(queue, dataHandler, maxParallelProcessedMsgs);
+                return new DataReceiverImpl(queue, dataHandler, maxParallelProcessedMsgs, metricRegistry);
             } catch (IOException e) {
                 IOUtils.closeQuietly(queue);
                 throw e;
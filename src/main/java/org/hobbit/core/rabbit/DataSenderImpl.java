@@ -4,10 +4,19 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.metrics.Counter;
+import org.hobbit.core.metrics.Gauge;
+import org.hobbit.core.metrics.LatencyRecorder;
+import org.hobbit.core.metrics.MetricNames;
+import org.hobbit.core.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +42,13 @@ import com.rabbitmq.client.ConfirmListener;
  * might lead the sender to get stuck since confirmations might be sent rarely
  * by the RabbitMQ broker.
  * 
+ * <p>
+ * If a {@link MetricRegistry} is given, the sender registers the metrics
+ * <code>sender.messages</code>, <code>sender.bytes</code>,
+ * <code>sender.unconfirmed</code> and <code>sender.confirmLatency</code> (in
+ * nanoseconds). The metrics are labelled with the name of the queue (see
+ * {@link MetricNames#QUEUE_LABEL}).
+ * 
  * @author Michael R&ouml;der (roeder@informatik.uni-leipzig.de)
  *
  */
@@ -42,14 +58,63 @@ public class DataSenderImpl implements DataSender {
 
     private static final int DEFAULT_MESSAGE_BUFFER_SIZE = 1000;
     private static final int DEFAULT_DELIVERY_MODE = 2;
+    /**
+     * Delay (in milliseconds) before a message is sent again after its first
+     * negative acknowledgement. The delay is doubled with every further
+     * negative acknowledgement of the message up to
+     * {@link #MAX_RESEND_DELAY}.
+     */
+    private static final long MIN_RESEND_DELAY = 10;
+    /**
+     * Maximum delay (in milliseconds) before a message with a negative
+     * acknowledgement is sent again.
+     */
+    private static final long MAX_RESEND_DELAY = 1000;
+    /**
+     * Executor resending messages with a negative acknowledgement, e.g.,
+     * because the queue reached its maximum length. Resending them from the
+     * thread delivering the confirms would lead to a tight loop of publishes
+     * and rejections.
+     */
+    private static final ScheduledExecutorService RESEND_EXECUTOR = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "hobbit-sender-resend");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
 
     private RabbitQueue queue;
     private final int deliveryMode;
     private final DataSenderConfirmHandler confirmHandler;
+    private final MetricRegistry metricRegistry;
+    private final String metricLabels;
+    private final Counter messageCounter;
+    private final Counter byteCounter;
+    private final LatencyRecorder confirmLatency;
 
     protected DataSenderImpl(RabbitQueue queue, int deliveryMode, int messageConfirmBuffer) {
+        this(queue, deliveryMode, messageConfirmBuffer, null);
+    }
+
+    protected DataSenderImpl(RabbitQueue queue, int deliveryMode, int messageConfirmBuffer,
+            MetricRegistry metricRegistry) {
         this.queue = queue;
         this.deliveryMode = deliveryMode;
+        this.metricRegistry = metricRegistry;
+        if (metricRegistry != null) {
+            metricLabels = MetricNames.labels(MetricNames.QUEUE_LABEL, queue.name);
+            messageCounter = metricRegistry.counter("sender.messages" + metricLabels);
+            byteCounter = metricRegistry.counter("sender.bytes" + metricLabels);
+            confirmLatency = metricRegistry.histogram("sender.confirmLatency" + metricLabels);
+        } else {
+            metricLabels = null;
+            messageCounter = null;
+            byteCounter = null;
+            confirmLatency = null;
+        }
 
         if (messageConfirmBuffer > 0) {
             try {
@@ -62,6 +127,14 @@ public class DataSenderImpl implements DataSender {
             }
             confirmHandler = new DataSenderConfirmHandler(messageConfirmBuffer);
             this.queue.channel.addConfirmListener(confirmHandler);
+            if (metricRegistry != null) {
+                metricRegistry.gauge("sender.unconfirmed" + metricLabels, new Gauge() {
+                    @Override
+                    public long getValue() {
+                        return confirmHandler.getNumberOfUnconfirmedMessages();
+                    }
+                });
+            }
         } else {
             confirmHandler = null;
         }
@@ -83,19 +156,60 @@ public class DataSenderImpl implements DataSender {
 
     protected void sendData(BasicProperties properties, byte[] data) throws IOException {
         queue.channel.basicPublish("", queue.name, properties, data);
+        if (messageCounter != null) {
+            messageCounter.increment();
+            byteCounter.add(data.length);
+        }
     }
 
     @Override
     public void closeWhenFinished() {
+        closeBefore(Long.MAX_VALUE);
+    }
+
+    /**
+     * Closes the sender when its work is done or when the given time is over,
+     * whichever happens first. In contrast to {@link #closeWhenFinished()}, this
+     * method can be used on an abort path in which the receivers might not
+     * consume the remaining messages anymore.
+     *
+     * @param maxWaitingTime
+     *            the maximum time (in milliseconds) this method waits for
+     *            confirms and the consumption of the sent messages
+     * @return {@code true} if all messages have been confirmed and consumed
+     *         before the sender has been closed, else {@code false}
+     */
+    public boolean closeWhenFinished(long maxWaitingTime) {
+        long now = System.currentTimeMillis();
+        return closeBefore((maxWaitingTime < (Long.MAX_VALUE - now)) ? now + maxWaitingTime : Long.MAX_VALUE);
+    }
+
+    /**
+     * Waits until all messages are confirmed and consumed or until the given
+     * deadline is reached and closes the sender after that.
+     *
+     * @param deadline
+     *            the point in time (in milliseconds) at which the sender is
+     *            closed at the latest
+     * @return {@code true} if all messages have been confirmed and consumed
+     *         before the sender has been closed, else {@code false}
+     */
+    private boolean closeBefore(long deadline) {
+        boolean finished = true;
         // If we want to make sure that all messages are delivered we have to
         // wait until all messages are consumed
         if (confirmHandler != null) {
             try {
-                confirmHandler.waitForConfirms();
+                if (!confirmHandler.waitForConfirms(deadline)) {
+                    LOGGER.warn("Closing the sender with {} unconfirmed messages since the time is over.",
+                            confirmHandler.getNumberOfUnconfirmedMessages());
+                    finished = false;
+                }
             } catch (InterruptedException e) {
                 LOGGER.warn(
                         "Exception while waiting for confirmations. It can not be guaranteed that all messages have been consumed.",
                         e);
+                finished = false;
             }
         }
         try {
@@ -108,6 +222,11 @@ public class DataSenderImpl implements DataSender {
                 } else {
                     ++check;
                 }
+                if (System.currentTimeMillis() >= deadline) {
+                    LOGGER.warn("Closing the sender before all messages have been consumed since the time is over.");
+                    finished = false;
+                    break;
+                }
                 Thread.sleep(200);
             }
         } catch (AlreadyClosedException e) {
@@ -117,11 +236,15 @@ public class DataSenderImpl implements DataSender {
                     e);
         }
         close();
+        return finished;
     }
 
     @Override
     public void close() {
         IOUtils.closeQuietly(queue);
+        if (metricRegistry != null) {
+            metricRegistry.removeAll("sender.", metricLabels);
+        }
     }
 
     /**
@@ -142,6 +265,8 @@ public class DataSenderImpl implements DataSender {
         protected RabbitQueueFactory factory;
         protected int messageConfirmBuffer = DEFAULT_MESSAGE_BUFFER_SIZE;
         protected int deliveryMode = DEFAULT_DELIVERY_MODE;
+        protected MetricRegistry metricRegistry = null;
+        protected QueueOptions queueOptions = QueueOptions.DEFAULT;
 
         public Builder() {
         };
@@ -211,6 +336,36 @@ public class DataSenderImpl implements DataSender {
             return this;
         }
 
+        /**
+         * Sets the options used to declare the queue if it is created by this
+         * builder. The delivery mode of the options is used for the messages
+         * unless it is overwritten by a subsequent call of
+         * {@link #deliveryMode(int)}. By default, {@link QueueOptions#DEFAULT}
+         * is used.
+         * 
+         * @param queueOptions
+         *            the options of the queue
+         * @return this builder instance
+         */
+        public Builder queueOptions(QueueOptions queueOptions) {
+            this.queueOptions = queueOptions;
+            this.deliveryMode = queueOptions.getDeliveryMode();
+            return this;
+        }
+
+        /**
+         * Sets the registry in which the metrics of the sender will be
+         * registered. By default, no metrics are recorded.
+         * 
+         * @param metricRegistry
+         *            the registry for the metrics of the sender
+         * @return this builder instance
+         */
+        public Builder metricRegistry(MetricRegistry metricRegistry) {
+            this.metricRegistry = metricRegistry;
+            return this;
+        }
+
         /**
          * Builds the {@link DataReceiverImpl} instance with the previously
          * given information.
@@ -227,20 +382,26 @@ public class DataSenderImpl implements DataSender {
                 if ((queueName == null) || (factory == null)) {
                     throw new IllegalStateException(QUEUE_INFO_MISSING_ERROR);
                 } else {
-                    queue = factory.createDefaultRabbitQueue(queueName);
+                    queue = factory.createRabbitQueue(queueName, queueOptions);
                 }
             }
-            return new DataSenderImpl(queue, deliveryMode, messageConfirmBuffer);
+            return new DataSenderImpl(queue, deliveryMode, messageConfirmBuffer, metricRegistry);
         }
     }
 
     protected static class Message {
         public BasicProperties properties;
         public byte[] data;
+        public long sendTime;
+        /**
+         * Number of negative acknowledgements received for this message.
+         */
+        public int nackCount = 0;
 
         public Message(BasicProperties properties, byte[] data) {
             this.properties = properties;
             this.data = data;
+            this.sendTime = System.nanoTime();
         }
     }
 
@@ -250,6 +411,11 @@ public class DataSenderImpl implements DataSender {
         private final SortedMap<Long, Message> unconfirmedMsgs = Collections
                 .synchronizedSortedMap(new TreeMap<Long, Message>());
         private int successfullySubmitted = 0;
+        /**
+         * Number of messages with a negative acknowledgement that are waiting
+         * to be sent again. They still occupy their place in the buffer.
+         */
+        private int scheduledResends = 0;
 
         public DataSenderConfirmHandler(int messageConfirmBuffer) {
             this.maxBufferedMessageCount = new Semaphore(messageConfirmBuffer);
@@ -295,6 +461,12 @@ public class DataSenderImpl implements DataSender {
                     // Remove all acknowledged messages
                     SortedMap<Long, Message> negativeMsgs = unconfirmedMsgs.headMap(deliveryTag + 1);
                     int ackMsgCount = negativeMsgs.size();
+                    if (confirmLatency != null) {
+                        long now = System.nanoTime();
+                        for (Message message : negativeMsgs.values()) {
+                            confirmLatency.recordLatency(message.sendTime, now);
+                        }
+                    }
                     negativeMsgs.clear();
                     maxBufferedMessageCount.release(ackMsgCount);
                     successfullySubmitted += ackMsgCount;
@@ -302,7 +474,10 @@ public class DataSenderImpl implements DataSender {
                             maxBufferedMessageCount.availablePermits());
                 } else {
                     // Remove the message
-                    unconfirmedMsgs.remove(deliveryTag);
+                    Message message = unconfirmedMsgs.remove(deliveryTag);
+                    if ((confirmLatency != null) && (message != null)) {
+                        confirmLatency.recordLatency(message.sendTime, System.nanoTime());
+                    }
                     ++successfullySubmitted;
                     maxBufferedMessageCount.release();
                     LOGGER.trace("{}\tack\t{}\t{}", DataSenderImpl.this.toString(), deliveryTag,
@@ -321,13 +496,12 @@ public class DataSenderImpl implements DataSender {
                     Message messageToResend[] = negativeMsgs.values().toArray(new Message[negativeMsgs.size()]);
                     negativeMsgs.clear();
                     for (int i = 0; i < messageToResend.length; ++i) {
-                        sendData_unsecured(messageToResend[i]);
+                        scheduleResend(messageToResend[i]);
                     }
                 } else {
                     if (unconfirmedMsgs.containsKey(deliveryTag)) {
                         // send the lost message again
-                        Message message = unconfirmedMsgs.remove(deliveryTag);
-                        sendData_unsecured(message);
+                        scheduleResend(unconfirmedMsgs.remove(deliveryTag));
                     } else {
                         LOGGER.warn(
                                 "Got a negative acknowledgement (nack) for an unknown message. It will be ignored.");
@@ -336,15 +510,71 @@ public class DataSenderImpl implements DataSender {
             }
         }
 
+        /**
+         * Sends the given message again after a delay that grows with the
+         * number of negative acknowledgements the message received. The
+         * message keeps its place in the buffer until it is acknowledged,
+         * i.e., a sender whose messages are rejected blocks as soon as the
+         * buffer is full. Has to be called while holding the lock of
+         * {@link #unconfirmedMsgs}.
+         *
+         * @param message
+         *            the message that should be sent again
+         */
+        private void scheduleResend(final Message message) {
+            ++message.nackCount;
+            long delay = MIN_RESEND_DELAY << Math.min(message.nackCount - 1, 16);
+            ++scheduledResends;
+            RESEND_EXECUTOR.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (unconfirmedMsgs) {
+                        --scheduledResends;
+                        try {
+                            sendData_unsecured(message);
+                        } catch (Exception e) {
+                            LOGGER.error("Couldn't resend a message after a negative acknowledgement. It is lost.", e);
+                        }
+                    }
+                }
+            }, Math.min(delay, MAX_RESEND_DELAY), TimeUnit.MILLISECONDS);
+        }
+
+        public int getNumberOfUnconfirmedMessages() {
+            synchronized (unconfirmedMsgs) {
+                return unconfirmedMsgs.size() + scheduledResends;
+            }
+        }
+
         public void waitForConfirms() throws InterruptedException {
+            waitForConfirms(Long.MAX_VALUE);
+        }
+
+        /**
+         * Waits until all messages are confirmed or the given deadline is
+         * reached.
+         *
+         * @param deadline
+         *            the point in time (in milliseconds) at which the method
+         *            stops waiting
+         * @return {@code true} if all messages have been confirmed, else
+         *         {@code false}
+         * @throws InterruptedException
+         *             if the thread is interrupted while waiting
+         */
+        public boolean waitForConfirms(long deadline) throws InterruptedException {
             while (true) {
                 synchronized (unconfirmedMsgs) {
-                    if (unconfirmedMsgs.size() == 0) {
+                    if ((unconfirmedMsgs.size() == 0) && (scheduledResends == 0)) {
                         LOGGER.trace("sent {} messages.", successfullySubmitted);
-                        return;
+                        return true;
                     }
                 }
-                Thread.sleep(200);
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                Thread.sleep(Math.min(200, remaining));
             }
         }
 
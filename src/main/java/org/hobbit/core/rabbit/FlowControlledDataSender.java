@@ -0,0 +1,302 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+
+/**
+ * A {@link DataSender} that only sends data if the receivers of the queue
+ * granted credits for it. The credits are published by the receivers (see
+ * {@link CreditGrantingDataHandler}) on a credit queue the name of which is
+ * derived from the name of the data queue using
+ * {@link #getCreditQueueName(String)}. Every sent message consumes one credit.
+ * If there are no credits left, {@link #sendData(byte[])} blocks until new
+ * credits arrive, i.e., the sender can not send faster than the receivers
+ * process the data.
+ *
+ * <p>
+ * Several senders can share the credits of a queue. Every sender holds at
+ * most a single credit message at a time. Remaining credits are given back to
+ * the credit queue if the sender is closed. Hence, the credit queue is not
+ * deleted automatically when its consumers are gone but has to be deleted
+ * with {@link #deleteCreditQueue(Channel, String)} at the end of the session.
+ * </p>
+ *
+ * <p>
+ * <b>Note</b> that all receivers of the queue have to grant credits. Otherwise,
+ * the sender will block forever.
+ * </p>
+ */
+public class FlowControlledDataSender implements DataSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowControlledDataSender.class);
+
+    /**
+     * Suffix of the name of a data queue that is used for the queue
+     * transporting the credits.
+     */
+    public static final String CREDIT_QUEUE_SUFFIX = ".credits";
+    /**
+     * Time (in milliseconds) after which a warning is logged if the sender is
+     * still waiting for credits.
+     */
+    private static final long WAITING_TIME_BEFORE_WARNING = 10000;
+    private static final long NO_DELIVERY = -1;
+
+    /**
+     * The sender used to send the data.
+     */
+    private final DataSender sender;
+    /**
+     * Channel on which the credits are consumed.
+     */
+    private final Channel creditChannel;
+    private final String creditQueueName;
+    /**
+     * Mutex guarding the credits and notified if new credits arrive.
+     */
+    private final Object creditMutex = new Object();
+    /**
+     * Credits the sender can use before it needs further credits.
+     */
+    private long availableCredits = 0;
+    /**
+     * Delivery tag of the credit message the credits of which are currently
+     * used or {@link #NO_DELIVERY}. The message is acknowledged when all its
+     * credits have been used, which lets the broker deliver the next one.
+     */
+    private long deliveryTag = NO_DELIVERY;
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param sender
+     *            the sender used to send the data
+     * @param creditChannel
+     *            the channel that is used to consume the credits. It is owned by
+     *            the created sender, i.e., it will be closed if the sender is
+     *            closed.
+     * @param queueName
+     *            the name of the data queue
+     * @throws IOException
+     *             if the credit queue can not be consumed
+     */
+    public FlowControlledDataSender(DataSender sender, Channel creditChannel, String queueName)
+            throws IOException {
+        this.sender = sender;
+        this.creditChannel = creditChannel;
+        this.creditQueueName = getCreditQueueName(queueName);
+        declareCreditQueue(creditChannel, creditQueueName);
+        // the sender takes only a single credit message at a time
+        creditChannel.basicQos(1);
+        creditChannel.basicConsume(creditQueueName, false, new DefaultConsumer(creditChannel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                    byte[] body) throws IOException {
+                addCredits(envelope.getDeliveryTag(), RabbitMQUtils.readLong(body));
+            }
+        });
+    }
+
+    /**
+     * Adds the credits of a received credit message.
+     *
+     * @param tag
+     *            the delivery tag of the credit message
+     * @param credits
+     *            the number of credits of the message
+     * @throws IOException
+     *             if the message can not be acknowledged
+     */
+    private void addCredits(long tag, long credits) throws IOException {
+        synchronized (creditMutex) {
+            if (closed) {
+                // the message is given back when the channel is closed
+                return;
+            }
+            if (credits > 0) {
+                availableCredits += credits;
+                deliveryTag = tag;
+                creditMutex.notifyAll();
+                return;
+            }
+        }
+        creditChannel.basicAck(tag, false);
+    }
+
+    @Override
+    public void sendData(byte[] data) throws IOException {
+        acquireCredit();
+        sender.sendData(data);
+    }
+
+    /**
+     * Takes a single credit and blocks if there is none.
+     *
+     * @throws IOException
+     *             if the sender has been closed or if the thread has been
+     *             interrupted while waiting
+     */
+    private void acquireCredit() throws IOException {
+        long exhaustedDelivery = NO_DELIVERY;
+        synchronized (creditMutex) {
+            long waitingStart = System.currentTimeMillis();
+            long nextWarning = waitingStart + WAITING_TIME_BEFORE_WARNING;
+            while (availableCredits == 0) {
+                if (closed) {
+                    throw new IOException("The sender has already been closed.");
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextWarning) {
+                    LOGGER.warn("Waiting for credits of {} since {}ms. The receivers might not process data anymore.",
+                            creditQueueName, now - waitingStart);
+                    nextWarning = now + WAITING_TIME_BEFORE_WARNING;
+                }
+                try {
+                    creditMutex.wait(nextWarning - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for credits.");
+                }
+            }
+            --availableCredits;
+            if (availableCredits == 0) {
+                exhaustedDelivery = deliveryTag;
+                deliveryTag = NO_DELIVERY;
+            }
+        }
+        // request the next credit message as early as possible
+        if (exhaustedDelivery != NO_DELIVERY) {
+            creditChannel.basicAck(exhaustedDelivery, false);
+        }
+    }
+
+    /**
+     * @return the number of credits the sender can use without waiting
+     */
+    public long getAvailableCredits() {
+        synchronized (creditMutex) {
+            return availableCredits;
+        }
+    }
+
+    @Override
+    public void closeWhenFinished() {
+        sender.closeWhenFinished();
+        releaseCredits();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sender.close();
+        } finally {
+            releaseCredits();
+        }
+    }
+
+    /**
+     * Gives the remaining credits back to the credit queue and closes the
+     * credit channel.
+     */
+    private void releaseCredits() {
+        long remainingCredits;
+        long tag;
+        synchronized (creditMutex) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            remainingCredits = availableCredits;
+            tag = deliveryTag;
+            availableCredits = 0;
+            deliveryTag = NO_DELIVERY;
+            creditMutex.notifyAll();
+        }
+        try {
+            if (tag != NO_DELIVERY) {
+                if (remainingCredits > 0) {
+                    creditChannel.basicPublish("", creditQueueName, null, RabbitMQUtils.writeLong(remainingCredits));
+                }
+                creditChannel.basicAck(tag, false);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Couldn't give back the remaining credits. Other senders of the queue might be slowed down.",
+                    e);
+        }
+        try {
+            creditChannel.close();
+        } catch (Exception e) {
+            LOGGER.debug("Exception while closing the credit channel.", e);
+        }
+    }
+
+    /**
+     * Returns the name of the queue used for the credits of the data queue with
+     * the given name.
+     *
+     * @param queueName
+     *            the name of the data queue
+     * @return the name of the credit queue
+     */
+    public static String getCreditQueueName(String queueName) {
+        return queueName + CREDIT_QUEUE_SUFFIX;
+    }
+
+    /**
+     * Deletes the credit queue of the data queue with the given name. Remaining
+     * credits are lost.
+     *
+     * @param channel
+     *            the channel used to delete the queue
+     * @param queueName
+     *            the name of the data queue
+     * @throws IOException
+     *             if the queue can not be deleted
+     */
+    public static void deleteCreditQueue(Channel channel, String queueName) throws IOException {
+        channel.queueDelete(getCreditQueueName(queueName));
+    }
+
+    /**
+     * Declares the credit queue with the given name. The queue is declared by
+     * senders and receivers since both might be the first to use it. It is
+     * not an auto-delete queue since the credits have to survive the time in
+     * which no sender consumes them, e.g., while a sender is replaced.
+     *
+     * @param channel
+     *            the channel used to declare the queue
+     * @param creditQueueName
+     *            the name of the credit queue
+     * @throws IOException
+     *             if the queue can not be declared
+     */
+    protected static void declareCreditQueue(Channel channel, String creditQueueName) throws IOException {
+        channel.queueDeclare(creditQueueName, false, false, false, null);
+    }
+
+}
@@ -0,0 +1,414 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Options that are used to declare a queue and to publish messages on it.
+ * Note that the sender and the receiver of a queue have to use the same
+ * options since the broker refuses to declare an existing queue with
+ * different arguments.
+ * </p>
+ * <p>
+ * The {@link #DEFAULT} options declare a queue without arguments and send
+ * persistent messages which is the behavior of the previous versions of this
+ * library. Since the data queues are neither durable nor survive their
+ * consumer, the persistence of messages does not add any guarantee. Hence, the
+ * {@link #EPHEMERAL} options send transient messages which avoids the disk
+ * writes of the broker.
+ * </p>
+ *
+ * Use the internal {@link Builder} class for creating instances of the
+ * {@link QueueOptions} class.
+ */
+public class QueueOptions {
+
+    /**
+     * Options used if no other options are given, i.e., persistent messages
+     * and no queue arguments.
+     */
+    public static final QueueOptions DEFAULT = builder().build();
+    /**
+     * Options for high throughput queues, i.e., transient messages and no
+     * queue arguments.
+     */
+    public static final QueueOptions EPHEMERAL = builder().persistentMessages(false).build();
+
+    public static final String MESSAGE_TTL_ARGUMENT = "x-message-ttl";
+    public static final String MAX_LENGTH_ARGUMENT = "x-max-length";
+    public static final String MAX_LENGTH_BYTES_ARGUMENT = "x-max-length-bytes";
+    public static final String OVERFLOW_ARGUMENT = "x-overflow";
+    public static final String QUEUE_MODE_ARGUMENT = "x-queue-mode";
+    public static final String LAZY_QUEUE_MODE = "lazy";
+    public static final String SINGLE_ACTIVE_CONSUMER_ARGUMENT = "x-single-active-consumer";
+    public static final String MAX_PRIORITY_ARGUMENT = "x-max-priority";
+
+    /**
+     * The behavior of a queue if its maximum length (in messages or bytes)
+     * has been reached.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * The oldest messages are dropped (default of the broker).
+         */
+        DROP_HEAD("drop-head"),
+        /**
+         * New messages are rejected. Publishers using confirms receive a
+         * negative acknowledgement.
+         */
+        REJECT_PUBLISH("reject-publish"),
+        /**
+         * New messages are rejected and dead-lettered.
+         */
+        REJECT_PUBLISH_DLX("reject-publish-dlx");
+
+        private final String value;
+
+        private OverflowPolicy(String value) {
+            this.value = value;
+        }
+
+        /**
+         * @return the value of the {@link QueueOptions#OVERFLOW_ARGUMENT}
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the policy with the given argument value.
+         *
+         * @param value
+         *            the value of the {@link QueueOptions#OVERFLOW_ARGUMENT}
+         * @return the policy or {@code null} if the value is unknown
+         */
+        public static OverflowPolicy fromValue(String value) {
+            for (OverflowPolicy policy : values()) {
+                if (policy.value.equals(value)) {
+                    return policy;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int PERSISTENT_DELIVERY_MODE = 2;
+    private static final int TRANSIENT_DELIVERY_MODE = 1;
+
+    private final boolean persistentMessages;
+    private final long messageTtl;
+    private final int maxLength;
+    private final long maxLengthBytes;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean lazy;
+    private final boolean singleActiveConsumer;
+    private final int maxPriority;
+
+    protected QueueOptions(Builder builder) {
+        this.persistentMessages = builder.persistentMessages;
+        this.messageTtl = builder.messageTtl;
+        this.maxLength = builder.maxLength;
+        this.maxLengthBytes = builder.maxLengthBytes;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.lazy = builder.lazy;
+        this.singleActiveConsumer = builder.singleActiveConsumer;
+        this.maxPriority = builder.maxPriority;
+    }
+
+    /**
+     * @return {@code true} if the messages are sent as persistent messages
+     */
+    public boolean isPersistentMessages() {
+        return persistentMessages;
+    }
+
+    /**
+     * @return the delivery mode of the messages, i.e., {@code 2} for
+     *         persistent and {@code 1} for transient messages
+     */
+    public int getDeliveryMode() {
+        return persistentMessages ? PERSISTENT_DELIVERY_MODE : TRANSIENT_DELIVERY_MODE;
+    }
+
+    /**
+     * @return the time in milliseconds after which messages are discarded by
+     *         the broker or {@code -1} if messages do not expire
+     */
+    public long getMessageTtl() {
+        return messageTtl;
+    }
+
+    /**
+     * @return the maximum number of messages in the queue or {@code -1} if
+     *         the length of the queue is not limited
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return the maximum number of bytes of the message bodies in the queue
+     *         or {@code -1} if the size of the queue is not limited
+     */
+    public long getMaxLengthBytes() {
+        return maxLengthBytes;
+    }
+
+    /**
+     * @return the behavior of the queue if its maximum length has been
+     *         reached or {@code null} if the default of the broker is used
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return {@code true} if the queue is a lazy queue that moves its
+     *         messages to disk as early as possible
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return {@code true} if only one consumer of the queue receives messages
+     *         at a time
+     */
+    public boolean isSingleActiveConsumer() {
+        return singleActiveConsumer;
+    }
+
+    /**
+     * @return the maximum priority supported by the queue or {@code -1} if
+     *         it is not a priority queue
+     */
+    public int getMaxPriority() {
+        return maxPriority;
+    }
+
+    /**
+     * Returns the arguments that are used to declare the queue.
+     *
+     * @return the queue arguments or {@code null} if no arguments are
+     *         necessary
+     */
+    public Map<String, Object> getArguments() {
+        Map<String, Object> arguments = new HashMap<String, Object>();
+        if (messageTtl >= 0) {
+            arguments.put(MESSAGE_TTL_ARGUMENT, messageTtl);
+        }
+        if (maxLength >= 0) {
+            arguments.put(MAX_LENGTH_ARGUMENT, maxLength);
+        }
+        if (maxLengthBytes >= 0) {
+            arguments.put(MAX_LENGTH_BYTES_ARGUMENT, maxLengthBytes);
+        }
+        if (overflowPolicy != null) {
+            arguments.put(OVERFLOW_ARGUMENT, overflowPolicy.getValue());
+        }
+        if (lazy) {
+            arguments.put(QUEUE_MODE_ARGUMENT, LAZY_QUEUE_MODE);
+        }
+        if (singleActiveConsumer) {
+            arguments.put(SINGLE_ACTIVE_CONSUMER_ARGUMENT, Boolean.TRUE);
+        }
+        if (maxPriority >= 0) {
+            arguments.put(MAX_PRIORITY_ARGUMENT, maxPriority);
+        }
+        return arguments.isEmpty() ? null : arguments;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("QueueOptions [persistentMessages=");
+        builder.append(persistentMessages);
+        builder.append(", messageTtl=");
+        builder.append(messageTtl);
+        builder.append(", maxLength=");
+        builder.append(maxLength);
+        builder.append(", maxLengthBytes=");
+        builder.append(maxLengthBytes);
+        builder.append(", overflowPolicy=");
+        builder.append(overflowPolicy);
+        builder.append(", lazy=");
+        builder.append(lazy);
+        builder.append(", singleActiveConsumer=");
+        builder.append(singleActiveConsumer);
+        builder.append(", maxPriority=");
+        builder.append(maxPriority);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /**
+     * Returns a newly created {@link Builder}.
+     *
+     * @return a new {@link Builder} instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        protected boolean persistentMessages = true;
+        protected long messageTtl = -1;
+        protected int maxLength = -1;
+        protected long maxLengthBytes = -1;
+        protected OverflowPolicy overflowPolicy = null;
+        protected boolean lazy = false;
+        protected boolean singleActiveConsumer = false;
+        protected int maxPriority = -1;
+
+        public Builder() {
+        };
+
+        /**
+         * Sets whether the messages are sent as persistent (default) or
+         * transient messages.
+         *
+         * @param persistentMessages
+         *            {@code true} for persistent messages, {@code false} for
+         *            transient messages
+         * @return this builder instance
+         */
+        public Builder persistentMessages(boolean persistentMessages) {
+            this.persistentMessages = persistentMessages;
+            return this;
+        }
+
+        /**
+         * Sets the time after which messages are discarded by the broker.
+         *
+         * @param messageTtl
+         *            the time to live of messages in milliseconds or
+         *            {@code -1} if messages should not expire (default)
+         * @return this builder instance
+         */
+        public Builder messageTtl(long messageTtl) {
+            this.messageTtl = messageTtl;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of messages in the queue. If the limit is
+         * reached, the broker applies the overflow policy (see
+         * {@link #overflowPolicy(OverflowPolicy)}).
+         *
+         * @param maxLength
+         *            the maximum number of messages or {@code -1} if the
+         *            length is not limited (default)
+         * @return this builder instance
+         */
+        public Builder maxLength(int maxLength) {
+            this.maxLength = maxLength;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of bytes of all message bodies in the queue.
+         * If the limit is reached, the broker applies the overflow policy (see
+         * {@link #overflowPolicy(OverflowPolicy)}).
+         *
+         * @param maxLengthBytes
+         *            the maximum number of bytes or {@code -1} if the size is
+         *            not limited (default)
+         * @return this builder instance
+         */
+        public Builder maxLengthBytes(long maxLengthBytes) {
+            this.maxLengthBytes = maxLengthBytes;
+            return this;
+        }
+
+        /**
+         * Sets the behavior of the queue if its maximum length has been
+         * reached. {@link OverflowPolicy#REJECT_PUBLISH} lets a
+         * {@link DataSenderImpl} with confirms keep the rejected messages in
+         * its buffer and resend them with a growing delay (from 10ms up to
+         * 1s). Since the rejected messages keep their place in the buffer,
+         * the sender eventually blocks instead of filling up the memory of
+         * the broker.
+         *
+         * @param overflowPolicy
+         *            the overflow policy or {@code null} if the default of the
+         *            broker should be used (default)
+         * @return this builder instance
+         */
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Sets whether the queue is a lazy queue, i.e., the broker moves its
+         * messages to disk as early as possible and keeps only a small part of
+         * them in memory. This protects the memory of the broker if the
+         * consumer is much slower than the producers.
+         *
+         * @param lazy
+         *            {@code true} for a lazy queue ({@code false} is default)
+         * @return this builder instance
+         */
+        public Builder lazy(boolean lazy) {
+            this.lazy = lazy;
+            return this;
+        }
+
+        /**
+         * Sets whether only a single consumer of the queue receives messages
+         * at a time. The other consumers take over if the active consumer is
+         * cancelled.
+         *
+         * @param singleActiveConsumer
+         *            {@code true} for a single active consumer ({@code false}
+         *            is default)
+         * @return this builder instance
+         */
+        public Builder singleActiveConsumer(boolean singleActiveConsumer) {
+            this.singleActiveConsumer = singleActiveConsumer;
+            return this;
+        }
+
+        /**
+         * Sets the maximum priority of messages in the queue, i.e., makes the
+         * queue a priority queue.
+         *
+         * @param maxPriority
+         *            the maximum priority (between 1 and 255) or {@code -1}
+         *            if the queue should not support priorities (default)
+         * @return this builder instance
+         */
+        public Builder maxPriority(int maxPriority) {
+            this.maxPriority = maxPriority;
+            return this;
+        }
+
+        /**
+         * Builds the {@link QueueOptions} instance with the previously given
+         * information.
+         *
+         * @return The newly created options
+         */
+        public QueueOptions build() {
+            return new QueueOptions(this);
+        }
+    }
+}
@@ -16,15 +16,30 @@
  */
 package org.hobbit.core.rabbit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.io.Charsets;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.ReaderRIOT;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.ErrorHandlerFactory;
+import org.apache.jena.riot.system.IRIResolver;
+import org.apache.jena.riot.system.ParserProfileBase;
+import org.apache.jena.riot.system.Prologue;
+import org.apache.jena.riot.system.RiotLib;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,7 +102,9 @@ public class RabbitMQUtils {
      * @return the deserialized model
      */
     public static Model readModel(byte data[], int offset, int length) {
-        return readModel(readString(data, offset, length));
+        Model model = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(model, new ByteArrayInputStream(data, offset, length), "", DEFAULT_RDF_LANG);
+        return model;
     }
 
     /**
@@ -272,10 +289,91 @@ public class RabbitMQUtils {
         if (model == null) {
             return new byte[0];
         } else {
-            return writeString(writeModel2String(model));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            RDFDataMgr.write(outputStream, model, DEFAULT_RDF_LANG);
+            return outputStream.toByteArray();
         }
     }
 
+    /**
+     * Serializes the given model as N-Triples and splits the serialization
+     * into chunks of complete lines. Since every chunk can be parsed on its own
+     * (see {@link #readModelChunk(byte[])}), the chunks can be sent and
+     * processed independently of each other. The chunks are created lazily
+     * while iterating, i.e., the complete serialization is never held in
+     * memory. A chunk only exceeds the given size if a single triple is larger
+     * than the maximum size.
+     *
+     * @param model
+     *            the model that should be serialized
+     * @param maxChunkSize
+     *            the maximum size of a single chunk in bytes
+     * @return an iterator over the chunks of the serialized model
+     */
+    public static Iterator<byte[]> writeModelChunks(final Model model, final int maxChunkSize) {
+        return new Iterator<byte[]>() {
+            private ExtendedIterator<Triple> triples = model.getGraph().find(null, null, null);
+            private byte[] pendingLine = null;
+
+            @Override
+            public boolean hasNext() {
+                return (pendingLine != null) || triples.hasNext();
+            }
+
+            @Override
+            public byte[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ByteArrayOutputStream chunk = new ByteArrayOutputStream(maxChunkSize);
+                if (pendingLine != null) {
+                    chunk.write(pendingLine, 0, pendingLine.length);
+                    pendingLine = null;
+                }
+                byte[] line;
+                while (triples.hasNext()) {
+                    line = writeNTriplesLine(triples.next());
+                    if ((chunk.size() > 0) && ((chunk.size() + line.length) > maxChunkSize)) {
+                        pendingLine = line;
+                        break;
+                    }
+                    chunk.write(line, 0, line.length);
+                }
+                return chunk.toByteArray();
+            }
+        };
+    }
+
+    private static byte[] writeNTriplesLine(Triple triple) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(NodeFmtLib.str(triple.getSubject()));
+        builder.append(' ');
+        builder.append(NodeFmtLib.str(triple.getPredicate()));
+        builder.append(' ');
+        builder.append(NodeFmtLib.str(triple.getObject()));
+        builder.append(" .\n");
+        return writeString(builder.toString());
+    }
+
+    /**
+     * Reads a chunk created by {@link #writeModelChunks(Model, int)}. The
+     * labels of blank nodes are kept, i.e., a blank node that occurs in
+     * several chunks is the same node after the chunks have been added to a
+     * single model.
+     *
+     * @param data
+     *            the chunk containing N-Triples
+     * @return the deserialized part of the model
+     */
+    public static Model readModelChunk(byte[] data) {
+        Model model = ModelFactory.createDefaultModel();
+        ReaderRIOT reader = RDFDataMgr.createReader(Lang.NTRIPLES);
+        reader.setParserProfile(new ParserProfileBase(new Prologue(null, IRIResolver.createNoResolve()),
+                ErrorHandlerFactory.errorHandlerStd, RiotLib.factoryRDF(LabelToNode.createUseLabelEncoded())));
+        reader.read(new ByteArrayInputStream(data), null, null, StreamRDFLib.graph(model.getGraph()), null);
+        return model;
+    }
+
     /**
      * Creates a byte array representing the given long value.
      *
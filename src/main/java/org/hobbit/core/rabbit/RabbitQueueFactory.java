@@ -47,6 +47,25 @@ public interface RabbitQueueFactory extends Closeable {
      *             or the queue occurs
      */
     public RabbitQueue createDefaultRabbitQueue(String name) throws IOException;
+
+    /**
+     * This method opens a channel using the established connection to RabbitMQ
+     * and creates a new queue using the given name and the arguments of the
+     * given options. Apart from the arguments, the queue has the same
+     * configuration as the queues created by
+     * {@link #createDefaultRabbitQueue(String)}.
+     *
+     * @param name
+     *            name of the queue
+     * @param options
+     *            options defining the arguments of the queue
+     * @return {@link RabbitQueue} object comprising the {@link Channel} and the
+     *         name of the created queue
+     * @throws IOException
+     *             if a communication problem during the creation of the channel
+     *             or the queue occurs
+     */
+    public RabbitQueue createRabbitQueue(String name, QueueOptions options) throws IOException;
     
     public Connection getConnection();
 }
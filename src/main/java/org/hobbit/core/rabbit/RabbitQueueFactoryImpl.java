@@ -34,8 +34,13 @@ public class RabbitQueueFactoryImpl implements RabbitQueueFactory, Closeable {
 
     @Override
     public RabbitQueue createDefaultRabbitQueue(String name) throws IOException {
+        return createRabbitQueue(name, QueueOptions.DEFAULT);
+    }
+
+    @Override
+    public RabbitQueue createRabbitQueue(String name, QueueOptions options) throws IOException {
         Channel channel = connection.createChannel();
-        channel.queueDeclare(name, false, false, true, null);
+        channel.queueDeclare(name, false, false, true, options.getArguments());
         return new RabbitQueue(channel, name);
     }
 
@@ -26,6 +26,11 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.metrics.Counter;
+import org.hobbit.core.metrics.Gauge;
+import org.hobbit.core.metrics.LatencyRecorder;
+import org.hobbit.core.metrics.MetricNames;
+import org.hobbit.core.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -106,6 +111,19 @@ public class RabbitRpcClient implements Closeable {
      * {@link #DEFAULT_MAX_WAITING_TIME}.
      */
     private long maxWaitingTime = DEFAULT_MAX_WAITING_TIME;
+    /**
+     * Registry in which the metrics of this client are registered or
+     * {@code null} if no metrics are recorded.
+     */
+    private MetricRegistry metricRegistry = null;
+    /**
+     * Latencies of the requests in nanoseconds.
+     */
+    private LatencyRecorder requestLatency = null;
+    /**
+     * Number of requests that failed.
+     */
+    private Counter errorCounter = null;
 
     /**
      * Initializes the client by declaring a request queue using the given
@@ -151,11 +169,18 @@ public class RabbitRpcClient implements Closeable {
             currentRequests.put(corrId, request);
             requestMapMutex.release();
 
+            long start = System.nanoTime();
             requestQueue.channel.basicPublish("", requestQueue.name, props, data);
 
             response = request.get(maxWaitingTime, TimeUnit.MILLISECONDS);
+            if (requestLatency != null) {
+                requestLatency.recordLatency(start, System.nanoTime());
+            }
         } catch (Exception e) {
             LOGGER.error("Exception while sending query. Returning null.", e);
+            if (errorCounter != null) {
+                errorCounter.increment();
+            }
         }
         return response;
     }
@@ -198,10 +223,40 @@ public class RabbitRpcClient implements Closeable {
         this.maxWaitingTime = maxWaitingTime;
     }
 
+    /**
+     * Sets the registry in which the metrics of this client are registered.
+     * The client registers the metrics <code>rpc.inflight</code>,
+     * <code>rpc.latency</code> (in nanoseconds) and <code>rpc.errors</code>
+     * labelled with the name of the request queue. Note that this method has
+     * to be called after the client has been initialized.
+     *
+     * @param metricRegistry
+     *            the registry for the metrics of this client
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        String labels = getMetricLabels();
+        requestLatency = metricRegistry.histogram("rpc.latency" + labels);
+        errorCounter = metricRegistry.counter("rpc.errors" + labels);
+        metricRegistry.gauge("rpc.inflight" + labels, new Gauge() {
+            @Override
+            public long getValue() {
+                return currentRequests.size();
+            }
+        });
+    }
+
+    private String getMetricLabels() {
+        return MetricNames.labels(MetricNames.QUEUE_LABEL, requestQueue.name);
+    }
+
     @Override
     public void close() throws IOException {
         IOUtils.closeQuietly(requestQueue);
         IOUtils.closeQuietly(responseQueue);
+        if (metricRegistry != null) {
+            metricRegistry.removeAll("rpc.", getMetricLabels());
+        }
     }
 
     /**
@@ -32,6 +32,10 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.hobbit.core.data.FileReceiveState;
 import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.metrics.Counter;
+import org.hobbit.core.metrics.Gauge;
+import org.hobbit.core.metrics.MetricNames;
+import org.hobbit.core.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +59,11 @@ public class SimpleFileReceiver {
         return create(factory.createDefaultRabbitQueue(queueName));
     }
 
+    public static SimpleFileReceiver create(RabbitQueueFactory factory, String queueName, QueueOptions options)
+            throws IOException {
+        return create(factory.createRabbitQueue(queueName, options));
+    }
+
     public static SimpleFileReceiver create(RabbitQueue queue) throws IOException {
         QueueingConsumer consumer = new QueueingConsumer(queue.channel);
         queue.channel.basicConsume(queue.name, true, consumer);
@@ -68,6 +77,9 @@ public class SimpleFileReceiver {
     private boolean terminated = false;
     private int errorCount = 0;
     private ExecutorService executor = Executors.newCachedThreadPool();
+    private MetricRegistry metricRegistry = null;
+    private Counter messageCounter = null;
+    private Counter byteCounter = null;
 
     protected SimpleFileReceiver(RabbitQueue queue, QueueingConsumer consumer) {
         this.queue = queue;
@@ -86,6 +98,10 @@ public class SimpleFileReceiver {
             while ((!terminated) || (delivery != null) || (queue.channel.messageCount(queue.name) > 0)) {
                 delivery = consumer.nextDelivery(DEFAULT_TIMEOUT);
                 if (delivery != null) {
+                    if (messageCounter != null) {
+                        messageCounter.increment();
+                        byteCounter.add(delivery.getBody().length);
+                    }
                     executor.execute(new MessageProcessing(this, outputDirectory, delivery.getBody()));
                 }
             }
@@ -112,6 +128,31 @@ public class SimpleFileReceiver {
         return errorCount;
     }
 
+    /**
+     * Sets the registry in which the metrics
+     * <code>fileReceiver.messages</code>, <code>fileReceiver.bytes</code> and
+     * <code>fileReceiver.errors</code> labelled with the name of the queue are
+     * registered.
+     *
+     * @param metricRegistry
+     *            the registry for the metrics of this receiver
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        messageCounter = metricRegistry.counter("fileReceiver.messages" + getMetricLabels());
+        byteCounter = metricRegistry.counter("fileReceiver.bytes" + getMetricLabels());
+        metricRegistry.gauge("fileReceiver.errors" + getMetricLabels(), new Gauge() {
+            @Override
+            public long getValue() {
+                return getErrorCount();
+            }
+        });
+    }
+
+    private String getMetricLabels() {
+        return MetricNames.labels(MetricNames.QUEUE_LABEL, queue.name);
+    }
+
     protected void close() {
         executor.shutdown();
         // We will wait up to 10 seconds if one of the tasks is still
@@ -122,6 +163,9 @@ public class SimpleFileReceiver {
             LOGGER.error("Interrupted while waiting for executor to terminate.");
         }
         IOUtils.closeQuietly(queue);
+        if (metricRegistry != null) {
+            metricRegistry.removeAll("fileReceiver.", getMetricLabels());
+        }
         for (String fileName : fileStates.keySet()) {
             if (fileStates.get(fileName).outputStream != null) {
                 LOGGER.warn("Closing file \"{}\" for which no end message has been received.", fileName);
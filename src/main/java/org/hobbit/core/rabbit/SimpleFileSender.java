@@ -24,7 +24,11 @@ import java.util.Arrays;
 
 import org.apache.commons.io.IOUtils;
 import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.metrics.Counter;
+import org.hobbit.core.metrics.MetricNames;
+import org.hobbit.core.metrics.MetricRegistry;
 
+import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.MessageProperties;
 
 /**
@@ -50,8 +54,36 @@ public class SimpleFileSender implements Closeable {
         return new SimpleFileSender(factory.createDefaultRabbitQueue(queueName));
     }
 
+    /**
+     * Creates a sender for the queue with the given name that is declared
+     * using the given options. The messages are sent as transient messages if
+     * the options do not demand persistent messages.
+     *
+     * @param factory
+     *            the factory used to create the queue
+     * @param queueName
+     *            the name of the queue
+     * @param options
+     *            the options of the queue
+     * @return the newly created sender
+     * @throws IOException
+     *             if the queue can not be created
+     */
+    public static SimpleFileSender create(RabbitQueueFactory factory, String queueName, QueueOptions options)
+            throws IOException {
+        SimpleFileSender sender = new SimpleFileSender(factory.createRabbitQueue(queueName, options));
+        if (!options.isPersistentMessages()) {
+            sender.messageProperties = MessageProperties.MINIMAL_BASIC;
+        }
+        return sender;
+    }
+
     private RabbitQueue queue;
+    private BasicProperties messageProperties = MessageProperties.MINIMAL_PERSISTENT_BASIC;
     private int messageSize = DEFAULT_MESSAGE_SIZE;
+    private MetricRegistry metricRegistry = null;
+    private Counter messageCounter = null;
+    private Counter byteCounter = null;
 
     protected SimpleFileSender(RabbitQueue queue) {
         this.queue = queue;
@@ -71,8 +103,12 @@ public class SimpleFileSender implements Closeable {
             buffer.position(messageIdPos);
             buffer.putInt(messageId);
             length = is.read(array, dataStartPos, array.length - dataStartPos);
-            queue.channel.basicPublish("", queue.name, MessageProperties.MINIMAL_PERSISTENT_BASIC,
+            queue.channel.basicPublish("", queue.name, messageProperties,
                     Arrays.copyOf(array, (length > 0) ? (dataStartPos + length) : dataStartPos));
+            if (messageCounter != null) {
+                messageCounter.increment();
+                byteCounter.add((length > 0) ? (dataStartPos + length) : dataStartPos);
+            }
             ++messageId;
         } while (length > 0);
     }
@@ -81,9 +117,30 @@ public class SimpleFileSender implements Closeable {
         this.messageSize = messageSize;
     }
 
+    /**
+     * Sets the registry in which the metrics
+     * <code>fileSender.messages</code> and <code>fileSender.bytes</code>
+     * labelled with the name of the queue are registered.
+     *
+     * @param metricRegistry
+     *            the registry for the metrics of this sender
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        messageCounter = metricRegistry.counter("fileSender.messages" + getMetricLabels());
+        byteCounter = metricRegistry.counter("fileSender.bytes" + getMetricLabels());
+    }
+
+    private String getMetricLabels() {
+        return MetricNames.labels(MetricNames.QUEUE_LABEL, queue.name);
+    }
+
     @Override
     public void close() {
         IOUtils.closeQuietly(queue);
+        if (metricRegistry != null) {
+            metricRegistry.removeAll("fileSender.", getMetricLabels());
+        }
     }
 
 }
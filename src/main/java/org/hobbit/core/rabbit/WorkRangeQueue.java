@@ -0,0 +1,166 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.hobbit.core.data.WorkRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+
+/**
+ * A queue of {@link WorkRange}s shared by several generators. A coordinator
+ * (e.g., the benchmark controller) splits the work into ranges using
+ * {@link #publishRanges(long, long, long)} and the generators pull the next
+ * range with {@link #getNextRange()} whenever they are idle. Hence, a fast
+ * generator simply processes more ranges than a slow one and the number of
+ * generators does not have to be known in advance.
+ *
+ * <p>
+ * A pulled range is acknowledged when the next range is pulled or the queue
+ * turned out to be empty. If a generator stops before that, e.g., because it
+ * crashed, its current range is given back to the queue when the channel is
+ * closed and handed out to another generator.
+ * </p>
+ */
+public class WorkRangeQueue implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkRangeQueue.class);
+
+    private static final long NO_DELIVERY = -1;
+
+    private final Channel channel;
+    private final String queueName;
+    /**
+     * Delivery tag of the range that is currently processed or
+     * {@link #NO_DELIVERY}.
+     */
+    private long currentDelivery = NO_DELIVERY;
+
+    /**
+     * Constructor. Declares the queue if it does not exist.
+     *
+     * @param channel
+     *            the channel used to access the queue. It is owned by the
+     *            created object, i.e., it is closed if the queue is closed.
+     * @param queueName
+     *            the name of the queue
+     * @throws IOException
+     *             if the queue can not be declared
+     */
+    public WorkRangeQueue(Channel channel, String queueName) throws IOException {
+        this.channel = channel;
+        this.queueName = queueName;
+        // the queue is consumed by polling, i.e., it has to be deleted
+        // explicitly
+        channel.queueDeclare(queueName, false, false, false, null);
+    }
+
+    /**
+     * Splits the items from start (inclusive) to end (exclusive) into ranges
+     * of the given size and adds them to the queue.
+     *
+     * @param start
+     *            the first item
+     * @param end
+     *            the item following the last item
+     * @param rangeSize
+     *            the maximum number of items of a single range
+     * @return the number of published ranges
+     * @throws IOException
+     *             if the ranges can not be published
+     */
+    public int publishRanges(long start, long end, long rangeSize) throws IOException {
+        if (rangeSize <= 0) {
+            throw new IllegalArgumentException("The size of a range has to be positive.");
+        }
+        int count = 0;
+        for (long rangeStart = start; rangeStart < end; rangeStart += rangeSize) {
+            publishRange(new WorkRange(rangeStart, Math.min(rangeStart + rangeSize, end)));
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Adds the given range to the queue.
+     *
+     * @param range
+     *            the range that should be added
+     * @throws IOException
+     *             if the range can not be published
+     */
+    public void publishRange(WorkRange range) throws IOException {
+        channel.basicPublish("", queueName, null, range.toBytes());
+    }
+
+    /**
+     * Marks the current range as done and returns the next range of the queue.
+     *
+     * @return the next range or {@code null} if the queue is empty, i.e., all
+     *         ranges have been handed out
+     * @throws IOException
+     *             if the queue can not be accessed
+     */
+    public synchronized WorkRange getNextRange() throws IOException {
+        if (currentDelivery != NO_DELIVERY) {
+            channel.basicAck(currentDelivery, false);
+            currentDelivery = NO_DELIVERY;
+        }
+        GetResponse response = channel.basicGet(queueName, false);
+        if (response == null) {
+            return null;
+        }
+        currentDelivery = response.getEnvelope().getDeliveryTag();
+        return WorkRange.fromBytes(response.getBody());
+    }
+
+    /**
+     * Deletes the queue. Ranges that have not been handed out are lost.
+     *
+     * @throws IOException
+     *             if the queue can not be deleted
+     */
+    public void delete() throws IOException {
+        channel.queueDelete(queueName);
+    }
+
+    /**
+     * @return the name of the queue
+     */
+    public String getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * Closes the channel. A range that has been pulled but not marked as done
+     * is given back to the queue.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } catch (Exception e) {
+            LOGGER.debug("Exception while closing the channel of the work range queue.", e);
+        }
+    }
+
+}
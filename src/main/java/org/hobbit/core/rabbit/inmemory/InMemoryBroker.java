@@ -0,0 +1,233 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit.inmemory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import org.hobbit.core.rabbit.inmemory.InMemoryExchange.Binding;
+
+/**
+ * <p>
+ * A simple message broker that lives inside the JVM and can be used instead
+ * of RabbitMQ to run several components (e.g., a complete benchmark) as
+ * threads of a single JVM without any network overhead. The broker offers
+ * {@link InMemoryConnection} instances that implement the RabbitMQ client API
+ * and support
+ * </p>
+ * <ul>
+ * <li>queues (including server named, exclusive and auto delete queues),</li>
+ * <li>fanout and direct exchanges,</li>
+ * <li>consumers with automatic or manual acknowledgements and prefetch
+ * limits,</li>
+ * <li>basic gets,</li>
+ * <li>publisher confirms,</li>
+ * <li>RPC calls via reply-to queues and</li>
+ * <li>the queue arguments for message TTLs, maximum lengths, overflow
+ * policies and single active consumers.</li>
+ * </ul>
+ * <p>
+ * <b>Note</b> that messages are not copied, i.e., the body of a published
+ * message must not be changed after publishing it. Transactions, exchange to
+ * exchange bindings and topic or header exchanges are not supported.
+ * </p>
+ */
+public class InMemoryBroker {
+
+    /**
+     * Name of the default exchange.
+     */
+    public static final String DEFAULT_EXCHANGE_NAME = "";
+
+    private static final InMemoryBroker DEFAULT_INSTANCE = new InMemoryBroker();
+
+    /**
+     * @return the broker instance that is shared inside the JVM
+     */
+    public static InMemoryBroker getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    private final Map<String, InMemoryQueue> queues = new HashMap<String, InMemoryQueue>();
+    private final Map<String, InMemoryExchange> exchanges = new HashMap<String, InMemoryExchange>();
+
+    /**
+     * @return a new connection to this broker
+     */
+    public InMemoryConnection newConnection() {
+        return new InMemoryConnection(this, null);
+    }
+
+    /**
+     * @param consumerExecutor
+     *            the executor that runs the consumers of the connection or
+     *            {@code null} if every channel should use an own thread
+     * @return a new connection to this broker
+     */
+    public InMemoryConnection newConnection(ExecutorService consumerExecutor) {
+        return new InMemoryConnection(this, consumerExecutor);
+    }
+
+    protected synchronized InMemoryQueue declareQueue(String name, boolean durable, boolean exclusive,
+            boolean autoDelete, Map<String, Object> arguments, InMemoryConnection owner) throws IOException {
+        if ((name == null) || name.isEmpty()) {
+            name = "amq.gen-" + UUID.randomUUID().toString();
+        }
+        InMemoryQueue queue = queues.get(name);
+        if (queue == null) {
+            queue = new InMemoryQueue(name, durable, exclusive, autoDelete, arguments, owner);
+            queues.put(name, queue);
+        } else if (queue.exclusive && (queue.owner != owner)) {
+            throw new IOException("The queue \"" + name + "\" is exclusively used by another connection.");
+        } else if (!normalize(queue.arguments).equals(normalize(arguments))) {
+            // RabbitMQ refuses to redeclare a queue with different arguments
+            throw new IOException("PRECONDITION_FAILED - inequivalent arguments for queue \"" + name
+                    + "\" (declared: " + queue.arguments + ", requested: " + arguments + ").");
+        }
+        return queue;
+    }
+
+    private static Map<String, Object> normalize(Map<String, Object> arguments) {
+        return (arguments == null) ? Collections.<String, Object> emptyMap() : arguments;
+    }
+
+    protected synchronized InMemoryQueue getQueue(String name) throws IOException {
+        InMemoryQueue queue = queues.get(name);
+        if (queue == null) {
+            throw new IOException("There is no queue with the name \"" + name + "\".");
+        }
+        return queue;
+    }
+
+    protected synchronized boolean hasQueue(String name) {
+        return queues.containsKey(name);
+    }
+
+    protected synchronized int deleteQueue(InMemoryQueue queue) {
+        if (queues.get(queue.name) != queue) {
+            return 0;
+        }
+        queues.remove(queue.name);
+        Iterator<InMemoryExchange> iterator = exchanges.values().iterator();
+        InMemoryExchange exchange;
+        while (iterator.hasNext()) {
+            exchange = iterator.next();
+            Iterator<Binding> bindingIterator = exchange.bindings.iterator();
+            while (bindingIterator.hasNext()) {
+                if (bindingIterator.next().queue == queue) {
+                    bindingIterator.remove();
+                }
+            }
+            if (exchange.autoDelete && exchange.bindings.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        return queue.delete();
+    }
+
+    protected synchronized void declareExchange(String name, String type, boolean autoDelete) throws IOException {
+        if (!InMemoryExchange.FANOUT_TYPE.equals(type) && !InMemoryExchange.DIRECT_TYPE.equals(type)) {
+            throw new IOException("The exchange type \"" + type + "\" is not supported.");
+        }
+        if (!exchanges.containsKey(name)) {
+            exchanges.put(name, new InMemoryExchange(name, type, autoDelete));
+        }
+    }
+
+    protected synchronized boolean hasExchange(String name) {
+        return exchanges.containsKey(name);
+    }
+
+    protected synchronized void deleteExchange(String name) {
+        exchanges.remove(name);
+    }
+
+    protected synchronized void bind(String queueName, String exchangeName, String routingKey) throws IOException {
+        InMemoryQueue queue = getQueue(queueName);
+        Binding binding = new Binding(queue, routingKey);
+        InMemoryExchange exchange = getExchange(exchangeName);
+        if (!exchange.bindings.contains(binding)) {
+            exchange.bindings.add(binding);
+        }
+    }
+
+    protected synchronized void unbind(String queueName, String exchangeName, String routingKey) throws IOException {
+        InMemoryExchange exchange = getExchange(exchangeName);
+        exchange.bindings.remove(new Binding(getQueue(queueName), routingKey));
+        if (exchange.autoDelete && exchange.bindings.isEmpty()) {
+            exchanges.remove(exchangeName);
+        }
+    }
+
+    private InMemoryExchange getExchange(String name) throws IOException {
+        InMemoryExchange exchange = exchanges.get(name);
+        if (exchange == null) {
+            throw new IOException("There is no exchange with the name \"" + name + "\".");
+        }
+        return exchange;
+    }
+
+    /**
+     * Determines the queues to which a message with the given exchange and
+     * routing key has to be sent.
+     *
+     * @param exchangeName
+     *            the name of the exchange the message is published to
+     * @param routingKey
+     *            the routing key of the message
+     * @return the list of queues the message has to be added to
+     * @throws IOException
+     *             if the exchange does not exist
+     */
+    protected synchronized List<InMemoryQueue> route(String exchangeName, String routingKey) throws IOException {
+        List<InMemoryQueue> targets = new ArrayList<InMemoryQueue>(1);
+        if (DEFAULT_EXCHANGE_NAME.equals(exchangeName)) {
+            InMemoryQueue queue = queues.get(routingKey);
+            if (queue != null) {
+                targets.add(queue);
+            }
+        } else {
+            getExchange(exchangeName).route(routingKey, targets);
+        }
+        return targets;
+    }
+
+    /**
+     * Removes the exclusive queues of the given connection.
+     *
+     * @param connection
+     *            the connection that has been closed
+     */
+    protected synchronized void connectionClosed(InMemoryConnection connection) {
+        List<InMemoryQueue> exclusiveQueues = new ArrayList<InMemoryQueue>();
+        for (InMemoryQueue queue : queues.values()) {
+            if (queue.exclusive && (queue.owner == connection)) {
+                exclusiveQueues.add(queue);
+            }
+        }
+        for (InMemoryQueue queue : exclusiveQueues) {
+            deleteQueue(queue);
+        }
+    }
+}
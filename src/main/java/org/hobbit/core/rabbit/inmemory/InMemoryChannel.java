@@ -0,0 +1,892 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit.inmemory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hobbit.core.rabbit.inmemory.InMemoryQueue.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.AMQP.Exchange;
+import com.rabbitmq.client.AMQP.Queue;
+import com.rabbitmq.client.AMQP.Tx;
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Command;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.FlowListener;
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.Method;
+import com.rabbitmq.client.ReturnListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.rabbitmq.client.impl.AMQImpl;
+
+/**
+ * A {@link Channel} of an {@link InMemoryConnection}. Similar to the RabbitMQ
+ * client, the callbacks of the consumers and listeners of a channel are
+ * executed sequentially by a single thread that is owned by the channel.
+ */
+public class InMemoryChannel implements Channel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryChannel.class);
+
+    private static final AtomicInteger DISPATCHER_THREAD_COUNT = new AtomicInteger(0);
+
+    private static final ThreadFactory DISPATCHER_THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                    "in-memory-channel-dispatcher-" + DISPATCHER_THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final InMemoryConnection connection;
+    private final InMemoryBroker broker;
+    private final int channelNumber;
+    /**
+     * Executor that calls the consumers and listeners of this channel.
+     */
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(DISPATCHER_THREAD_FACTORY);
+    private final AtomicLong deliveryTagCounter = new AtomicLong(0);
+    /**
+     * Messages that have been delivered but not acknowledged, yet.
+     */
+    private final NavigableMap<Long, UnackedMessage> unackedMessages = new ConcurrentSkipListMap<Long, UnackedMessage>();
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<String, Subscription>();
+    private final List<ConfirmListener> confirmListeners = new CopyOnWriteArrayList<ConfirmListener>();
+    private final List<ReturnListener> returnListeners = new CopyOnWriteArrayList<ReturnListener>();
+    private final List<FlowListener> flowListeners = new CopyOnWriteArrayList<FlowListener>();
+    private final List<ShutdownListener> shutdownListeners = new CopyOnWriteArrayList<ShutdownListener>();
+    private volatile ShutdownSignalException closeReason = null;
+    private volatile int prefetchCount = 0;
+    private volatile Consumer defaultConsumer = null;
+    private boolean confirmMode = false;
+    private long nextPublishSeqNo = 0;
+    /**
+     * Flag indicating whether a message has been rejected since the last call
+     * of one of the waitForConfirms methods.
+     */
+    private boolean nackedSinceLastWait = false;
+
+    protected InMemoryChannel(InMemoryConnection connection, int channelNumber) {
+        this.connection = connection;
+        this.broker = connection.getBroker();
+        this.channelNumber = channelNumber;
+    }
+
+    /**
+     * Delivers the given message of the given queue to the consumer of the
+     * given subscription. This method is called by the queue.
+     */
+    protected void deliver(final Subscription subscription, InMemoryQueue queue, final InMemoryMessage message) {
+        final long deliveryTag = deliveryTagCounter.incrementAndGet();
+        if (!subscription.autoAck) {
+            subscription.unackedMessages.incrementAndGet();
+            unackedMessages.put(deliveryTag, new UnackedMessage(queue, message, subscription));
+        }
+        final Envelope envelope = new Envelope(deliveryTag, message.redelivered, message.exchange,
+                message.routingKey);
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    subscription.consumer.handleDelivery(subscription.consumerTag, envelope, message.properties,
+                            message.body);
+                } catch (Throwable e) {
+                    LOGGER.error("Consumer " + subscription.consumerTag + " threw an exception while handling a delivery.",
+                            e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Informs the channel that the given subscription has been cancelled by
+     * the broker, e.g., because the queue has been deleted.
+     */
+    protected void cancelledByBroker(final Subscription subscription) {
+        if (subscriptions.remove(subscription.consumerTag) != null) {
+            dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        subscription.consumer.handleCancel(subscription.consumerTag);
+                    } catch (Throwable e) {
+                        LOGGER.error("Exception while informing consumer about its cancellation.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    protected int getPrefetchCount() {
+        return prefetchCount;
+    }
+
+    private void dispatch(Runnable runnable) {
+        if (!dispatcher.isShutdown()) {
+            execute(runnable);
+        }
+    }
+
+    /**
+     * Runs the given consumer task using the dispatcher thread of this
+     * channel. If the connection has been created with a consumer executor,
+     * the dispatcher thread hands the task over to this executor and waits
+     * for it to keep the order of the deliveries.
+     */
+    private void execute(final Runnable runnable) {
+        final ExecutorService consumerExecutor = connection.getConsumerExecutor();
+        if (consumerExecutor == null) {
+            dispatcher.execute(runnable);
+        } else {
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        consumerExecutor.submit(runnable).get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RejectedExecutionException e) {
+                        LOGGER.debug("The consumer executor has been shut down. Dropping consumer task.");
+                    } catch (ExecutionException e) {
+                        LOGGER.error("Exception while running consumer task.", e.getCause());
+                    }
+                }
+            });
+        }
+    }
+
+    private void ensureIsOpen() {
+        if (closeReason != null) {
+            throw new AlreadyClosedException(closeReason);
+        }
+    }
+
+    @Override
+    public int getChannelNumber() {
+        return channelNumber;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public void close() {
+        abort();
+    }
+
+    @Override
+    public void close(int closeCode, String closeMessage) {
+        abort();
+    }
+
+    @Override
+    public boolean flowBlocked() {
+        return false;
+    }
+
+    @Override
+    public void abort() {
+        synchronized (this) {
+            if (closeReason != null) {
+                return;
+            }
+            closeReason = new ShutdownSignalException(false, true, null, this);
+        }
+        for (Subscription subscription : new ArrayList<Subscription>(subscriptions.values())) {
+            removeSubscription(subscription);
+            final Subscription s = subscription;
+            dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        s.consumer.handleShutdownSignal(s.consumerTag, closeReason);
+                    } catch (Throwable e) {
+                        LOGGER.error("Exception while informing consumer about the shutdown of its channel.", e);
+                    }
+                }
+            });
+        }
+        requeueUnackedMessages(unackedMessages);
+        connection.channelClosed(this);
+        dispatch(new Runnable() {
+            @Override
+            public void run() {
+                notifyListeners();
+            }
+        });
+        dispatcher.shutdown();
+    }
+
+    @Override
+    public void abort(int closeCode, String closeMessage) {
+        abort();
+    }
+
+    private void removeSubscription(Subscription subscription) {
+        subscriptions.remove(subscription.consumerTag);
+        if (subscription.queue.removeSubscription(subscription)) {
+            broker.deleteQueue(subscription.queue);
+        }
+    }
+
+    private void requeueUnackedMessages(Map<Long, UnackedMessage> messages) {
+        List<UnackedMessage> requeuedMessages = new ArrayList<UnackedMessage>(messages.values());
+        messages.clear();
+        for (UnackedMessage message : requeuedMessages) {
+            if (message.subscription != null) {
+                message.subscription.unackedMessages.decrementAndGet();
+            }
+            message.queue.requeue(message.message);
+        }
+    }
+
+    @Override
+    public void addReturnListener(ReturnListener listener) {
+        returnListeners.add(listener);
+    }
+
+    @Override
+    public boolean removeReturnListener(ReturnListener listener) {
+        return returnListeners.remove(listener);
+    }
+
+    @Override
+    public void clearReturnListeners() {
+        returnListeners.clear();
+    }
+
+    @Override
+    public void addFlowListener(FlowListener listener) {
+        // the in-memory broker never uses flow control
+        flowListeners.add(listener);
+    }
+
+    @Override
+    public boolean removeFlowListener(FlowListener listener) {
+        return flowListeners.remove(listener);
+    }
+
+    @Override
+    public void clearFlowListeners() {
+        flowListeners.clear();
+    }
+
+    @Override
+    public void addConfirmListener(ConfirmListener listener) {
+        confirmListeners.add(listener);
+    }
+
+    @Override
+    public boolean removeConfirmListener(ConfirmListener listener) {
+        return confirmListeners.remove(listener);
+    }
+
+    @Override
+    public void clearConfirmListeners() {
+        confirmListeners.clear();
+    }
+
+    @Override
+    public Consumer getDefaultConsumer() {
+        return defaultConsumer;
+    }
+
+    @Override
+    public void setDefaultConsumer(Consumer consumer) {
+        this.defaultConsumer = consumer;
+    }
+
+    @Override
+    public void basicQos(int prefetchSize, int prefetchCount, boolean global) throws IOException {
+        basicQos(prefetchCount);
+    }
+
+    @Override
+    public void basicQos(int prefetchCount, boolean global) throws IOException {
+        basicQos(prefetchCount);
+    }
+
+    @Override
+    public void basicQos(int prefetchCount) throws IOException {
+        ensureIsOpen();
+        this.prefetchCount = prefetchCount;
+        // the consumers might be able to accept more messages now
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.queue.dispatch();
+        }
+    }
+
+    @Override
+    public void basicPublish(String exchange, String routingKey, BasicProperties props, byte[] body)
+            throws IOException {
+        basicPublish(exchange, routingKey, false, false, props, body);
+    }
+
+    @Override
+    public void basicPublish(String exchange, String routingKey, boolean mandatory, BasicProperties props,
+            byte[] body) throws IOException {
+        basicPublish(exchange, routingKey, mandatory, false, props, body);
+    }
+
+    @Override
+    public void basicPublish(String exchange, final String routingKey, boolean mandatory, boolean immediate,
+            BasicProperties props, final byte[] body) throws IOException {
+        ensureIsOpen();
+        final String exchangeName = (exchange == null) ? InMemoryBroker.DEFAULT_EXCHANGE_NAME : exchange;
+        final BasicProperties properties = (props == null) ? new BasicProperties() : props;
+        List<InMemoryQueue> targets = broker.route(exchangeName, routingKey);
+        boolean rejected = false;
+        for (InMemoryQueue queue : targets) {
+            if (!queue.enqueue(new InMemoryMessage(exchangeName, routingKey, properties, body))) {
+                rejected = true;
+            }
+        }
+        final boolean confirmed = !rejected;
+        if (mandatory && targets.isEmpty()) {
+            dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    for (ReturnListener listener : returnListeners) {
+                        try {
+                            listener.handleReturn(AMQP.NO_ROUTE, "NO_ROUTE", exchangeName, routingKey, properties,
+                                    body);
+                        } catch (Throwable e) {
+                            LOGGER.error("Exception in return listener.", e);
+                        }
+                    }
+                }
+            });
+        }
+        synchronized (this) {
+            if (confirmMode) {
+                final long sequenceNumber = nextPublishSeqNo;
+                ++nextPublishSeqNo;
+                if (!confirmed) {
+                    nackedSinceLastWait = true;
+                }
+                dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (ConfirmListener listener : confirmListeners) {
+                            try {
+                                if (confirmed) {
+                                    listener.handleAck(sequenceNumber, false);
+                                } else {
+                                    listener.handleNack(sequenceNumber, false);
+                                }
+                            } catch (Throwable e) {
+                                LOGGER.error("Exception in confirm listener.", e);
+                            }
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    @Override
+    public Exchange.DeclareOk exchangeDeclare(String exchange, String type) throws IOException {
+        return exchangeDeclare(exchange, type, false, false, false, null);
+    }
+
+    @Override
+    public Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable) throws IOException {
+        return exchangeDeclare(exchange, type, durable, false, false, null);
+    }
+
+    @Override
+    public Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable, boolean autoDelete,
+            Map<String, Object> arguments) throws IOException {
+        return exchangeDeclare(exchange, type, durable, autoDelete, false, arguments);
+    }
+
+    @Override
+    public Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable, boolean autoDelete,
+            boolean internal, Map<String, Object> arguments) throws IOException {
+        ensureIsOpen();
+        broker.declareExchange(exchange, type, autoDelete);
+        return new AMQImpl.Exchange.DeclareOk();
+    }
+
+    @Override
+    public void exchangeDeclareNoWait(String exchange, String type, boolean durable, boolean autoDelete,
+            boolean internal, Map<String, Object> arguments) throws IOException {
+        exchangeDeclare(exchange, type, durable, autoDelete, internal, arguments);
+    }
+
+    @Override
+    public Exchange.DeclareOk exchangeDeclarePassive(String name) throws IOException {
+        ensureIsOpen();
+        if (!broker.hasExchange(name)) {
+            throw new IOException("There is no exchange with the name \"" + name + "\".");
+        }
+        return new AMQImpl.Exchange.DeclareOk();
+    }
+
+    @Override
+    public Exchange.DeleteOk exchangeDelete(String exchange, boolean ifUnused) throws IOException {
+        return exchangeDelete(exchange);
+    }
+
+    @Override
+    public void exchangeDeleteNoWait(String exchange, boolean ifUnused) throws IOException {
+        exchangeDelete(exchange);
+    }
+
+    @Override
+    public Exchange.DeleteOk exchangeDelete(String exchange) throws IOException {
+        ensureIsOpen();
+        broker.deleteExchange(exchange);
+        return new AMQImpl.Exchange.DeleteOk();
+    }
+
+    @Override
+    public Exchange.BindOk exchangeBind(String destination, String source, String routingKey) throws IOException {
+        throw new UnsupportedOperationException("Exchange to exchange bindings are not supported.");
+    }
+
+    @Override
+    public Exchange.BindOk exchangeBind(String destination, String source, String routingKey,
+            Map<String, Object> arguments) throws IOException {
+        throw new UnsupportedOperationException("Exchange to exchange bindings are not supported.");
+    }
+
+    @Override
+    public void exchangeBindNoWait(String destination, String source, String routingKey,
+            Map<String, Object> arguments) throws IOException {
+        throw new UnsupportedOperationException("Exchange to exchange bindings are not supported.");
+    }
+
+    @Override
+    public Exchange.UnbindOk exchangeUnbind(String destination, String source, String routingKey)
+            throws IOException {
+        throw new UnsupportedOperationException("Exchange to exchange bindings are not supported.");
+    }
+
+    @Override
+    public Exchange.UnbindOk exchangeUnbind(String destination, String source, String routingKey,
+            Map<String, Object> arguments) throws IOException {
+        throw new UnsupportedOperationException("Exchange to exchange bindings are not supported.");
+    }
+
+    @Override
+    public void exchangeUnbindNoWait(String destination, String source, String routingKey,
+            Map<String, Object> arguments) throws IOException {
+        throw new UnsupportedOperationException("Exchange to exchange bindings are not supported.");
+    }
+
+    @Override
+    public Queue.DeclareOk queueDeclare() throws IOException {
+        return queueDeclare(null, false, true, true, null);
+    }
+
+    @Override
+    public Queue.DeclareOk queueDeclare(String queue, boolean durable, boolean exclusive, boolean autoDelete,
+            Map<String, Object> arguments) throws IOException {
+        ensureIsOpen();
+        InMemoryQueue q = broker.declareQueue(queue, durable, exclusive, autoDelete, arguments, connection);
+        return new AMQImpl.Queue.DeclareOk(q.name, q.messageCount(), q.consumerCount());
+    }
+
+    @Override
+    public void queueDeclareNoWait(String queue, boolean durable, boolean exclusive, boolean autoDelete,
+            Map<String, Object> arguments) throws IOException {
+        queueDeclare(queue, durable, exclusive, autoDelete, arguments);
+    }
+
+    @Override
+    public Queue.DeclareOk queueDeclarePassive(String queue) throws IOException {
+        ensureIsOpen();
+        InMemoryQueue q = broker.getQueue(queue);
+        return new AMQImpl.Queue.DeclareOk(q.name, q.messageCount(), q.consumerCount());
+    }
+
+    @Override
+    public Queue.DeleteOk queueDelete(String queue) throws IOException {
+        return queueDelete(queue, false, false);
+    }
+
+    @Override
+    public Queue.DeleteOk queueDelete(String queue, boolean ifUnused, boolean ifEmpty) throws IOException {
+        ensureIsOpen();
+        if (!broker.hasQueue(queue)) {
+            return new AMQImpl.Queue.DeleteOk(0);
+        }
+        InMemoryQueue q = broker.getQueue(queue);
+        if ((ifUnused && (q.consumerCount() > 0)) || (ifEmpty && (q.messageCount() > 0))) {
+            throw new IOException("The queue \"" + queue + "\" is in use or not empty.");
+        }
+        return new AMQImpl.Queue.DeleteOk(broker.deleteQueue(q));
+    }
+
+    @Override
+    public void queueDeleteNoWait(String queue, boolean ifUnused, boolean ifEmpty) throws IOException {
+        queueDelete(queue, ifUnused, ifEmpty);
+    }
+
+    @Override
+    public Queue.BindOk queueBind(String queue, String exchange, String routingKey) throws IOException {
+        return queueBind(queue, exchange, routingKey, null);
+    }
+
+    @Override
+    public Queue.BindOk queueBind(String queue, String exchange, String routingKey, Map<String, Object> arguments)
+            throws IOException {
+        ensureIsOpen();
+        broker.bind(queue, exchange, routingKey);
+        return new AMQImpl.Queue.BindOk();
+    }
+
+    @Override
+    public void queueBindNoWait(String queue, String exchange, String routingKey, Map<String, Object> arguments)
+            throws IOException {
+        queueBind(queue, exchange, routingKey, arguments);
+    }
+
+    @Override
+    public Queue.UnbindOk queueUnbind(String queue, String exchange, String routingKey) throws IOException {
+        return queueUnbind(queue, exchange, routingKey, null);
+    }
+
+    @Override
+    public Queue.UnbindOk queueUnbind(String queue, String exchange, String routingKey,
+            Map<String, Object> arguments) throws IOException {
+        ensureIsOpen();
+        broker.unbind(queue, exchange, routingKey);
+        return new AMQImpl.Queue.UnbindOk();
+    }
+
+    @Override
+    public Queue.PurgeOk queuePurge(String queue) throws IOException {
+        ensureIsOpen();
+        return new AMQImpl.Queue.PurgeOk(broker.getQueue(queue).purge());
+    }
+
+    @Override
+    public GetResponse basicGet(String queue, boolean autoAck) throws IOException {
+        ensureIsOpen();
+        InMemoryQueue q = broker.getQueue(queue);
+        InMemoryMessage message = q.poll();
+        if (message == null) {
+            return null;
+        }
+        long deliveryTag = deliveryTagCounter.incrementAndGet();
+        if (!autoAck) {
+            unackedMessages.put(deliveryTag, new UnackedMessage(q, message, null));
+        }
+        return new GetResponse(new Envelope(deliveryTag, message.redelivered, message.exchange, message.routingKey),
+                message.properties, message.body, q.messageCount());
+    }
+
+    @Override
+    public void basicAck(long deliveryTag, boolean multiple) throws IOException {
+        ensureIsOpen();
+        Set<InMemoryQueue> queues = new HashSet<InMemoryQueue>();
+        for (UnackedMessage message : removeUnackedMessages(deliveryTag, multiple)) {
+            if (message.subscription != null) {
+                message.subscription.unackedMessages.decrementAndGet();
+            }
+            queues.add(message.queue);
+        }
+        // the consumers might be able to accept further messages
+        for (InMemoryQueue queue : queues) {
+            queue.dispatch();
+        }
+    }
+
+    @Override
+    public void basicNack(long deliveryTag, boolean multiple, boolean requeue) throws IOException {
+        ensureIsOpen();
+        Set<InMemoryQueue> queues = new HashSet<InMemoryQueue>();
+        for (UnackedMessage message : removeUnackedMessages(deliveryTag, multiple)) {
+            if (message.subscription != null) {
+                message.subscription.unackedMessages.decrementAndGet();
+            }
+            if (requeue) {
+                message.queue.requeue(message.message);
+            } else {
+                queues.add(message.queue);
+            }
+        }
+        for (InMemoryQueue queue : queues) {
+            queue.dispatch();
+        }
+    }
+
+    @Override
+    public void basicReject(long deliveryTag, boolean requeue) throws IOException {
+        basicNack(deliveryTag, false, requeue);
+    }
+
+    private List<UnackedMessage> removeUnackedMessages(long deliveryTag, boolean multiple) {
+        List<UnackedMessage> messages = new ArrayList<UnackedMessage>();
+        if (multiple) {
+            NavigableMap<Long, UnackedMessage> acknowledged = unackedMessages.headMap(deliveryTag, true);
+            for (Entry<Long, UnackedMessage> entry : acknowledged.entrySet()) {
+                if (unackedMessages.remove(entry.getKey()) != null) {
+                    messages.add(entry.getValue());
+                }
+            }
+        } else {
+            UnackedMessage message = unackedMessages.remove(deliveryTag);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public String basicConsume(String queue, Consumer callback) throws IOException {
+        return basicConsume(queue, false, "", false, false, null, callback);
+    }
+
+    @Override
+    public String basicConsume(String queue, boolean autoAck, Consumer callback) throws IOException {
+        return basicConsume(queue, autoAck, "", false, false, null, callback);
+    }
+
+    @Override
+    public String basicConsume(String queue, boolean autoAck, Map<String, Object> arguments, Consumer callback)
+            throws IOException {
+        return basicConsume(queue, autoAck, "", false, false, arguments, callback);
+    }
+
+    @Override
+    public String basicConsume(String queue, boolean autoAck, String consumerTag, Consumer callback)
+            throws IOException {
+        return basicConsume(queue, autoAck, consumerTag, false, false, null, callback);
+    }
+
+    @Override
+    public String basicConsume(String queue, boolean autoAck, String consumerTag, boolean noLocal,
+            boolean exclusive, Map<String, Object> arguments, final Consumer callback) throws IOException {
+        ensureIsOpen();
+        InMemoryQueue q = broker.getQueue(queue);
+        final String tag = ((consumerTag == null) || consumerTag.isEmpty())
+                ? ("amq.ctag-" + UUID.randomUUID().toString()) : consumerTag;
+        Subscription subscription = new Subscription(tag, q, this, callback, autoAck);
+        subscriptions.put(tag, subscription);
+        // make sure that the consumer is informed before the first delivery
+        dispatch(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    callback.handleConsumeOk(tag);
+                } catch (Throwable e) {
+                    LOGGER.error("Exception while informing consumer about its registration.", e);
+                }
+            }
+        });
+        q.addSubscription(subscription);
+        return tag;
+    }
+
+    @Override
+    public void basicCancel(String consumerTag) throws IOException {
+        ensureIsOpen();
+        final Subscription subscription = subscriptions.get(consumerTag);
+        if (subscription == null) {
+            throw new IOException("Unknown consumer tag \"" + consumerTag + "\".");
+        }
+        removeSubscription(subscription);
+        dispatch(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    subscription.consumer.handleCancelOk(subscription.consumerTag);
+                } catch (Throwable e) {
+                    LOGGER.error("Exception while informing consumer about its cancellation.", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public AMQP.Basic.RecoverOk basicRecover() throws IOException {
+        return basicRecover(true);
+    }
+
+    @Override
+    public AMQP.Basic.RecoverOk basicRecover(boolean requeue) throws IOException {
+        ensureIsOpen();
+        requeueUnackedMessages(unackedMessages);
+        return new AMQImpl.Basic.RecoverOk();
+    }
+
+    @Override
+    public Tx.SelectOk txSelect() throws IOException {
+        throw new UnsupportedOperationException("Transactions are not supported.");
+    }
+
+    @Override
+    public Tx.CommitOk txCommit() throws IOException {
+        throw new UnsupportedOperationException("Transactions are not supported.");
+    }
+
+    @Override
+    public Tx.RollbackOk txRollback() throws IOException {
+        throw new UnsupportedOperationException("Transactions are not supported.");
+    }
+
+    @Override
+    public AMQP.Confirm.SelectOk confirmSelect() throws IOException {
+        ensureIsOpen();
+        synchronized (this) {
+            if (!confirmMode) {
+                confirmMode = true;
+                nextPublishSeqNo = 1;
+            }
+        }
+        return new AMQImpl.Confirm.SelectOk();
+    }
+
+    @Override
+    public synchronized long getNextPublishSeqNo() {
+        return nextPublishSeqNo;
+    }
+
+    @Override
+    public synchronized boolean waitForConfirms() throws InterruptedException {
+        // messages are routed synchronously, i.e., all published messages have
+        // already been confirmed or rejected
+        boolean result = !nackedSinceLastWait;
+        nackedSinceLastWait = false;
+        return result;
+    }
+
+    @Override
+    public boolean waitForConfirms(long timeout) throws InterruptedException {
+        return waitForConfirms();
+    }
+
+    @Override
+    public void waitForConfirmsOrDie() throws IOException, InterruptedException {
+        if (!waitForConfirms()) {
+            close();
+            throw new IOException("At least one message has been rejected (nack-ed).");
+        }
+    }
+
+    @Override
+    public void waitForConfirmsOrDie(long timeout) throws IOException, InterruptedException {
+        waitForConfirmsOrDie();
+    }
+
+    @Override
+    public void asyncRpc(Method method) throws IOException {
+        throw new UnsupportedOperationException("Raw AMQP methods are not supported.");
+    }
+
+    @Override
+    public Command rpc(Method method) throws IOException {
+        throw new UnsupportedOperationException("Raw AMQP methods are not supported.");
+    }
+
+    @Override
+    public long messageCount(String queue) throws IOException {
+        ensureIsOpen();
+        return broker.getQueue(queue).messageCount();
+    }
+
+    @Override
+    public long consumerCount(String queue) throws IOException {
+        ensureIsOpen();
+        return broker.getQueue(queue).consumerCount();
+    }
+
+    @Override
+    public void addShutdownListener(ShutdownListener listener) {
+        shutdownListeners.add(listener);
+    }
+
+    @Override
+    public void removeShutdownListener(ShutdownListener listener) {
+        shutdownListeners.remove(listener);
+    }
+
+    @Override
+    public ShutdownSignalException getCloseReason() {
+        return closeReason;
+    }
+
+    @Override
+    public void notifyListeners() {
+        for (ShutdownListener listener : shutdownListeners) {
+            try {
+                listener.shutdownCompleted(closeReason);
+            } catch (Throwable e) {
+                LOGGER.error("Exception while notifying shutdown listener.", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return closeReason == null;
+    }
+
+    /**
+     * A message that has been delivered but not acknowledged, yet.
+     */
+    private static class UnackedMessage {
+        public final InMemoryQueue queue;
+        public final InMemoryMessage message;
+        /**
+         * The subscription the message has been delivered to or {@code null} if
+         * it has been retrieved using a basic get.
+         */
+        public final Subscription subscription;
+
+        public UnackedMessage(InMemoryQueue queue, InMemoryMessage message, Subscription subscription) {
+            this.queue = queue;
+            this.message = message;
+            this.subscription = subscription;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit.inmemory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.BlockedListener;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ExceptionHandler;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.rabbitmq.client.impl.DefaultExceptionHandler;
+
+/**
+ * A {@link Connection} to an {@link InMemoryBroker}.
+ */
+public class InMemoryConnection implements Connection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryConnection.class);
+
+    private final InMemoryBroker broker;
+    private final Map<Integer, InMemoryChannel> channels = new ConcurrentHashMap<Integer, InMemoryChannel>();
+    private final AtomicInteger nextChannelNumber = new AtomicInteger(1);
+    private final List<ShutdownListener> shutdownListeners = new CopyOnWriteArrayList<ShutdownListener>();
+    private final List<BlockedListener> blockedListeners = new CopyOnWriteArrayList<BlockedListener>();
+    private final ExceptionHandler exceptionHandler = new DefaultExceptionHandler();
+    private volatile ShutdownSignalException closeReason = null;
+    private final ExecutorService consumerExecutor;
+
+    protected InMemoryConnection(InMemoryBroker broker, ExecutorService consumerExecutor) {
+        this.broker = broker;
+        this.consumerExecutor = consumerExecutor;
+    }
+
+    public InMemoryBroker getBroker() {
+        return broker;
+    }
+
+    /**
+     * @return the executor that runs the consumers of this connection or
+     *         {@code null} if every channel uses an own thread
+     */
+    public ExecutorService getConsumerExecutor() {
+        return consumerExecutor;
+    }
+
+    @Override
+    public Channel createChannel() throws IOException {
+        return createChannel(nextChannelNumber.getAndIncrement());
+    }
+
+    @Override
+    public Channel createChannel(int channelNumber) throws IOException {
+        ensureIsOpen();
+        synchronized (channels) {
+            if (channels.containsKey(channelNumber)) {
+                return null;
+            }
+            InMemoryChannel channel = new InMemoryChannel(this, channelNumber);
+            channels.put(channelNumber, channel);
+            return channel;
+        }
+    }
+
+    /**
+     * Informs the connection that the given channel has been closed.
+     *
+     * @param channel
+     *            the channel that has been closed
+     */
+    protected void channelClosed(InMemoryChannel channel) {
+        channels.remove(channel.getChannelNumber());
+    }
+
+    protected void ensureIsOpen() {
+        if (closeReason != null) {
+            throw new AlreadyClosedException(closeReason);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        abort();
+    }
+
+    @Override
+    public void close(int closeCode, String closeMessage) throws IOException {
+        abort();
+    }
+
+    @Override
+    public void close(int timeout) throws IOException {
+        abort();
+    }
+
+    @Override
+    public void close(int closeCode, String closeMessage, int timeout) throws IOException {
+        abort();
+    }
+
+    @Override
+    public void abort() {
+        synchronized (this) {
+            if (closeReason != null) {
+                return;
+            }
+            closeReason = new ShutdownSignalException(true, true, null, this);
+        }
+        for (InMemoryChannel channel : new ArrayList<InMemoryChannel>(channels.values())) {
+            channel.abort();
+        }
+        broker.connectionClosed(this);
+        notifyListeners();
+    }
+
+    @Override
+    public void abort(int closeCode, String closeMessage) {
+        abort();
+    }
+
+    @Override
+    public void abort(int timeout) {
+        abort();
+    }
+
+    @Override
+    public void abort(int closeCode, String closeMessage, int timeout) {
+        abort();
+    }
+
+    @Override
+    public void addShutdownListener(ShutdownListener listener) {
+        shutdownListeners.add(listener);
+    }
+
+    @Override
+    public void removeShutdownListener(ShutdownListener listener) {
+        shutdownListeners.remove(listener);
+    }
+
+    @Override
+    public ShutdownSignalException getCloseReason() {
+        return closeReason;
+    }
+
+    @Override
+    public void notifyListeners() {
+        for (ShutdownListener listener : shutdownListeners) {
+            try {
+                listener.shutdownCompleted(closeReason);
+            } catch (Exception e) {
+                LOGGER.error("Exception while notifying shutdown listener.", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return closeReason == null;
+    }
+
+    @Override
+    public InetAddress getAddress() {
+        return InetAddress.getLoopbackAddress();
+    }
+
+    @Override
+    public int getPort() {
+        return 0;
+    }
+
+    @Override
+    public int getChannelMax() {
+        return 0;
+    }
+
+    @Override
+    public int getFrameMax() {
+        return 0;
+    }
+
+    @Override
+    public int getHeartbeat() {
+        return 0;
+    }
+
+    @Override
+    public Map<String, Object> getClientProperties() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, Object> getServerProperties() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void addBlockedListener(BlockedListener listener) {
+        // the in-memory broker never blocks a connection
+        blockedListeners.add(listener);
+    }
+
+    @Override
+    public boolean removeBlockedListener(BlockedListener listener) {
+        return blockedListeners.remove(listener);
+    }
+
+    @Override
+    public void clearBlockedListeners() {
+        blockedListeners.clear();
+    }
+
+    @Override
+    public ExceptionHandler getExceptionHandler() {
+        return exceptionHandler;
+    }
+}
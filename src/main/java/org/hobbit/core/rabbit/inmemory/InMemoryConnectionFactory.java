@@ -0,0 +1,70 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit.inmemory;
+
+import java.util.concurrent.ExecutorService;
+
+import com.rabbitmq.client.Address;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+/**
+ * A {@link ConnectionFactory} that creates connections to an
+ * {@link InMemoryBroker} instead of connecting to a RabbitMQ broker. All
+ * network related settings (host, port, recovery, etc.) are ignored.
+ */
+public class InMemoryConnectionFactory extends ConnectionFactory {
+
+    private final InMemoryBroker broker;
+
+    /**
+     * Constructor using the {@link InMemoryBroker#getDefault()} broker.
+     */
+    public InMemoryConnectionFactory() {
+        this(InMemoryBroker.getDefault());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param broker
+     *            the broker to which the connections will be created
+     */
+    public InMemoryConnectionFactory(InMemoryBroker broker) {
+        this.broker = broker;
+    }
+
+    @Override
+    public Connection newConnection() {
+        return broker.newConnection();
+    }
+
+    @Override
+    public Connection newConnection(ExecutorService executor) {
+        return broker.newConnection(executor);
+    }
+
+    @Override
+    public Connection newConnection(Address[] addrs) {
+        return broker.newConnection();
+    }
+
+    @Override
+    public Connection newConnection(ExecutorService executor, Address[] addrs) {
+        return broker.newConnection(executor);
+    }
+}
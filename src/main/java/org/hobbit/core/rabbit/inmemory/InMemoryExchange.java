@@ -0,0 +1,91 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit.inmemory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An exchange of the {@link InMemoryBroker}. It supports the
+ * {@value #FANOUT_TYPE} and the {@value #DIRECT_TYPE} types.
+ */
+class InMemoryExchange {
+
+    public static final String FANOUT_TYPE = "fanout";
+    public static final String DIRECT_TYPE = "direct";
+
+    public final String name;
+    public final String type;
+    public final boolean autoDelete;
+    /**
+     * The bindings of this exchange. Note that the access to this list has to
+     * be synchronized using the broker.
+     */
+    public final List<Binding> bindings = new ArrayList<Binding>();
+
+    public InMemoryExchange(String name, String type, boolean autoDelete) {
+        this.name = name;
+        this.type = type;
+        this.autoDelete = autoDelete;
+    }
+
+    /**
+     * Adds the queues to which a message with the given routing key has to be
+     * routed to the given list.
+     *
+     * @param routingKey
+     *            the routing key of the message
+     * @param targets
+     *            the list to which the queues will be added
+     */
+    public void route(String routingKey, List<InMemoryQueue> targets) {
+        for (Binding binding : bindings) {
+            if (FANOUT_TYPE.equals(type) || binding.routingKey.equals(routingKey)) {
+                if (!targets.contains(binding.queue)) {
+                    targets.add(binding.queue);
+                }
+            }
+        }
+    }
+
+    /**
+     * A binding of a queue to an exchange.
+     */
+    public static class Binding {
+        public final InMemoryQueue queue;
+        public final String routingKey;
+
+        public Binding(InMemoryQueue queue, String routingKey) {
+            this.queue = queue;
+            this.routingKey = routingKey;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Binding)) {
+                return false;
+            }
+            Binding other = (Binding) obj;
+            return (queue == other.queue) && routingKey.equals(other.routingKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * queue.hashCode() + routingKey.hashCode();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit.inmemory;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+/**
+ * A single message stored in an {@link InMemoryQueue}.
+ */
+class InMemoryMessage {
+
+    public final String exchange;
+    public final String routingKey;
+    public final BasicProperties properties;
+    public final byte[] body;
+    /**
+     * Flag indicating whether the message has already been delivered before.
+     */
+    public boolean redelivered = false;
+    /**
+     * The {@link System#nanoTime()} after which the message expires or
+     * {@link Long#MAX_VALUE} if it does not expire.
+     */
+    public long expiresAt = Long.MAX_VALUE;
+
+    public InMemoryMessage(String exchange, String routingKey, BasicProperties properties, byte[] body) {
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.properties = properties;
+        this.body = body;
+    }
+}
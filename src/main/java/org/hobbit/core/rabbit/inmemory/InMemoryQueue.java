@@ -0,0 +1,324 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit.inmemory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hobbit.core.rabbit.QueueOptions;
+import org.hobbit.core.rabbit.QueueOptions.OverflowPolicy;
+
+import com.rabbitmq.client.Consumer;
+
+/**
+ * A queue of the {@link InMemoryBroker}. Incoming messages are directly
+ * dispatched to the subscribed consumers in a round robin fashion. If there
+ * is no consumer that is able to accept a message (e.g., because its prefetch
+ * limit has been reached) the message is buffered until a consumer is
+ * available or it is retrieved using a basic get.
+ *
+ * <p>
+ * The queue supports the following arguments of
+ * {@link org.hobbit.core.rabbit.QueueOptions}: message TTL, maximum length in
+ * messages and bytes, the overflow policies {@code drop-head} and
+ * {@code reject-publish} (the latter without dead-lettering) and single active
+ * consumers. Priorities and the lazy mode are accepted but do not change the
+ * behavior of the queue.
+ * </p>
+ */
+class InMemoryQueue {
+
+    public final String name;
+    public final boolean durable;
+    public final boolean exclusive;
+    public final boolean autoDelete;
+    public final Map<String, Object> arguments;
+    /**
+     * The connection that declared the queue. It is the owner of the queue if
+     * it is exclusive.
+     */
+    public final InMemoryConnection owner;
+
+    private final long ttlNanos;
+    private final long maxLength;
+    private final long maxLengthBytes;
+    private final boolean rejectOnOverflow;
+    private final boolean singleActiveConsumer;
+
+    private final Deque<InMemoryMessage> messages = new ArrayDeque<InMemoryMessage>();
+    /**
+     * Number of bytes of the bodies of the messages in the queue.
+     */
+    private long bytes = 0;
+    private final List<Subscription> subscriptions = new ArrayList<Subscription>();
+    private int nextSubscription = 0;
+    private boolean hadSubscriptions = false;
+    private boolean deleted = false;
+
+    public InMemoryQueue(String name, boolean durable, boolean exclusive, boolean autoDelete,
+            Map<String, Object> arguments, InMemoryConnection owner) {
+        this.name = name;
+        this.durable = durable;
+        this.exclusive = exclusive;
+        this.autoDelete = autoDelete;
+        this.arguments = arguments;
+        this.owner = owner;
+        long ttl = getNumberArgument(QueueOptions.MESSAGE_TTL_ARGUMENT);
+        ttlNanos = (ttl >= 0) ? TimeUnit.MILLISECONDS.toNanos(ttl) : -1;
+        maxLength = getNumberArgument(QueueOptions.MAX_LENGTH_ARGUMENT);
+        maxLengthBytes = getNumberArgument(QueueOptions.MAX_LENGTH_BYTES_ARGUMENT);
+        OverflowPolicy overflowPolicy = (arguments == null) ? null
+                : OverflowPolicy.fromValue(String.valueOf(arguments.get(QueueOptions.OVERFLOW_ARGUMENT)));
+        rejectOnOverflow = (overflowPolicy == OverflowPolicy.REJECT_PUBLISH)
+                || (overflowPolicy == OverflowPolicy.REJECT_PUBLISH_DLX);
+        singleActiveConsumer = (arguments != null)
+                && Boolean.TRUE.equals(arguments.get(QueueOptions.SINGLE_ACTIVE_CONSUMER_ARGUMENT));
+    }
+
+    private long getNumberArgument(String name) {
+        if ((arguments != null) && (arguments.get(name) instanceof Number)) {
+            return ((Number) arguments.get(name)).longValue();
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the given message to the end of the queue.
+     *
+     * @param message
+     *            the message that should be added
+     * @return {@code false} if the message has been rejected since the queue
+     *         has reached its maximum length and uses the
+     *         {@code reject-publish} overflow policy, else {@code true}
+     */
+    public synchronized boolean enqueue(InMemoryMessage message) {
+        if (deleted) {
+            return true;
+        }
+        removeExpiredMessages();
+        if (rejectOnOverflow && (exceedsLimits(messages.size() + 1, bytes + size(message)))) {
+            return false;
+        }
+        if (ttlNanos >= 0) {
+            message.expiresAt = System.nanoTime() + ttlNanos;
+        }
+        add(message, false);
+        // drop the oldest messages if the queue is too long
+        while (!messages.isEmpty() && exceedsLimits(messages.size(), bytes)) {
+            remove();
+        }
+        dispatch();
+        return true;
+    }
+
+    private static int size(InMemoryMessage message) {
+        return (message.body == null) ? 0 : message.body.length;
+    }
+
+    private boolean exceedsLimits(long length, long lengthBytes) {
+        return ((maxLength >= 0) && (length > maxLength)) || ((maxLengthBytes >= 0) && (lengthBytes > maxLengthBytes));
+    }
+
+    private void add(InMemoryMessage message, boolean first) {
+        if (first) {
+            messages.addFirst(message);
+        } else {
+            messages.addLast(message);
+        }
+        bytes += size(message);
+    }
+
+    private InMemoryMessage remove() {
+        InMemoryMessage message = messages.pollFirst();
+        if (message != null) {
+            bytes -= size(message);
+        }
+        return message;
+    }
+
+    /**
+     * Removes the expired messages from the head of the queue. Like RabbitMQ,
+     * the queue only checks the head, i.e., an expired message might stay in
+     * the queue while an older message is waiting in front of it.
+     */
+    private void removeExpiredMessages() {
+        if (ttlNanos < 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        while (!messages.isEmpty() && (messages.peekFirst().expiresAt - now < 0)) {
+            remove();
+        }
+    }
+
+    /**
+     * Adds the given message (that has been delivered before) to the head of
+     * the queue.
+     *
+     * @param message
+     *            the message that should be added
+     */
+    public synchronized void requeue(InMemoryMessage message) {
+        if (deleted) {
+            return;
+        }
+        message.redelivered = true;
+        add(message, true);
+        dispatch();
+    }
+
+    /**
+     * Removes the first message from the queue.
+     *
+     * @return the first message of the queue or {@code null} if the queue is
+     *         empty
+     */
+    public synchronized InMemoryMessage poll() {
+        removeExpiredMessages();
+        return remove();
+    }
+
+    public synchronized void addSubscription(Subscription subscription) {
+        subscriptions.add(subscription);
+        hadSubscriptions = true;
+        dispatch();
+    }
+
+    /**
+     * Removes the given subscription.
+     *
+     * @param subscription
+     *            the subscription that should be removed
+     * @return {@code true} if the queue should be deleted since it is an auto
+     *         delete queue that has lost its last consumer
+     */
+    public synchronized boolean removeSubscription(Subscription subscription) {
+        subscriptions.remove(subscription);
+        // another consumer might be able to take over the messages
+        dispatch();
+        return autoDelete && hadSubscriptions && subscriptions.isEmpty() && !deleted;
+    }
+
+    /**
+     * Dispatches buffered messages to the subscribed consumers as long as
+     * there are messages and consumers that are able to accept them.
+     */
+    public synchronized void dispatch() {
+        Subscription subscription;
+        removeExpiredMessages();
+        while (!messages.isEmpty() && !subscriptions.isEmpty()) {
+            subscription = nextAvailableSubscription();
+            if (subscription == null) {
+                return;
+            }
+            subscription.channel.deliver(subscription, this, remove());
+            removeExpiredMessages();
+        }
+    }
+
+    private Subscription nextAvailableSubscription() {
+        if (singleActiveConsumer) {
+            // only the oldest subscription is active
+            return subscriptions.get(0).canAccept() ? subscriptions.get(0) : null;
+        }
+        int size = subscriptions.size();
+        Subscription subscription;
+        for (int i = 0; i < size; ++i) {
+            subscription = subscriptions.get((nextSubscription + i) % size);
+            if (subscription.canAccept()) {
+                nextSubscription = (nextSubscription + i + 1) % size;
+                return subscription;
+            }
+        }
+        return null;
+    }
+
+    public synchronized int messageCount() {
+        removeExpiredMessages();
+        return messages.size();
+    }
+
+    public synchronized int consumerCount() {
+        return subscriptions.size();
+    }
+
+    public synchronized int purge() {
+        int count = messages.size();
+        messages.clear();
+        bytes = 0;
+        return count;
+    }
+
+    /**
+     * Marks the queue as deleted, removes all messages and cancels all
+     * subscriptions.
+     *
+     * @return the number of messages that have been removed
+     */
+    public synchronized int delete() {
+        deleted = true;
+        int count = purge();
+        for (Subscription subscription : subscriptions) {
+            subscription.channel.cancelledByBroker(subscription);
+        }
+        subscriptions.clear();
+        return count;
+    }
+
+    public synchronized boolean isDeleted() {
+        return deleted;
+    }
+
+    /**
+     * A consumer that is subscribed to a queue.
+     */
+    public static class Subscription {
+        public final String consumerTag;
+        public final InMemoryQueue queue;
+        public final InMemoryChannel channel;
+        public final Consumer consumer;
+        public final boolean autoAck;
+        /**
+         * Number of messages delivered to the consumer that haven't been
+         * acknowledged, yet.
+         */
+        public final AtomicInteger unackedMessages = new AtomicInteger(0);
+
+        public Subscription(String consumerTag, InMemoryQueue queue, InMemoryChannel channel, Consumer consumer,
+                boolean autoAck) {
+            this.consumerTag = consumerTag;
+            this.queue = queue;
+            this.channel = channel;
+            this.consumer = consumer;
+            this.autoAck = autoAck;
+        }
+
+        /**
+         * @return {@code true} if the consumer is able to accept a further
+         *         message with respect to the prefetch count of its channel
+         */
+        public boolean canAccept() {
+            int prefetchCount = channel.getPrefetchCount();
+            return autoAck || (prefetchCount <= 0) || (unackedMessages.get() < prefetchCount);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.schedule;
+
+import java.util.Random;
+
+/**
+ * Defines the points in time at which tasks should be emitted based on a
+ * {@link LoadProfile}. The arrivals are either evenly spaced with respect to
+ * the current rate of the profile or follow a Poisson process, i.e., the
+ * intervals between the arrivals are exponentially distributed with the
+ * current rate. The schedule only defines the intended times. The waiting is
+ * done by an {@link ArrivalScheduler}.
+ */
+public class ArrivalSchedule {
+
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+
+    /**
+     * The profile defining the rate of the arrivals.
+     */
+    private final LoadProfile profile;
+    /**
+     * Random number generator used for Poisson arrivals or {@code null} if the
+     * arrivals are evenly spaced.
+     */
+    private final Random random;
+
+    protected ArrivalSchedule(LoadProfile profile, Random random) {
+        this.profile = profile;
+        this.random = random;
+    }
+
+    /**
+     * Creates a schedule with evenly spaced arrivals at the given rate.
+     *
+     * @param rate
+     *            the rate in tasks per second
+     * @return the schedule
+     */
+    public static ArrivalSchedule constantRate(double rate) {
+        return uniform(LoadProfiles.constant(rate));
+    }
+
+    /**
+     * Creates a schedule with arrivals that are evenly spaced with respect to
+     * the current rate of the given profile.
+     *
+     * @param profile
+     *            the profile defining the rate of the arrivals
+     * @return the schedule
+     */
+    public static ArrivalSchedule uniform(LoadProfile profile) {
+        return new ArrivalSchedule(profile, null);
+    }
+
+    /**
+     * Creates a schedule the arrivals of which follow a Poisson process with
+     * the current rate of the given profile.
+     *
+     * @param profile
+     *            the profile defining the rate of the arrivals
+     * @return the schedule
+     */
+    public static ArrivalSchedule poisson(LoadProfile profile) {
+        return new ArrivalSchedule(profile, new Random());
+    }
+
+    /**
+     * Creates a schedule the arrivals of which follow a Poisson process with
+     * the current rate of the given profile. The given seed makes the arrivals
+     * repeatable.
+     *
+     * @param profile
+     *            the profile defining the rate of the arrivals
+     * @param seed
+     *            the seed of the random number generator
+     * @return the schedule
+     */
+    public static ArrivalSchedule poisson(LoadProfile profile, long seed) {
+        return new ArrivalSchedule(profile, new Random(seed));
+    }
+
+    /**
+     * Returns the intended time of the arrival following the arrival at the
+     * given time. The first arrival of a schedule is at {@code 0}.
+     *
+     * @param previousArrival
+     *            the time of the previous arrival (in nanoseconds since the
+     *            start of the schedule)
+     * @return the time of the next arrival (in nanoseconds since the start of
+     *         the schedule)
+     */
+    public long getNextArrival(long previousArrival) {
+        double rate = profile.getRate(previousArrival);
+        double interval;
+        if (random != null) {
+            interval = -Math.log(1.0 - random.nextDouble()) / rate;
+        } else {
+            interval = 1.0 / rate;
+        }
+        return previousArrival + Math.round(interval * NANOS_PER_SECOND);
+    }
+
+    /**
+     * @return the profile defining the rate of the arrivals
+     */
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public String toString() {
+        return (random != null ? "poisson(" : "uniform(") + profile + ")";
+    }
+
+}
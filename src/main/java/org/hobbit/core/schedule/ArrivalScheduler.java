@@ -0,0 +1,152 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.schedule;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.hobbit.core.metrics.LatencyRecorder;
+
+/**
+ * Paces the emission of tasks according to an {@link ArrivalSchedule}. In
+ * contrast to sleeping for the interval between two tasks, the scheduler
+ * waits for the absolute intended time of every task. Hence, the time needed
+ * to create and send a task does not add up over the experiment. If the
+ * caller falls behind the schedule, the following tasks are released
+ * immediately until the schedule has been caught up, i.e., the intended rate
+ * is kept on average.
+ *
+ * <p>
+ * {@link #awaitNextArrival()} returns the intended time of the task. To
+ * avoid coordinated omission, this time instead of the actual sending time
+ * should be used as timestamp of the task. Otherwise, a delay of the sender
+ * (e.g., caused by a slow system) would hide the waiting time of the tasks
+ * that should have been sent in the meantime.
+ * </p>
+ *
+ * <p>
+ * The scheduler is thread safe. Every call of {@link #awaitNextArrival()}
+ * takes the next arrival of the schedule.
+ * </p>
+ */
+public class ArrivalScheduler {
+
+    /**
+     * Remaining time (in nanoseconds) below which the scheduler stops parking
+     * the thread and yields instead, since parking might overshoot.
+     */
+    private static final long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final ArrivalSchedule schedule;
+    /**
+     * Recorder of the lag between the intended and the actual release of a
+     * task or {@code null}.
+     */
+    private final LatencyRecorder lagRecorder;
+    /**
+     * The value of {@link System#nanoTime()} at which the schedule started.
+     */
+    private long startNanoTime;
+    private boolean started = false;
+    /**
+     * The time of the next arrival relative to {@link #startNanoTime}.
+     */
+    private long nextArrival = 0;
+
+    public ArrivalScheduler(ArrivalSchedule schedule) {
+        this(schedule, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param schedule
+     *            the schedule of the arrivals
+     * @param lagRecorder
+     *            recorder of the lag (in nanoseconds) between the intended
+     *            and the actual release of the tasks or {@code null}
+     */
+    public ArrivalScheduler(ArrivalSchedule schedule, LatencyRecorder lagRecorder) {
+        this.schedule = schedule;
+        this.lagRecorder = lagRecorder;
+    }
+
+    /**
+     * Starts the schedule, i.e., the first arrival is now. If this method is
+     * not called, the schedule starts with the first call of
+     * {@link #awaitNextArrival()}. Further calls have no effect.
+     */
+    public synchronized void start() {
+        if (!started) {
+            startNanoTime = System.nanoTime();
+            started = true;
+        }
+    }
+
+    /**
+     * Waits until the intended time of the next arrival.
+     *
+     * @return the intended time of the arrival as value of
+     *         {@link System#nanoTime()}
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public long awaitNextArrival() throws InterruptedException {
+        long intendedTime;
+        synchronized (this) {
+            start();
+            intendedTime = startNanoTime + nextArrival;
+            nextArrival = schedule.getNextArrival(nextArrival);
+        }
+        sleepUntil(intendedTime);
+        if (lagRecorder != null) {
+            lagRecorder.recordLatency(intendedTime, System.nanoTime());
+        }
+        return intendedTime;
+    }
+
+    /**
+     * Blocks until {@link System#nanoTime()} reaches the given deadline.
+     *
+     * @param deadline
+     *            the deadline as value of {@link System#nanoTime()}
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    protected static void sleepUntil(long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (remaining > SPIN_THRESHOLD) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+            } else {
+                Thread.yield();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * @return the schedule of the arrivals
+     */
+    public ArrivalSchedule getSchedule() {
+        return schedule;
+    }
+
+}
@@ -0,0 +1,36 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.schedule;
+
+/**
+ * A load profile defines the rate with which tasks should be emitted over the
+ * time of an experiment. Instances can be created using the {@link LoadProfiles}
+ * class.
+ */
+public interface LoadProfile {
+
+    /**
+     * Returns the rate with which tasks should be emitted at the given point
+     * in time.
+     *
+     * @param elapsedNanos
+     *            the time (in nanoseconds) since the start of the schedule
+     * @return the rate in tasks per second (has to be positive)
+     */
+    public double getRate(long elapsedNanos);
+
+}
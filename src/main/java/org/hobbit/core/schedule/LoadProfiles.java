@@ -0,0 +1,168 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.schedule;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory methods for the typical {@link LoadProfile}s of load tests.
+ */
+public final class LoadProfiles {
+
+    private LoadProfiles() {
+    }
+
+    /**
+     * Creates a profile with a constant rate.
+     *
+     * @param rate
+     *            the rate in tasks per second
+     * @return the profile
+     */
+    public static LoadProfile constant(double rate) {
+        checkRate(rate);
+        return new ConstantLoadProfile(rate);
+    }
+
+    /**
+     * Creates a profile that increases (or decreases) the rate in steps. Every
+     * rate is kept for the given duration. After the last step, the last rate
+     * is kept.
+     *
+     * @param stepDuration
+     *            the duration of a single step
+     * @param unit
+     *            the unit of the step duration
+     * @param rates
+     *            the rates of the single steps in tasks per second
+     * @return the profile
+     */
+    public static LoadProfile steps(long stepDuration, TimeUnit unit, double... rates) {
+        if (stepDuration <= 0) {
+            throw new IllegalArgumentException("The step duration has to be positive.");
+        }
+        if (rates.length == 0) {
+            throw new IllegalArgumentException("At least one step is needed.");
+        }
+        for (int i = 0; i < rates.length; ++i) {
+            checkRate(rates[i]);
+        }
+        return new StepLoadProfile(unit.toNanos(stepDuration), Arrays.copyOf(rates, rates.length));
+    }
+
+    /**
+     * Creates a profile that changes the rate linearly from the given start
+     * rate to the given end rate within the given duration. After that, the
+     * end rate is kept.
+     *
+     * @param startRate
+     *            the rate at the beginning in tasks per second
+     * @param endRate
+     *            the rate at the end of the ramp in tasks per second
+     * @param duration
+     *            the duration of the ramp
+     * @param unit
+     *            the unit of the duration
+     * @return the profile
+     */
+    public static LoadProfile ramp(double startRate, double endRate, long duration, TimeUnit unit) {
+        checkRate(startRate);
+        checkRate(endRate);
+        if (duration <= 0) {
+            throw new IllegalArgumentException("The duration of the ramp has to be positive.");
+        }
+        return new RampLoadProfile(startRate, endRate, unit.toNanos(duration));
+    }
+
+    private static void checkRate(double rate) {
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("The rate has to be positive and finite (got " + rate + ").");
+        }
+    }
+
+    private static class ConstantLoadProfile implements LoadProfile {
+
+        private final double rate;
+
+        public ConstantLoadProfile(double rate) {
+            this.rate = rate;
+        }
+
+        @Override
+        public double getRate(long elapsedNanos) {
+            return rate;
+        }
+
+        @Override
+        public String toString() {
+            return "constant(" + rate + "/s)";
+        }
+    }
+
+    private static class StepLoadProfile implements LoadProfile {
+
+        private final long stepDurationNanos;
+        private final double rates[];
+
+        public StepLoadProfile(long stepDurationNanos, double rates[]) {
+            this.stepDurationNanos = stepDurationNanos;
+            this.rates = rates;
+        }
+
+        @Override
+        public double getRate(long elapsedNanos) {
+            long step = Math.max(0, elapsedNanos / stepDurationNanos);
+            return rates[(int) Math.min(step, rates.length - 1)];
+        }
+
+        @Override
+        public String toString() {
+            return "steps(" + stepDurationNanos + "ns, " + Arrays.toString(rates) + ")";
+        }
+    }
+
+    private static class RampLoadProfile implements LoadProfile {
+
+        private final double startRate;
+        private final double endRate;
+        private final long durationNanos;
+
+        public RampLoadProfile(double startRate, double endRate, long durationNanos) {
+            this.startRate = startRate;
+            this.endRate = endRate;
+            this.durationNanos = durationNanos;
+        }
+
+        @Override
+        public double getRate(long elapsedNanos) {
+            if (elapsedNanos >= durationNanos) {
+                return endRate;
+            }
+            if (elapsedNanos <= 0) {
+                return startRate;
+            }
+            return startRate + ((endRate - startRate) * elapsedNanos / durationNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "ramp(" + startRate + "/s -> " + endRate + "/s in " + durationNanos + "ns)";
+        }
+    }
+
+}
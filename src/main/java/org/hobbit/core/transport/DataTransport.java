@@ -0,0 +1,144 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiver;
+import org.hobbit.core.rabbit.DataSender;
+import org.hobbit.core.rabbit.QueueOptions;
+
+/**
+ * <p>
+ * Interface of a transport that moves data between the components of a
+ * benchmark. The components create their {@link DataSender} and
+ * {@link DataReceiver} instances using a transport instead of creating them
+ * directly on top of the RabbitMQ client. This allows the usage of a faster
+ * transport for components that are located on the same machine.
+ * </p>
+ * A transport offers two kinds of communication:
+ * <ul>
+ * <li><b>Queues</b> have a name and deliver every message to exactly one
+ * receiver. Messages sent to a queue are confirmed by the transport and
+ * receivers acknowledge messages after they have been handed over to their
+ * {@link DataHandler}.</li>
+ * <li><b>Broadcasts</b> are identified by the name of an exchange and deliver
+ * every message to all receivers that subscribed for this exchange.</li>
+ * </ul>
+ * <p>
+ * <b>Note</b> that the {@link DataReceiver#getQueue()} method of receivers
+ * created by transports that are not based on RabbitMQ returns {@code null}.
+ * </p>
+ */
+public interface DataTransport extends Closeable {
+
+    /**
+     * Creates a sender that sends data to the queue with the given name. The
+     * queue is created if it does not exist.
+     *
+     * @param queueName
+     *            the name of the queue to which the data should be sent
+     * @return the newly created sender
+     * @throws IOException
+     *             if the queue or the sender could not be created
+     */
+    public DataSender createSender(String queueName) throws IOException;
+
+    /**
+     * Creates a sender that sends data to the queue with the given name. The
+     * queue is created with the given options if it does not exist. Note that
+     * the receiver of the queue has to use the same options.
+     *
+     * @param queueName
+     *            the name of the queue to which the data should be sent
+     * @param options
+     *            the options of the queue
+     * @return the newly created sender
+     * @throws IOException
+     *             if the queue or the sender could not be created
+     */
+    public DataSender createSender(String queueName, QueueOptions options) throws IOException;
+
+    /**
+     * Creates a receiver that consumes the data of the queue with the given
+     * name and hands it over to the given handler. The queue is created if it
+     * does not exist.
+     *
+     * @param queueName
+     *            the name of the queue from which the data should be received
+     * @param handler
+     *            the handler that processes the received data
+     * @param maxParallelProcessedMsgs
+     *            the maximum number of messages that are processed in parallel
+     * @return the newly created receiver
+     * @throws IOException
+     *             if the queue or the receiver could not be created
+     */
+    public DataReceiver createReceiver(String queueName, DataHandler handler, int maxParallelProcessedMsgs)
+            throws IOException;
+
+    /**
+     * Creates a receiver that consumes the data of the queue with the given
+     * name and hands it over to the given handler. The queue is created with
+     * the given options if it does not exist.
+     *
+     * @param queueName
+     *            the name of the queue from which the data should be received
+     * @param options
+     *            the options of the queue
+     * @param handler
+     *            the handler that processes the received data
+     * @param maxParallelProcessedMsgs
+     *            the maximum number of messages that are processed in parallel
+     * @return the newly created receiver
+     * @throws IOException
+     *             if the queue or the receiver could not be created
+     */
+    public DataReceiver createReceiver(String queueName, QueueOptions options, DataHandler handler,
+            int maxParallelProcessedMsgs) throws IOException;
+
+    /**
+     * Creates a sender that broadcasts data to all receivers that subscribed
+     * for the exchange with the given name.
+     *
+     * @param exchangeName
+     *            the name of the exchange to which the data should be sent
+     * @return the newly created sender
+     * @throws IOException
+     *             if the exchange or the sender could not be created
+     */
+    public DataSender createBroadcastSender(String exchangeName) throws IOException;
+
+    /**
+     * Subscribes the given handler for the broadcasts of the exchange with the
+     * given name. The handler receives only the data that has been sent after
+     * the subscription has been created.
+     *
+     * @param exchangeName
+     *            the name of the exchange from which the data should be
+     *            received
+     * @param handler
+     *            the handler that processes the received data
+     * @return the receiver of the subscription that has to be closed to end
+     *         the subscription
+     * @throws IOException
+     *             if the subscription could not be created
+     */
+    public DataReceiver subscribe(String exchangeName, DataHandler handler) throws IOException;
+}
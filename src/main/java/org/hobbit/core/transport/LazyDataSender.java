@@ -0,0 +1,105 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport;
+
+import java.io.IOException;
+
+import org.hobbit.core.rabbit.DataSender;
+import org.hobbit.core.rabbit.DataSenderImpl;
+
+/**
+ * A {@link DataSender} that declares its queue when the first message is
+ * sent instead of when it is created. Components create senders for all
+ * their outgoing paths during initialization, even if some of them are never
+ * used. Deferring the declaration removes these round trips to the broker
+ * from the startup of a component.
+ *
+ * <p>
+ * <b>Note</b> that problems with the queue are reported by the first call
+ * of {@link #sendData(byte[])} instead of during the creation of the sender.
+ * If no data has been sent, {@link #closeWhenFinished()} returns
+ * immediately.
+ * </p>
+ */
+public class LazyDataSender implements DataSender {
+
+    /**
+     * Builder used to create the sender when the first message is sent.
+     */
+    private final DataSenderImpl.Builder builder;
+    /**
+     * The sender or {@code null} if it hasn't been created, yet.
+     */
+    private volatile DataSender sender = null;
+    private boolean closed = false;
+
+    public LazyDataSender(DataSenderImpl.Builder builder) {
+        this.builder = builder;
+    }
+
+    @Override
+    public void sendData(byte[] data) throws IOException {
+        DataSender currentSender = sender;
+        if (currentSender == null) {
+            currentSender = getOrCreateSender();
+        }
+        currentSender.sendData(data);
+    }
+
+    private synchronized DataSender getOrCreateSender() throws IOException {
+        if (closed) {
+            throw new IOException("The sender has already been closed.");
+        }
+        if (sender == null) {
+            sender = builder.build();
+        }
+        return sender;
+    }
+
+    /**
+     * @return {@code true} if the queue of this sender has been declared,
+     *         i.e., if data has been sent, else {@code false}
+     */
+    public boolean isQueueDeclared() {
+        return sender != null;
+    }
+
+    @Override
+    public void closeWhenFinished() {
+        DataSender currentSender;
+        synchronized (this) {
+            closed = true;
+            currentSender = sender;
+        }
+        if (currentSender != null) {
+            currentSender.closeWhenFinished();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        DataSender currentSender;
+        synchronized (this) {
+            closed = true;
+            currentSender = sender;
+        }
+        if (currentSender != null) {
+            currentSender.close();
+        }
+    }
+
+}
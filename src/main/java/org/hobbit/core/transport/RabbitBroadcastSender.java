@@ -0,0 +1,80 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport;
+
+import java.io.IOException;
+
+import org.hobbit.core.rabbit.DataSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * A {@link DataSender} that publishes data on a RabbitMQ exchange. Since the
+ * receivers of a broadcast are not known, {@link #closeWhenFinished()} only
+ * waits for the broker to confirm the sent messages.
+ */
+public class RabbitBroadcastSender implements DataSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RabbitBroadcastSender.class);
+
+    private final Channel channel;
+    private final String exchangeName;
+    private boolean confirmsEnabled;
+
+    public RabbitBroadcastSender(Channel channel, String exchangeName) {
+        this.channel = channel;
+        this.exchangeName = exchangeName;
+        try {
+            channel.confirmSelect();
+            confirmsEnabled = true;
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't enable confirms. The sender won't guarantee that messages are received.", e);
+            confirmsEnabled = false;
+        }
+    }
+
+    @Override
+    public void sendData(byte[] data) throws IOException {
+        channel.basicPublish(exchangeName, "", null, data);
+    }
+
+    @Override
+    public void closeWhenFinished() {
+        if (confirmsEnabled) {
+            try {
+                channel.waitForConfirms();
+            } catch (Exception e) {
+                LOGGER.warn(
+                        "Exception while waiting for confirmations. It can not be guaranteed that all messages have been received.",
+                        e);
+            }
+        }
+        close();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (Exception e) {
+            LOGGER.debug("Exception while closing channel.", e);
+        }
+    }
+
+}
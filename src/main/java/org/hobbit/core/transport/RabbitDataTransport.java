@@ -0,0 +1,138 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport;
+
+import java.io.IOException;
+
+import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.metrics.MetricRegistry;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiver;
+import org.hobbit.core.rabbit.DataReceiverImpl;
+import org.hobbit.core.rabbit.DataSender;
+import org.hobbit.core.rabbit.DataSenderImpl;
+import org.hobbit.core.rabbit.QueueOptions;
+import org.hobbit.core.rabbit.RabbitQueueFactory;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * A {@link DataTransport} based on RabbitMQ. Queues are created using the
+ * given {@link RabbitQueueFactory} instances and are handled by the
+ * {@link DataSenderImpl} and {@link DataReceiverImpl} classes. Broadcasts are
+ * sent via fanout exchanges. The queues of senders are declared when the
+ * first message is sent (see {@link LazyDataSender}), while the queues of
+ * receivers are declared immediately.
+ *
+ * <p>
+ * <b>Note</b> that this transport does not own the given queue factories,
+ * i.e., they are not closed if the transport is closed.
+ * </p>
+ */
+public class RabbitDataTransport implements DataTransport {
+
+    /**
+     * Type of the exchanges used for broadcasts.
+     */
+    public static final String BROADCAST_EXCHANGE_TYPE = "fanout";
+
+    /**
+     * Factory used to create the queues of receivers.
+     */
+    private final RabbitQueueFactory incomingFactory;
+    /**
+     * Factory used to create the queues of senders.
+     */
+    private final RabbitQueueFactory outgoingFactory;
+    /**
+     * Registry that is handed over to the created senders and receivers. Might
+     * be {@code null}.
+     */
+    private final MetricRegistry metricRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param incomingFactory
+     *            factory used to create the queues of receivers
+     * @param outgoingFactory
+     *            factory used to create the queues of senders
+     * @param metricRegistry
+     *            registry for the metrics of the created senders and receivers
+     *            or {@code null} if no metrics should be collected
+     */
+    public RabbitDataTransport(RabbitQueueFactory incomingFactory, RabbitQueueFactory outgoingFactory,
+            MetricRegistry metricRegistry) {
+        this.incomingFactory = incomingFactory;
+        this.outgoingFactory = outgoingFactory;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public DataSender createSender(String queueName) throws IOException {
+        return createSender(queueName, QueueOptions.DEFAULT);
+    }
+
+    @Override
+    public DataSender createSender(String queueName, QueueOptions options) throws IOException {
+        return new LazyDataSender(DataSenderImpl.builder().queue(outgoingFactory, queueName).queueOptions(options)
+                .metricRegistry(metricRegistry));
+    }
+
+    @Override
+    public DataReceiver createReceiver(String queueName, DataHandler handler, int maxParallelProcessedMsgs)
+            throws IOException {
+        return createReceiver(queueName, QueueOptions.DEFAULT, handler, maxParallelProcessedMsgs);
+    }
+
+    @Override
+    public DataReceiver createReceiver(String queueName, QueueOptions options, DataHandler handler,
+            int maxParallelProcessedMsgs) throws IOException {
+        return DataReceiverImpl.builder().queue(incomingFactory, queueName).queueOptions(options)
+                .dataHandler(handler).maxParallelProcessedMsgs(maxParallelProcessedMsgs)
+                .metricRegistry(metricRegistry).build();
+    }
+
+    @Override
+    public DataSender createBroadcastSender(String exchangeName) throws IOException {
+        Channel channel = outgoingFactory.getConnection().createChannel();
+        declareBroadcastExchange(channel, exchangeName);
+        return new RabbitBroadcastSender(channel, exchangeName);
+    }
+
+    @Override
+    public DataReceiver subscribe(String exchangeName, DataHandler handler) throws IOException {
+        Channel channel = incomingFactory.getConnection().createChannel();
+        declareBroadcastExchange(channel, exchangeName);
+        String queueName = channel.queueDeclare().getQueue();
+        channel.queueBind(queueName, exchangeName, "");
+        return DataReceiverImpl.builder().queue(new RabbitQueue(channel, queueName)).dataHandler(handler)
+                .maxParallelProcessedMsgs(1).build();
+    }
+
+    protected void declareBroadcastExchange(Channel channel, String exchangeName) throws IOException {
+        channel.exchangeDeclare(exchangeName, BROADCAST_EXCHANGE_TYPE, false, true, null);
+    }
+
+    /**
+     * Does nothing since the queue factories are not owned by this transport.
+     */
+    @Override
+    public void close() throws IOException {
+    }
+
+}
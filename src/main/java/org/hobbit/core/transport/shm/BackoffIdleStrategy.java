@@ -0,0 +1,58 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport.shm;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategy for threads polling a {@link SharedMemoryRingBuffer}. An idle
+ * thread spins for a short time, then yields and finally parks for increasing
+ * periods of time until {@link #reset()} is called after work has been done.
+ */
+class BackoffIdleStrategy {
+
+    private static final int MAX_SPINS = 100;
+    private static final int MAX_YIELDS = 100;
+    private static final long MIN_PARK_NANOS = 1000;
+
+    private final long maxParkNanos;
+    private int spins = 0;
+    private int yields = 0;
+    private long parkNanos = MIN_PARK_NANOS;
+
+    public BackoffIdleStrategy(long maxParkNanos) {
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    public void idle() {
+        if (spins < MAX_SPINS) {
+            ++spins;
+        } else if (yields < MAX_YIELDS) {
+            ++yields;
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+        }
+    }
+
+    public void reset() {
+        spins = 0;
+        yields = 0;
+        parkNanos = MIN_PARK_NANOS;
+    }
+}
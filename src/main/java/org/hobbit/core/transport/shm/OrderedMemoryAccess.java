@@ -0,0 +1,139 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport.shm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Ordered and atomic accesses of {@code long} values in off-heap memory, e.g.,
+ * a memory mapped file shared with other processes. Java 8 does not offer
+ * them for buffers, so this class relies on {@code sun.misc.Unsafe} (available
+ * on Java 8 and, via the {@code jdk.unsupported} module, on later versions).
+ * The class is accessed via reflection only, i.e., the code does not depend on
+ * the internal API at compile time. The address of a buffer is read using the
+ * offset of its field, which does not need deep reflection.
+ */
+final class OrderedMemoryAccess {
+
+    private static final MethodHandle PUT_ORDERED_LONG;
+    private static final MethodHandle GET_LONG_VOLATILE;
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle COMPARE_AND_SWAP_LONG;
+    private static final MethodHandle LOAD_FENCE;
+    /**
+     * Offset of the field of a {@link Buffer} that contains the address of
+     * its memory.
+     */
+    private static final long BUFFER_ADDRESS_OFFSET;
+
+    static {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PUT_ORDERED_LONG = lookup
+                    .unreflect(unsafeClass.getMethod("putOrderedLong", Object.class, long.class, long.class))
+                    .bindTo(unsafe);
+            GET_LONG_VOLATILE = lookup.unreflect(unsafeClass.getMethod("getLongVolatile", Object.class, long.class))
+                    .bindTo(unsafe);
+            GET_LONG = lookup.unreflect(unsafeClass.getMethod("getLong", Object.class, long.class)).bindTo(unsafe);
+            COMPARE_AND_SWAP_LONG = lookup.unreflect(unsafeClass.getMethod("compareAndSwapLong", Object.class,
+                    long.class, long.class, long.class)).bindTo(unsafe);
+            LOAD_FENCE = lookup.unreflect(unsafeClass.getMethod("loadFence")).bindTo(unsafe);
+            Method objectFieldOffset = unsafeClass.getMethod("objectFieldOffset", Field.class);
+            BUFFER_ADDRESS_OFFSET = (Long) objectFieldOffset.invoke(unsafe, Buffer.class.getDeclaredField("address"));
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private OrderedMemoryAccess() {
+    }
+
+    /**
+     * Returns the address of the memory of the given direct buffer.
+     *
+     * @param buffer
+     *            a direct buffer, e.g., a memory mapped file
+     * @return the address of the first byte of the buffer
+     */
+    static long getAddress(ByteBuffer buffer) {
+        try {
+            return (long) GET_LONG.invokeExact((Object) buffer, BUFFER_ADDRESS_OFFSET);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the given value after all previous writes, i.e., a reader that
+     * sees the value with {@link #getLongVolatile(long)} sees the previous
+     * writes as well.
+     */
+    static void putOrderedLong(long address, long value) {
+        try {
+            PUT_ORDERED_LONG.invokeExact((Object) null, address, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the value before all following reads.
+     */
+    static long getLongVolatile(long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Atomically sets the value at the given address if it has the expected
+     * value.
+     *
+     * @return {@code true} if the value has been set
+     */
+    static boolean compareAndSwapLong(long address, long expected, long value) {
+        try {
+            return (boolean) COMPARE_AND_SWAP_LONG.invokeExact((Object) null, address, expected, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ensures that reads before the fence are not reordered with reads after
+     * it.
+     */
+    static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,395 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport.shm;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.metrics.Counter;
+import org.hobbit.core.metrics.Gauge;
+import org.hobbit.core.metrics.LatencyRecorder;
+import org.hobbit.core.metrics.MetricNames;
+import org.hobbit.core.metrics.MetricRegistry;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DataReceiver} that consumes the data of all
+ * {@link SharedMemoryRingBuffer} files in the directory of its queue. A single
+ * thread polls the buffers and hands the messages over to a pool of threads
+ * executing the {@link DataHandler}. If all threads are busy, the polling
+ * stops which causes the senders to block as soon as their buffers are full.
+ *
+ * <p>
+ * Several receivers can consume the same queue, e.g., the task generators
+ * consuming the data of the data generators. Like competing consumers of a
+ * RabbitMQ queue, every message is delivered to only one of them (see
+ * {@link SharedMemoryRingBuffer#poll()}). Since this receiver is not based on
+ * RabbitMQ, {@link #getQueue()} returns {@code null}.
+ * </p>
+ *
+ * Use the internal {@link Builder} class for creating instances of the
+ * {@link SharedMemoryDataReceiver} class.
+ */
+public class SharedMemoryDataReceiver implements DataReceiver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedMemoryDataReceiver.class);
+
+    private static final int DEFAULT_MAX_PARALLEL_PROCESSED_MESSAGES = 50;
+    /**
+     * Time between two scans of the queue directory for new buffer files.
+     */
+    private static final long DIRECTORY_SCAN_INTERVAL = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final FilenameFilter RING_FILE_FILTER = new FilenameFilter() {
+        @Override
+        public boolean accept(File dir, String name) {
+            return name.endsWith(SharedMemoryRingBuffer.FILE_SUFFIX);
+        }
+    };
+
+    private final File queueDirectory;
+    private final String queueName;
+    private final DataHandler dataHandler;
+    private final Semaphore processingPermits;
+    private final ExecutorService executor;
+    private final Thread pollingThread;
+    private final Map<File, SharedMemoryRingBuffer> rings = new HashMap<File, SharedMemoryRingBuffer>();
+    private volatile boolean runFlag = true;
+    private int errorCount = 0;
+    private MetricRegistry metricRegistry;
+    private String metricLabels;
+    private Counter messageCounter;
+    private Counter byteCounter;
+    private LatencyRecorder processingTime;
+
+    protected SharedMemoryDataReceiver(File queueDirectory, String queueName, DataHandler handler,
+            int maxParallelProcessedMsgs, MetricRegistry metricRegistry) {
+        this.queueDirectory = queueDirectory;
+        this.queueName = queueName;
+        this.dataHandler = handler;
+        processingPermits = new Semaphore(maxParallelProcessedMsgs);
+        executor = Executors.newFixedThreadPool(maxParallelProcessedMsgs);
+        if (metricRegistry != null) {
+            initMetrics(metricRegistry);
+        }
+        pollingThread = new Thread(new PollingTask(), "shm-receiver-" + queueName);
+        pollingThread.setDaemon(true);
+        pollingThread.start();
+    }
+
+    private void initMetrics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        metricLabels = MetricNames.labels(MetricNames.QUEUE_LABEL, queueName);
+        messageCounter = metricRegistry.counter("receiver.messages" + metricLabels);
+        byteCounter = metricRegistry.counter("receiver.bytes" + metricLabels);
+        processingTime = metricRegistry.histogram("receiver.processingTime" + metricLabels);
+        metricRegistry.gauge("receiver.errors" + metricLabels, new Gauge() {
+            @Override
+            public long getValue() {
+                return getErrorCount();
+            }
+        });
+    }
+
+    @Override
+    public DataHandler getDataHandler() {
+        return dataHandler;
+    }
+
+    @Override
+    public synchronized void increaseErrorCount() {
+        ++errorCount;
+    }
+
+    @Override
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return {@code null} since this receiver does not consume a RabbitMQ
+     *         queue
+     */
+    @Override
+    public RabbitQueue getQueue() {
+        return null;
+    }
+
+    /**
+     * Waits until all buffers of the queue have been consumed and all
+     * messages have been processed before closing the receiver.
+     */
+    @Override
+    public void closeWhenFinished() {
+        runFlag = false;
+        try {
+            pollingThread.join();
+        } catch (InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for the polling thread. Closing receiver.", e);
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            LOGGER.error("Exception while waiting for termination. Closing receiver.", e);
+        }
+        close();
+    }
+
+    /**
+     * Stops the polling thread and the handler threads without waiting for
+     * them to finish their work.
+     */
+    @Override
+    public void close() {
+        runFlag = false;
+        pollingThread.interrupt();
+        if (!executor.isShutdown()) {
+            executor.shutdownNow();
+        }
+        if (metricRegistry != null) {
+            metricRegistry.removeAll("receiver.", metricLabels);
+        }
+    }
+
+    /**
+     * Returns a newly created {@link Builder}.
+     *
+     * @return a new {@link Builder} instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    protected class PollingTask implements Runnable {
+
+        private final BackoffIdleStrategy idleStrategy = new BackoffIdleStrategy(MAX_PARK_NANOS);
+        private long nextScan = 0;
+        private int count = 0;
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    if (System.currentTimeMillis() >= nextScan) {
+                        scanDirectory();
+                        nextScan = System.currentTimeMillis() + DIRECTORY_SCAN_INTERVAL;
+                    }
+                    if (pollRings()) {
+                        idleStrategy.reset();
+                    } else if (runFlag) {
+                        idleStrategy.idle();
+                    } else {
+                        // after the receiver has been terminated, we stop as
+                        // soon as all buffers (including the ones that have
+                        // been created shortly before) are empty
+                        scanDirectory();
+                        if (!pollRings()) {
+                            break;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                LOGGER.debug("Polling thread has been interrupted.");
+            }
+            LOGGER.debug("Receiver task terminates after receiving {} messages.", count);
+        }
+
+        private void scanDirectory() {
+            File files[] = queueDirectory.listFiles(RING_FILE_FILTER);
+            if (files == null) {
+                return;
+            }
+            for (int i = 0; i < files.length; ++i) {
+                if (!rings.containsKey(files[i])) {
+                    try {
+                        rings.put(files[i], SharedMemoryRingBuffer.open(files[i]));
+                    } catch (IOException e) {
+                        LOGGER.error("Couldn't open ring buffer " + files[i] + ". It will be ignored.", e);
+                        increaseErrorCount();
+                        rings.put(files[i], null);
+                    }
+                }
+            }
+        }
+
+        private boolean pollRings() throws InterruptedException {
+            boolean foundData = false;
+            Iterator<SharedMemoryRingBuffer> iterator = rings.values().iterator();
+            SharedMemoryRingBuffer ring;
+            byte data[];
+            while (iterator.hasNext()) {
+                ring = iterator.next();
+                if (ring == null) {
+                    continue;
+                }
+                data = ring.poll();
+                if (data != null) {
+                    processingPermits.acquire();
+                    executor.execute(new MsgProcessingTask(data));
+                    ++count;
+                    foundData = true;
+                } else if (ring.isEndOfStream()) {
+                    // the sender has been closed and all its data has been
+                    // consumed
+                    ring.close();
+                    // another receiver of the queue might have deleted the
+                    // file already
+                    if (!ring.getFile().delete() && ring.getFile().exists()) {
+                        LOGGER.warn("Couldn't delete {}.", ring.getFile());
+                    }
+                    iterator.remove();
+                }
+            }
+            return foundData;
+        }
+    }
+
+    protected class MsgProcessingTask implements Runnable {
+
+        private byte data[];
+
+        public MsgProcessingTask(byte data[]) {
+            this.data = data;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (processingTime != null) {
+                    long start = System.nanoTime();
+                    dataHandler.handleData(data);
+                    processingTime.recordLatency(start, System.nanoTime());
+                    messageCounter.increment();
+                    byteCounter.add(data.length);
+                } else {
+                    dataHandler.handleData(data);
+                }
+            } finally {
+                processingPermits.release();
+            }
+        }
+
+    }
+
+    public static final class Builder {
+
+        private static final String QUEUE_INFO_MISSING_ERROR = "There are no directory and queue name provided for the SharedMemoryDataReceiver.";
+        private static final String DATA_HANDLER_MISSING_ERROR = "The necessary data handler has not been provided for the SharedMemoryDataReceiver.";
+
+        private File directory;
+        private String queueName;
+        private DataHandler dataHandler;
+        private int maxParallelProcessedMsgs = DEFAULT_MAX_PARALLEL_PROCESSED_MESSAGES;
+        private MetricRegistry metricRegistry = null;
+
+        public Builder() {
+        };
+
+        /**
+         * Sets the handler that is called if data is incoming.
+         *
+         * @param dataHandler
+         *            the handler that is called if data is incoming
+         * @return this builder instance
+         */
+        public Builder dataHandler(DataHandler dataHandler) {
+            this.dataHandler = dataHandler;
+            return this;
+        }
+
+        /**
+         * Sets the queue from which the data is received.
+         *
+         * @param directory
+         *            the directory containing the directories of the queues
+         * @param queueName
+         *            the name of the queue
+         * @return this builder instance
+         */
+        public Builder queue(File directory, String queueName) {
+            this.directory = directory;
+            this.queueName = queueName;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of incoming messages that are processed in
+         * parallel. Additional messages stay in the buffers of the senders.
+         *
+         * @param maxParallelProcessedMsgs
+         *            the maximum number of incoming messages that are
+         *            processed in parallel
+         * @return this builder instance
+         */
+        public Builder maxParallelProcessedMsgs(int maxParallelProcessedMsgs) {
+            this.maxParallelProcessedMsgs = maxParallelProcessedMsgs;
+            return this;
+        }
+
+        /**
+         * Sets the registry to which the metrics of the receiver are added.
+         *
+         * @param metricRegistry
+         *            the registry for the metrics or {@code null} if no
+         *            metrics should be collected
+         * @return this builder instance
+         */
+        public Builder metricRegistry(MetricRegistry metricRegistry) {
+            this.metricRegistry = metricRegistry;
+            return this;
+        }
+
+        /**
+         * Builds the {@link SharedMemoryDataReceiver} instance with the
+         * previously given information.
+         *
+         * @return The newly created receiver instance
+         * @throws IllegalStateException
+         *             if the directory, the queue name or the data handler
+         *             are missing
+         * @throws IOException
+         *             if the directory of the queue can not be created
+         */
+        public SharedMemoryDataReceiver build() throws IllegalStateException, IOException {
+            if (dataHandler == null) {
+                throw new IllegalStateException(DATA_HANDLER_MISSING_ERROR);
+            }
+            if ((directory == null) || (queueName == null)) {
+                throw new IllegalStateException(QUEUE_INFO_MISSING_ERROR);
+            }
+            File queueDirectory = SharedMemoryDataTransport.getQueueDirectory(directory, queueName);
+            if (!queueDirectory.exists() && !queueDirectory.mkdirs() && !queueDirectory.exists()) {
+                throw new IOException("Couldn't create directory " + queueDirectory + ".");
+            }
+            return new SharedMemoryDataReceiver(queueDirectory, queueName, dataHandler, maxParallelProcessedMsgs,
+                    metricRegistry);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport.shm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.hobbit.core.metrics.Counter;
+import org.hobbit.core.metrics.Gauge;
+import org.hobbit.core.metrics.MetricNames;
+import org.hobbit.core.metrics.MetricRegistry;
+import org.hobbit.core.rabbit.DataSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DataSender} that writes its data to a {@link SharedMemoryRingBuffer}
+ * that is read by the {@link SharedMemoryDataReceiver}s on the same host. Every
+ * sender creates its own ring buffer file in the directory of the queue. If
+ * the buffer is full, {@link #sendData(byte[])} blocks until the receiver has
+ * consumed enough data, the send timeout is reached or the thread is
+ * interrupted.
+ *
+ * Use the internal {@link Builder} class for creating instances of the
+ * {@link SharedMemoryDataSender} class.
+ */
+public class SharedMemoryDataSender implements DataSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedMemoryDataSender.class);
+
+    /**
+     * Default capacity of the ring buffer in bytes.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 25;
+    /**
+     * Maximum time the sender waits for the receivers to consume its data in
+     * {@link #closeWhenFinished()} and for free space while writing the end of
+     * stream marker during {@link #close()}.
+     */
+    private static final long CLOSE_TIMEOUT = 10000;
+    /**
+     * Default maximum time (in milliseconds) {@link #sendData(byte[])} waits
+     * for free space in the buffer.
+     */
+    public static final long DEFAULT_SEND_TIMEOUT = 60000;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SharedMemoryRingBuffer ring;
+    private final String queueName;
+    private final long sendTimeout;
+    private final BackoffIdleStrategy idleStrategy = new BackoffIdleStrategy(MAX_PARK_NANOS);
+    private final MetricRegistry metricRegistry;
+    private final String metricLabels;
+    private final Counter messageCounter;
+    private final Counter byteCounter;
+    private boolean closed = false;
+
+    protected SharedMemoryDataSender(SharedMemoryRingBuffer ring, String queueName, long sendTimeout,
+            MetricRegistry metricRegistry) {
+        this.ring = ring;
+        this.queueName = queueName;
+        this.sendTimeout = sendTimeout;
+        this.metricRegistry = metricRegistry;
+        if (metricRegistry != null) {
+            metricLabels = MetricNames.labels(MetricNames.QUEUE_LABEL, queueName);
+            messageCounter = metricRegistry.counter("sender.messages" + metricLabels);
+            byteCounter = metricRegistry.counter("sender.bytes" + metricLabels);
+            metricRegistry.gauge("sender.bufferedBytes" + metricLabels, new Gauge() {
+                @Override
+                public long getValue() {
+                    return ring.getUsedBytes();
+                }
+            });
+        } else {
+            metricLabels = null;
+            messageCounter = null;
+            byteCounter = null;
+        }
+    }
+
+    /**
+     * Writes the given data to the buffer. If the buffer is full, the method
+     * waits until the receivers consumed enough data.
+     *
+     * @throws InterruptedIOException
+     *             if the thread is interrupted while waiting for free space
+     * @throws IOException
+     *             if the sender has been closed, the message is too large or
+     *             there is no free space within the send timeout, e.g.,
+     *             because there is no receiver consuming the data
+     */
+    @Override
+    public synchronized void sendData(byte[] data) throws IOException {
+        if (closed) {
+            throw new IOException("The sender for " + queueName + " has already been closed.");
+        }
+        if (data.length > ring.getMaxMessageLength()) {
+            throw new IOException("The message has " + data.length + " bytes which exceeds the maximum length of "
+                    + ring.getMaxMessageLength() + " bytes of the shared memory buffer.");
+        }
+        long timeout = 0;
+        while (!ring.offer(data)) {
+            if (Thread.currentThread().isInterrupted()) {
+                idleStrategy.reset();
+                throw new InterruptedIOException("Interrupted while waiting for free space in " + ring.getFile() + ".");
+            }
+            long now = System.currentTimeMillis();
+            if (timeout == 0) {
+                timeout = now + sendTimeout;
+            } else if (now > timeout) {
+                idleStrategy.reset();
+                throw new IOException("The data of " + ring.getFile() + " has not been consumed within " + sendTimeout
+                        + " ms. There might be no receiver for " + queueName + ".");
+            }
+            idleStrategy.idle();
+        }
+        idleStrategy.reset();
+        if (messageCounter != null) {
+            messageCounter.increment();
+            byteCounter.add(data.length);
+        }
+    }
+
+    /**
+     * Waits until the receivers have consumed all data of the buffer before
+     * closing the sender. If the data is not consumed within
+     * {@link #CLOSE_TIMEOUT} milliseconds, e.g., because there is no receiver
+     * anymore, the sender is closed anyway.
+     */
+    @Override
+    public void closeWhenFinished() {
+        BackoffIdleStrategy waitStrategy = new BackoffIdleStrategy(TimeUnit.MILLISECONDS.toNanos(100));
+        long timeout = System.currentTimeMillis() + CLOSE_TIMEOUT;
+        while (!ring.isEmpty()) {
+            if (System.currentTimeMillis() > timeout) {
+                LOGGER.warn("{} bytes of {} have not been consumed within {} ms. Closing the sender anyway.",
+                        ring.getUsedBytes(), ring.getFile(), CLOSE_TIMEOUT);
+                break;
+            }
+            waitStrategy.idle();
+        }
+        close();
+    }
+
+    /**
+     * Marks the end of the stream and closes the sender. Data that has been
+     * written before can still be read by the receiver.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long timeout = System.currentTimeMillis() + CLOSE_TIMEOUT;
+        while (!ring.offerEndOfStream()) {
+            if (System.currentTimeMillis() > timeout) {
+                LOGGER.warn("Couldn't mark the end of the stream of {} since the buffer is full.", ring.getFile());
+                break;
+            }
+            idleStrategy.idle();
+        }
+        ring.close();
+        if (metricRegistry != null) {
+            metricRegistry.removeAll("sender.", metricLabels);
+        }
+    }
+
+    /**
+     * @return the ring buffer this sender writes to
+     */
+    public SharedMemoryRingBuffer getRingBuffer() {
+        return ring;
+    }
+
+    /**
+     * Returns a newly created {@link Builder}.
+     *
+     * @return a new {@link Builder} instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        protected static final String QUEUE_INFO_MISSING_ERROR = "There are no directory and queue name provided for the SharedMemoryDataSender.";
+
+        protected File directory;
+        protected String queueName;
+        protected int capacity = DEFAULT_CAPACITY;
+        protected long sendTimeout = DEFAULT_SEND_TIMEOUT;
+        protected MetricRegistry metricRegistry = null;
+
+        public Builder() {
+        };
+
+        /**
+         * Sets the queue to which the data is sent.
+         *
+         * @param directory
+         *            the directory containing the directories of the queues
+         * @param queueName
+         *            the name of the queue
+         * @return this builder instance
+         */
+        public Builder queue(File directory, String queueName) {
+            this.directory = directory;
+            this.queueName = queueName;
+            return this;
+        }
+
+        /**
+         * Sets the capacity of the ring buffer in bytes. It has to be a power
+         * of two and determines the maximum size of a message (half of the
+         * capacity).
+         *
+         * @param capacity
+         *            the capacity of the buffer
+         * @return this builder instance
+         */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time {@link SharedMemoryDataSender#sendData(byte[])}
+         * waits for free space in the buffer before it fails.
+         *
+         * @param sendTimeout
+         *            the maximum waiting time in milliseconds
+         * @return this builder instance
+         */
+        public Builder sendTimeout(long sendTimeout) {
+            this.sendTimeout = sendTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the registry to which the metrics of the sender are added.
+         *
+         * @param metricRegistry
+         *            the registry for the metrics or {@code null} if no
+         *            metrics should be collected
+         * @return this builder instance
+         */
+        public Builder metricRegistry(MetricRegistry metricRegistry) {
+            this.metricRegistry = metricRegistry;
+            return this;
+        }
+
+        /**
+         * Builds the {@link SharedMemoryDataSender} instance with the
+         * previously given information.
+         *
+         * @return The newly created sender instance
+         * @throws IllegalStateException
+         *             if the directory or the queue name are missing
+         * @throws IOException
+         *             if the ring buffer file can not be created
+         */
+        public SharedMemoryDataSender build() throws IllegalStateException, IOException {
+            if ((directory == null) || (queueName == null)) {
+                throw new IllegalStateException(QUEUE_INFO_MISSING_ERROR);
+            }
+            File queueDirectory = SharedMemoryDataTransport.getQueueDirectory(directory, queueName);
+            if (!queueDirectory.exists() && !queueDirectory.mkdirs() && !queueDirectory.exists()) {
+                throw new IOException("Couldn't create directory " + queueDirectory + ".");
+            }
+            SharedMemoryRingBuffer ring = SharedMemoryRingBuffer.create(
+                    new File(queueDirectory, UUID.randomUUID().toString() + SharedMemoryRingBuffer.FILE_SUFFIX),
+                    capacity);
+            return new SharedMemoryDataSender(ring, queueName, sendTimeout, metricRegistry);
+        }
+    }
+}
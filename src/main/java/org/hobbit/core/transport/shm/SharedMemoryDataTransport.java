@@ -0,0 +1,139 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport.shm;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.IOUtils;
+import org.hobbit.core.metrics.MetricRegistry;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiver;
+import org.hobbit.core.rabbit.DataSender;
+import org.hobbit.core.rabbit.QueueOptions;
+import org.hobbit.core.transport.DataTransport;
+
+/**
+ * <p>
+ * A {@link DataTransport} that moves the data of queues through
+ * {@link SharedMemoryRingBuffer} files. It can be used if all components
+ * exchanging data are running on the same host and share the given directory,
+ * e.g., a tmpfs volume like {@code /dev/shm} that is mounted into all
+ * containers.
+ * </p>
+ * <p>
+ * Every queue is represented by a directory. Every sender creates its own
+ * ring buffer inside this directory while the receivers of the queue consume
+ * all of them. Every message is delivered to only one receiver. Broadcasts
+ * are delegated to the given broadcast transport. Since the messages of a
+ * queue never reach a broker, {@link QueueOptions} are ignored.
+ * </p>
+ */
+public class SharedMemoryDataTransport implements DataTransport {
+
+    /**
+     * Returns the directory of the queue with the given name. Characters of
+     * the name that might cause problems in file names are replaced.
+     *
+     * @param directory
+     *            the directory containing the queue directories
+     * @param queueName
+     *            the name of the queue
+     * @return the directory of the queue
+     */
+    public static File getQueueDirectory(File directory, String queueName) {
+        return new File(directory, queueName.replaceAll("[^a-zA-Z0-9._-]", "_"));
+    }
+
+    private final File directory;
+    private final int capacity;
+    private final DataTransport broadcastTransport;
+    private final MetricRegistry metricRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param directory
+     *            the directory in which the queues are created
+     * @param capacity
+     *            the capacity of the ring buffers in bytes (a power of two)
+     * @param broadcastTransport
+     *            the transport used for broadcasts or {@code null} if
+     *            broadcasts are not supported
+     * @param metricRegistry
+     *            registry for the metrics of the created senders and receivers
+     *            or {@code null} if no metrics should be collected
+     */
+    public SharedMemoryDataTransport(File directory, int capacity, DataTransport broadcastTransport,
+            MetricRegistry metricRegistry) {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.broadcastTransport = broadcastTransport;
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public DataSender createSender(String queueName) throws IOException {
+        return SharedMemoryDataSender.builder().queue(directory, queueName).capacity(capacity)
+                .metricRegistry(metricRegistry).build();
+    }
+
+    @Override
+    public DataSender createSender(String queueName, QueueOptions options) throws IOException {
+        return createSender(queueName);
+    }
+
+    @Override
+    public DataReceiver createReceiver(String queueName, QueueOptions options, DataHandler handler,
+            int maxParallelProcessedMsgs) throws IOException {
+        return createReceiver(queueName, handler, maxParallelProcessedMsgs);
+    }
+
+    @Override
+    public DataReceiver createReceiver(String queueName, DataHandler handler, int maxParallelProcessedMsgs)
+            throws IOException {
+        return SharedMemoryDataReceiver.builder().queue(directory, queueName).dataHandler(handler)
+                .maxParallelProcessedMsgs(maxParallelProcessedMsgs).metricRegistry(metricRegistry).build();
+    }
+
+    @Override
+    public DataSender createBroadcastSender(String exchangeName) throws IOException {
+        return getBroadcastTransport().createBroadcastSender(exchangeName);
+    }
+
+    @Override
+    public DataReceiver subscribe(String exchangeName, DataHandler handler) throws IOException {
+        return getBroadcastTransport().subscribe(exchangeName, handler);
+    }
+
+    private DataTransport getBroadcastTransport() throws IOException {
+        if (broadcastTransport == null) {
+            throw new IOException("The shared memory transport has no transport for broadcasts.");
+        }
+        return broadcastTransport;
+    }
+
+    /**
+     * Closes the broadcast transport. The queue directories are not deleted
+     * since they might still be used by other components.
+     */
+    @Override
+    public void close() throws IOException {
+        IOUtils.closeQuietly(broadcastTransport);
+    }
+
+}
@@ -0,0 +1,372 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport.shm;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * <p>
+ * A single producer, multi consumer ring buffer that is stored in a memory
+ * mapped file. Since the file can be mapped by several processes, the buffer
+ * can be used to move data between components running on the same host
+ * without involving a broker.
+ * </p>
+ * <p>
+ * The file starts with a header of {@link #HEADER_LENGTH} bytes that contains
+ * the capacity of the buffer and the positions of the producer and the
+ * consumers, each of them on its own cache line. The header is followed by the
+ * data area which contains records that are aligned to 8 bytes. Every record
+ * starts with an 8 byte word containing its type and the length of its body.
+ * The producer publishes a record by moving its position behind it. A
+ * consumer copies the record at the consumer position and claims it by moving
+ * the consumer position forward with a compare-and-swap operation. If another
+ * consumer has been faster, the copy is discarded. Hence, every record is
+ * delivered to exactly one consumer. The record marking the end of the stream
+ * is never claimed, i.e., all consumers see it.
+ * </p>
+ * <p>
+ * The positions are read and written with acquire and release semantics
+ * directly in the mapped memory. Hence, the ordering guarantees hold across
+ * all instances mapping the same file, even if they belong to different
+ * processes.
+ * </p>
+ * <p>
+ * <b>Note</b> that a buffer has to be used by exactly one producer thread. The
+ * producer has to use the instance returned by {@link #create(File, int)}
+ * while the consumers have to use their own instances returned by
+ * {@link #open(File)}. Several producers have to use their own buffers.
+ * </p>
+ */
+public class SharedMemoryRingBuffer implements Closeable {
+
+    /**
+     * Suffix of the files containing a ring buffer.
+     */
+    public static final String FILE_SUFFIX = ".ring";
+    /**
+     * Length of the header of the file in bytes.
+     */
+    public static final int HEADER_LENGTH = 192;
+    /**
+     * The minimal capacity of a buffer in bytes.
+     */
+    public static final int MIN_CAPACITY = 4096;
+
+    private static final int MAGIC = 0x48424954;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int PRODUCER_POSITION_OFFSET = 64;
+    private static final int CONSUMER_POSITION_OFFSET = 128;
+
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int ALIGNMENT = 8;
+
+    private static final int TYPE_DATA = 1;
+    private static final int TYPE_PADDING = 2;
+    private static final int TYPE_END_OF_STREAM = 3;
+
+    /**
+     * Creates a new ring buffer file with the given capacity. The file is
+     * created with a temporary name and renamed after its header has been
+     * written, i.e., a consumer that looks for files with the
+     * {@link #FILE_SUFFIX} never sees a partially initialized buffer.
+     *
+     * @param file
+     *            the file that should be created. Its name should end with
+     *            {@link #FILE_SUFFIX}.
+     * @param capacity
+     *            the capacity of the data area in bytes. Has to be a power of
+     *            two and at least {@link #MIN_CAPACITY}.
+     * @return the newly created ring buffer
+     * @throws IOException
+     *             if the file can not be created or mapped
+     */
+    public static SharedMemoryRingBuffer create(File file, int capacity) throws IOException {
+        if ((capacity < MIN_CAPACITY) || (Integer.bitCount(capacity) != 1)) {
+            throw new IllegalArgumentException(
+                    "The capacity has to be a power of two >= " + MIN_CAPACITY + " (got " + capacity + ").");
+        }
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        SharedMemoryRingBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+            raf.setLength(HEADER_LENGTH + capacity);
+            buffer = new SharedMemoryRingBuffer(raf.getChannel().map(MapMode.READ_WRITE, 0, HEADER_LENGTH + capacity),
+                    capacity);
+        }
+        buffer.buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.buffer.putInt(MAGIC_OFFSET, MAGIC);
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Couldn't rename " + tempFile + " to " + file + ".");
+        }
+        buffer.file = file;
+        return buffer;
+    }
+
+    /**
+     * Opens an existing ring buffer file.
+     *
+     * @param file
+     *            the file containing the ring buffer
+     * @return the opened ring buffer
+     * @throws IOException
+     *             if the file can not be mapped or does not contain a ring
+     *             buffer
+     */
+    public static SharedMemoryRingBuffer open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_LENGTH + MIN_CAPACITY) {
+                throw new IOException("The file " + file + " is too small to contain a ring buffer.");
+            }
+            MappedByteBuffer mapped = channel.map(MapMode.READ_WRITE, 0, channel.size());
+            if (mapped.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("The file " + file + " does not contain a ring buffer.");
+            }
+            int capacity = mapped.getInt(CAPACITY_OFFSET);
+            if (HEADER_LENGTH + (long) capacity != channel.size()) {
+                throw new IOException("The capacity of the ring buffer in " + file + " does not match its size.");
+            }
+            SharedMemoryRingBuffer buffer = new SharedMemoryRingBuffer(mapped, capacity);
+            buffer.file = file;
+            return buffer;
+        }
+    }
+
+    /**
+     * The mapped memory. The reference has to be kept since the memory is
+     * unmapped as soon as the buffer is garbage collected.
+     */
+    private final MappedByteBuffer buffer;
+    /**
+     * View of the buffer used for bulk reads and writes since Java 8 does not
+     * offer absolute bulk operations.
+     */
+    private final ByteBuffer view;
+    /**
+     * Address of the mapped memory.
+     */
+    private final long address;
+    private final int capacity;
+    private final int mask;
+    private File file;
+    /**
+     * Position of the producer. It is only used by the instance of the
+     * producer.
+     */
+    private long position;
+    private boolean endOfStream = false;
+
+    protected SharedMemoryRingBuffer(MappedByteBuffer buffer, int capacity) {
+        this.buffer = buffer;
+        this.view = buffer.duplicate();
+        this.address = OrderedMemoryAccess.getAddress(buffer);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.position = getProducerPosition();
+    }
+
+    /**
+     * Tries to append the given data to the buffer.
+     *
+     * @param data
+     *            the data that should be appended
+     * @return {@code true} if the data has been appended or {@code false} if
+     *         the buffer does not have enough free space
+     * @throws IllegalArgumentException
+     *             if the data is larger than {@link #getMaxMessageLength()}
+     */
+    public boolean offer(byte[] data) {
+        if (data.length > getMaxMessageLength()) {
+            throw new IllegalArgumentException("The message has " + data.length
+                    + " bytes which exceeds the maximum length of " + getMaxMessageLength() + " bytes.");
+        }
+        return append(TYPE_DATA, data);
+    }
+
+    /**
+     * Tries to append a record marking the end of the stream, i.e., the
+     * producer won't append any further data.
+     *
+     * @return {@code true} if the record has been appended or {@code false} if
+     *         the buffer does not have enough free space
+     */
+    public boolean offerEndOfStream() {
+        return append(TYPE_END_OF_STREAM, new byte[0]);
+    }
+
+    private boolean append(int type, byte[] data) {
+        int recordLength = align(RECORD_HEADER_LENGTH + data.length);
+        int index = (int) (position & mask);
+        int bytesUntilEnd = capacity - index;
+        int required = (recordLength > bytesUntilEnd) ? (recordLength + bytesUntilEnd) : recordLength;
+        // the acquire makes sure that the consumers are done with the area
+        // before we overwrite it
+        if ((position + required - getConsumerPosition()) > capacity) {
+            return false;
+        }
+        long newPosition = position;
+        if (recordLength > bytesUntilEnd) {
+            // the record does not fit into the remaining part of the buffer
+            buffer.putLong(HEADER_LENGTH + index, recordHeader(TYPE_PADDING, bytesUntilEnd - RECORD_HEADER_LENGTH));
+            newPosition += bytesUntilEnd;
+            index = 0;
+        }
+        view.position(HEADER_LENGTH + index + RECORD_HEADER_LENGTH);
+        view.put(data);
+        buffer.putLong(HEADER_LENGTH + index, recordHeader(type, data.length));
+        newPosition += recordLength;
+        // the release publishes the records written before
+        OrderedMemoryAccess.putOrderedLong(address + PRODUCER_POSITION_OFFSET, newPosition);
+        position = newPosition;
+        return true;
+    }
+
+    /**
+     * Returns the next message of the buffer or {@code null} if no message is
+     * available. If the producer has marked the end of the stream,
+     * {@link #isEndOfStream()} returns {@code true} afterwards. This method
+     * can be called by several consumers in parallel. Every message is
+     * returned to only one of them.
+     *
+     * @return the next message or {@code null} if no message is available
+     */
+    public byte[] poll() {
+        while (!endOfStream) {
+            long consumerPosition = getConsumerPosition();
+            if (consumerPosition >= getProducerPosition()) {
+                return null;
+            }
+            // the record might be overwritten by the producer as soon as
+            // another consumer claimed it. Hence, its content is only used
+            // after we claimed it ourselves.
+            int index = (int) (consumerPosition & mask);
+            long header = buffer.getLong(HEADER_LENGTH + index);
+            int type = (int) (header >>> 32);
+            int length = (int) header;
+            byte[] data = null;
+            int recordLength = 0;
+            if ((type == TYPE_PADDING) && (index + RECORD_HEADER_LENGTH + (long) length == capacity)) {
+                recordLength = RECORD_HEADER_LENGTH + length;
+            } else if ((type == TYPE_DATA) && (length >= 0) && (length <= getMaxMessageLength())
+                    && (index + RECORD_HEADER_LENGTH + length <= capacity)) {
+                recordLength = align(RECORD_HEADER_LENGTH + length);
+                data = new byte[length];
+                view.position(HEADER_LENGTH + index + RECORD_HEADER_LENGTH);
+                view.get(data);
+            } else {
+                // make sure that the header has been read before checking
+                // whether the record has been claimed in the meantime
+                OrderedMemoryAccess.loadFence();
+                if (getConsumerPosition() != consumerPosition) {
+                    // another consumer claimed the record and it has been
+                    // overwritten
+                    continue;
+                }
+                if (type == TYPE_END_OF_STREAM) {
+                    // the end of the stream is not claimed to make sure that
+                    // all consumers see it
+                    endOfStream = true;
+                    return null;
+                }
+                throw new IllegalStateException(
+                        "The ring buffer " + file + " contains an invalid record at position " + consumerPosition + ".");
+            }
+            if (OrderedMemoryAccess.compareAndSwapLong(address + CONSUMER_POSITION_OFFSET, consumerPosition,
+                    consumerPosition + recordLength) && (data != null)) {
+                return data;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code true} if the consumer has read the record marking the end
+     *         of the stream
+     */
+    public boolean isEndOfStream() {
+        return endOfStream;
+    }
+
+    /**
+     * @return the number of bytes that have been written by the producer but
+     *         have not been consumed, yet
+     */
+    public long getUsedBytes() {
+        long consumerPosition = getConsumerPosition();
+        return getProducerPosition() - consumerPosition;
+    }
+
+    /**
+     * @return {@code true} if all written records have been consumed
+     */
+    public boolean isEmpty() {
+        return getUsedBytes() == 0;
+    }
+
+    /**
+     * @return the capacity of the data area in bytes
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the maximum length of a single message in bytes
+     */
+    public int getMaxMessageLength() {
+        return (capacity / 2) - RECORD_HEADER_LENGTH;
+    }
+
+    /**
+     * @return the file containing this buffer
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Does nothing since the mapped memory is released when the buffer is
+     * garbage collected. Note that the file is not deleted.
+     */
+    @Override
+    public void close() {
+    }
+
+    private long getProducerPosition() {
+        return OrderedMemoryAccess.getLongVolatile(address + PRODUCER_POSITION_OFFSET);
+    }
+
+    private long getConsumerPosition() {
+        return OrderedMemoryAccess.getLongVolatile(address + CONSUMER_POSITION_OFFSET);
+    }
+
+    private static long recordHeader(int type, int length) {
+        return (((long) type) << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+}
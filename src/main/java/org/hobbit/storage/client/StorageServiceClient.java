@@ -25,6 +25,7 @@ import org.apache.jena.query.ResultSet;
 import org.apache.jena.query.ResultSetFactory;
 import org.apache.jena.rdf.model.Model;
 import org.hobbit.core.Constants;
+import org.hobbit.core.metrics.MetricRegistry;
 import org.hobbit.core.rabbit.RabbitMQUtils;
 import org.hobbit.core.rabbit.RabbitRpcClient;
 import org.hobbit.storage.queries.SparqlQueries;
@@ -61,8 +62,33 @@ public class StorageServiceClient implements Closeable {
      *             consumer.
      */
     public static StorageServiceClient create(Connection connection) throws IOException {
+        return create(connection, null);
+    }
+
+    /**
+     * Creates a StorageServiceClient using the given RabbitMQ
+     * {@link Connection} that registers the metrics of its RPC client (see
+     * {@link RabbitRpcClient#setMetricRegistry(MetricRegistry)}) in the given
+     * registry.
+     *
+     * @param connection
+     *            RabbitMQ connection used for the communication
+     * @param metricRegistry
+     *            the registry for the metrics of the client (typically the
+     *            registry of the component) or {@code null} if no metrics
+     *            should be registered
+     * @return a StorageServiceClient instance
+     * @throws IOException
+     *             if a problem occurs during the creation of the queues or the
+     *             consumer.
+     */
+    public static StorageServiceClient create(Connection connection, MetricRegistry metricRegistry)
+            throws IOException {
         RabbitRpcClient rpcClient = RabbitRpcClient.create(connection, Constants.STORAGE_QUEUE_NAME);
         rpcClient.setMaxWaitingTime(DEFAULT_MAX_WAITING_TIME);
+        if (metricRegistry != null) {
+            rpcClient.setMetricRegistry(metricRegistry);
+        }
         return new StorageServiceClient(rpcClient);
     }
 
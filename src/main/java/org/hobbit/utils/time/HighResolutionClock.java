@@ -0,0 +1,79 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.utils.time;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock offering timestamps with a nanosecond resolution. The timestamps are
+ * based on {@link System#nanoTime()} and are, thus, monotonic, i.e., they are
+ * not affected by changes of the wall clock. To make the timestamps of
+ * different components comparable, the clock is anchored once to the wall
+ * clock when this class is loaded. Hence, the timestamps can be seen as
+ * nanoseconds since the Unix epoch. Note that the precision of a comparison
+ * of timestamps created in different containers still depends on the
+ * synchronization of the wall clocks of their hosts.
+ */
+public class HighResolutionClock {
+
+    /**
+     * The wall clock time at which this clock has been anchored (in
+     * nanoseconds since the Unix epoch).
+     */
+    private static final long EPOCH_ANCHOR_NANOS = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    /**
+     * The value of {@link System#nanoTime()} at the moment at which this clock
+     * has been anchored.
+     */
+    private static final long NANO_TIME_ANCHOR = System.nanoTime();
+
+    private HighResolutionClock() {
+    }
+
+    /**
+     * Returns the current time in nanoseconds since the Unix epoch. In
+     * contrast to {@link System#currentTimeMillis()} the returned values are
+     * monotonic.
+     *
+     * @return the current time in nanoseconds
+     */
+    public static long currentTimeNanos() {
+        return EPOCH_ANCHOR_NANOS + (System.nanoTime() - NANO_TIME_ANCHOR);
+    }
+
+    /**
+     * Converts the given value of {@link System#nanoTime()} into a time in
+     * nanoseconds since the Unix epoch, i.e., into the scale of
+     * {@link #currentTimeNanos()}.
+     *
+     * @param nanoTime
+     *            a value of {@link System#nanoTime()}
+     * @return the time in nanoseconds
+     */
+    public static long toTimeNanos(long nanoTime) {
+        return EPOCH_ANCHOR_NANOS + (nanoTime - NANO_TIME_ANCHOR);
+    }
+
+    /**
+     * Returns the current time in microseconds since the Unix epoch.
+     *
+     * @return the current time in microseconds
+     */
+    public static long currentTimeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(currentTimeNanos());
+    }
+}
@@ -16,10 +16,38 @@
  */
 package org.hobbit.core;
 
+import org.hobbit.core.rabbit.inmemory.InMemoryConnectionFactory;
 import org.junit.Ignore;
 
+import com.rabbitmq.client.ConnectionFactory;
+
 @Ignore
 public class TestConstants {
 
-    public static final String RABBIT_HOST = "192.168.99.100";
+    /**
+     * The broker used by the tests. By default, the in-memory broker is used.
+     * A RabbitMQ broker can be used by setting the system property
+     * {@link Constants#RABBIT_MQ_HOST_NAME_KEY}, e.g.,
+     * <code>-DHOBBIT_RABBIT_HOST=192.168.99.100</code>.
+     */
+    public static final String RABBIT_HOST = System.getProperty(Constants.RABBIT_MQ_HOST_NAME_KEY,
+            Constants.IN_MEMORY_BROKER_HOST_NAME);
+
+    /**
+     * Creates a connection factory for the given broker host.
+     *
+     * @param host
+     *            the host name of the broker or
+     *            {@link Constants#IN_MEMORY_BROKER_HOST_NAME}
+     * @return the connection factory
+     */
+    public static ConnectionFactory createConnectionFactory(String host) {
+        if (Constants.IN_MEMORY_BROKER_HOST_NAME.equals(host)) {
+            return new InMemoryConnectionFactory();
+        } else {
+            ConnectionFactory factory = new ConnectionFactory();
+            factory.setHost(host);
+            return factory;
+        }
+    }
 }
@@ -0,0 +1,100 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.apache.jena.rdf.model.Model;
+import org.hobbit.core.Commands;
+import org.hobbit.core.Constants;
+import org.hobbit.core.TestConstants;
+import org.hobbit.core.components.dummy.DummyComponentExecutor;
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.hobbit.vocab.HOBBIT;
+import org.hobbit.vocab.HobbitErrors;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+
+/**
+ * Tests the abort of a benchmark if one of its components crashes.
+ */
+public class BenchmarkAbortTest {
+
+    private static final String HOBBIT_SESSION_ID = "BenchmarkAbortTest";
+    private static final String EXPERIMENT_URI = Constants.EXPERIMENT_URI_NS + HOBBIT_SESSION_ID;
+    private static final String DATA_GEN_CONTAINER_ID = "datagen1";
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Test(timeout = 60000)
+    public void test() throws Exception {
+        environmentVariables.set(Constants.RABBIT_MQ_HOST_NAME_KEY, TestConstants.RABBIT_HOST);
+        environmentVariables.set(Constants.HOBBIT_SESSION_ID_KEY, HOBBIT_SESSION_ID);
+        environmentVariables.set(Constants.BENCHMARK_PARAMETERS_MODEL_KEY,
+                "{ \"@id\" : \"http://w3id.org/hobbit/experiments#New\", \"@type\" : \"http://w3id.org/hobbit/vocab#Experiment\" }");
+        environmentVariables.set(Constants.HOBBIT_EXPERIMENT_URI_KEY, EXPERIMENT_URI);
+
+        DummyBenchmarkController controller = new DummyBenchmarkController();
+        DummyComponentExecutor executor = new DummyComponentExecutor(controller);
+        Thread controllerThread = new Thread(executor);
+        controllerThread.start();
+
+        controller.receiveCommand(Commands.START_BENCHMARK_SIGNAL, RabbitMQUtils.writeString("system"));
+        // wait until the controller is waiting for the data generator
+        controller.benchmarkStarted.acquire();
+        controller.receiveCommand(Commands.DOCKER_CONTAINER_TERMINATED, RabbitMQUtils.writeByteArrays(null,
+                new byte[][] { RabbitMQUtils.writeString(DATA_GEN_CONTAINER_ID) }, new byte[] { (byte) 1 }));
+        controllerThread.join();
+
+        Assert.assertFalse(executor.isSuccess());
+        Assert.assertTrue(controller.isAborted());
+        Assert.assertEquals(LifecycleBarrier.State.CRASHED, controller.dataGenLifecycle.getState());
+        Assert.assertEquals(LifecycleBarrier.State.ABORTED, controller.taskGenLifecycle.getState());
+        Assert.assertEquals(1, controller.sentModels.size());
+        Model model = controller.sentModels.get(0);
+        Assert.assertTrue(model.contains(model.getResource(EXPERIMENT_URI), HOBBIT.terminatedWithError,
+                HobbitErrors.BenchmarkCrashed));
+    }
+
+    protected static class DummyBenchmarkController extends AbstractBenchmarkController {
+
+        private Semaphore benchmarkStarted = new Semaphore(0);
+        private List<Model> sentModels = new ArrayList<Model>();
+
+        @Override
+        protected void executeBenchmark() throws Exception {
+            dataGenContainerIds.add(DATA_GEN_CONTAINER_ID);
+            dataGenLifecycle.expect(DATA_GEN_CONTAINER_ID);
+            taskGenLifecycle.expect("taskgen1");
+            benchmarkStarted.release();
+            // this waiting is interrupted by the abort
+            waitForDataGenToFinish();
+            sendResultModel(resultModel);
+        }
+
+        @Override
+        protected void sendResultModel(Model model) {
+            sentModels.add(model);
+            super.sendResultModel(model);
+        }
+    }
+}
@@ -155,17 +155,14 @@ public class BenchmarkControllerTest extends AbstractBenchmarkController {
     public void init() throws Exception {
         super.init();
 
-        // create data generators
-        createDataGenerators(DATA_GEN_IMAGE, numberOfDataGenerators, null);
-
-        // Create task generators
-        createTaskGenerators(TASK_GEN_IMAGE, numberOfTaskGenerators, null);
-
-        // Create evaluation storage
-        createEvaluationStorage(EVAL_IMAGE, null);
+        // request data generators, task generators and the evaluation
+        // storage at once
+        waitForContainerCreation(createDataGeneratorsAsync(DATA_GEN_IMAGE, numberOfDataGenerators, null),
+                createTaskGeneratorsAsync(TASK_GEN_IMAGE, numberOfTaskGenerators, null),
+                createEvaluationStorageAsync(EVAL_IMAGE, null));
 
         // Wait for all components to finish their initialization
-        waitForComponentsToInitialize();
+        waitForComponentsToInitialize(60000);
     }
 
     @Override
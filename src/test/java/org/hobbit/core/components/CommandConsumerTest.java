@@ -0,0 +1,176 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.components;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.io.IOUtils;
+import org.hobbit.core.Commands;
+import org.hobbit.core.Constants;
+import org.hobbit.core.TestConstants;
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+
+/**
+ * Tests the dedicated connection and thread used to consume commands, the
+ * metrics of the command handling and the registered command handlers.
+ */
+public class CommandConsumerTest {
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Test(timeout = 30000)
+    public void test() throws Exception {
+        environmentVariables.set(Constants.RABBIT_MQ_HOST_NAME_KEY, TestConstants.RABBIT_HOST);
+        environmentVariables.set(Constants.HOBBIT_SESSION_ID_KEY, "CommandConsumerTest");
+
+        DummyComponent component = new DummyComponent();
+        try {
+            component.init();
+            component.setCmdLatencyBudget(10);
+            Assert.assertNotSame(component.cmdQueueFactory.getConnection(),
+                    component.incomingCmdQueueFactory.getConnection());
+
+            // the component receives its own commands
+            component.sendToCmdQueue(Commands.DATA_GENERATION_FINISHED);
+            component.sendToCmdQueue(Commands.TASK_GENERATION_FINISHED);
+            component.commandReceived.acquire(2);
+
+            for (String threadName : component.handlingThreads) {
+                Assert.assertEquals("hobbit-command-consumer", threadName);
+            }
+            // the metrics of the first command are recorded before the second
+            // command is handled
+            Assert.assertEquals(1, component.getMetricRegistry().getCounters().get("commands.budgetExceeded")
+                    .getCount());
+            Assert.assertTrue(
+                    component.getMetricRegistry().getHistograms().get("commands.handlingTime").getCount() >= 1);
+            Assert.assertFalse(component.isCmdConnectionBlocked());
+            Assert.assertEquals(0,
+                    component.getMetricRegistry().getGauges().get("commands.connectionBlocked").getValue());
+        } finally {
+            IOUtils.closeQuietly(component);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testCommandHandlers() throws Exception {
+        environmentVariables.set(Constants.RABBIT_MQ_HOST_NAME_KEY, TestConstants.RABBIT_HOST);
+        environmentVariables.set(Constants.HOBBIT_SESSION_ID_KEY, "CommandConsumerTest");
+
+        HandlerComponent component = new HandlerComponent();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            component.init();
+            component.registerHandlers(executor);
+
+            // the slow command is handled by the executor and does not block
+            // the following command
+            component.sendToCmdQueue(Commands.EVAL_MODULE_FINISHED_SIGNAL);
+            component.sendToCmdQueue(Commands.EVAL_STORAGE_READY_SIGNAL);
+            component.fastCommandHandled.acquire();
+            Assert.assertFalse(component.slowCommandHandled.tryAcquire());
+            component.slowCommandRelease.release();
+            component.slowCommandHandled.acquire();
+
+            // commands with a session id that is not accepted are ignored
+            component.handleCmd(createCommand("otherSession", Commands.EVAL_STORAGE_READY_SIGNAL), (String) null);
+            Assert.assertFalse(component.fastCommandHandled.tryAcquire());
+            component.handleCmd(createCommand("CommandConsumerTes", Commands.EVAL_STORAGE_READY_SIGNAL),
+                    (String) null);
+            Assert.assertFalse(component.fastCommandHandled.tryAcquire());
+            component.addCommandHeaderId("otherSession");
+            component.handleCmd(createCommand("otherSession", Commands.EVAL_STORAGE_READY_SIGNAL), (String) null);
+            Assert.assertTrue(component.fastCommandHandled.tryAcquire());
+        } finally {
+            IOUtils.closeQuietly(component);
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] createCommand(String sessionId, byte command) {
+        byte sessionIdBytes[] = RabbitMQUtils.writeString(sessionId);
+        ByteBuffer buffer = ByteBuffer.allocate(sessionIdBytes.length + 5);
+        buffer.putInt(sessionIdBytes.length);
+        buffer.put(sessionIdBytes);
+        buffer.put(command);
+        return buffer.array();
+    }
+
+    protected static class HandlerComponent extends AbstractCommandReceivingComponent {
+
+        private Semaphore fastCommandHandled = new Semaphore(0);
+        private Semaphore slowCommandHandled = new Semaphore(0);
+        private Semaphore slowCommandRelease = new Semaphore(0);
+
+        public void registerHandlers(Executor executor) {
+            registerCommandHandler(Commands.EVAL_STORAGE_READY_SIGNAL, new CommandHandler() {
+                @Override
+                public void handleCommand(byte command, byte[] data) {
+                    fastCommandHandled.release();
+                }
+            });
+            registerCommandHandler(Commands.EVAL_MODULE_FINISHED_SIGNAL, new CommandHandler() {
+                @Override
+                public void handleCommand(byte command, byte[] data) {
+                    try {
+                        slowCommandRelease.acquire();
+                        slowCommandHandled.release();
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }, executor);
+        }
+
+        @Override
+        public void run() throws Exception {
+        }
+    }
+
+    protected static class DummyComponent extends AbstractCommandReceivingComponent {
+
+        private Semaphore commandReceived = new Semaphore(0);
+        private List<String> handlingThreads = new ArrayList<String>();
+
+        @Override
+        public void run() throws Exception {
+        }
+
+        @Override
+        public void receiveCommand(byte command, byte[] data) {
+            handlingThreads.add(Thread.currentThread().getName());
+            if (command == Commands.DATA_GENERATION_FINISHED) {
+                // a slow handler exceeding the latency budget
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                }
+            }
+            commandReceived.release();
+        }
+    }
+}
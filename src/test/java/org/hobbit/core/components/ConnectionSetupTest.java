@@ -0,0 +1,43 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.components;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the backoff applied by the {@link AbstractComponent} while trying to
+ * connect to RabbitMQ.
+ */
+public class ConnectionSetupTest {
+
+    @Test
+    public void testWaitingTimeBeforeRetry() {
+        long expectedMaximum = AbstractComponent.FIRST_WAITING_TIME_BEFORE_RETRY;
+        for (int i = 0; i < 100; ++i) {
+            long waitingTime = AbstractComponent.getWaitingTimeBeforeRetry(i);
+            Assert.assertTrue("waiting time " + waitingTime + " of try #" + i + " is too short",
+                    waitingTime >= (expectedMaximum / 2));
+            Assert.assertTrue("waiting time " + waitingTime + " of try #" + i + " is too long",
+                    waitingTime <= expectedMaximum);
+            expectedMaximum = Math.min(2 * expectedMaximum, AbstractComponent.MAX_WAITING_TIME_BEFORE_RETRY);
+        }
+        // the first retry has to happen fast
+        Assert.assertTrue(AbstractComponent.getWaitingTimeBeforeRetry(0) <= 100);
+    }
+
+}
@@ -0,0 +1,216 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.components;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.hobbit.core.Commands;
+import org.hobbit.core.Constants;
+import org.hobbit.core.TestConstants;
+import org.hobbit.core.data.StartCommandData;
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+
+import com.google.gson.Gson;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+/**
+ * Tests the creation of containers by several threads of a single component
+ * with a platform that answers the requests in a different order.
+ */
+public class ContainerCreationTest {
+
+    private static final String HOBBIT_SESSION_ID = "ContainerCreationTest";
+    private static final String IGNORED_IMAGE = "ignoredImage";
+    private static final int NUMBER_OF_REQUESTS = 10;
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    private ReversingPlatform platform;
+    private DummyComponent component;
+
+    @Before
+    public void before() throws Exception {
+        environmentVariables.set(Constants.RABBIT_MQ_HOST_NAME_KEY, TestConstants.RABBIT_HOST);
+        environmentVariables.set(Constants.HOBBIT_SESSION_ID_KEY, HOBBIT_SESSION_ID);
+        platform = new ReversingPlatform(NUMBER_OF_REQUESTS);
+        platform.init();
+        component = new DummyComponent();
+        component.init();
+    }
+
+    @After
+    public void after() {
+        IOUtils.closeQuietly(component);
+        IOUtils.closeQuietly(platform);
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentCreation() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_REQUESTS);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < NUMBER_OF_REQUESTS; ++i) {
+                final String image = "image" + i;
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return component.createContainer(image, null);
+                    }
+                }));
+            }
+            for (int i = 0; i < NUMBER_OF_REQUESTS; ++i) {
+                Assert.assertEquals("container-image" + i, results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(0, component.getNumberOfPendingResponses());
+    }
+
+    @Test(timeout = 30000)
+    public void testTimeout() throws Exception {
+        platform.setRequestsPerResponse(1);
+        component.setCmdResponseTimeout(1000);
+        Assert.assertNull(component.createContainer(IGNORED_IMAGE, null));
+        Assert.assertEquals(0, component.getNumberOfPendingResponses());
+        // a timed out request must not influence the following requests
+        Assert.assertEquals("container-image", component.createContainer("image", null));
+    }
+
+    @Test(timeout = 30000)
+    public void testUncorrelatedResponsesAfterTimeout() throws Exception {
+        platform.setRequestsPerResponse(1);
+        platform.setSendingCorrelationIds(false);
+        component.setCmdResponseTimeout(1000);
+        // as long as no request has been discarded, the responses are
+        // assigned in the order of the requests
+        Assert.assertEquals("container-image", component.createContainer("image", null));
+        // the platform answers the first request too late, i.e., after the
+        // second request has been sent
+        platform.setRequestsPerResponse(2);
+        Assert.assertNull(component.createContainer("image1", null));
+        // the late response must not be assigned to the second request
+        Assert.assertNull(component.createContainer("image2", null));
+        Assert.assertEquals(0, component.getNumberOfPendingResponses());
+    }
+
+    protected static class DummyComponent extends AbstractCommandReceivingComponent {
+
+        @Override
+        public void run() throws Exception {
+        }
+
+        @Override
+        public void receiveCommand(byte command, byte[] data) {
+        }
+    }
+
+    /**
+     * A platform that collects the container creation requests and answers a
+     * complete batch in the reversed order (or in the original order if it
+     * does not send correlation ids). Requests for the
+     * {@link ContainerCreationTest#IGNORED_IMAGE} are never answered.
+     */
+    protected static class ReversingPlatform extends AbstractCommandReceivingComponent {
+
+        private Gson gson = new Gson();
+        private int requestsPerResponse;
+        private boolean sendingCorrelationIds = true;
+        private List<BasicProperties> requestProperties = new ArrayList<BasicProperties>();
+        private List<String> requestedImages = new ArrayList<String>();
+
+        public ReversingPlatform(int requestsPerResponse) {
+            this.requestsPerResponse = requestsPerResponse;
+        }
+
+        public void setRequestsPerResponse(int requestsPerResponse) {
+            this.requestsPerResponse = requestsPerResponse;
+        }
+
+        /**
+         * Sets whether the responses carry the correlation ids of the requests
+         * or not (like older platform controllers).
+         */
+        public void setSendingCorrelationIds(boolean sendingCorrelationIds) {
+            this.sendingCorrelationIds = sendingCorrelationIds;
+        }
+
+        @Override
+        protected void handleCmd(byte[] bytes, AMQP.BasicProperties properties) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            RabbitMQUtils.readString(buffer);
+            if (buffer.get() == Commands.DOCKER_CONTAINER_START) {
+                byte data[] = new byte[buffer.remaining()];
+                buffer.get(data);
+                StartCommandData startCommand = gson.fromJson(RabbitMQUtils.readString(data), StartCommandData.class);
+                if (!IGNORED_IMAGE.equals(startCommand.image)) {
+                    requestProperties.add(properties);
+                    requestedImages.add(startCommand.image);
+                    if (requestProperties.size() >= requestsPerResponse) {
+                        respond();
+                    }
+                }
+            }
+        }
+
+        private void respond() {
+            if (sendingCorrelationIds) {
+                Collections.reverse(requestProperties);
+                Collections.reverse(requestedImages);
+            }
+            try {
+                for (int i = 0; i < requestProperties.size(); ++i) {
+                    cmdChannel.basicPublish("", requestProperties.get(i).getReplyTo(),
+                            new BasicProperties.Builder()
+                                    .correlationId(sendingCorrelationIds
+                                            ? requestProperties.get(i).getCorrelationId() : null)
+                                    .build(),
+                            RabbitMQUtils.writeString("container-" + requestedImages.get(i)));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            requestProperties.clear();
+            requestedImages.clear();
+        }
+
+        @Override
+        public void run() throws Exception {
+        }
+
+        @Override
+        public void receiveCommand(byte command, byte[] data) {
+        }
+    }
+}
@@ -54,11 +54,13 @@ public class DataGeneratorTest extends AbstractDataGenerator {
     public static Collection<Object[]> data() {
         List<Object[]> testConfigs = new ArrayList<Object[]>();
         // We use only one single data generator
-        testConfigs.add(new Object[] { 1, 10000 });
+        testConfigs.add(new Object[] { 1, 10000, 0 });
         // We use two data generators
-        testConfigs.add(new Object[] { 2, 10000 });
+        testConfigs.add(new Object[] { 2, 10000, 0 });
         // We use ten data generators
-        testConfigs.add(new Object[] { 10, 20000 });
+        testConfigs.add(new Object[] { 10, 20000, 0 });
+        // We use two data generators with a flow control
+        testConfigs.add(new Object[] { 2, 10000, 100 });
         return testConfigs;
     }
 
@@ -68,12 +70,14 @@ public class DataGeneratorTest extends AbstractDataGenerator {
     private List<String> sentData = new ArrayList<String>();
     private int numberOfGenerators;
     private int numberOfMessages;
+    private int flowControlWindow;
     private Semaphore taskGensReady = new Semaphore(0);
     private Semaphore systemReady = new Semaphore(0);
 
-    public DataGeneratorTest(int numberOfGenerators, int numberOfMessages) {
+    public DataGeneratorTest(int numberOfGenerators, int numberOfMessages, int flowControlWindow) {
         this.numberOfGenerators = numberOfGenerators;
         this.numberOfMessages = numberOfMessages;
+        this.flowControlWindow = flowControlWindow;
     }
 
     @Override
@@ -95,6 +99,9 @@ public class DataGeneratorTest extends AbstractDataGenerator {
         environmentVariables.set(Constants.GENERATOR_ID_KEY, "0");
         environmentVariables.set(Constants.GENERATOR_COUNT_KEY, "1");
         environmentVariables.set(Constants.HOBBIT_SESSION_ID_KEY, "0");
+        if (flowControlWindow > 0) {
+            environmentVariables.set(Constants.DATA_FLOW_CONTROL_WINDOW_KEY, Integer.toString(flowControlWindow));
+        }
 
         init();
 
@@ -0,0 +1,146 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.components;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.hobbit.core.components.LifecycleBarrier.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link LifecycleBarrier} class.
+ */
+public class LifecycleBarrierTest {
+
+    @Test
+    public void testLifecycle() throws Exception {
+        LifecycleBarrier barrier = new LifecycleBarrier("generators");
+        barrier.expect(Arrays.asList("gen1", "gen2"));
+        Assert.assertEquals(State.STARTING, barrier.getState());
+        Assert.assertFalse(barrier.whenFirstReady().isDone());
+
+        barrier.componentReady();
+        Assert.assertTrue(barrier.whenFirstReady().isDone());
+        Assert.assertFalse(barrier.whenReady().isDone());
+        barrier.componentReady();
+        barrier.whenReady().get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(State.READY, barrier.getState());
+
+        Assert.assertFalse(barrier.componentTerminated("otherContainer", 1));
+        Assert.assertTrue(barrier.componentTerminated("gen1", 0));
+        Assert.assertFalse(barrier.whenTerminated().isDone());
+        Assert.assertTrue(barrier.componentTerminated("gen2", 0));
+        barrier.whenTerminated().get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(State.TERMINATED, barrier.getState());
+    }
+
+    @Test
+    public void testReadySignalsBeforeRegistration() throws Exception {
+        LifecycleBarrier barrier = new LifecycleBarrier("generators");
+        barrier.componentReady();
+        Assert.assertFalse(barrier.whenReady().isDone());
+        barrier.expect("gen1");
+        barrier.whenReady().get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRequestedContainers() throws Exception {
+        LifecycleBarrier barrier = new LifecycleBarrier("generators");
+        barrier.expectContainers(2);
+        Assert.assertEquals(2, barrier.getNumberOfExpectedContainers());
+        barrier.componentReady();
+        Assert.assertFalse(barrier.whenReady().isDone());
+        barrier.componentReady();
+        // the ready signals are sufficient although the names are unknown
+        barrier.whenReady().get(1, TimeUnit.SECONDS);
+
+        // a crash before the names are known is not lost
+        Assert.assertFalse(barrier.componentTerminated("gen2", 1));
+        Assert.assertEquals(State.READY, barrier.getState());
+        barrier.expect(Arrays.asList("gen1", "gen2"));
+        Assert.assertEquals(State.CRASHED, barrier.getState());
+        try {
+            barrier.whenTerminated().get(1, TimeUnit.SECONDS);
+            Assert.fail("Expected the future to fail.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("gen2"));
+        }
+    }
+
+    @Test
+    public void testCreationFailure() throws Exception {
+        LifecycleBarrier barrier = new LifecycleBarrier("generators");
+        barrier.expectContainers(1);
+        barrier.creationFailed(new IllegalStateException("No response."));
+        Assert.assertEquals(State.CRASHED, barrier.getState());
+        try {
+            barrier.whenReady().get(1, TimeUnit.SECONDS);
+            Assert.fail("Expected the future to fail.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testCrash() throws Exception {
+        LifecycleBarrier barrier = new LifecycleBarrier("generators");
+        barrier.expect(Arrays.asList("gen1", "gen2"));
+        barrier.componentReady();
+        Assert.assertTrue(barrier.componentTerminated("gen2", 1));
+        Assert.assertEquals(State.CRASHED, barrier.getState());
+        try {
+            barrier.whenReady().get(1, TimeUnit.SECONDS);
+            Assert.fail("Expected the future to fail.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            Assert.assertTrue(e.getCause().getMessage().contains("gen2"));
+        }
+        Assert.assertTrue(barrier.whenTerminated().isDone());
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        LifecycleBarrier barrier = new LifecycleBarrier("generators");
+        barrier.expect(Arrays.asList("gen1", "gen2"));
+        barrier.componentReady();
+        barrier.abort();
+        Assert.assertEquals(State.ABORTED, barrier.getState());
+        // the first ready signal has been received before the abort
+        barrier.whenFirstReady().get(1, TimeUnit.SECONDS);
+        Assert.assertTrue(barrier.whenReady().isCancelled());
+        Assert.assertTrue(barrier.whenTerminated().isCancelled());
+
+        // a terminated group is not affected by an abort
+        barrier = new LifecycleBarrier("generators");
+        barrier.expect("gen1");
+        barrier.componentReady();
+        barrier.componentTerminated("gen1", 0);
+        barrier.abort();
+        Assert.assertEquals(State.TERMINATED, barrier.getState());
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testTimeout() throws Exception {
+        LifecycleBarrier barrier = new LifecycleBarrier("generators");
+        barrier.expect("gen1");
+        barrier.whenReady().get(100, TimeUnit.MILLISECONDS);
+    }
+}
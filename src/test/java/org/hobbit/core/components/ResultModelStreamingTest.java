@@ -0,0 +1,237 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.components;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.hobbit.core.Commands;
+import org.hobbit.core.Constants;
+import org.hobbit.core.TestConstants;
+import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiver;
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.hobbit.vocab.HOBBIT;
+import org.hobbit.vocab.HobbitErrors;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+
+/**
+ * Tests the streaming of the result model and the KPI snapshots from the
+ * {@link AbstractEvaluationModule} to the {@link AbstractBenchmarkController}.
+ */
+public class ResultModelStreamingTest {
+
+    private static final String HOBBIT_SESSION_ID = "ResultModelStreamingTest";
+    private static final String EXPERIMENT_URI = Constants.EXPERIMENT_URI_NS + HOBBIT_SESSION_ID;
+
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Test(timeout = 60000)
+    public void test() throws Exception {
+        setEnvironment();
+        // the variable is normally set by the controller for the module
+        environmentVariables.set(Constants.RESULT_MODEL_STREAMING_KEY, "true");
+
+        Model expectedModel = ModelFactory.createDefaultModel();
+        Resource experiment = expectedModel.getResource(EXPERIMENT_URI);
+        expectedModel.add(experiment, RDF.type, HOBBIT.Experiment);
+        for (int i = 0; i < 1000; ++i) {
+            Resource kpi = expectedModel.createResource();
+            expectedModel.add(experiment, expectedModel.getProperty("http://example.org/hasKpi"), kpi);
+            expectedModel.addLiteral(kpi, expectedModel.getProperty("http://example.org/value"), i);
+        }
+
+        DummyBenchmarkController controller = new DummyBenchmarkController();
+        DummyEvaluationModule module = new DummyEvaluationModule(expectedModel);
+        try {
+            controller.init();
+            Assert.assertTrue(controller.initResultModelReceiver());
+            module.init();
+            module.resultModelChunkSize = 4096;
+            module.run();
+
+            controller.resultModelReceived.acquire();
+            Assert.assertNull(controller.resultModelReceiver);
+            Assert.assertEquals(expectedModel.size(), controller.resultModel.size());
+            Assert.assertTrue(expectedModel.isIsomorphicWith(controller.resultModel));
+        } finally {
+            IOUtils.closeQuietly(module);
+            IOUtils.closeQuietly(controller);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testKpiSnapshot() throws Exception {
+        setEnvironment();
+
+        Model snapshot = ModelFactory.createDefaultModel();
+        snapshot.addLiteral(snapshot.getResource(EXPERIMENT_URI), snapshot.getProperty("http://example.org/responses"),
+                2);
+
+        DummyBenchmarkController controller = new DummyBenchmarkController();
+        DummyEvaluationModule module = new DummyEvaluationModule(null);
+        try {
+            controller.init();
+            module.init();
+            module.snapshot = snapshot;
+            module.kpiSnapshotResponseInterval = 2;
+            module.checkKpiSnapshot();
+            module.checkKpiSnapshot();
+
+            // the controller stores the snapshot and forwards it together with
+            // the benchmark parameters
+            controller.kpiSnapshotForwarded.acquire();
+            Assert.assertTrue(snapshot.isIsomorphicWith(controller.latestKpiSnapshot));
+            Assert.assertTrue(controller.forwardedSnapshot.containsAll(snapshot));
+            Assert.assertTrue(controller.forwardedSnapshot
+                    .contains(controller.forwardedSnapshot.getResource(EXPERIMENT_URI), RDF.type, HOBBIT.Experiment));
+
+            // the partial results are kept if the benchmark crashes
+            controller.generateErrorResultModel();
+            Assert.assertTrue(controller.resultModel.containsAll(snapshot));
+            Assert.assertTrue(controller.resultModel.contains(controller.resultModel.getResource(EXPERIMENT_URI),
+                    HOBBIT.terminatedWithError, HobbitErrors.BenchmarkCrashed));
+        } finally {
+            IOUtils.closeQuietly(module);
+            IOUtils.closeQuietly(controller);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testIncompleteResultModel() throws Exception {
+        setEnvironment();
+
+        DummyBenchmarkController controller = new DummyBenchmarkController();
+        try {
+            controller.init();
+            controller.resultModelTimeout = 500;
+            // a receiver that never receives its remaining chunks
+            final Semaphore receiverClosed = new Semaphore(0);
+            controller.resultModelReceiver = new DataReceiver() {
+                @Override
+                public int getErrorCount() {
+                    return 0;
+                }
+
+                @Override
+                public void closeWhenFinished() {
+                    try {
+                        new Semaphore(0).acquire();
+                    } catch (InterruptedException e) {
+                    }
+                }
+
+                @Override
+                public void increaseErrorCount() {
+                }
+
+                @Override
+                public DataHandler getDataHandler() {
+                    return null;
+                }
+
+                @Override
+                public RabbitQueue getQueue() {
+                    return null;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    receiverClosed.release();
+                }
+            };
+            controller.receiveCommand(Commands.EVAL_MODULE_FINISHED_SIGNAL, new byte[0]);
+
+            // the controller gives up waiting and reports an error
+            Assert.assertTrue(receiverClosed.tryAcquire());
+            Assert.assertNull(controller.resultModelReceiver);
+            Assert.assertTrue(controller.resultModel.contains(controller.resultModel.getResource(EXPERIMENT_URI),
+                    HOBBIT.terminatedWithError, HobbitErrors.BenchmarkCrashed));
+        } finally {
+            IOUtils.closeQuietly(controller);
+        }
+    }
+
+    private void setEnvironment() {
+        environmentVariables.set(Constants.RABBIT_MQ_HOST_NAME_KEY, TestConstants.RABBIT_HOST);
+        environmentVariables.set(Constants.HOBBIT_SESSION_ID_KEY, HOBBIT_SESSION_ID);
+        environmentVariables.set(Constants.BENCHMARK_PARAMETERS_MODEL_KEY,
+                "{ \"@id\" : \"http://w3id.org/hobbit/experiments#New\", \"@type\" : \"http://w3id.org/hobbit/vocab#Experiment\" }");
+        environmentVariables.set(Constants.HOBBIT_EXPERIMENT_URI_KEY, EXPERIMENT_URI);
+    }
+
+    protected static class DummyBenchmarkController extends AbstractBenchmarkController {
+
+        private Semaphore resultModelReceived = new Semaphore(0);
+        private Semaphore kpiSnapshotForwarded = new Semaphore(0);
+        private Model forwardedSnapshot;
+
+        @Override
+        protected void executeBenchmark() throws Exception {
+        }
+
+        @Override
+        public void receiveCommand(byte command, byte[] data) {
+            super.receiveCommand(command, data);
+            if (command == Commands.EVAL_MODULE_FINISHED_SIGNAL) {
+                resultModelReceived.release();
+            } else if (command == Commands.BENCHMARK_KPI_SNAPSHOT) {
+                forwardedSnapshot = RabbitMQUtils.readModel(data);
+                kpiSnapshotForwarded.release();
+            }
+        }
+    }
+
+    protected static class DummyEvaluationModule extends AbstractEvaluationModule {
+
+        private Model resultModel;
+        private Model snapshot;
+
+        public DummyEvaluationModule(Model resultModel) {
+            this.resultModel = resultModel;
+        }
+
+        @Override
+        protected void collectResponses() throws Exception {
+        }
+
+        @Override
+        protected void evaluateResponse(byte[] expectedData, byte[] receivedData, long taskSentTimestamp,
+                long responseReceivedTimestamp) throws Exception {
+        }
+
+        @Override
+        protected Model summarizeEvaluation() throws Exception {
+            return resultModel;
+        }
+
+        @Override
+        protected Model createKpiSnapshot() throws Exception {
+            return snapshot;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hobbit.core.Commands;
 import org.hobbit.core.Constants;
@@ -31,6 +32,7 @@ import org.hobbit.core.components.dummy.DummyDataCreator;
 import org.hobbit.core.components.dummy.DummyEvalStoreReceiver;
 import org.hobbit.core.components.dummy.DummySystem;
 import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.hobbit.core.schedule.ArrivalSchedule;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -62,18 +64,28 @@ public class SequencingTaskGeneratorTest extends AbstractSequencingTaskGenerator
         List<Object[]> testConfigs = new ArrayList<Object[]>();
         // We use only one single data generator without parallel message
         // processing
-        testConfigs.add(new Object[] { 1, 5000, 1 });
+        testConfigs.add(new Object[] { 1, 5000, 1, 1, 1, 0 });
         // We use only one single data generator with parallel message
         // processing (max 100)
 //        testConfigs.add(new Object[] { 1, 5000, 100 });
         // We use two data generators without parallel message processing
-        testConfigs.add(new Object[] { 2, 5000, 1 });
+        testConfigs.add(new Object[] { 2, 5000, 1, 1, 1, 0 });
         // We use two data generators with parallel message processing (max 100)
 //        testConfigs.add(new Object[] { 2, 5000, 100 });
         // We use ten data generators without parallel message processing
-        testConfigs.add(new Object[] { 10, 500, 1 });
+        testConfigs.add(new Object[] { 10, 500, 1, 1, 1, 0 });
         // We use ten data generators with parallel message processing (max 100)
 //        testConfigs.add(new Object[] { 10, 500, 100 });
+        // We use a single data generator and allow 10 outstanding tasks
+        testConfigs.add(new Object[] { 1, 5000, 1, 10, 1, 0 });
+        // We use two data generators and allow 10 outstanding tasks
+        testConfigs.add(new Object[] { 2, 5000, 1, 10, 1, 0 });
+        // We use two data generators, allow 10 outstanding tasks and let the
+        // evaluation storage send acknowledgements in batches of 5
+        testConfigs.add(new Object[] { 2, 5000, 1, 10, 5, 0 });
+        // We use two data generators and send the tasks in the open-loop mode
+        // with 5000 tasks per second
+        testConfigs.add(new Object[] { 2, 5000, 1, 1, 1, 5000 });
         return testConfigs;
     }
 
@@ -85,14 +97,31 @@ public class SequencingTaskGeneratorTest extends AbstractSequencingTaskGenerator
     private int terminationCount = 0;
     private int numberOfGenerators;
     private int numberOfMessages;
+    private int ackBatchSize;
+    private int maxOutstandingTasks;
+    /**
+     * The maximum number of outstanding tasks observed while sending.
+     */
+    private AtomicInteger peakOutstandingTasks = new AtomicInteger();
+    private double openLoopRate;
+    /**
+     * Timestamp of the last task sent to the evaluation storage by the current
+     * thread.
+     */
+    private ThreadLocal<Long> taskTimestamp = new ThreadLocal<Long>();
     private Semaphore dataGensReady = new Semaphore(0);
     private Semaphore systemReady = new Semaphore(0);
     private Semaphore evalStoreReady = new Semaphore(0);
 
-    public SequencingTaskGeneratorTest(int numberOfGenerators, int numberOfMessages, int numberOfMessagesInParallel) {
+    public SequencingTaskGeneratorTest(int numberOfGenerators, int numberOfMessages, int numberOfMessagesInParallel,
+            int maxOutstandingTasks, int ackBatchSize, double openLoopRate) {
         // TODO add me super(numberOfMessagesInParallel);
+        super(1, maxOutstandingTasks);
         this.numberOfGenerators = numberOfGenerators;
         this.numberOfMessages = numberOfMessages;
+        this.ackBatchSize = ackBatchSize;
+        this.maxOutstandingTasks = maxOutstandingTasks;
+        this.openLoopRate = openLoopRate;
     }
 
     @Test(timeout = 60000)
@@ -104,8 +133,18 @@ public class SequencingTaskGeneratorTest extends AbstractSequencingTaskGenerator
 
         // Set the acknowledgement flag to true (read by the evaluation storage)
         environmentVariables.set(Constants.ACKNOWLEDGEMENT_FLAG_KEY, "true");
+        environmentVariables.set(Constants.ACKNOWLEDGEMENT_BATCH_SIZE_KEY, Integer.toString(ackBatchSize));
+
+        if (openLoopRate > 0) {
+            // the open-loop mode is tested with nanosecond timestamps in all
+            // components
+            environmentVariables.set(Constants.HIGH_RESOLUTION_TIMESTAMPS_KEY, "true");
+        }
 
         init();
+        if (openLoopRate > 0) {
+            setOpenLoopSchedule(ArrivalSchedule.constantRate(openLoopRate));
+        }
 
         Thread[] dataGenThreads = new Thread[numberOfGenerators];
         DummyComponentExecutor[] dataGenExecutors = new DummyComponentExecutor[numberOfGenerators];
@@ -169,6 +208,18 @@ public class SequencingTaskGeneratorTest extends AbstractSequencingTaskGenerator
             Assert.assertArrayEquals(expectedResponses.toArray(new String[expectedResponses.size()]),
                     receivedData.toArray(new String[receivedData.size()]));
             Assert.assertEquals(numberOfGenerators * numberOfMessages, sentTasks.size());
+            // the window of outstanding tasks has never been exceeded
+            Assert.assertTrue("Got " + peakOutstandingTasks.get() + " outstanding tasks.",
+                    peakOutstandingTasks.get() <= maxOutstandingTasks);
+            if ((maxOutstandingTasks > 1) && (openLoopRate <= 0)) {
+                // the tasks have been sent in the windowed mode
+                Assert.assertTrue(peakOutstandingTasks.get() > 0);
+            }
+            if (openLoopRate > 0) {
+                // the storage got the actual sending times of all tasks
+                Assert.assertEquals(numberOfGenerators * numberOfMessages,
+                        evalStore.getMetricRegistry().histogram("tasks.sendDelay").getCount());
+            }
         } finally {
             close();
         }
@@ -177,15 +228,20 @@ public class SequencingTaskGeneratorTest extends AbstractSequencingTaskGenerator
     @Override
     protected void generateTask(byte[] data) throws Exception {
         String taskIdString = getNextTaskId();
-        sendTaskToSystemAdapterInSequence(taskIdString, data);
-        long timestamp = System.currentTimeMillis();
+        if (isOpenLoop()) {
+            sendScheduledTask(taskIdString, data, data);
+        } else {
+            sendTaskToSystemAdapter(taskIdString, data);
+            // the timestamp of the task is added by the generator
+            sendTaskToEvalStorage(taskIdString, data);
+        }
+        long timestamp = taskTimestamp.get();
         String dataString = RabbitMQUtils.readString(data);
         StringBuilder builder = new StringBuilder();
         builder.append(taskIdString);
         builder.append(dataString);
         sentTasks.add(builder.toString());
 
-        sendTaskToEvalStorage(taskIdString, timestamp, data);
         builder.delete(0, builder.length());
         builder.append(taskIdString);
         builder.append(Long.toString(timestamp));
@@ -193,6 +249,30 @@ public class SequencingTaskGeneratorTest extends AbstractSequencingTaskGenerator
         expectedResponses.add(builder.toString());
     }
 
+    @Override
+    protected void sendTaskToSystemAdapter(String taskIdString, byte[] data) throws IOException {
+        super.sendTaskToSystemAdapter(taskIdString, data);
+        int outstandingTasks = getNumberOfOutstandingTasks();
+        int peak = peakOutstandingTasks.get();
+        while ((outstandingTasks > peak) && !peakOutstandingTasks.compareAndSet(peak, outstandingTasks)) {
+            peak = peakOutstandingTasks.get();
+        }
+    }
+
+    @Override
+    protected void sendTaskToEvalStorage(String taskIdString, long intendedTimestamp, long actualTimestamp,
+            byte[] data) throws IOException {
+        Assert.assertTrue(actualTimestamp >= intendedTimestamp);
+        taskTimestamp.set(intendedTimestamp);
+        super.sendTaskToEvalStorage(taskIdString, intendedTimestamp, actualTimestamp, data);
+    }
+
+    @Override
+    protected void sendTaskToEvalStorage(String taskIdString, long timestamp, byte[] data) throws IOException {
+        taskTimestamp.set(timestamp);
+        super.sendTaskToEvalStorage(taskIdString, timestamp, data);
+    }
+
     protected synchronized void dataGeneratorTerminated() {
         ++terminationCount;
         if (terminationCount == numberOfGenerators) {
@@ -190,7 +190,7 @@ public class TaskGeneratorTest extends AbstractTaskGenerator {
     protected void generateTask(byte[] data) throws Exception {
         String taskIdString = getNextTaskId();
         Thread.sleep(taskProcessingTime);
-        long timestamp = System.currentTimeMillis();
+        long timestamp = getCurrentTimestamp();
         sendTaskToSystemAdapter(taskIdString, data);
         String dataString = RabbitMQUtils.readString(data);
         StringBuilder builder = new StringBuilder();
@@ -0,0 +1,119 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyRecorderTest {
+
+    private static final Property P50 = ResourceFactory.createProperty("http://example.org/benchmark#latencyP50");
+    private static final Property P99 = ResourceFactory.createProperty("http://example.org/benchmark#latencyP99");
+    private static final Property MAX = ResourceFactory.createProperty("http://example.org/benchmark#latencyMax");
+
+    @Test
+    public void testPercentiles() {
+        LatencyRecorder recorder = new LatencyRecorder(1000000, 3);
+        for (int i = 1; i <= 100000; ++i) {
+            recorder.recordLatency(i);
+        }
+        Assert.assertEquals(100000, recorder.getCount());
+        assertClose(50000, recorder.getValueAtPercentile(50));
+        assertClose(99000, recorder.getValueAtPercentile(99));
+        assertClose(100000, recorder.getMaxValue());
+    }
+
+    @Test
+    public void testRepeatedReads() {
+        LatencyRecorder recorder = new LatencyRecorder(1000000, 3);
+        for (int i = 1; i <= 100; ++i) {
+            recorder.recordLatency(i);
+            Assert.assertEquals(i, recorder.getCount());
+            Assert.assertEquals(i, recorder.getMaxValue());
+        }
+        long values[] = recorder.getValuesAtPercentiles(50, 100);
+        Assert.assertEquals(50, values[0]);
+        Assert.assertEquals(100, values[1]);
+        recorder.reset();
+        Assert.assertEquals(0, recorder.getCount());
+        recorder.recordLatency(7);
+        Assert.assertEquals(1, recorder.getCount());
+        Assert.assertEquals(7, recorder.getMaxValue());
+    }
+
+    @Test
+    public void testParallelRecordingAndMerging() throws InterruptedException {
+        final LatencyRecorder recorders[] = new LatencyRecorder[4];
+        Thread threads[] = new Thread[recorders.length];
+        for (int i = 0; i < threads.length; ++i) {
+            recorders[i] = new LatencyRecorder(1000000, 3);
+            final LatencyRecorder recorder = recorders[i];
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 1; j <= 10000; ++j) {
+                        recorder.recordLatency(j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+        }
+        LatencyRecorder merged = new LatencyRecorder(1000000, 3);
+        for (int i = 0; i < recorders.length; ++i) {
+            merged.merge(recorders[i]);
+        }
+        Assert.assertEquals(40000, merged.getCount());
+        Assert.assertEquals(4 * 50005000L, merged.getSum());
+        assertClose(5000, merged.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testValueRange() {
+        LatencyRecorder recorder = new LatencyRecorder(1000, 3);
+        recorder.recordLatency(-5);
+        recorder.recordLatency(5000);
+        Assert.assertEquals(2, recorder.getCount());
+        Assert.assertEquals(0, recorder.getHistogram().getMinValue());
+        assertClose(1000, recorder.getHistogram().getMaxValue());
+    }
+
+    @Test
+    public void testModelCreation() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.recordLatency(10, 30);
+        Model model = ModelFactory.createDefaultModel();
+        Resource experiment = model.getResource("http://w3id.org/hobbit/experiments#123");
+        recorder.addToModel(model, experiment, P50, null, P99, null, MAX);
+        Assert.assertEquals(3, model.size());
+        Assert.assertEquals(20, model.getRequiredProperty(experiment, P50).getLong());
+        Assert.assertEquals(20, model.getRequiredProperty(experiment, P99).getLong());
+        Assert.assertEquals(20, model.getRequiredProperty(experiment, MAX).getLong());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        // HdrHistogram with 3 significant digits has a relative error <= 0.1%
+        Assert.assertEquals(expected, actual, Math.max(1, expected / 1000));
+    }
+}
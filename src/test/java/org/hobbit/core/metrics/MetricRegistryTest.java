@@ -0,0 +1,121 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricRegistryTest {
+
+    @Test
+    public void testRegistry() {
+        MetricRegistry registry = new SimpleMetricRegistry();
+        registry.counter("sender.q.messages").add(5);
+        registry.counter("sender.q.messages").increment();
+        registry.gauge("sender.q.unconfirmed", new Gauge() {
+            @Override
+            public long getValue() {
+                return 3;
+            }
+        });
+        registry.histogram("rpc.q.latency").recordLatency(100);
+        registry.counter("commands.received").increment();
+
+        Assert.assertEquals(6, registry.counter("sender.q.messages").getCount());
+        Assert.assertSame(registry.histogram("rpc.q.latency"), registry.getHistograms().get("rpc.q.latency"));
+        Assert.assertEquals(3, registry.getGauges().get("sender.q.unconfirmed").getValue());
+
+        registry.removeAll("sender.");
+        Assert.assertFalse(registry.getCounters().containsKey("sender.q.messages"));
+        Assert.assertFalse(registry.getGauges().containsKey("sender.q.unconfirmed"));
+        Assert.assertTrue(registry.getCounters().containsKey("commands.received"));
+        Assert.assertTrue(registry.getHistograms().containsKey("rpc.q.latency"));
+    }
+
+    @Test
+    public void testPrometheusFormat() {
+        MetricRegistry registry = new SimpleMetricRegistry();
+        registry.counter("receiver.hobbit.taskgen-system.messages").add(42);
+        registry.gauge("receiver.hobbit.taskgen-system.queued", new Gauge() {
+            @Override
+            public long getValue() {
+                return 7;
+            }
+        });
+        registry.histogram("rpc.latency").recordLatency(1000);
+        registry.histogram("rpc.latency").recordLatency(3000);
+
+        String text = PrometheusMetricsExporter.format(registry);
+        Assert.assertTrue(text, text.contains("# TYPE hobbit_receiver_hobbit_taskgen_system_messages counter\n"));
+        Assert.assertTrue(text, text.contains("hobbit_receiver_hobbit_taskgen_system_messages 42\n"));
+        Assert.assertTrue(text, text.contains("hobbit_receiver_hobbit_taskgen_system_queued 7\n"));
+        Assert.assertTrue(text, text.contains("# TYPE hobbit_rpc_latency summary\n"));
+        Assert.assertTrue(text, text.contains("hobbit_rpc_latency{quantile=\"0.5\"} 1000\n"));
+        Assert.assertTrue(text, text.contains("hobbit_rpc_latency_sum 4000\n"));
+        Assert.assertTrue(text, text.contains("hobbit_rpc_latency_count 2\n"));
+        Assert.assertTrue(text, text.contains("# TYPE hobbit_rpc_latency_max gauge\n"));
+    }
+
+    @Test
+    public void testLabels() {
+        MetricRegistry registry = new SimpleMetricRegistry();
+        String labels1 = MetricNames.labels(MetricNames.QUEUE_LABEL, "hobbit.datagen-system.123");
+        String labels2 = MetricNames.labels(MetricNames.QUEUE_LABEL, "q\"2");
+        registry.counter("sender.messages" + labels1).add(3);
+        registry.counter("sender.messages" + labels2).add(4);
+        registry.counter("sender.messagesDropped").add(1);
+        registry.histogram("sender.confirmLatency" + labels1).recordLatency(100);
+
+        String text = PrometheusMetricsExporter.format(registry);
+        Assert.assertEquals(text, text.indexOf("# TYPE hobbit_sender_messages counter\n"),
+                text.lastIndexOf("# TYPE hobbit_sender_messages counter\n"));
+        Assert.assertTrue(text, text.contains("# TYPE hobbit_sender_messages counter\n"
+                + "hobbit_sender_messages{queue=\"hobbit.datagen-system.123\"} 3\n"
+                + "hobbit_sender_messages{queue=\"q\\\"2\"} 4\n"));
+        Assert.assertTrue(text, text.contains("hobbit_sender_messagesDropped 1\n"));
+        Assert.assertTrue(text, text.contains(
+                "hobbit_sender_confirmLatency{queue=\"hobbit.datagen-system.123\",quantile=\"0.5\"} 100\n"));
+        Assert.assertTrue(text,
+                text.contains("hobbit_sender_confirmLatency_count{queue=\"hobbit.datagen-system.123\"} 1\n"));
+
+        registry.removeAll("sender.", labels1);
+        Assert.assertFalse(registry.getCounters().containsKey("sender.messages" + labels1));
+        Assert.assertFalse(registry.getHistograms().containsKey("sender.confirmLatency" + labels1));
+        Assert.assertTrue(registry.getCounters().containsKey("sender.messages" + labels2));
+        Assert.assertTrue(registry.getCounters().containsKey("sender.messagesDropped"));
+    }
+
+    @Test
+    public void testJmxExport() throws Exception {
+        MetricRegistry registry = new SimpleMetricRegistry();
+        registry.counter("commands.received").add(2);
+        registry.histogram("rpc.latency").recordLatency(500);
+        JmxMetricsExporter exporter = JmxMetricsExporter.register(registry, "MetricRegistryTest", "test");
+        Assert.assertNotNull(exporter);
+        try {
+            ObjectName name = new ObjectName(JmxMetricsExporter.JMX_DOMAIN + ":type=\"MetricRegistryTest\",name=\"test\"");
+            Assert.assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "commands.received"));
+            Assert.assertEquals(500L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "rpc.latency.max"));
+        } finally {
+            exporter.close();
+        }
+    }
+}
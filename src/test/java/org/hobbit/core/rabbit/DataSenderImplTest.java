@@ -0,0 +1,46 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit;
+
+import org.hobbit.core.rabbit.inmemory.InMemoryBroker;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the closing of the {@link DataSenderImpl}.
+ */
+public class DataSenderImplTest {
+
+    @Test(timeout = 10000)
+    public void testCloseWhenFinishedWithDeadline() throws Exception {
+        RabbitQueueFactoryImpl factory = new RabbitQueueFactoryImpl(new InMemoryBroker().newConnection());
+        try {
+            // nobody consumes the message
+            DataSenderImpl sender = DataSenderImpl.builder().queue(factory, "test.unconsumed").build();
+            sender.sendData(new byte[] { 1 });
+            long start = System.currentTimeMillis();
+            Assert.assertFalse(sender.closeWhenFinished(500));
+            Assert.assertTrue((System.currentTimeMillis() - start) < 5000);
+
+            // an empty queue is closed without reaching the deadline
+            sender = DataSenderImpl.builder().queue(factory, "test.empty").build();
+            Assert.assertTrue(sender.closeWhenFinished(60000));
+        } finally {
+            factory.close();
+        }
+    }
+}
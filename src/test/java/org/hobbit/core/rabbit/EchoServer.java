@@ -18,6 +18,7 @@ package org.hobbit.core.rabbit;
 
 import java.io.IOException;
 
+import org.hobbit.core.TestConstants;
 import org.junit.Ignore;
 
 import com.rabbitmq.client.AMQP;
@@ -47,7 +48,7 @@ public class EchoServer implements Runnable {
         running = true;
         Connection connection = null;
         try {
-            ConnectionFactory factory = new ConnectionFactory();
+            ConnectionFactory factory = TestConstants.createConnectionFactory(rabbitHost);
             factory.setHost(rabbitHost);
             connection = factory.newConnection();
             Channel channel = connection.createChannel();
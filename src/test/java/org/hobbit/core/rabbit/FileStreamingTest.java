@@ -51,7 +51,7 @@ public class FileStreamingTest implements RabbitQueueFactory {
 
     @Before
     public void before() throws Exception {
-        ConnectionFactory factory = new ConnectionFactory();
+        ConnectionFactory factory = TestConstants.createConnectionFactory(TestConstants.RABBIT_HOST);
         factory.setHost(TestConstants.RABBIT_HOST);
         connection = factory.newConnection();
     }
@@ -220,8 +220,13 @@ public class FileStreamingTest implements RabbitQueueFactory {
 
     @Override
     public RabbitQueue createDefaultRabbitQueue(String name) throws IOException {
+        return createRabbitQueue(name, QueueOptions.DEFAULT);
+    }
+
+    @Override
+    public RabbitQueue createRabbitQueue(String name, QueueOptions options) throws IOException {
         Channel channel = connection.createChannel();
-        channel.queueDeclare(name, false, false, true, null);
+        channel.queueDeclare(name, false, false, true, options.getArguments());
         return new RabbitQueue(channel, name);
     }
 
@@ -0,0 +1,112 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hobbit.core.rabbit.inmemory.InMemoryBroker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * Tests the credit based flow control of the {@link FlowControlledDataSender}
+ * and the {@link CreditGrantingDataHandler}.
+ */
+public class FlowControlTest {
+
+    private static final String QUEUE_NAME = "test.flow";
+    private static final int WINDOW = 8;
+    private static final int NUMBER_OF_MESSAGES = 100;
+
+    @Test(timeout = 30000)
+    public void test() throws Exception {
+        InMemoryBroker broker = new InMemoryBroker();
+        RabbitQueueFactoryImpl incomingFactory = new RabbitQueueFactoryImpl(broker.newConnection());
+        RabbitQueueFactoryImpl outgoingFactory = new RabbitQueueFactoryImpl(broker.newConnection());
+        final Semaphore processingAllowed = new Semaphore(0);
+        final Semaphore processed = new Semaphore(0);
+        CreditGrantingDataHandler handler = new CreditGrantingDataHandler(new DataHandler() {
+            @Override
+            public void handleData(byte[] data) {
+                processingAllowed.acquireUninterruptibly();
+                processed.release();
+            }
+        }, incomingFactory.getConnection().createChannel(), QUEUE_NAME, WINDOW);
+        DataReceiverImpl receiver = DataReceiverImpl.builder().queue(incomingFactory, QUEUE_NAME)
+                .dataHandler(handler).maxParallelProcessedMsgs(1).build();
+        final FlowControlledDataSender sender = new FlowControlledDataSender(
+                DataSenderImpl.builder().queue(outgoingFactory, QUEUE_NAME).build(),
+                outgoingFactory.getConnection().createChannel(), QUEUE_NAME);
+        final AtomicInteger sentMessages = new AtomicInteger();
+        Thread senderThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < NUMBER_OF_MESSAGES; ++i) {
+                        sender.sendData(new byte[] { (byte) i });
+                        sentMessages.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        try {
+            senderThread.start();
+            // the sender can only send the window while the receiver is stuck
+            while (sentMessages.get() < WINDOW) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(500);
+            Assert.assertEquals(WINDOW, sentMessages.get());
+            Assert.assertEquals(0, sender.getAvailableCredits());
+
+            // processed messages lead to new credits
+            processingAllowed.release(NUMBER_OF_MESSAGES);
+            Assert.assertTrue(processed.tryAcquire(NUMBER_OF_MESSAGES, 20, TimeUnit.SECONDS));
+            senderThread.join();
+            Assert.assertEquals(NUMBER_OF_MESSAGES, sentMessages.get());
+            sender.closeWhenFinished();
+            receiver.closeWhenFinished();
+            Assert.assertEquals(0, receiver.getErrorCount());
+
+            // the remaining credits survive the sender and the receiver until
+            // the credit queue is deleted
+            handler.close();
+            String creditQueueName = FlowControlledDataSender.getCreditQueueName(QUEUE_NAME);
+            Channel channel = incomingFactory.getConnection().createChannel();
+            Assert.assertTrue(channel.queueDeclarePassive(creditQueueName).getMessageCount() > 0);
+            FlowControlledDataSender.deleteCreditQueue(channel, QUEUE_NAME);
+            try {
+                channel.queueDeclarePassive(creditQueueName);
+                Assert.fail("Expected the credit queue to be deleted.");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            handler.close();
+            incomingFactory.close();
+            outgoingFactory.close();
+        }
+    }
+
+}
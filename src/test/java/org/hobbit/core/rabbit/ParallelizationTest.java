@@ -62,7 +62,7 @@ public class ParallelizationTest {
         Connection connection = null;
         long time;
         try {
-            ConnectionFactory factory = new ConnectionFactory();
+            ConnectionFactory factory = TestConstants.createConnectionFactory(TestConstants.RABBIT_HOST);
             factory.setHost(TestConstants.RABBIT_HOST);
             connection = factory.newConnection();
             client = RabbitRpcClient.create(connection, REQUEST_QUEUE_NAME);
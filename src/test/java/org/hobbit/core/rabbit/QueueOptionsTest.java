@@ -0,0 +1,129 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hobbit.core.data.RabbitQueue;
+import org.hobbit.core.rabbit.QueueOptions.OverflowPolicy;
+import org.hobbit.core.rabbit.inmemory.InMemoryBroker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.GetResponse;
+
+public class QueueOptionsTest {
+
+    @Test
+    public void testArguments() {
+        Assert.assertNull(QueueOptions.DEFAULT.getArguments());
+        Assert.assertNull(QueueOptions.EPHEMERAL.getArguments());
+        Assert.assertEquals(2, QueueOptions.DEFAULT.getDeliveryMode());
+        Assert.assertEquals(1, QueueOptions.EPHEMERAL.getDeliveryMode());
+
+        Map<String, Object> arguments = QueueOptions.builder().persistentMessages(false).messageTtl(60000)
+                .maxLength(1000).build().getArguments();
+        Assert.assertEquals(2, arguments.size());
+        Assert.assertEquals(60000L, arguments.get(QueueOptions.MESSAGE_TTL_ARGUMENT));
+        Assert.assertEquals(1000, arguments.get(QueueOptions.MAX_LENGTH_ARGUMENT));
+
+        arguments = QueueOptions.builder().lazy(true).maxLengthBytes(1L << 30)
+                .overflowPolicy(OverflowPolicy.REJECT_PUBLISH).singleActiveConsumer(true).maxPriority(5).build()
+                .getArguments();
+        Assert.assertEquals(5, arguments.size());
+        Assert.assertEquals("lazy", arguments.get(QueueOptions.QUEUE_MODE_ARGUMENT));
+        Assert.assertEquals(1L << 30, arguments.get(QueueOptions.MAX_LENGTH_BYTES_ARGUMENT));
+        Assert.assertEquals("reject-publish", arguments.get(QueueOptions.OVERFLOW_ARGUMENT));
+        Assert.assertEquals(Boolean.TRUE, arguments.get(QueueOptions.SINGLE_ACTIVE_CONSUMER_ARGUMENT));
+        Assert.assertEquals(5, arguments.get(QueueOptions.MAX_PRIORITY_ARGUMENT));
+    }
+
+    @Test
+    public void testDeliveryModeOfSender() throws Exception {
+        RabbitQueueFactoryImpl factory = new RabbitQueueFactoryImpl(new InMemoryBroker().newConnection());
+        try {
+            DataSenderImpl sender = DataSenderImpl.builder().queue(factory, "test.ephemeral")
+                    .queueOptions(QueueOptions.EPHEMERAL).build();
+            sender.sendData(new byte[] { 1 });
+            RabbitQueue queue = factory.createRabbitQueue("test.ephemeral", QueueOptions.EPHEMERAL);
+            GetResponse response = queue.channel.basicGet(queue.name, true);
+            Assert.assertEquals(Integer.valueOf(1), response.getProps().getDeliveryMode());
+
+            // an explicitly given delivery mode overrides the options
+            sender = DataSenderImpl.builder().queue(factory, "test.ephemeral").queueOptions(QueueOptions.EPHEMERAL)
+                    .deliveryMode(2).build();
+            sender.sendData(new byte[] { 2 });
+            response = queue.channel.basicGet(queue.name, true);
+            Assert.assertEquals(Integer.valueOf(2), response.getProps().getDeliveryMode());
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testResendingRejectedMessages() throws Exception {
+        RabbitQueueFactoryImpl factory = new RabbitQueueFactoryImpl(new InMemoryBroker().newConnection());
+        try {
+            QueueOptions options = QueueOptions.builder().maxLength(2).overflowPolicy(OverflowPolicy.REJECT_PUBLISH)
+                    .build();
+            RabbitQueue queue = factory.createRabbitQueue("test.reject", options);
+            final AtomicInteger nacks = new AtomicInteger();
+            queue.channel.addConfirmListener(new ConfirmListener() {
+                @Override
+                public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+                }
+
+                @Override
+                public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+                    nacks.incrementAndGet();
+                }
+            });
+            DataSenderImpl sender = DataSenderImpl.builder().queue(queue).build();
+            for (byte i = 0; i < 4; ++i) {
+                sender.sendData(new byte[] { i });
+            }
+            Thread.sleep(500);
+            // the rejected messages are resent with a growing delay instead of
+            // a tight loop of publishes and rejections
+            Assert.assertTrue(nacks.get() > 0);
+            Assert.assertTrue("Got " + nacks.get() + " nacks.", nacks.get() < 50);
+            Assert.assertEquals(2, queue.messageCount());
+
+            // the rejected messages are delivered as soon as there is space
+            RabbitQueue consumerQueue = factory.createRabbitQueue("test.reject", options);
+            Set<Byte> received = new HashSet<Byte>();
+            GetResponse response;
+            while (received.size() < 4) {
+                response = consumerQueue.channel.basicGet(consumerQueue.name, true);
+                if (response != null) {
+                    received.add(response.getBody()[0]);
+                } else {
+                    Thread.sleep(10);
+                }
+            }
+            sender.closeWhenFinished();
+            Assert.assertEquals(0, consumerQueue.messageCount());
+        } finally {
+            factory.close();
+        }
+    }
+}
@@ -18,10 +18,12 @@ package org.hobbit.core.rabbit;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Iterator;
 
 import org.apache.commons.io.Charsets;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.vocabulary.RDF;
 import org.hobbit.vocab.HOBBIT;
 import org.junit.Assert;
@@ -115,6 +117,36 @@ public class RabbitMQUtilsTest {
         performModelsTest(model);
     }
 
+    @Test
+    public void testModelChunks() {
+        Model model = ModelFactory.createDefaultModel();
+        Resource experiment = model.getResource("http://w3id.org/hobbit/experiments#New");
+        model.add(experiment, RDF.type, HOBBIT.Experiment);
+        for (int i = 0; i < 200; ++i) {
+            // blank nodes that are referenced in several chunks
+            Resource kpi = model.createResource();
+            model.add(experiment, model.getProperty("http://example.org/hasKpi"), kpi);
+            model.addLiteral(kpi, model.getProperty("http://example.org/value"), i * 0.5);
+            model.add(kpi, model.getProperty("http://example.org/label"), "KPI \"" + i + "\"\nwith a line break", "en");
+        }
+        int maxChunkSize = 512;
+        Model readModel = ModelFactory.createDefaultModel();
+        int chunks = 0;
+        Iterator<byte[]> iterator = RabbitMQUtils.writeModelChunks(model, maxChunkSize);
+        byte[] chunk;
+        while (iterator.hasNext()) {
+            chunk = iterator.next();
+            Assert.assertTrue(chunk.length <= maxChunkSize);
+            readModel.add(RabbitMQUtils.readModelChunk(chunk));
+            ++chunks;
+        }
+        Assert.assertTrue(chunks > 1);
+        Assert.assertEquals(model.size(), readModel.size());
+        Assert.assertTrue(model.isIsomorphicWith(readModel));
+
+        Assert.assertFalse(RabbitMQUtils.writeModelChunks(ModelFactory.createDefaultModel(), maxChunkSize).hasNext());
+    }
+
     private void performModelsTest(Model model) {
         byte[] data = RabbitMQUtils.writeModel(model);
         compareModels(model, RabbitMQUtils.readModel(data));
@@ -72,7 +72,7 @@ public class SenderReceiverTest {
         RabbitQueueFactoryImpl receiveQueueFactory = null;
 
         try {
-            ConnectionFactory cFactory = new ConnectionFactory();
+            ConnectionFactory cFactory = TestConstants.createConnectionFactory(TestConstants.RABBIT_HOST);
             cFactory.setHost(TestConstants.RABBIT_HOST);
             cFactory.setAutomaticRecoveryEnabled(true);
             sendQueueFactory = new RabbitQueueFactoryImpl(cFactory.newConnection());
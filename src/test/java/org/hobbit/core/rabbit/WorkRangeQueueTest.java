@@ -0,0 +1,81 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hobbit.core.data.WorkRange;
+import org.hobbit.core.rabbit.inmemory.InMemoryBroker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.rabbitmq.client.Connection;
+
+/**
+ * Tests the distribution of {@link WorkRange}s via the {@link WorkRangeQueue}.
+ */
+public class WorkRangeQueueTest {
+
+    private static final String QUEUE_NAME = "test.workranges";
+
+    @Test
+    public void testRangeSerialization() {
+        WorkRange range = new WorkRange(5, Long.MAX_VALUE);
+        Assert.assertEquals(range, WorkRange.fromBytes(range.toBytes()));
+        Assert.assertEquals(Long.MAX_VALUE - 5, range.size());
+    }
+
+    @Test(timeout = 30000)
+    public void test() throws Exception {
+        InMemoryBroker broker = new InMemoryBroker();
+        Connection connection = broker.newConnection();
+        WorkRangeQueue coordinator = new WorkRangeQueue(connection.createChannel(), QUEUE_NAME);
+        WorkRangeQueue fastGenerator = new WorkRangeQueue(connection.createChannel(), QUEUE_NAME);
+        WorkRangeQueue crashingGenerator = new WorkRangeQueue(connection.createChannel(), QUEUE_NAME);
+        try {
+            Assert.assertEquals(4, coordinator.publishRanges(0, 35, 10));
+
+            // the crashing generator gets the first range and never finishes
+            // it
+            WorkRange lostRange = crashingGenerator.getNextRange();
+            Assert.assertEquals(new WorkRange(0, 10), lostRange);
+
+            // the other generator processes the remaining ranges
+            List<WorkRange> ranges = new ArrayList<WorkRange>();
+            WorkRange range = fastGenerator.getNextRange();
+            while (range != null) {
+                ranges.add(range);
+                range = fastGenerator.getNextRange();
+            }
+            Assert.assertEquals(3, ranges.size());
+            Assert.assertEquals(new WorkRange(30, 35), ranges.get(2));
+
+            // the range of the crashed generator is handed out again
+            crashingGenerator.close();
+            Assert.assertEquals(lostRange, fastGenerator.getNextRange());
+            Assert.assertNull(fastGenerator.getNextRange());
+            coordinator.delete();
+        } finally {
+            coordinator.close();
+            fastGenerator.close();
+            crashingGenerator.close();
+            connection.close();
+        }
+    }
+
+}
@@ -0,0 +1,285 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.rabbit.inmemory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hobbit.core.rabbit.QueueOptions;
+import org.hobbit.core.rabbit.QueueOptions.OverflowPolicy;
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+
+public class InMemoryBrokerTest {
+
+    private InMemoryBroker broker;
+    private Connection connection;
+
+    @Before
+    public void before() {
+        broker = new InMemoryBroker();
+        connection = broker.newConnection();
+    }
+
+    @After
+    public void after() throws IOException {
+        connection.close();
+    }
+
+    @Test
+    public void testFanoutExchange() throws Exception {
+        Channel channel = connection.createChannel();
+        channel.exchangeDeclare("test.fanout", "fanout", false, true, null);
+        String queue1 = channel.queueDeclare().getQueue();
+        String queue2 = channel.queueDeclare().getQueue();
+        channel.queueBind(queue1, "test.fanout", "");
+        channel.queueBind(queue2, "test.fanout", "");
+
+        channel.basicPublish("test.fanout", "", null, RabbitMQUtils.writeString("hello"));
+
+        Assert.assertEquals(1, channel.messageCount(queue1));
+        Assert.assertEquals(1, channel.messageCount(queue2));
+        GetResponse response = channel.basicGet(queue1, true);
+        Assert.assertEquals("hello", RabbitMQUtils.readString(response.getBody()));
+        Assert.assertEquals(0, channel.messageCount(queue1));
+    }
+
+    @Test
+    public void testConsumerWithConfirms() throws Exception {
+        Channel senderChannel = connection.createChannel();
+        Channel receiverChannel = connection.createChannel();
+        senderChannel.queueDeclare("test.queue", false, false, true, null);
+
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final Semaphore receivedMessages = new Semaphore(0);
+        receiverChannel.basicConsume("test.queue", true, new DefaultConsumer(receiverChannel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                    byte[] body) throws IOException {
+                received.add(RabbitMQUtils.readString(body));
+                receivedMessages.release();
+            }
+        });
+        final Semaphore confirms = new Semaphore(0);
+        senderChannel.confirmSelect();
+        senderChannel.addConfirmListener(new ConfirmListener() {
+            @Override
+            public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+                confirms.release();
+            }
+
+            @Override
+            public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+            }
+        });
+        Assert.assertEquals(1, senderChannel.getNextPublishSeqNo());
+        for (int i = 0; i < 10; ++i) {
+            senderChannel.basicPublish("", "test.queue", null, RabbitMQUtils.writeString(Integer.toString(i)));
+        }
+        Assert.assertEquals(11, senderChannel.getNextPublishSeqNo());
+        Assert.assertTrue(confirms.tryAcquire(10, 5, TimeUnit.SECONDS));
+        Assert.assertTrue(receivedMessages.tryAcquire(10, 5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; ++i) {
+            Assert.assertEquals(Integer.toString(i), received.get(i));
+        }
+        // the auto delete queue is removed after its consumer is gone
+        receiverChannel.close();
+        Assert.assertFalse(broker.hasQueue("test.queue"));
+    }
+
+    @Test
+    public void testReplyTo() throws Exception {
+        final Channel serverChannel = connection.createChannel();
+        serverChannel.queueDeclare("test.rpc", false, false, true, null);
+        serverChannel.basicConsume("test.rpc", true, new DefaultConsumer(serverChannel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                    byte[] body) throws IOException {
+                serverChannel.basicPublish("", properties.getReplyTo(),
+                        new BasicProperties.Builder().correlationId(properties.getCorrelationId()).build(), body);
+            }
+        });
+        Channel clientChannel = connection.createChannel();
+        String replyQueue = clientChannel.queueDeclare().getQueue();
+        clientChannel.basicPublish("", "test.rpc",
+                new BasicProperties.Builder().correlationId("1").replyTo(replyQueue).build(), new byte[] { 42 });
+
+        GetResponse response = null;
+        for (int i = 0; (response == null) && (i < 50); ++i) {
+            response = clientChannel.basicGet(replyQueue, true);
+            if (response == null) {
+                Thread.sleep(100);
+            }
+        }
+        Assert.assertNotNull(response);
+        Assert.assertEquals("1", response.getProps().getCorrelationId());
+        Assert.assertArrayEquals(new byte[] { 42 }, response.getBody());
+    }
+
+    @Test
+    public void testManualAcknowledgements() throws Exception {
+        Channel channel = connection.createChannel();
+        channel.queueDeclare("test.acks", false, false, false, null);
+        channel.basicPublish("", "test.acks", null, new byte[] { 1 });
+        channel.basicPublish("", "test.acks", null, new byte[] { 2 });
+
+        GetResponse first = channel.basicGet("test.acks", false);
+        Assert.assertFalse(first.getEnvelope().isRedeliver());
+        channel.basicNack(first.getEnvelope().getDeliveryTag(), false, true);
+        // the message has been requeued at the head of the queue
+        GetResponse redelivered = channel.basicGet("test.acks", false);
+        Assert.assertArrayEquals(new byte[] { 1 }, redelivered.getBody());
+        Assert.assertTrue(redelivered.getEnvelope().isRedeliver());
+        channel.basicAck(redelivered.getEnvelope().getDeliveryTag(), false);
+
+        channel.basicGet("test.acks", false);
+        Assert.assertEquals(0, channel.messageCount("test.acks"));
+        // closing the channel requeues the unacknowledged message
+        channel.close();
+        Channel channel2 = connection.createChannel();
+        Assert.assertEquals(1, channel2.messageCount("test.acks"));
+    }
+
+    @Test
+    public void testExclusiveQueuesAreRemoved() throws Exception {
+        Connection connection2 = broker.newConnection();
+        String queue = connection2.createChannel().queueDeclare().getQueue();
+        Assert.assertTrue(broker.hasQueue(queue));
+        connection2.close();
+        Assert.assertFalse(broker.hasQueue(queue));
+    }
+
+    @Test
+    public void testMaxLength() throws Exception {
+        Channel channel = connection.createChannel();
+        channel.queueDeclare("test.dropHead", false, false, false,
+                QueueOptions.builder().maxLength(2).build().getArguments());
+        for (byte i = 0; i < 5; ++i) {
+            channel.basicPublish("", "test.dropHead", null, new byte[] { i });
+        }
+        // the oldest messages have been dropped
+        Assert.assertEquals(2, channel.messageCount("test.dropHead"));
+        Assert.assertArrayEquals(new byte[] { 3 }, channel.basicGet("test.dropHead", true).getBody());
+
+        channel.queueDeclare("test.reject", false, false, false, QueueOptions.builder().maxLengthBytes(10)
+                .overflowPolicy(OverflowPolicy.REJECT_PUBLISH).build().getArguments());
+        final Semaphore acks = new Semaphore(0);
+        final Semaphore nacks = new Semaphore(0);
+        channel.confirmSelect();
+        channel.addConfirmListener(new ConfirmListener() {
+            @Override
+            public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+                acks.release();
+            }
+
+            @Override
+            public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+                nacks.release();
+            }
+        });
+        channel.basicPublish("", "test.reject", null, new byte[6]);
+        Assert.assertTrue(channel.waitForConfirms());
+        channel.basicPublish("", "test.reject", null, new byte[6]);
+        Assert.assertFalse(channel.waitForConfirms());
+        Assert.assertTrue(acks.tryAcquire(1, 5, TimeUnit.SECONDS));
+        Assert.assertTrue(nacks.tryAcquire(1, 5, TimeUnit.SECONDS));
+        // the first message is still in the queue
+        Assert.assertEquals(1, channel.messageCount("test.reject"));
+    }
+
+    @Test
+    public void testMessageTtl() throws Exception {
+        Channel channel = connection.createChannel();
+        channel.queueDeclare("test.ttl", false, false, false,
+                QueueOptions.builder().messageTtl(100).build().getArguments());
+        channel.basicPublish("", "test.ttl", null, new byte[] { 1 });
+        Assert.assertEquals(1, channel.messageCount("test.ttl"));
+        Thread.sleep(200);
+        Assert.assertEquals(0, channel.messageCount("test.ttl"));
+        Assert.assertNull(channel.basicGet("test.ttl", true));
+    }
+
+    @Test
+    public void testSingleActiveConsumer() throws Exception {
+        Channel channel = connection.createChannel();
+        channel.queueDeclare("test.sac", false, false, false,
+                QueueOptions.builder().singleActiveConsumer(true).build().getArguments());
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final Semaphore receivedMessages = new Semaphore(0);
+        Channel consumerChannel1 = connection.createChannel();
+        Channel consumerChannel2 = connection.createChannel();
+        String tag1 = consumerChannel1.basicConsume("test.sac", true,
+                new CollectingConsumer(consumerChannel1, "1", received, receivedMessages));
+        consumerChannel2.basicConsume("test.sac", true,
+                new CollectingConsumer(consumerChannel2, "2", received, receivedMessages));
+        for (int i = 0; i < 5; ++i) {
+            channel.basicPublish("", "test.sac", null, new byte[] { 1 });
+        }
+        Assert.assertTrue(receivedMessages.tryAcquire(5, 5, TimeUnit.SECONDS));
+        // the second consumer takes over after the first has been cancelled
+        consumerChannel1.basicCancel(tag1);
+        channel.basicPublish("", "test.sac", null, new byte[] { 1 });
+        Assert.assertTrue(receivedMessages.tryAcquire(1, 5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("1", "1", "1", "1", "1", "2"), received);
+    }
+
+    @Test(expected = IOException.class)
+    public void testInequivalentArguments() throws Exception {
+        Channel channel = connection.createChannel();
+        channel.queueDeclare("test.args", false, false, false, QueueOptions.EPHEMERAL.getArguments());
+        channel.queueDeclare("test.args", false, false, false,
+                QueueOptions.builder().lazy(true).build().getArguments());
+    }
+
+    private static class CollectingConsumer extends DefaultConsumer {
+
+        private final String id;
+        private final List<String> received;
+        private final Semaphore receivedMessages;
+
+        public CollectingConsumer(Channel channel, String id, List<String> received, Semaphore receivedMessages) {
+            super(channel);
+            this.id = id;
+            this.received = received;
+            this.receivedMessages = receivedMessages;
+        }
+
+        @Override
+        public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
+                byte[] body) throws IOException {
+            received.add(id);
+            receivedMessages.release();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.schedule;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ArrivalSchedule}, the {@link LoadProfiles} and the
+ * {@link ArrivalScheduler}.
+ */
+public class ArrivalScheduleTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testConstantRate() {
+        ArrivalSchedule schedule = ArrivalSchedule.constantRate(1000);
+        long arrival = 0;
+        for (int i = 0; i < 1000; ++i) {
+            arrival = schedule.getNextArrival(arrival);
+        }
+        // there is no drift
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(1), arrival);
+    }
+
+    @Test
+    public void testProfiles() {
+        LoadProfile steps = LoadProfiles.steps(1, TimeUnit.SECONDS, 10, 20, 40);
+        Assert.assertEquals(10, steps.getRate(0), 0);
+        Assert.assertEquals(20, steps.getRate(TimeUnit.MILLISECONDS.toNanos(1500)), 0);
+        Assert.assertEquals(40, steps.getRate(TimeUnit.SECONDS.toNanos(2)), 0);
+        Assert.assertEquals(40, steps.getRate(TimeUnit.SECONDS.toNanos(100)), 0);
+
+        LoadProfile ramp = LoadProfiles.ramp(10, 110, 10, TimeUnit.SECONDS);
+        Assert.assertEquals(10, ramp.getRate(0), 0.000001);
+        Assert.assertEquals(60, ramp.getRate(TimeUnit.SECONDS.toNanos(5)), 0.000001);
+        Assert.assertEquals(110, ramp.getRate(TimeUnit.SECONDS.toNanos(20)), 0.000001);
+
+        // the intervals follow the rate of the profile
+        ArrivalSchedule schedule = ArrivalSchedule.uniform(steps);
+        Assert.assertEquals(100 * MILLI, schedule.getNextArrival(0));
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(2) + 25 * MILLI,
+                schedule.getNextArrival(TimeUnit.SECONDS.toNanos(2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        LoadProfiles.constant(0);
+    }
+
+    @Test
+    public void testPoisson() {
+        ArrivalSchedule schedule = ArrivalSchedule.poisson(LoadProfiles.constant(1000), 42);
+        int arrivals = 100000;
+        long arrival = 0;
+        long previous;
+        long minInterval = Long.MAX_VALUE;
+        long maxInterval = 0;
+        for (int i = 0; i < arrivals; ++i) {
+            previous = arrival;
+            arrival = schedule.getNextArrival(arrival);
+            minInterval = Math.min(minInterval, arrival - previous);
+            maxInterval = Math.max(maxInterval, arrival - previous);
+        }
+        // the mean interval is 1ms
+        Assert.assertEquals(MILLI, arrival / arrivals, MILLI / 50);
+        // but the intervals vary
+        Assert.assertTrue(minInterval < (MILLI / 10));
+        Assert.assertTrue(maxInterval > (5 * MILLI));
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduler() throws Exception {
+        ArrivalScheduler scheduler = new ArrivalScheduler(ArrivalSchedule.constantRate(1000));
+        long first = scheduler.awaitNextArrival();
+        long intended = first;
+        for (int i = 1; i < 500; ++i) {
+            intended = scheduler.awaitNextArrival();
+            // the time the caller needs does not shift the schedule
+            Assert.assertEquals(first + (i * MILLI), intended);
+            Assert.assertTrue(System.nanoTime() >= intended);
+            if ((i % 10) == 0) {
+                Thread.sleep(3);
+            }
+        }
+        // the scheduler catches up with the delays of the caller
+        long lag = System.nanoTime() - intended;
+        Assert.assertTrue("lag of " + lag + "ns is too large", lag < (50 * MILLI));
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.hobbit.core.metrics.SimpleMetricRegistry;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiver;
+import org.hobbit.core.rabbit.DataSender;
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.hobbit.core.rabbit.RabbitQueueFactory;
+import org.hobbit.core.rabbit.RabbitQueueFactoryImpl;
+import org.hobbit.core.rabbit.inmemory.InMemoryBroker;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RabbitDataTransportTest {
+
+    private RabbitQueueFactory incomingFactory;
+    private RabbitQueueFactory outgoingFactory;
+    private DataTransport transport;
+    private TestBroker broker;
+
+    @Before
+    public void before() {
+        broker = new TestBroker();
+        incomingFactory = new RabbitQueueFactoryImpl(broker.newConnection());
+        outgoingFactory = new RabbitQueueFactoryImpl(broker.newConnection());
+        transport = new RabbitDataTransport(incomingFactory, outgoingFactory, new SimpleMetricRegistry());
+    }
+
+    @After
+    public void after() throws IOException {
+        IOUtils.closeQuietly(transport);
+        IOUtils.closeQuietly(incomingFactory);
+        IOUtils.closeQuietly(outgoingFactory);
+    }
+
+    @Test
+    public void testQueue() throws Exception {
+        CollectingHandler handler = new CollectingHandler();
+        DataReceiver receiver = transport.createReceiver("test.queue", handler, 2);
+        DataSender sender = transport.createSender("test.queue");
+        for (int i = 0; i < 100; ++i) {
+            sender.sendData(RabbitMQUtils.writeString(Integer.toString(i)));
+        }
+        sender.closeWhenFinished();
+        Assert.assertTrue(handler.await(100));
+        receiver.closeWhenFinished();
+
+        Assert.assertEquals(0, receiver.getErrorCount());
+        Assert.assertEquals(100, handler.received.size());
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertTrue(handler.received.contains(Integer.toString(i)));
+        }
+    }
+
+    @Test
+    public void testLazyQueueDeclaration() throws Exception {
+        LazyDataSender sender = (LazyDataSender) transport.createSender("test.lazy.queue");
+        // the queue is not declared before the first message is sent
+        Assert.assertFalse(sender.isQueueDeclared());
+        Assert.assertFalse(broker.hasQueue("test.lazy.queue"));
+        sender.sendData(RabbitMQUtils.writeString("0"));
+        Assert.assertTrue(sender.isQueueDeclared());
+        Assert.assertTrue(broker.hasQueue("test.lazy.queue"));
+
+        CollectingHandler handler = new CollectingHandler();
+        DataReceiver receiver = transport.createReceiver("test.lazy.queue", handler, 1);
+        sender.closeWhenFinished();
+        Assert.assertTrue(handler.await(1));
+        receiver.closeWhenFinished();
+        Assert.assertEquals("0", handler.received.get(0));
+
+        // closing an unused sender does not declare its queue
+        DataSender unusedSender = transport.createSender("test.unused.queue");
+        unusedSender.closeWhenFinished();
+        Assert.assertFalse(broker.hasQueue("test.unused.queue"));
+    }
+
+    @Test
+    public void testBroadcast() throws Exception {
+        CollectingHandler handler1 = new CollectingHandler();
+        CollectingHandler handler2 = new CollectingHandler();
+        DataReceiver receiver1 = transport.subscribe("test.broadcast", handler1);
+        DataReceiver receiver2 = transport.subscribe("test.broadcast", handler2);
+        DataSender sender = transport.createBroadcastSender("test.broadcast");
+        for (int i = 0; i < 10; ++i) {
+            sender.sendData(RabbitMQUtils.writeString(Integer.toString(i)));
+        }
+        sender.closeWhenFinished();
+        Assert.assertTrue(handler1.await(10));
+        Assert.assertTrue(handler2.await(10));
+        receiver1.close();
+        receiver2.close();
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 10; ++i) {
+            expected.add(Integer.toString(i));
+        }
+        // every subscription is processed by a single thread, i.e., the order
+        // has to be kept
+        Assert.assertEquals(expected, handler1.received);
+        Assert.assertEquals(expected, handler2.received);
+    }
+
+    /**
+     * Gives the test access to the queues of the broker.
+     */
+    private static class TestBroker extends InMemoryBroker {
+
+        @Override
+        protected synchronized boolean hasQueue(String name) {
+            return super.hasQueue(name);
+        }
+    }
+
+    private static class CollectingHandler implements DataHandler {
+
+        private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        private final Semaphore receivedMessages = new Semaphore(0);
+
+        @Override
+        public void handleData(byte[] data) {
+            received.add(RabbitMQUtils.readString(data));
+            receivedMessages.release();
+        }
+
+        public boolean await(int count) throws InterruptedException {
+            return receivedMessages.tryAcquire(count, 10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport.shm;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hobbit.core.Constants;
+import org.hobbit.core.TestConstants;
+import org.hobbit.core.components.AbstractComponent;
+import org.hobbit.core.metrics.MetricRegistry;
+import org.hobbit.core.metrics.SimpleMetricRegistry;
+import org.hobbit.core.rabbit.DataHandler;
+import org.hobbit.core.rabbit.DataReceiver;
+import org.hobbit.core.rabbit.DataSender;
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.hobbit.core.transport.DataTransport;
+import org.hobbit.core.transport.RabbitDataTransport;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+import org.junit.rules.TemporaryFolder;
+
+public class SharedMemoryDataTransportTest {
+
+    private static final int MESSAGES_PER_SENDER = 20000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Test
+    public void testSeveralSenders() throws Exception {
+        MetricRegistry registry = new SimpleMetricRegistry();
+        DataTransport transport = new SharedMemoryDataTransport(folder.getRoot(), SharedMemoryRingBuffer.MIN_CAPACITY,
+                null, registry);
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        DataReceiver receiver = transport.createReceiver("test.queue", new DataHandler() {
+            @Override
+            public void handleData(byte[] data) {
+                received.add(RabbitMQUtils.readString(data));
+            }
+        }, 4);
+        Assert.assertNull(receiver.getQueue());
+
+        // the small buffers force the senders to wait for the receiver
+        final DataSender senders[] = new DataSender[] { transport.createSender("test.queue"),
+                transport.createSender("test.queue") };
+        Thread threads[] = new Thread[senders.length];
+        for (int i = 0; i < senders.length; ++i) {
+            final int senderId = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < MESSAGES_PER_SENDER; ++j) {
+                            senders[senderId].sendData(RabbitMQUtils.writeString(senderId + "-" + j));
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    senders[senderId].closeWhenFinished();
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+        }
+        receiver.closeWhenFinished();
+
+        Assert.assertEquals(0, receiver.getErrorCount());
+        Assert.assertEquals(senders.length * MESSAGES_PER_SENDER, received.size());
+        for (int i = 0; i < senders.length; ++i) {
+            for (int j = 0; j < MESSAGES_PER_SENDER; j += 1000) {
+                Assert.assertTrue(received.contains(i + "-" + j));
+            }
+        }
+        // the receiver deletes the buffers of closed senders
+        Assert.assertEquals(0,
+                SharedMemoryDataTransport.getQueueDirectory(folder.getRoot(), "test.queue").list().length);
+        Assert.assertTrue(registry.getCounters().isEmpty());
+        transport.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testSeveralReceivers() throws Exception {
+        DataTransport transport = new SharedMemoryDataTransport(folder.getRoot(), SharedMemoryRingBuffer.MIN_CAPACITY,
+                null, null);
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        DataHandler handler = new DataHandler() {
+            @Override
+            public void handleData(byte[] data) {
+                received.add(RabbitMQUtils.readString(data));
+            }
+        };
+        // the receivers compete for the messages of the queue
+        DataReceiver receivers[] = new DataReceiver[] { transport.createReceiver("test.queue", handler, 1),
+                transport.createReceiver("test.queue", handler, 1) };
+        DataSender sender = transport.createSender("test.queue");
+        for (int i = 0; i < MESSAGES_PER_SENDER; ++i) {
+            sender.sendData(RabbitMQUtils.writeString(Integer.toString(i)));
+        }
+        sender.closeWhenFinished();
+        for (int i = 0; i < receivers.length; ++i) {
+            receivers[i].closeWhenFinished();
+            Assert.assertEquals(0, receivers[i].getErrorCount());
+        }
+
+        // every message has been received exactly once
+        Assert.assertEquals(MESSAGES_PER_SENDER, received.size());
+        Assert.assertEquals(MESSAGES_PER_SENDER, new HashSet<String>(received).size());
+        Assert.assertEquals(0,
+                SharedMemoryDataTransport.getQueueDirectory(folder.getRoot(), "test.queue").list().length);
+        transport.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testCloseWithoutReceiver() throws Exception {
+        DataTransport transport = new SharedMemoryDataTransport(folder.getRoot(), SharedMemoryRingBuffer.MIN_CAPACITY,
+                null, null);
+        DataSender sender = transport.createSender("test.queue");
+        sender.sendData(RabbitMQUtils.writeString("lost"));
+        // the sender does not wait forever for a receiver that never comes
+        sender.closeWhenFinished();
+        transport.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testSendTimeout() throws Exception {
+        DataSender sender = SharedMemoryDataSender.builder().queue(folder.getRoot(), "test.queue")
+                .capacity(SharedMemoryRingBuffer.MIN_CAPACITY).sendTimeout(500).build();
+        byte[] data = new byte[128];
+        try {
+            // without a receiver, the buffer is filled up
+            while (true) {
+                sender.sendData(data);
+            }
+        } catch (IOException e) {
+            Assert.assertFalse(e instanceof InterruptedIOException);
+        } finally {
+            sender.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testInterruptedSender() throws Exception {
+        final DataSender sender = SharedMemoryDataSender.builder().queue(folder.getRoot(), "test.queue")
+                .capacity(SharedMemoryRingBuffer.MIN_CAPACITY).build();
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] data = new byte[128];
+                try {
+                    while (true) {
+                        sender.sendData(data);
+                    }
+                } catch (Exception e) {
+                    error.set(e);
+                }
+            }
+        });
+        thread.start();
+        Thread.sleep(500);
+        thread.interrupt();
+        thread.join();
+        Assert.assertTrue(error.get() instanceof InterruptedIOException);
+        sender.close();
+    }
+
+    @Test
+    public void testSystemQueues() throws Exception {
+        environmentVariables.set(Constants.RABBIT_MQ_HOST_NAME_KEY, TestConstants.RABBIT_HOST);
+        environmentVariables.set(Constants.HOBBIT_SESSION_ID_KEY, "SharedMemoryDataTransportTest");
+        environmentVariables.set(Constants.SHARED_MEMORY_DIR_KEY, folder.getRoot().getAbsolutePath());
+        DummyComponent component = new DummyComponent();
+        try {
+            component.init();
+            Assert.assertTrue(component.getDataTransport() instanceof SharedMemoryDataTransport);
+            // the system adapter does not inherit the shared memory settings
+            Assert.assertTrue(component.getSystemDataTransport() instanceof RabbitDataTransport);
+        } finally {
+            component.close();
+        }
+
+        environmentVariables.set(Constants.SHARED_MEMORY_SYSTEM_QUEUES_KEY, "true");
+        component = new DummyComponent();
+        try {
+            component.init();
+            Assert.assertSame(component.getDataTransport(), component.getSystemDataTransport());
+        } finally {
+            component.close();
+        }
+    }
+
+    protected static class DummyComponent extends AbstractComponent {
+
+        @Override
+        public void run() throws Exception {
+        }
+    }
+
+}
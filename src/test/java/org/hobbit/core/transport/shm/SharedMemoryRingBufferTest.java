@@ -0,0 +1,139 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.core.transport.shm;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hobbit.core.rabbit.RabbitMQUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SharedMemoryRingBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWrapAround() throws Exception {
+        File file = new File(folder.getRoot(), "test" + SharedMemoryRingBuffer.FILE_SUFFIX);
+        SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, SharedMemoryRingBuffer.MIN_CAPACITY);
+        SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.open(file);
+        Assert.assertTrue(consumer.isEmpty());
+        Assert.assertNull(consumer.poll());
+
+        // messages of different lengths force several wrap arounds with
+        // padding records
+        for (int i = 0; i < 1000; ++i) {
+            String message = createMessage(i);
+            Assert.assertTrue(producer.offer(RabbitMQUtils.writeString(message)));
+            Assert.assertFalse(consumer.isEmpty());
+            Assert.assertEquals(message, RabbitMQUtils.readString(consumer.poll()));
+            Assert.assertTrue(consumer.isEmpty());
+        }
+        Assert.assertNull(consumer.poll());
+        Assert.assertTrue(producer.offerEndOfStream());
+        Assert.assertFalse(consumer.isEndOfStream());
+        Assert.assertNull(consumer.poll());
+        Assert.assertTrue(consumer.isEndOfStream());
+    }
+
+    @Test
+    public void testFullBuffer() throws Exception {
+        File file = new File(folder.getRoot(), "test" + SharedMemoryRingBuffer.FILE_SUFFIX);
+        SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, SharedMemoryRingBuffer.MIN_CAPACITY);
+        SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.open(file);
+        byte message[] = new byte[1000];
+        int count = 0;
+        while (producer.offer(message)) {
+            ++count;
+        }
+        // 4 records of 1008 bytes fit into 4096 bytes
+        Assert.assertEquals(4, count);
+        Assert.assertNotNull(consumer.poll());
+        Assert.assertTrue(producer.offer(message));
+        Assert.assertFalse(producer.offer(message));
+        for (int i = 0; i < count; ++i) {
+            Assert.assertArrayEquals(message, consumer.poll());
+        }
+        Assert.assertNull(consumer.poll());
+        Assert.assertTrue(consumer.isEmpty());
+    }
+
+    @Test(timeout = 60000)
+    public void testSeveralConsumers() throws Exception {
+        File file = new File(folder.getRoot(), "test" + SharedMemoryRingBuffer.FILE_SUFFIX);
+        final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file,
+                SharedMemoryRingBuffer.MIN_CAPACITY);
+        final int numberOfMessages = 100000;
+        final Set<String> received = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        Thread consumers[] = new Thread[3];
+        for (int i = 0; i < consumers.length; ++i) {
+            // every consumer has its own instance
+            final SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.open(file);
+            consumers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    byte data[];
+                    while (!consumer.isEndOfStream()) {
+                        data = consumer.poll();
+                        if ((data != null) && !received.add(RabbitMQUtils.readString(data))) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            consumers[i].start();
+        }
+        for (int i = 0; i < numberOfMessages; ++i) {
+            byte data[] = RabbitMQUtils.writeString(createMessage(i));
+            while (!producer.offer(data)) {
+                Thread.yield();
+            }
+        }
+        while (!producer.offerEndOfStream()) {
+            Thread.yield();
+        }
+        for (int i = 0; i < consumers.length; ++i) {
+            consumers[i].join();
+        }
+        Assert.assertEquals(0, duplicates.get());
+        Assert.assertEquals(numberOfMessages, received.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLargeMessage() throws Exception {
+        File file = new File(folder.getRoot(), "test" + SharedMemoryRingBuffer.FILE_SUFFIX);
+        SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, SharedMemoryRingBuffer.MIN_CAPACITY);
+        producer.offer(new byte[producer.getMaxMessageLength() + 1]);
+    }
+
+    private static String createMessage(int id) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(id);
+        for (int i = 0; i < (id % 97); ++i) {
+            builder.append('x');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * This file is part of core.
+ *
+ * core is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * core is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with core.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.hobbit.utils.time;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HighResolutionClockTest {
+
+    @Test
+    public void testMonotonicity() {
+        long last = HighResolutionClock.currentTimeNanos();
+        long current;
+        for (int i = 0; i < 100000; ++i) {
+            current = HighResolutionClock.currentTimeNanos();
+            Assert.assertTrue("The clock went backwards (" + last + " -> " + current + ").", current >= last);
+            last = current;
+        }
+    }
+
+    @Test
+    public void testAnchoring() {
+        long before = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        long clockTime = HighResolutionClock.currentTimeNanos();
+        long after = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        // the clock should be close to the wall clock (we allow a drift of 1s)
+        long allowedDiff = TimeUnit.SECONDS.toNanos(1);
+        Assert.assertTrue(clockTime > (before - allowedDiff));
+        Assert.assertTrue(clockTime < (after + allowedDiff));
+        Assert.assertEquals(TimeUnit.NANOSECONDS.toMicros(clockTime), HighResolutionClock.currentTimeMicros(),
+                allowedDiff / 1000);
+    }
+}